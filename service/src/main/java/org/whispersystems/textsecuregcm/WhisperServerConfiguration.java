@@ -15,6 +15,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import org.whispersystems.textsecuregcm.attachments.TusConfiguration;
+import org.whispersystems.textsecuregcm.configuration.AccountsCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.ApnConfiguration;
 import org.whispersystems.textsecuregcm.configuration.AppleAppStoreConfiguration;
 import org.whispersystems.textsecuregcm.configuration.AppleDeviceCheckConfiguration;
@@ -38,6 +39,7 @@ import org.whispersystems.textsecuregcm.configuration.FaultTolerantRedisClusterF
 import org.whispersystems.textsecuregcm.configuration.FcmConfiguration;
 import org.whispersystems.textsecuregcm.configuration.GcpAttachmentsConfiguration;
 import org.whispersystems.textsecuregcm.configuration.GenericZkConfig;
+import org.whispersystems.textsecuregcm.configuration.GroupCredentialsConfiguration;
 import org.whispersystems.textsecuregcm.configuration.GooglePlayBillingConfiguration;
 import org.whispersystems.textsecuregcm.configuration.GrpcConfiguration;
 import org.whispersystems.textsecuregcm.configuration.HlrLookupConfiguration;
@@ -311,6 +313,16 @@ public class WhisperServerConfiguration extends Configuration {
   @JsonProperty
   private VirtualThreadConfiguration virtualThread = new VirtualThreadConfiguration();
 
+  @Valid
+  @NotNull
+  @JsonProperty
+  private AccountsCacheConfiguration accountsCache = new AccountsCacheConfiguration();
+
+  @Valid
+  @NotNull
+  @JsonProperty
+  private GroupCredentialsConfiguration groupCredentials = new GroupCredentialsConfiguration();
+
   @Valid
   @NotNull
   @JsonProperty
@@ -563,6 +575,14 @@ public class WhisperServerConfiguration extends Configuration {
     return virtualThread;
   }
 
+  public AccountsCacheConfiguration getAccountsCacheConfiguration() {
+    return accountsCache;
+  }
+
+  public GroupCredentialsConfiguration getGroupCredentialsConfiguration() {
+    return groupCredentials;
+  }
+
   public ExternalRequestFilterConfiguration getExternalRequestFilterConfiguration() {
     return externalRequestFilter;
   }
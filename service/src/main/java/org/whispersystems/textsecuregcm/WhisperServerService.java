@@ -83,6 +83,7 @@ import org.whispersystems.textsecuregcm.auth.CertificateGenerator;
 import org.whispersystems.textsecuregcm.auth.CloudflareTurnCredentialsManager;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestManager;
 import org.whispersystems.textsecuregcm.auth.ExternalServiceCredentialsGenerator;
+import org.whispersystems.textsecuregcm.auth.GroupCredentialsIssuer;
 import org.whispersystems.textsecuregcm.auth.IdlePrimaryDeviceAuthenticatedWebSocketUpgradeFilter;
 import org.whispersystems.textsecuregcm.auth.PhoneVerificationTokenManager;
 import org.whispersystems.textsecuregcm.auth.RegistrationLockVerificationManager;
@@ -225,11 +226,13 @@ import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.storage.ClientReleases;
 import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
 import org.whispersystems.textsecuregcm.storage.IssuedReceiptsManager;
+import org.whispersystems.textsecuregcm.storage.KEMPreKeyPageCache;
 import org.whispersystems.textsecuregcm.storage.KeysManager;
 import org.whispersystems.textsecuregcm.storage.MessagesCache;
 import org.whispersystems.textsecuregcm.storage.MessagesDynamoDb;
 import org.whispersystems.textsecuregcm.storage.MessagesManager;
 import org.whispersystems.textsecuregcm.storage.OneTimeDonationsManager;
+import org.whispersystems.textsecuregcm.storage.PagedSingleUseECPreKeyStore;
 import org.whispersystems.textsecuregcm.storage.PagedSingleUseKEMPreKeyStore;
 import org.whispersystems.textsecuregcm.storage.PersistentTimer;
 import org.whispersystems.textsecuregcm.storage.PhoneNumberIdentifiers;
@@ -476,13 +479,20 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         .build();
     KeysManager keysManager = new KeysManager(
         new SingleUseECPreKeyStore(dynamoDbAsyncClient, config.getDynamoDbTables().getEcKeys().getTableName()),
+        new PagedSingleUseECPreKeyStore(dynamoDbAsyncClient, config.getDynamoDbTables().getPagedEcKeys().getTableName()),
         new PagedSingleUseKEMPreKeyStore(
             dynamoDbAsyncClient,
             asyncKeysS3Client,
             config.getDynamoDbTables().getPagedKemKeys().getTableName(),
-            config.getPagedSingleUseKEMPreKeyStore().bucket()),
+            config.getPagedSingleUseKEMPreKeyStore().bucket(),
+            config.getPagedSingleUseKEMPreKeyStore().pageCacheSize().toBytes() > 0
+                ? new KEMPreKeyPageCache(config.getPagedSingleUseKEMPreKeyStore().pageCacheSize().toBytes(),
+                    config.getPagedSingleUseKEMPreKeyStore().pageCacheExpiration(),
+                    config.getPagedSingleUseKEMPreKeyStore().pageCacheOffHeap())
+                : null),
         new RepeatedUseECSignedPreKeyStore(dynamoDbAsyncClient, config.getDynamoDbTables().getEcSignedPreKeys().getTableName()),
-        new RepeatedUseKEMSignedPreKeyStore(dynamoDbAsyncClient, config.getDynamoDbTables().getKemLastResortKeys().getTableName()));
+        new RepeatedUseKEMSignedPreKeyStore(dynamoDbAsyncClient, config.getDynamoDbTables().getKemLastResortKeys().getTableName()),
+        dynamicConfigurationManager);
     MessagesDynamoDb messagesDynamoDb = new MessagesDynamoDb(dynamoDbClient, dynamoDbAsyncClient,
         config.getDynamoDbTables().getMessages().getTableName(),
         config.getDynamoDbTables().getMessages().getExpiration(),
@@ -561,6 +571,10 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
 
     // TODO: generally speaking this is a DynamoDB I/O executor for the accounts table; we should eventually have a general executor for speaking to the accounts table, but most of the server is still synchronous so this isn't widely useful yet
     ExecutorService batchIdentityCheckExecutor = ExecutorServiceBuilder.of(environment, "batchIdentityCheck").minThreads(32).maxThreads(32).build();
+    ExecutorService groupCredentialsIssuerExecutor = ExecutorServiceBuilder.of(environment, "groupCredentialsIssuer")
+        .minThreads(config.getGroupCredentialsConfiguration().issuerThreads())
+        .maxThreads(config.getGroupCredentialsConfiguration().issuerThreads())
+        .build();
 
     ExecutorService receiptSenderExecutor = ExecutorServiceBuilder.of(environment, "receiptSender")
         .maxThreads(2)
@@ -676,7 +690,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     SecureStorageClient secureStorageClient = new SecureStorageClient(storageCredentialsGenerator,
         storageServiceExecutor, retryExecutor, config.getSecureStorageServiceConfiguration());
     DisconnectionRequestManager disconnectionRequestManager = new DisconnectionRequestManager(pubsubClient,
-        disconnectionRequestListenerExecutor, retryExecutor);
+        messagesCluster, experimentEnrollmentManager, disconnectionRequestListenerExecutor, retryExecutor);
     ProfilesManager profilesManager = new ProfilesManager(profiles, cacheCluster, retryExecutor, asyncCdnS3Client,
         config.getCdnConfiguration().bucket());
     MessagesCache messagesCache = new MessagesCache(messagesCluster, messageDeliveryScheduler,
@@ -699,7 +713,8 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         pubsubClient, accountLockManager, keysManager, messagesManager, profilesManager,
         secureStorageClient, secureValueRecovery2Client, disconnectionRequestManager,
         registrationRecoveryPasswordsManager, clientPublicKeysManager, accountLockExecutor, messagePollExecutor,
-        retryExecutor, clock, config.getLinkDeviceSecretConfiguration().secret().value(), dynamicConfigurationManager);
+        retryExecutor, clock, config.getLinkDeviceSecretConfiguration().secret().value(), dynamicConfigurationManager,
+        config.getAccountsCacheConfiguration());
     RemoteConfigsManager remoteConfigsManager = new RemoteConfigsManager(remoteConfigs);
     APNSender apnSender = new APNSender(apnSenderExecutor, config.getApnConfiguration());
     FcmSender fcmSender = new FcmSender(fcmSenderExecutor, config.getFcmConfiguration().credentials().value());
@@ -818,6 +833,9 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     environment.lifecycle().manage(clientReleaseManager);
     environment.lifecycle().manage(virtualThreadPinEventMonitor);
     environment.lifecycle().manage(accountsManager);
+    environment.lifecycle().manage(reportMessageManager);
+    environment.lifecycle().manage(rateLimiters);
+    environment.lifecycle().manage(receiptSender);
 
     final GcsAttachmentGenerator gcsAttachmentGenerator = new GcsAttachmentGenerator(
         config.getGcpAttachmentsConfiguration().domain(),
@@ -1096,7 +1114,10 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         new CallQualitySurveyController(callQualitySurveyManager),
         new CertificateController(accountsManager, new CertificateGenerator(config.getDeliveryCertificate().certificate(),
             config.getDeliveryCertificate().ecPrivateKey(), config.getDeliveryCertificate().expiresDays(), config.getDeliveryCertificate().embedSigner()),
-            zkAuthOperations, callingGenericZkSecretParams, clock),
+            new GroupCredentialsIssuer(zkAuthOperations, callingGenericZkSecretParams, groupCredentialsIssuerExecutor,
+                config.getGroupCredentialsConfiguration().cacheEnabled(),
+                config.getGroupCredentialsConfiguration().cacheTimeToLive()),
+            clock),
         new ChallengeController(accountsManager, rateLimitChallengeManager, challengeConstraintChecker),
         new DeviceController(accountsManager, clientPublicKeysManager, rateLimiters, persistentTimer, config.getMaxDevices()),
         new DeviceCheckController(clock, accountsManager, backupAuthManager, appleDeviceCheckManager, rateLimiters,
@@ -44,6 +44,7 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Aut
 
   private final AccountsManager accountsManager;
   private final Clock clock;
+  private final VerifiedCredentialsCache verifiedCredentialsCache;
 
   public AccountAuthenticator(AccountsManager accountsManager) {
     this(accountsManager, Clock.systemUTC());
@@ -51,8 +52,17 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Aut
 
   @VisibleForTesting
   public AccountAuthenticator(AccountsManager accountsManager, Clock clock) {
+    this(accountsManager, clock, new VerifiedCredentialsCache());
+  }
+
+  @VisibleForTesting
+  AccountAuthenticator(final AccountsManager accountsManager,
+      final Clock clock,
+      final VerifiedCredentialsCache verifiedCredentialsCache) {
+
     this.accountsManager = accountsManager;
     this.clock = clock;
+    this.verifiedCredentialsCache = verifiedCredentialsCache;
   }
 
   static Pair<String, Byte> getIdentifierAndDeviceId(final String basicUsername) {
@@ -97,16 +107,19 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Aut
       Optional<Device> device = account.get().getDevice(deviceId);
 
       if (device.isEmpty()) {
+        verifiedCredentialsCache.invalidate(accountUuid, deviceId);
+
         failureReason = "noSuchDevice";
         return Optional.empty();
       }
 
       SaltedTokenHash deviceSaltedTokenHash = device.get().getAuthTokenHash();
-      if (deviceSaltedTokenHash.verify(basicCredentials.getPassword())) {
+      if (verifiedCredentialsCache.verify(accountUuid, deviceId, deviceSaltedTokenHash, basicCredentials.getPassword())) {
         succeeded = true;
         Account authenticatedAccount = updateLastSeen(account.get(), device.get());
         if (deviceSaltedTokenHash.getVersion() != SaltedTokenHash.CURRENT_VERSION) {
           OLD_TOKEN_VERSION_COUNTER.increment();
+          verifiedCredentialsCache.invalidate(accountUuid, deviceId);
           authenticatedAccount = accountsManager.updateDeviceAuthentication(
               authenticatedAccount,
               device.get(),
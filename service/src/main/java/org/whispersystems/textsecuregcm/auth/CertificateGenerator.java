@@ -5,8 +5,12 @@
 
 package org.whispersystems.textsecuregcm.auth;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.util.concurrent.TimeUnit;
 import org.signal.libsignal.protocol.ecc.ECPrivateKey;
 import org.whispersystems.textsecuregcm.entities.MessageProtos.SenderCertificate;
@@ -23,6 +27,8 @@ public class CertificateGenerator {
   private final ServerCertificate serverCertificate;
   private final int serverCertificateId;
 
+  private static final Timer SIGN_CERTIFICATE_TIMER = Metrics.timer(name(CertificateGenerator.class, "signCertificate"));
+
   public CertificateGenerator(byte[] serverCertificate, ECPrivateKey privateKey, int expiresDays, boolean embedSigner)
       throws InvalidProtocolBufferException {
     this.privateKey = privateKey;
@@ -52,8 +58,7 @@ public class CertificateGenerator {
     }
 
     byte[] certificate = builder.build().toByteArray();
-    byte[] signature;
-    signature = privateKey.calculateSignature(certificate);
+    byte[] signature = SIGN_CERTIFICATE_TIMER.record(() -> privateKey.calculateSignature(certificate));
 
     return SenderCertificate.newBuilder()
         .setCertificate(ByteString.copyFrom(certificate))
@@ -9,6 +9,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.InvalidProtocolBufferException;
 import io.dropwizard.lifecycle.Managed;
 import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.event.ClusterTopologyChangedEvent;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import io.lettuce.core.cluster.pubsub.RedisClusterPubSubAdapter;
 import io.lettuce.core.pubsub.RedisPubSubAdapter;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
@@ -17,34 +21,53 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubClusterConnection;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubConnection;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClient;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.util.RedisClusterUtil;
 import org.whispersystems.textsecuregcm.util.ResilienceUtil;
 import org.whispersystems.textsecuregcm.util.UUIDUtil;
+import org.whispersystems.textsecuregcm.util.Util;
 
 /**
  * A disconnection request manager broadcasts and dispatches requests for servers to close authenticated connections
  * from specific clients.
+ * <p>
+ * Disconnection requests may travel by one of two routes. Historically, all requests were broadcast to every server via
+ * a single, global pub/sub channel. Requests may now also be sent via per-device sharded pub/sub channels in the
+ * messages cluster; a server subscribes to a device's channel only while it has a listener registered for that device,
+ * and so only servers actually holding a connection for the device receive and process the request. Servers listen on
+ * both routes, and the route a sender uses for a given account is controlled by the
+ * {@value #SHARDED_DISCONNECTION_REQUESTS_EXPERIMENT_NAME} experiment so the global channel can be retired gradually.
+ * Because a sender using the sharded route only reaches servers subscribed to the device's channel, servers retry
+ * failed sharded subscriptions for as long as the device has listeners.
  *
  * @see DisconnectionRequestListener
  */
 public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte[]> implements Managed {
 
   private final FaultTolerantRedisClient pubSubClient;
+  private final FaultTolerantRedisClusterClient messagesCluster;
+  private final ExperimentEnrollmentManager experimentEnrollmentManager;
   private final Executor listenerEventExecutor;
   private final ScheduledExecutorService retryExecutor;
 
@@ -52,12 +75,28 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
 
   private static final Duration SUBSCRIBE_RETRY_DELAY = Duration.ofSeconds(5);
 
+  @VisibleForTesting
+  static final Duration SHARDED_SUBSCRIBE_RETRY_DELAY = Duration.ofSeconds(1);
+
   private final Map<AccountIdentifierAndDeviceId, List<DisconnectionRequestListener>> listeners =
       new ConcurrentHashMap<>();
 
   @Nullable
   private FaultTolerantPubSubConnection<byte[], byte[]> pubSubConnection;
 
+  @Nullable
+  private volatile FaultTolerantPubSubClusterConnection<byte[], byte[]> shardedPubSubConnection;
+
+  private final RedisClusterPubSubAdapter<byte[], byte[]> shardedPubSubListener = new RedisClusterPubSubAdapter<>() {
+    @Override
+    public void smessage(final RedisClusterNode node, final byte[] shardChannel, final byte[] message) {
+      handleDisconnectionRequest(message);
+    }
+  };
+
+  @VisibleForTesting
+  static final String SHARDED_DISCONNECTION_REQUESTS_EXPERIMENT_NAME = "shardedDisconnectionRequests";
+
   private static final byte[] DISCONNECTION_REQUEST_CHANNEL = "disconnection_requests".getBytes(StandardCharsets.UTF_8);
 
   private static final Counter DISCONNECTION_REQUESTS_SENT_COUNTER =
@@ -66,15 +105,26 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
   private static final Counter DISCONNECTION_REQUESTS_RECEIVED_COUNTER =
       Metrics.counter(MetricsUtil.name(DisconnectionRequestManager.class, "requestsReceived"));
 
+  private static final Counter SHARDED_SUBSCRIPTION_ERROR_COUNTER =
+      Metrics.counter(MetricsUtil.name(DisconnectionRequestManager.class, "shardedSubscriptionError"));
+
+  private static final Counter SHARDED_SUBSCRIPTION_RETRY_COUNTER =
+      Metrics.counter(MetricsUtil.name(DisconnectionRequestManager.class, "shardedSubscriptionRetry"));
+
   private static final Logger logger = LoggerFactory.getLogger(DisconnectionRequestManager.class);
 
-  private record AccountIdentifierAndDeviceId(UUID accountIdentifier, byte deviceId) {}
+  @VisibleForTesting
+  record AccountIdentifierAndDeviceId(UUID accountIdentifier, byte deviceId) {}
 
   public DisconnectionRequestManager(final FaultTolerantRedisClient pubSubClient,
+      final FaultTolerantRedisClusterClient messagesCluster,
+      final ExperimentEnrollmentManager experimentEnrollmentManager,
       final Executor listenerEventExecutor,
       final ScheduledExecutorService retryExecutor) {
 
     this.pubSubClient = pubSubClient;
+    this.messagesCluster = messagesCluster;
+    this.experimentEnrollmentManager = experimentEnrollmentManager;
     this.listenerEventExecutor = listenerEventExecutor;
     this.retryExecutor = retryExecutor;
   }
@@ -104,6 +154,10 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
         }
       } while (!subscribed);
     });
+
+    this.shardedPubSubConnection = messagesCluster.createBinaryPubSubConnection();
+    this.shardedPubSubConnection.usePubSubConnection(connection -> connection.addListener(shardedPubSubListener));
+    this.shardedPubSubConnection.subscribeToClusterTopologyChangedEvents(this::resubscribe);
   }
 
   @Override
@@ -116,6 +170,15 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
     }
 
     pubSubConnection = null;
+
+    if (shardedPubSubConnection != null) {
+      shardedPubSubConnection.usePubSubConnection(connection -> {
+        connection.removeListener(shardedPubSubListener);
+        connection.close();
+      });
+    }
+
+    shardedPubSubConnection = null;
   }
 
   /**
@@ -127,6 +190,13 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
    */
   public void addListener(final UUID accountIdentifier, final byte deviceId, final DisconnectionRequestListener listener) {
     listeners.compute(new AccountIdentifierAndDeviceId(accountIdentifier, deviceId), (_, existingListeners) -> {
+      if (existingListeners == null) {
+        // This is the first listener for the device; start receiving sharded requests for it. As with other
+        // subscription changes, we issue the (asynchronous) command within `compute` so subscribe/unsubscribe commands
+        // for a device are dispatched in the same order as changes to its listeners.
+        updateShardedSubscription(accountIdentifier, deviceId, true);
+      }
+
       final List<DisconnectionRequestListener> listeners =
           existingListeners == null ? new ArrayList<>() : existingListeners;
 
@@ -147,7 +217,111 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
     listeners.computeIfPresent(new AccountIdentifierAndDeviceId(accountIdentifier, deviceId), (_, existingListeners) -> {
       existingListeners.remove(listener);
 
-      return existingListeners.isEmpty() ? null : existingListeners;
+      if (existingListeners.isEmpty()) {
+        updateShardedSubscription(accountIdentifier, deviceId, false);
+        return null;
+      }
+
+      return existingListeners;
+    });
+  }
+
+  private void updateShardedSubscription(final UUID accountIdentifier, final byte deviceId, final boolean subscribe) {
+    final FaultTolerantPubSubClusterConnection<byte[], byte[]> connection = shardedPubSubConnection;
+
+    if (connection == null) {
+      return;
+    }
+
+    final AccountIdentifierAndDeviceId accountIdentifierAndDeviceId =
+        new AccountIdentifierAndDeviceId(accountIdentifier, deviceId);
+
+    final byte[] channel = getShardedDisconnectionRequestChannel(accountIdentifier, deviceId);
+
+    try {
+      connection.withPubSubConnection(c -> subscribe
+              ? c.async().ssubscribe(channel)
+              : c.async().sunsubscribe(channel))
+          .whenComplete((_, throwable) -> {
+            if (throwable != null) {
+              handleShardedSubscriptionFailure(List.of(accountIdentifierAndDeviceId), subscribe, throwable);
+            }
+          });
+    } catch (final Exception e) {
+      handleShardedSubscriptionFailure(List.of(accountIdentifierAndDeviceId), subscribe, e);
+    }
+  }
+
+  private void handleShardedSubscriptionFailure(final Collection<AccountIdentifierAndDeviceId> accountIdentifiersAndDeviceIds,
+      final boolean subscribe,
+      final Throwable cause) {
+
+    logger.warn("Failed to update sharded disconnection request subscription", cause);
+    SHARDED_SUBSCRIPTION_ERROR_COUNTER.increment();
+
+    // A failed unsubscription just means we'll receive (and ignore) requests for a device with no listeners. A failed
+    // subscription, though, means we'd silently miss requests for a device that does have listeners, so keep trying
+    // until we succeed or the device's listeners go away.
+    if (subscribe) {
+      accountIdentifiersAndDeviceIds.forEach(accountIdentifierAndDeviceId ->
+          retryExecutor.schedule(() -> retryShardedSubscription(accountIdentifierAndDeviceId),
+              SHARDED_SUBSCRIBE_RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @VisibleForTesting
+  void retryShardedSubscription(final AccountIdentifierAndDeviceId accountIdentifierAndDeviceId) {
+    // As in `addListener`, issue the command within `computeIfPresent` so it's ordered with respect to any concurrent
+    // changes to the device's listeners; if all listeners for the device have been removed, there's nothing to retry
+    listeners.computeIfPresent(accountIdentifierAndDeviceId, (_, existingListeners) -> {
+      SHARDED_SUBSCRIPTION_RETRY_COUNTER.increment();
+
+      updateShardedSubscription(accountIdentifierAndDeviceId.accountIdentifier(),
+          accountIdentifierAndDeviceId.deviceId(), true);
+
+      return existingListeners;
+    });
+  }
+
+  @VisibleForTesting
+  void resubscribe(final ClusterTopologyChangedEvent clusterTopologyChangedEvent) {
+    final FaultTolerantPubSubClusterConnection<byte[], byte[]> connection = shardedPubSubConnection;
+
+    if (connection == null) {
+      return;
+    }
+
+    final boolean[] changedSlots = RedisClusterUtil.getChangedSlots(clusterTopologyChangedEvent);
+
+    final Map<Integer, List<AccountIdentifierAndDeviceId>> accountIdentifiersAndDeviceIdsBySlot = new HashMap<>();
+
+    // Organize subscriptions by slot so we can issue a smaller number of larger resubscription commands
+    listeners.keySet().forEach(accountIdentifierAndDeviceId -> {
+      final int slot = SlotHash.getSlot(getShardedDisconnectionRequestChannel(
+          accountIdentifierAndDeviceId.accountIdentifier(), accountIdentifierAndDeviceId.deviceId()));
+
+      if (changedSlots[slot]) {
+        accountIdentifiersAndDeviceIdsBySlot.computeIfAbsent(slot, _ -> new ArrayList<>())
+            .add(accountIdentifierAndDeviceId);
+      }
+    });
+
+    accountIdentifiersAndDeviceIdsBySlot.forEach((_, accountIdentifiersAndDeviceIds) -> {
+      final byte[][] channels = accountIdentifiersAndDeviceIds.stream()
+          .map(accountIdentifierAndDeviceId -> getShardedDisconnectionRequestChannel(
+              accountIdentifierAndDeviceId.accountIdentifier(), accountIdentifierAndDeviceId.deviceId()))
+          .toArray(byte[][]::new);
+
+      try {
+        connection.withPubSubConnection(c -> c.async().ssubscribe(channels))
+            .whenComplete((_, throwable) -> {
+              if (throwable != null) {
+                handleShardedSubscriptionFailure(accountIdentifiersAndDeviceIds, true, throwable);
+              }
+            });
+      } catch (final Exception e) {
+        handleShardedSubscriptionFailure(accountIdentifiersAndDeviceIds, true, e);
+      }
     });
   }
 
@@ -178,6 +352,13 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
    * @return a future that completes when the request has been broadcast
    */
   public CompletionStage<Void> requestDisconnection(final UUID accountIdentifier, final Collection<Byte> deviceIds) {
+    if (experimentEnrollmentManager.isEnrolled(accountIdentifier, SHARDED_DISCONNECTION_REQUESTS_EXPERIMENT_NAME)) {
+      return CompletableFuture.allOf(deviceIds.stream()
+              .map(deviceId -> requestShardedDisconnection(accountIdentifier, deviceId).toCompletableFuture())
+              .toArray(CompletableFuture[]::new))
+          .thenRun(DISCONNECTION_REQUESTS_SENT_COUNTER::increment);
+    }
+
     final DisconnectionRequest disconnectionRequest = DisconnectionRequest.newBuilder()
         .setAccountIdentifier(UUIDUtil.toByteString(accountIdentifier))
         .addAllDeviceIds(deviceIds.stream().mapToInt(Byte::intValue).boxed().toList())
@@ -190,8 +371,33 @@ public class DisconnectionRequestManager extends RedisPubSubAdapter<byte[], byte
         .thenRun(DISCONNECTION_REQUESTS_SENT_COUNTER::increment);
   }
 
+  private CompletionStage<Void> requestShardedDisconnection(final UUID accountIdentifier, final byte deviceId) {
+    final byte[] disconnectionRequestBytes = DisconnectionRequest.newBuilder()
+        .setAccountIdentifier(UUIDUtil.toByteString(accountIdentifier))
+        .addDeviceIds(deviceId)
+        .build()
+        .toByteArray();
+
+    return ResilienceUtil.getGeneralRedisRetry(RETRY_NAME)
+        .executeCompletionStage(retryExecutor, () -> messagesCluster.withBinaryCluster(connection ->
+                connection.async().spublish(getShardedDisconnectionRequestChannel(accountIdentifier, deviceId),
+                    disconnectionRequestBytes))
+            .toCompletableFuture())
+        .thenRun(Util.NOOP);
+  }
+
+  @VisibleForTesting
+  static byte[] getShardedDisconnectionRequestChannel(final UUID accountIdentifier, final byte deviceId) {
+    // Shares a hash tag (and therefore a slot) with the device's other per-device channels and message queue
+    return ("disconnection_requests::{" + accountIdentifier + "::" + deviceId + "}").getBytes(StandardCharsets.UTF_8);
+  }
+
   @Override
   public void message(final byte[] channel, final byte[] message) {
+    handleDisconnectionRequest(message);
+  }
+
+  private void handleDisconnectionRequest(final byte[] message) {
     final UUID accountIdentifier;
     final List<Byte> deviceIds;
 
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.signal.libsignal.protocol.ServiceId;
+import org.signal.libsignal.zkgroup.GenericServerSecretParams;
+import org.signal.libsignal.zkgroup.auth.ServerZkAuthOperations;
+import org.signal.libsignal.zkgroup.calllinks.CallLinkAuthCredentialResponse;
+import org.whispersystems.textsecuregcm.entities.GroupCredentials;
+
+/// Issues group and call link authentication credentials for a range of redemption days.
+///
+/// Issuing each credential is a comparatively expensive zero-knowledge operation, and clients request a week's worth of
+/// credentials at a time. Credentials for each redemption day are issued in parallel on a dedicated, bounded executor
+/// so a single request doesn't tie up a request thread for the whole range and so credential issuance can't crowd out
+/// other work.
+///
+/// Credentials may optionally be cached for a short time, keyed by ACI, PNI, and redemption day. A credential issued
+/// for a given ACI, PNI, and redemption day remains valid for that day, and clients derive fresh, unlinkable
+/// presentations from a credential each time they use it, so handing out the same credential to repeated refreshes is
+/// safe. Because the PNI is part of the key, a change of phone number produces new credentials immediately.
+public class GroupCredentialsIssuer {
+
+  private final ServerZkAuthOperations serverZkAuthOperations;
+  private final GenericServerSecretParams genericServerSecretParams;
+  private final Executor executor;
+
+  @Nullable
+  private final Cache<CredentialKey, IssuedCredentials> issuedCredentialsByKey;
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  static final long DEFAULT_MAX_CACHE_SIZE = 500_000;
+
+  private static final String ISSUE_CREDENTIAL_CPU_TIME_TIMER_NAME =
+      name(GroupCredentialsIssuer.class, "issueCredentialCpuTime");
+
+  private static final String CREDENTIAL_TYPE_TAG_NAME = "type";
+
+  private static final Timer ISSUE_AUTH_CREDENTIAL_CPU_TIMER =
+      Metrics.timer(ISSUE_CREDENTIAL_CPU_TIME_TIMER_NAME, CREDENTIAL_TYPE_TAG_NAME, "authCredentialWithPni");
+
+  private static final Timer ISSUE_CALL_LINK_AUTH_CREDENTIAL_CPU_TIMER =
+      Metrics.timer(ISSUE_CREDENTIAL_CPU_TIME_TIMER_NAME, CREDENTIAL_TYPE_TAG_NAME, "callLinkAuthCredential");
+
+  private static final Counter CACHE_HIT_COUNTER =
+      Metrics.counter(name(GroupCredentialsIssuer.class, "getCredentials"), "outcome", "hit");
+
+  private static final Counter CACHE_MISS_COUNTER =
+      Metrics.counter(name(GroupCredentialsIssuer.class, "getCredentials"), "outcome", "miss");
+
+  private record CredentialKey(UUID aci, UUID pni, Instant redemptionTime) {
+  }
+
+  private record IssuedCredentials(byte[] authCredentialWithPni, byte[] callLinkAuthCredential) {
+  }
+
+  /// @param serverZkAuthOperations the operations with which to issue group authentication credentials
+  /// @param genericServerSecretParams the secret parameters with which to issue call link authentication credentials
+  /// @param executor the executor on which to issue credentials
+  /// @param cacheEnabled whether to cache issued credentials
+  /// @param cacheTimeToLive how long to cache issued credentials if caching is enabled
+  public GroupCredentialsIssuer(final ServerZkAuthOperations serverZkAuthOperations,
+      final GenericServerSecretParams genericServerSecretParams,
+      final Executor executor,
+      final boolean cacheEnabled,
+      final Duration cacheTimeToLive) {
+
+    this(serverZkAuthOperations, genericServerSecretParams, executor, cacheEnabled, cacheTimeToLive,
+        Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  GroupCredentialsIssuer(final ServerZkAuthOperations serverZkAuthOperations,
+      final GenericServerSecretParams genericServerSecretParams,
+      final Executor executor,
+      final boolean cacheEnabled,
+      final Duration cacheTimeToLive,
+      final Ticker ticker) {
+
+    this.serverZkAuthOperations = serverZkAuthOperations;
+    this.genericServerSecretParams = genericServerSecretParams;
+    this.executor = executor;
+
+    if (cacheEnabled) {
+      this.issuedCredentialsByKey = CacheBuilder.newBuilder()
+          .expireAfterWrite(cacheTimeToLive)
+          .maximumSize(DEFAULT_MAX_CACHE_SIZE)
+          .ticker(ticker)
+          .build();
+
+      Metrics.gauge(name(GroupCredentialsIssuer.class, "cacheSize"), issuedCredentialsByKey, Cache::size);
+    } else {
+      this.issuedCredentialsByKey = null;
+    }
+  }
+
+  /// Issues group and call link authentication credentials for each day in the given redemption range.
+  ///
+  /// @param aci the ACI of the account for which to issue credentials
+  /// @param pni the PNI of the account for which to issue credentials
+  /// @param redemptionRange the days for which to issue credentials
+  ///
+  /// @return a future that yields credentials for each day in the given range, in order
+  public CompletableFuture<GroupCredentials> issueCredentials(final ServiceId.Aci aci,
+      final ServiceId.Pni pni,
+      final RedemptionRange redemptionRange) {
+
+    final List<Instant> redemptionTimes = new ArrayList<>();
+    final List<CompletableFuture<IssuedCredentials>> issuedCredentialsFutures = new ArrayList<>();
+
+    for (final Instant redemptionTime : redemptionRange) {
+      redemptionTimes.add(redemptionTime);
+      issuedCredentialsFutures.add(getCredentials(aci, pni, redemptionTime));
+    }
+
+    return CompletableFuture.allOf(issuedCredentialsFutures.toArray(CompletableFuture[]::new))
+        .thenApply(_ -> {
+          final List<GroupCredentials.GroupCredential> credentials = new ArrayList<>(redemptionTimes.size());
+          final List<GroupCredentials.CallLinkAuthCredential> callLinkAuthCredentials =
+              new ArrayList<>(redemptionTimes.size());
+
+          for (int i = 0; i < redemptionTimes.size(); i++) {
+            final long redemptionTimeSeconds = redemptionTimes.get(i).getEpochSecond();
+            final IssuedCredentials issuedCredentials = issuedCredentialsFutures.get(i).join();
+
+            credentials.add(new GroupCredentials.GroupCredential(issuedCredentials.authCredentialWithPni(),
+                (int) redemptionTimeSeconds));
+
+            callLinkAuthCredentials.add(new GroupCredentials.CallLinkAuthCredential(
+                issuedCredentials.callLinkAuthCredential(), redemptionTimeSeconds));
+          }
+
+          return new GroupCredentials(credentials, callLinkAuthCredentials, pni.getRawUUID());
+        });
+  }
+
+  private CompletableFuture<IssuedCredentials> getCredentials(final ServiceId.Aci aci,
+      final ServiceId.Pni pni,
+      final Instant redemptionTime) {
+
+    if (issuedCredentialsByKey == null) {
+      return CompletableFuture.supplyAsync(() -> issueCredentialsForDay(aci, pni, redemptionTime), executor);
+    }
+
+    final CredentialKey credentialKey = new CredentialKey(aci.getRawUUID(), pni.getRawUUID(), redemptionTime);
+    final IssuedCredentials cachedCredentials = issuedCredentialsByKey.getIfPresent(credentialKey);
+
+    if (cachedCredentials != null) {
+      CACHE_HIT_COUNTER.increment();
+      return CompletableFuture.completedFuture(cachedCredentials);
+    }
+
+    CACHE_MISS_COUNTER.increment();
+
+    return CompletableFuture.supplyAsync(() -> {
+      final IssuedCredentials issuedCredentials = issueCredentialsForDay(aci, pni, redemptionTime);
+      issuedCredentialsByKey.put(credentialKey, issuedCredentials);
+
+      return issuedCredentials;
+    }, executor);
+  }
+
+  private IssuedCredentials issueCredentialsForDay(final ServiceId.Aci aci,
+      final ServiceId.Pni pni,
+      final Instant redemptionTime) {
+
+    final byte[] authCredentialWithPni = recordCpuTime(ISSUE_AUTH_CREDENTIAL_CPU_TIMER,
+        () -> serverZkAuthOperations.issueAuthCredentialWithPniZkc(aci, pni, redemptionTime).serialize());
+
+    final byte[] callLinkAuthCredential = recordCpuTime(ISSUE_CALL_LINK_AUTH_CREDENTIAL_CPU_TIMER,
+        () -> CallLinkAuthCredentialResponse.issueCredential(aci, redemptionTime, genericServerSecretParams).serialize());
+
+    return new IssuedCredentials(authCredentialWithPni, callLinkAuthCredential);
+  }
+
+  private static <T> T recordCpuTime(final Timer timer, final Supplier<T> supplier) {
+    if (!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+      return supplier.get();
+    }
+
+    final long start = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+
+    try {
+      return supplier.get();
+    } finally {
+      timer.record(THREAD_MX_BEAN.getCurrentThreadCpuTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+}
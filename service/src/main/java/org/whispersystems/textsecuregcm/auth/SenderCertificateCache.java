@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.storage.Account;
+
+/// A bounded, node-local cache of signed sender certificates.
+///
+/// A sender certificate depends only on the sender's ACI, device ID, ACI identity key, and (optionally) phone number,
+/// and remains valid for days after it's issued. Clients request certificates far more often than any of those inputs
+/// change, so signing a fresh certificate for every request is mostly wasted work. This cache keys certificates on all
+/// of those inputs, so a change to any of them produces a new certificate immediately.
+///
+/// Certificates are also keyed on a coarse "reissue bucket" derived from the current time. Once a bucket has passed,
+/// certificates from that bucket are never returned again, which guarantees that every certificate returned by this
+/// cache has at least its full lifetime, less the reissue interval, remaining.
+public class SenderCertificateCache {
+
+  private final CertificateGenerator certificateGenerator;
+  private final Duration reissueInterval;
+  private final Clock clock;
+
+  private final Cache<CertificateKey, byte[]> certificatesByKey;
+
+  static final Duration DEFAULT_REISSUE_INTERVAL = Duration.ofHours(1);
+  static final long DEFAULT_MAX_SIZE = 100_000;
+
+  private static final Counter CACHE_HIT_COUNTER =
+      Metrics.counter(name(SenderCertificateCache.class, "getCertificate"), "outcome", "hit");
+
+  private static final Counter CACHE_MISS_COUNTER =
+      Metrics.counter(name(SenderCertificateCache.class, "getCertificate"), "outcome", "miss");
+
+  private record CertificateKey(UUID accountIdentifier,
+                                byte deviceId,
+                                ByteString identityKey,
+                                @Nullable String e164,
+                                long reissueBucket) {
+  }
+
+  public SenderCertificateCache(final CertificateGenerator certificateGenerator, final Clock clock) {
+    this(certificateGenerator, DEFAULT_REISSUE_INTERVAL, DEFAULT_MAX_SIZE, clock);
+  }
+
+  @VisibleForTesting
+  SenderCertificateCache(final CertificateGenerator certificateGenerator,
+      final Duration reissueInterval,
+      final long maxSize,
+      final Clock clock) {
+
+    this.certificateGenerator = certificateGenerator;
+    this.reissueInterval = reissueInterval;
+    this.clock = clock;
+
+    // Entries can never be returned once their bucket has passed, so there's no reason to hold them any longer than
+    // that
+    this.certificatesByKey = CacheBuilder.newBuilder()
+        .expireAfterWrite(reissueInterval)
+        .maximumSize(maxSize)
+        .build();
+
+    Metrics.gauge(name(SenderCertificateCache.class, "size"), certificatesByKey, Cache::size);
+  }
+
+  /// Returns a signed sender certificate for the given account and device, signing a new one only if no matching
+  /// certificate was issued during the current reissue interval.
+  ///
+  /// @param account the account for which to issue a certificate
+  /// @param deviceId the ID of the device for which to issue a certificate
+  /// @param includeE164 whether to include the account's phone number in the certificate
+  ///
+  /// @return a serialized, signed sender certificate
+  ///
+  /// @see CertificateGenerator#createFor(Account, byte, boolean)
+  public byte[] getCertificate(final Account account, final byte deviceId, final boolean includeE164) {
+    final CertificateKey certificateKey = new CertificateKey(account.getUuid(),
+        deviceId,
+        ByteString.copyFrom(account.getIdentityKey(IdentityType.ACI).serialize()),
+        includeE164 ? account.getNumber() : null,
+        clock.millis() / reissueInterval.toMillis());
+
+    final byte[] cachedCertificate = certificatesByKey.getIfPresent(certificateKey);
+
+    if (cachedCertificate != null) {
+      CACHE_HIT_COUNTER.increment();
+      return cachedCertificate.clone();
+    }
+
+    CACHE_MISS_COUNTER.increment();
+
+    final byte[] certificate = certificateGenerator.createFor(account, deviceId, includeE164);
+    certificatesByKey.put(certificateKey, certificate);
+
+    return certificate.clone();
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.UUID;
+
+/// A short-lived, bounded cache of successful credential verifications.
+///
+/// Verifying a device's password requires deriving a hash from the presented password and the device's stored salt,
+/// which is comparatively expensive and happens on every authenticated request. This cache remembers, per device, a
+/// keyed digest of the last password that verified successfully along with the stored [SaltedTokenHash] it was verified
+/// against. A later request that presents the same password for a device whose stored credentials haven't changed can
+/// then be authenticated without repeating the derivation.
+///
+/// Because each entry is bound to the stored credentials it was verified against, changing a device's credentials (or
+/// removing the device and linking a new one with the same ID) makes any cached verification unusable, even if the
+/// change happened on another server. Callers that know a device's credentials have changed should still
+/// [#invalidate] its entry to release it promptly.
+///
+/// The digest key is random and never leaves the process, and only successful verifications are cached.
+class VerifiedCredentialsCache {
+
+  private final Cache<DeviceKey, VerifiedCredentials> verifiedCredentialsByDevice;
+  private final HashFunction passwordDigestFunction;
+
+  static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(1);
+  static final long DEFAULT_MAX_SIZE = 250_000;
+
+  private static final Counter CACHE_HIT_COUNTER =
+      Metrics.counter(name(VerifiedCredentialsCache.class, "verify"), "outcome", "hit");
+
+  private static final Counter CACHE_MISS_COUNTER =
+      Metrics.counter(name(VerifiedCredentialsCache.class, "verify"), "outcome", "miss");
+
+  private record DeviceKey(UUID accountIdentifier, byte deviceId) {
+  }
+
+  private record VerifiedCredentials(SaltedTokenHash storedCredentials, byte[] passwordDigest) {
+  }
+
+  VerifiedCredentialsCache() {
+    this(DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_SIZE, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  VerifiedCredentialsCache(final Duration timeToLive, final long maxSize, final Ticker ticker) {
+    this.verifiedCredentialsByDevice = CacheBuilder.newBuilder()
+        .expireAfterWrite(timeToLive)
+        .maximumSize(maxSize)
+        .ticker(ticker)
+        .build();
+
+    final byte[] digestKey = new byte[32];
+    new SecureRandom().nextBytes(digestKey);
+
+    this.passwordDigestFunction = Hashing.hmacSha256(digestKey);
+  }
+
+  /// Checks whether the given password matches the given stored credentials for the given device, consulting the cache
+  /// before verifying the password directly.
+  ///
+  /// @return `true` if the password matches the stored credentials or `false` otherwise
+  boolean verify(final UUID accountIdentifier,
+      final byte deviceId,
+      final SaltedTokenHash storedCredentials,
+      final String password) {
+
+    final DeviceKey deviceKey = new DeviceKey(accountIdentifier, deviceId);
+    final byte[] passwordDigest = passwordDigestFunction.hashString(password, StandardCharsets.UTF_8).asBytes();
+
+    final VerifiedCredentials verifiedCredentials = verifiedCredentialsByDevice.getIfPresent(deviceKey);
+
+    if (verifiedCredentials != null
+        && verifiedCredentials.storedCredentials().equals(storedCredentials)
+        && MessageDigest.isEqual(verifiedCredentials.passwordDigest(), passwordDigest)) {
+
+      CACHE_HIT_COUNTER.increment();
+      return true;
+    }
+
+    CACHE_MISS_COUNTER.increment();
+
+    if (storedCredentials.verify(password)) {
+      verifiedCredentialsByDevice.put(deviceKey, new VerifiedCredentials(storedCredentials, passwordDigest));
+      return true;
+    }
+
+    return false;
+  }
+
+  /// Discards any cached verification for the given device
+  void invalidate(final UUID accountIdentifier, final byte deviceId) {
+    verifiedCredentialsByDevice.invalidate(new DeviceKey(accountIdentifier, deviceId));
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration;
+
+/**
+ * Configures how accounts are cached in front of DynamoDB.
+ *
+ * @param nearCacheEnabled whether to keep a small, node-local cache of accounts in front of the shared Redis cache;
+ * disabled by default
+ * @param format the format in which accounts are written to and read from the shared Redis cache
+ * @param readAlternateFormat whether to fall back to reading an account in the other format when it isn't cached in
+ * the configured format; this costs an extra Redis read on every cache miss, and should be enabled only while changing
+ * {@code format} in a rolling deployment
+ */
+public record AccountsCacheConfiguration(Boolean nearCacheEnabled, SerializationFormat format,
+                                         Boolean readAlternateFormat) {
+
+  public enum SerializationFormat {
+    JSON,
+    SMILE
+  }
+
+  public AccountsCacheConfiguration() {
+    this(null, null, null);
+  }
+
+  public AccountsCacheConfiguration {
+    if (nearCacheEnabled == null) {
+      nearCacheEnabled = false;
+    }
+
+    if (format == null) {
+      format = SerializationFormat.JSON;
+    }
+
+    if (readAlternateFormat == null) {
+      readAlternateFormat = false;
+    }
+  }
+}
@@ -60,6 +60,7 @@ public class DynamoDbTables {
   private final Table ecSignedPreKeys;
   private final Table kemLastResortKeys;
   private final Table pagedKemKeys;
+  private final Table pagedEcKeys;
   private final TableWithExpiration messages;
   private final TableWithExpiration onetimeDonations;
   private final Table phoneNumberIdentifiers;
@@ -88,6 +89,7 @@ public class DynamoDbTables {
       @JsonProperty("ecSignedPreKeys") final Table ecSignedPreKeys,
       @JsonProperty("pqLastResortKeys") final Table kemLastResortKeys,
       @JsonProperty("pagedPqKeys") final Table pagedKemKeys,
+      @JsonProperty("pagedEcKeys") final Table pagedEcKeys,
       @JsonProperty("messages") final TableWithExpiration messages,
       @JsonProperty("onetimeDonations") final TableWithExpiration onetimeDonations,
       @JsonProperty("phoneNumberIdentifiers") final Table phoneNumberIdentifiers,
@@ -114,6 +116,7 @@ public class DynamoDbTables {
     this.ecKeys = ecKeys;
     this.ecSignedPreKeys = ecSignedPreKeys;
     this.pagedKemKeys = pagedKemKeys;
+    this.pagedEcKeys = pagedEcKeys;
     this.kemLastResortKeys = kemLastResortKeys;
     this.messages = messages;
     this.onetimeDonations = onetimeDonations;
@@ -202,6 +205,12 @@ public class DynamoDbTables {
     return pagedKemKeys;
   }
 
+  @NotNull
+  @Valid
+  public Table getPagedEcKeys() {
+    return pagedEcKeys;
+  }
+
   @NotNull
   @Valid
   public Table getKemLastResortKeys() {
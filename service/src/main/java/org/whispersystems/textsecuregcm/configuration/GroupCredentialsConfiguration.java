@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration;
+
+import java.time.Duration;
+
+/**
+ * Configures how group and call link authentication credentials are issued.
+ *
+ * @param cacheEnabled whether to keep a short-lived, node-local cache of issued credentials so that repeated refreshes
+ * by the same account reuse credentials that were already issued for a given redemption day
+ * @param cacheTimeToLive how long to keep issued credentials in the cache
+ * @param issuerThreads the number of threads on which to issue credentials; if absent, defaults to the number of
+ * available processors
+ */
+public record GroupCredentialsConfiguration(Boolean cacheEnabled, Duration cacheTimeToLive, Integer issuerThreads) {
+
+  public GroupCredentialsConfiguration() {
+    this(null, null, null);
+  }
+
+  public GroupCredentialsConfiguration {
+    if (cacheEnabled == null) {
+      cacheEnabled = false;
+    }
+
+    if (cacheTimeToLive == null) {
+      cacheTimeToLive = Duration.ofMinutes(15);
+    }
+
+    if (issuerThreads == null) {
+      issuerThreads = Runtime.getRuntime().availableProcessors();
+    }
+  }
+}
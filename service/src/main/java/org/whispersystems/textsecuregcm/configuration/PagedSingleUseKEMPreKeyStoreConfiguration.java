@@ -5,12 +5,36 @@
 
 package org.whispersystems.textsecuregcm.configuration;
 
+import io.dropwizard.util.DataSize;
 import jakarta.validation.constraints.NotBlank;
-import javax.annotation.Nullable;
 import java.net.URI;
+import java.time.Duration;
+import javax.annotation.Nullable;
 
+/**
+ * @param bucket              the object store bucket in which pre-key pages are stored
+ * @param region              the region of the object store bucket
+ * @param endpointOverride    an optional endpoint override for the object store
+ * @param pageCacheSize       the maximum total size of recently-read pages to keep in a node-local cache; a size of
+ *                            zero (the default) disables the cache and reads individual keys with ranged reads instead
+ * @param pageCacheExpiration how long to keep a cached page after it was last read
+ * @param pageCacheOffHeap    whether to hold cached pages in direct (off-heap) buffers
+ */
 public record PagedSingleUseKEMPreKeyStoreConfiguration(
     @NotBlank String bucket,
     @NotBlank String region,
-    @Nullable URI endpointOverride) {
+    @Nullable URI endpointOverride,
+    @Nullable DataSize pageCacheSize,
+    @Nullable Duration pageCacheExpiration,
+    boolean pageCacheOffHeap) {
+
+  public PagedSingleUseKEMPreKeyStoreConfiguration {
+    if (pageCacheSize == null) {
+      pageCacheSize = DataSize.bytes(0);
+    }
+
+    if (pageCacheExpiration == null) {
+      pageCacheExpiration = Duration.ofMinutes(10);
+    }
+  }
 }
@@ -72,6 +72,11 @@ public class DynamicConfiguration {
   @Valid
   private DynamicCarrierDataLookupConfiguration carrierDataLookup = new DynamicCarrierDataLookupConfiguration();
 
+  @JsonProperty
+  @Valid
+  private DynamicPreKeysConfiguration preKeys = new DynamicPreKeysConfiguration(
+      DynamicPreKeysConfiguration.ECPreKeyStoreMode.LEGACY);
+
   public Optional<DynamicExperimentEnrollmentConfiguration> getExperimentEnrollmentConfiguration(
       final String experimentName) {
     return Optional.ofNullable(experiments.get(experimentName));
@@ -129,4 +134,8 @@ public class DynamicConfiguration {
   public DynamicCarrierDataLookupConfiguration getCarrierDataLookupConfiguration() {
     return carrierDataLookup;
   }
+
+  public DynamicPreKeysConfiguration getPreKeysConfiguration() {
+    return preKeys;
+  }
 }
@@ -7,6 +7,7 @@ package org.whispersystems.textsecuregcm.configuration.dynamic;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.annotations.VisibleForTesting;
+import jakarta.validation.constraints.Min;
 
 public class DynamicMessagePersisterConfiguration {
 
@@ -19,6 +20,13 @@ public class DynamicMessagePersisterConfiguration {
   @JsonProperty
   private double trimOversizedQueueExtraRoomRatio = 1.5;
 
+  /**
+   * The maximum number of queues each persister worker thread may persist concurrently
+   */
+  @JsonProperty
+  @Min(1)
+  private int persistQueueConcurrency = 8;
+
   public DynamicMessagePersisterConfiguration() {}
 
   @VisibleForTesting
@@ -35,4 +43,8 @@ public class DynamicMessagePersisterConfiguration {
     return trimOversizedQueueExtraRoomRatio;
   }
 
+  public int getPersistQueueConcurrency() {
+    return persistQueueConcurrency;
+  }
+
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration.dynamic;
+
+/**
+ * @param ecPreKeyStoreMode which store(s) to use for single-use EC pre-keys while migrating from one item per key to
+ *                          one page per device
+ */
+public record DynamicPreKeysConfiguration(ECPreKeyStoreMode ecPreKeyStoreMode) {
+
+  public enum ECPreKeyStoreMode {
+    /**
+     * Store, take, and count keys using only the per-key store
+     */
+    LEGACY,
+
+    /**
+     * Store new keys in the paged store (clearing any keys in the per-key store); take keys from the paged store and
+     * fall back to the per-key store, and count keys in both stores
+     */
+    MIGRATION,
+
+    /**
+     * Store, take, and count keys using only the paged store
+     */
+    PAGED
+  }
+
+  public DynamicPreKeysConfiguration {
+    if (ecPreKeyStoreMode == null) {
+      ecPreKeyStoreMode = ECPreKeyStoreMode.LEGACY;
+    }
+  }
+}
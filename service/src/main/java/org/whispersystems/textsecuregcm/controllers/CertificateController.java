@@ -24,18 +24,15 @@ import java.security.InvalidKeyException;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Nonnull;
 import org.signal.libsignal.protocol.ServiceId;
-import org.signal.libsignal.zkgroup.GenericServerSecretParams;
-import org.signal.libsignal.zkgroup.auth.AuthCredentialWithPniResponse;
-import org.signal.libsignal.zkgroup.auth.ServerZkAuthOperations;
-import org.signal.libsignal.zkgroup.calllinks.CallLinkAuthCredentialResponse;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedDevice;
 import org.whispersystems.textsecuregcm.auth.CertificateGenerator;
+import org.whispersystems.textsecuregcm.auth.GroupCredentialsIssuer;
 import org.whispersystems.textsecuregcm.auth.RedemptionRange;
+import org.whispersystems.textsecuregcm.auth.SenderCertificateCache;
 import org.whispersystems.textsecuregcm.entities.DeliveryCertificate;
 import org.whispersystems.textsecuregcm.entities.GroupCredentials;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
@@ -48,9 +45,8 @@ import org.whispersystems.textsecuregcm.storage.AccountsManager;
 public class CertificateController {
 
   private final AccountsManager accountsManager;
-  private final CertificateGenerator certificateGenerator;
-  private final ServerZkAuthOperations serverZkAuthOperations;
-  private final GenericServerSecretParams genericServerSecretParams;
+  private final SenderCertificateCache senderCertificateCache;
+  private final GroupCredentialsIssuer groupCredentialsIssuer;
   private final Clock clock;
 
   @VisibleForTesting
@@ -61,14 +57,12 @@ public class CertificateController {
   public CertificateController(
       final AccountsManager accountsManager,
       @Nonnull CertificateGenerator certificateGenerator,
-      @Nonnull ServerZkAuthOperations serverZkAuthOperations,
-      @Nonnull GenericServerSecretParams genericServerSecretParams,
+      @Nonnull GroupCredentialsIssuer groupCredentialsIssuer,
       @Nonnull Clock clock) {
 
     this.accountsManager = accountsManager;
-    this.certificateGenerator = Objects.requireNonNull(certificateGenerator);
-    this.serverZkAuthOperations = Objects.requireNonNull(serverZkAuthOperations);
-    this.genericServerSecretParams = genericServerSecretParams;
+    this.senderCertificateCache = new SenderCertificateCache(Objects.requireNonNull(certificateGenerator), clock);
+    this.groupCredentialsIssuer = Objects.requireNonNull(groupCredentialsIssuer);
     this.clock = Objects.requireNonNull(clock);
   }
 
@@ -86,13 +80,13 @@ public class CertificateController {
         .orElseThrow(() -> new WebApplicationException(Response.Status.UNAUTHORIZED));
 
     return new DeliveryCertificate(
-        certificateGenerator.createFor(account, auth.deviceId(), includeE164));
+        senderCertificateCache.getCertificate(account, auth.deviceId(), includeE164));
   }
 
   @GET
   @Produces(MediaType.APPLICATION_JSON)
   @Path("/auth/group")
-  public GroupCredentials getGroupAuthenticationCredentials(
+  public CompletableFuture<GroupCredentials> getGroupAuthenticationCredentials(
       @Auth AuthenticatedDevice auth,
       @QueryParam("redemptionStartSeconds") long startSeconds,
       @QueryParam("redemptionEndSeconds") long endSeconds) {
@@ -109,23 +103,8 @@ public class CertificateController {
     final Account account = accountsManager.getByAccountIdentifier(auth.accountIdentifier())
         .orElseThrow(() -> new WebApplicationException(Response.Status.UNAUTHORIZED));
 
-    final List<GroupCredentials.GroupCredential> credentials = new ArrayList<>();
-    final List<GroupCredentials.CallLinkAuthCredential> callLinkAuthCredentials = new ArrayList<>();
-
-    final ServiceId.Aci aci = new ServiceId.Aci(account.getIdentifier(IdentityType.ACI));
-    final ServiceId.Pni pni = new ServiceId.Pni(account.getIdentifier(IdentityType.PNI));
-
-    for (Instant redemption : redemptionRange) {
-      AuthCredentialWithPniResponse authCredentialWithPni = serverZkAuthOperations.issueAuthCredentialWithPniZkc(aci, pni, redemption);
-      credentials.add(new GroupCredentials.GroupCredential(
-          authCredentialWithPni.serialize(),
-          (int) redemption.getEpochSecond()));
-
-      callLinkAuthCredentials.add(new GroupCredentials.CallLinkAuthCredential(
-          CallLinkAuthCredentialResponse.issueCredential(aci, redemption, genericServerSecretParams).serialize(),
-          redemption.getEpochSecond()));
-    }
-
-    return new GroupCredentials(credentials, callLinkAuthCredentials, pni.getRawUUID());
+    return groupCredentialsIssuer.issueCredentials(new ServiceId.Aci(account.getIdentifier(IdentityType.ACI)),
+        new ServiceId.Pni(account.getIdentifier(IdentityType.PNI)),
+        redemptionRange);
   }
 }
@@ -40,6 +40,7 @@ import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -74,8 +75,6 @@ import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.storage.KeysManager;
 import org.whispersystems.textsecuregcm.util.HeaderUtils;
 import org.whispersystems.textsecuregcm.util.Util;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
 @Path("/v2/keys")
@@ -376,17 +375,23 @@ public class KeysController {
 
     final List<Device> devices = parseDeviceId(deviceId, target);
 
-    final List<PreKeyResponseItem> responseItems = Flux.fromIterable(devices).flatMap(device -> Mono
-            .fromCompletionStage(keysManager.takeDevicePreKeys(device.getId(), targetIdentifier, userAgent))
-            .flatMap(Mono::justOrEmpty)
-            .map(devicePreKeys -> new PreKeyResponseItem(
-                device.getId(), device.getRegistrationId(targetIdentifier.identityType()),
-                devicePreKeys.ecSignedPreKey(),
-                devicePreKeys.ecPreKey().orElse(null),
-                devicePreKeys.kemSignedPreKey())))
-        .collectList()
-        .blockOptional()
-        .orElseGet(Collections::emptyList);
+    final Map<Byte, KeysManager.DevicePreKeys> devicePreKeysByDeviceId = devices.isEmpty()
+        ? Collections.emptyMap()
+        : keysManager.takeDevicePreKeys(devices.stream().map(Device::getId).toList(), targetIdentifier, userAgent)
+            .join();
+
+    final List<PreKeyResponseItem> responseItems = devices.stream()
+        .filter(device -> devicePreKeysByDeviceId.containsKey(device.getId()))
+        .map(device -> {
+          final KeysManager.DevicePreKeys devicePreKeys = devicePreKeysByDeviceId.get(device.getId());
+
+          return new PreKeyResponseItem(
+              device.getId(), device.getRegistrationId(targetIdentifier.identityType()),
+              devicePreKeys.ecSignedPreKey(),
+              devicePreKeys.ecPreKey().orElse(null),
+              devicePreKeys.kemSignedPreKey());
+        })
+        .toList();
 
     final IdentityKey identityKey = target.getIdentityKey(targetIdentifier.identityType());
 
@@ -85,6 +85,7 @@ import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.limits.CardinalityEstimator;
 import org.whispersystems.textsecuregcm.limits.MessageDeliveryLoopMonitor;
+import org.whispersystems.textsecuregcm.limits.RateLimitCheck;
 import org.whispersystems.textsecuregcm.limits.RateLimiters;
 import org.whispersystems.textsecuregcm.metrics.MessageMetrics;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
@@ -134,8 +135,6 @@ public class MessageController {
   private final MessageDeliveryLoopMonitor messageDeliveryLoopMonitor;
   private final Clock clock;
 
-  private static final CompletableFuture<?>[] EMPTY_FUTURE_ARRAY = new CompletableFuture<?>[0];
-
   private static final String OUTGOING_MESSAGE_LIST_SIZE_BYTES_DISTRIBUTION_NAME = name(MessageController.class, "outgoingMessageListSizeBytes");
 
   private static final Timer INDIVIDUAL_MESSAGE_LATENCY_TIMER;
@@ -643,13 +642,12 @@ public class MessageController {
       return SEND_STORY_RESPONSE;
     }
 
-    CompletableFuture.allOf(resolvedRecipients.values()
+    rateLimiters.validateAllAsync(resolvedRecipients.values()
             .stream()
             .map(account -> account.getIdentifier(IdentityType.ACI))
-            .map(accountIdentifier ->
-                rateLimiters.getStoriesLimiter().validateAsync(accountIdentifier).toCompletableFuture())
-            .toList()
-            .toArray(EMPTY_FUTURE_ARRAY))
+            .map(accountIdentifier -> new RateLimitCheck<>(RateLimiters.For.STORIES, accountIdentifier))
+            .toList())
+        .toCompletableFuture()
         .join();
 
     sendMultiRecipientMessage(multiRecipientMessage,
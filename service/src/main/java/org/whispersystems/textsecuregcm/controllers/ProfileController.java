@@ -322,58 +322,49 @@ public class ProfileController {
   @Produces(MediaType.APPLICATION_JSON)
   @Path("/identity_check/batch")
   public CompletableFuture<BatchIdentityCheckResponse> runBatchIdentityCheck(@NotNull @Valid BatchIdentityCheckRequest request) {
-    return CompletableFuture.supplyAsync(() -> {
-          List<BatchIdentityCheckResponse.Element> responseElements = Collections.synchronizedList(new ArrayList<>());
-
-          final int targetBatchCount = 10;
-          // clamp the amount per batch to be in the closed range [30, 100]
-          final int batchSize = Math.min(Math.max(request.elements().size() / targetBatchCount, 30), 100);
-          // add 1 extra batch if there is any remainder to consume the final non-full batch
-          final int batchCount =
-              request.elements().size() / batchSize + (request.elements().size() % batchSize != 0 ? 1 : 0);
-
-          @SuppressWarnings("rawtypes") CompletableFuture[] futures = new CompletableFuture[batchCount];
-          for (int i = 0; i < batchCount; ++i) {
-            List<BatchIdentityCheckRequest.Element> batch = request.elements()
-                .subList(i * batchSize, Math.min((i + 1) * batchSize, request.elements().size()));
-            futures[i] = CompletableFuture.runAsync(() -> {
-              MessageDigest sha256;
-              try {
-                sha256 = MessageDigest.getInstance("SHA-256");
-              } catch (NoSuchAlgorithmException e) {
-                throw new AssertionError(e);
-              }
-              for (final BatchIdentityCheckRequest.Element element : batch) {
-                checkFingerprintAndAdd(element, responseElements, sha256);
-              }
-            }, batchIdentityCheckExecutor);
+    final List<ServiceIdentifier> serviceIdentifiers = request.elements().stream()
+        .map(BatchIdentityCheckRequest.Element::uuid)
+        .toList();
+
+    return accountsManager.getByServiceIdentifiers(serviceIdentifiers)
+        .thenApplyAsync(accountsByServiceIdentifier -> {
+          final MessageDigest sha256;
+          try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+          } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
           }
 
-      return new Pair<>(futures, responseElements);
-    }).thenCompose(futuresAndResponseElements -> CompletableFuture.allOf(futuresAndResponseElements.first())
-        .thenApply((ignored) -> new BatchIdentityCheckResponse(futuresAndResponseElements.second())));
+          final List<BatchIdentityCheckResponse.Element> responseElements = new ArrayList<>();
+
+          for (final BatchIdentityCheckRequest.Element element : request.elements()) {
+            checkFingerprintAndAdd(element, accountsByServiceIdentifier.get(element.uuid()), responseElements, sha256);
+          }
+
+          return new BatchIdentityCheckResponse(responseElements);
+        }, batchIdentityCheckExecutor);
   }
 
-  private void checkFingerprintAndAdd(BatchIdentityCheckRequest.Element element,
+  private void checkFingerprintAndAdd(BatchIdentityCheckRequest.Element element, @Nullable Account account,
       Collection<BatchIdentityCheckResponse.Element> responseElements, MessageDigest md) {
 
-    final ServiceIdentifier identifier = element.uuid();
-    final Optional<Account> maybeAccount = accountsManager.getByServiceIdentifier(identifier);
+    if (account == null) {
+      return;
+    }
 
-    maybeAccount.ifPresent(account -> {
-      final IdentityKey identityKey = account.getIdentityKey(identifier.identityType());
-      if (identityKey == null) {
-        return;
-      }
+    final ServiceIdentifier identifier = element.uuid();
+    final IdentityKey identityKey = account.getIdentityKey(identifier.identityType());
+    if (identityKey == null) {
+      return;
+    }
 
-      md.reset();
-      byte[] digest = md.digest(identityKey.serialize());
-      byte[] fingerprint = Util.truncate(digest, 4);
+    md.reset();
+    byte[] digest = md.digest(identityKey.serialize());
+    byte[] fingerprint = Util.truncate(digest, 4);
 
-      if (!Arrays.equals(fingerprint, element.fingerprint())) {
-        responseElements.add(new BatchIdentityCheckResponse.Element(element.uuid(), identityKey));
-      }
-    });
+    if (!Arrays.equals(fingerprint, element.fingerprint())) {
+      responseElements.add(new BatchIdentityCheckResponse.Element(element.uuid(), identityKey));
+    }
   }
 
   private ExpiringProfileKeyCredentialProfileResponse buildExpiringProfileKeyCredentialProfileResponse(
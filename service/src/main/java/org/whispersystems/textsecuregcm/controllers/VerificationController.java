@@ -75,6 +75,7 @@ import org.whispersystems.textsecuregcm.entities.UpdateVerificationSessionReques
 import org.whispersystems.textsecuregcm.entities.VerificationCodeRequest;
 import org.whispersystems.textsecuregcm.entities.VerificationSessionResponse;
 import org.whispersystems.textsecuregcm.filters.RemoteAddressFilter;
+import org.whispersystems.textsecuregcm.limits.RateLimitCheck;
 import org.whispersystems.textsecuregcm.limits.RateLimiters;
 import org.whispersystems.textsecuregcm.mappers.RegistrationServiceSenderExceptionMapper;
 import org.whispersystems.textsecuregcm.metrics.DevicePlatformUtil;
@@ -307,11 +308,14 @@ public class VerificationController {
 
       verificationSession = handlePushToken(pushTokenAndType, verificationSession);
 
+      final SessionRateLimitResults rateLimitResults =
+          checkSessionRateLimits(updateVerificationSessionRequest, registrationServiceSession, verificationSession);
+
       verificationSession = handlePushChallenge(updateVerificationSessionRequest, registrationServiceSession,
-          verificationSession);
+          verificationSession, rateLimitResults.pushChallengeRetryAfter());
 
       verificationSession = handleCaptcha(sourceHost, updateVerificationSessionRequest, registrationServiceSession,
-          verificationSession, userAgent, verificationCheck.scoreThreshold());
+          verificationSession, userAgent, verificationCheck.scoreThreshold(), rateLimitResults.captchaRetryAfter());
     } catch (final RateLimitExceededException e) {
 
       final Response response = buildResponseForRateLimitExceeded(verificationSession, registrationServiceSession,
@@ -382,6 +386,48 @@ public class VerificationController {
     return verificationSession;
   }
 
+  private record SessionRateLimitResults(Optional<Duration> pushChallengeRetryAfter,
+                                         Optional<Duration> captchaRetryAfter) {
+  }
+
+  /**
+   * Checks the push challenge and captcha rate limits that apply to the given request in a single batch.
+   *
+   * @return for each of the push challenge and captcha limiters, the time after which the request may be retried if the
+   * limiter was exceeded, or empty if the limiter was not exceeded or does not apply to the request
+   */
+  private SessionRateLimitResults checkSessionRateLimits(
+      final UpdateVerificationSessionRequest updateVerificationSessionRequest,
+      final RegistrationServiceSession registrationServiceSession,
+      final VerificationSession verificationSession) {
+
+    final boolean checkPushChallenge = updateVerificationSessionRequest.pushChallenge() != null
+        && !verificationSession.submittedInformation().contains(VerificationSession.Information.PUSH_CHALLENGE);
+    final boolean checkCaptcha = updateVerificationSessionRequest.captcha() != null;
+
+    final List<RateLimitCheck<RateLimiters.For>> checks = new ArrayList<>(2);
+
+    if (checkPushChallenge) {
+      checks.add(new RateLimitCheck<>(RateLimiters.For.VERIFICATION_PUSH_CHALLENGE,
+          registrationServiceSession.encodedSessionId()));
+    }
+
+    if (checkCaptcha) {
+      checks.add(new RateLimitCheck<>(RateLimiters.For.VERIFICATION_CAPTCHA,
+          registrationServiceSession.encodedSessionId()));
+    }
+
+    if (checks.isEmpty()) {
+      return new SessionRateLimitResults(Optional.empty(), Optional.empty());
+    }
+
+    final List<Optional<Duration>> results = rateLimiters.checkAllAsync(checks).toCompletableFuture().join();
+
+    return new SessionRateLimitResults(
+        checkPushChallenge ? results.getFirst() : Optional.empty(),
+        checkCaptcha ? results.getLast() : Optional.empty());
+  }
+
   /**
    * If a push challenge value is present, compares against the stored value. If they match, then
    * {@link VerificationSession.Information#PUSH_CHALLENGE} is removed from requested information, added to submitted
@@ -393,7 +439,8 @@ public class VerificationController {
   private VerificationSession handlePushChallenge(
       final UpdateVerificationSessionRequest updateVerificationSessionRequest,
       final RegistrationServiceSession registrationServiceSession,
-      VerificationSession verificationSession) throws RateLimitExceededException {
+      VerificationSession verificationSession,
+      final Optional<Duration> rateLimitRetryAfter) throws RateLimitExceededException {
 
     if (verificationSession.submittedInformation()
         .contains(VerificationSession.Information.PUSH_CHALLENGE)) {
@@ -402,9 +449,8 @@ public class VerificationController {
     }
 
     final boolean pushChallengePresent = updateVerificationSessionRequest.pushChallenge() != null;
-    if (pushChallengePresent) {
-      rateLimiters.getVerificationPushChallengeLimiter()
-          .validate(registrationServiceSession.encodedSessionId());
+    if (rateLimitRetryAfter.isPresent()) {
+      throw new RateLimitExceededException(rateLimitRetryAfter.get());
     }
 
     final boolean pushChallengeMatches;
@@ -468,13 +514,16 @@ public class VerificationController {
       final RegistrationServiceSession registrationServiceSession,
       VerificationSession verificationSession,
       final String userAgent,
-      final Optional<Float> captchaScoreThreshold) throws RateLimitExceededException {
+      final Optional<Float> captchaScoreThreshold,
+      final Optional<Duration> rateLimitRetryAfter) throws RateLimitExceededException {
 
     if (updateVerificationSessionRequest.captcha() == null) {
       return verificationSession;
     }
 
-    rateLimiters.getVerificationCaptchaLimiter().validate(registrationServiceSession.encodedSessionId());
+    if (rateLimitRetryAfter.isPresent()) {
+      throw new RateLimitExceededException(rateLimitRetryAfter.get());
+    }
 
     final AssessmentResult assessmentResult;
     try {
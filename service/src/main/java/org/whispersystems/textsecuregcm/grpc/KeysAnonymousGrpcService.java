@@ -9,7 +9,9 @@ import com.google.protobuf.ByteString;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Optional;
 import org.signal.chat.errors.FailedUnidentifiedAuthorization;
 import org.signal.chat.errors.NotFound;
 import org.signal.chat.keys.CheckIdentityKeyRequest;
@@ -26,6 +28,7 @@ import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.KeysManager;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 import reactor.util.function.Tuples;
 
 public class KeysAnonymousGrpcService extends ReactorKeysAnonymousGrpc.KeysAnonymousImplBase {
@@ -34,6 +37,9 @@ public class KeysAnonymousGrpcService extends ReactorKeysAnonymousGrpc.KeysAnony
   private final KeysManager keysManager;
   private final GroupSendTokenUtil groupSendTokenUtil;
 
+  private static final int CHECK_IDENTITY_KEYS_BATCH_SIZE = 100;
+  private static final Duration CHECK_IDENTITY_KEYS_BATCH_TIMEOUT = Duration.ofMillis(10);
+
   public KeysAnonymousGrpcService(
       final AccountsManager accountsManager, final KeysManager keysManager, final ServerSecretParams serverSecretParams, final Clock clock) {
     this.accountsManager = accountsManager;
@@ -83,18 +89,23 @@ public class KeysAnonymousGrpcService extends ReactorKeysAnonymousGrpc.KeysAnony
     return requests
         .map(request -> Tuples.of(ServiceIdentifierUtil.fromGrpcServiceIdentifier(request.getTargetIdentifier()),
             request.getFingerprint().toByteArray()))
-        .flatMap(serviceIdentifierAndFingerprint -> Mono.fromFuture(
-                () -> accountsManager.getByServiceIdentifierAsync(serviceIdentifierAndFingerprint.getT1()))
-            .flatMap(Mono::justOrEmpty)
-            .filter(account -> !fingerprintMatches(account.getIdentityKey(serviceIdentifierAndFingerprint.getT1()
-                .identityType()), serviceIdentifierAndFingerprint.getT2()))
-            .map(account -> CheckIdentityKeyResponse.newBuilder()
-                    .setTargetIdentifier(
-                        ServiceIdentifierUtil.toGrpcServiceIdentifier(serviceIdentifierAndFingerprint.getT1()))
-                    .setIdentityKey(ByteString.copyFrom(account.getIdentityKey(serviceIdentifierAndFingerprint.getT1()
-                        .identityType()).serialize()))
-                    .build())
-        );
+        // Resolve target accounts in bulk; the timeout keeps responses flowing for clients that send requests slowly
+        .bufferTimeout(CHECK_IDENTITY_KEYS_BATCH_SIZE, CHECK_IDENTITY_KEYS_BATCH_TIMEOUT)
+        .concatMap(serviceIdentifiersAndFingerprints -> Mono.fromFuture(() -> accountsManager.getByServiceIdentifiers(
+                serviceIdentifiersAndFingerprints.stream().map(Tuple2::getT1).toList()))
+            .flatMapIterable(accountsByServiceIdentifier -> serviceIdentifiersAndFingerprints.stream()
+                .flatMap(serviceIdentifierAndFingerprint -> Optional.ofNullable(
+                        accountsByServiceIdentifier.get(serviceIdentifierAndFingerprint.getT1()))
+                    .filter(account -> !fingerprintMatches(account.getIdentityKey(serviceIdentifierAndFingerprint.getT1()
+                        .identityType()), serviceIdentifierAndFingerprint.getT2()))
+                    .map(account -> CheckIdentityKeyResponse.newBuilder()
+                        .setTargetIdentifier(
+                            ServiceIdentifierUtil.toGrpcServiceIdentifier(serviceIdentifierAndFingerprint.getT1()))
+                        .setIdentityKey(ByteString.copyFrom(account.getIdentityKey(serviceIdentifierAndFingerprint.getT1()
+                            .identityType()).serialize()))
+                        .build())
+                    .stream())
+                .toList()));
   }
 
   private Mono<Account> lookUpAccount(final ServiceIdentifier serviceIdentifier) {
@@ -16,11 +16,10 @@ import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.storage.KeysManager;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.function.Tuple2;
-import reactor.util.function.Tuples;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 class KeysGrpcHelper {
 
@@ -40,39 +39,49 @@ class KeysGrpcHelper {
       final byte targetDeviceId,
       final KeysManager keysManager) {
 
-    final Flux<Device> devices = targetDeviceId == ALL_DEVICES
-        ? Flux.fromIterable(targetAccount.getDevices())
-        : Flux.from(Mono.justOrEmpty(targetAccount.getDevice(targetDeviceId)));
+    final List<Device> devices = targetDeviceId == ALL_DEVICES
+        ? targetAccount.getDevices()
+        : targetAccount.getDevice(targetDeviceId).map(List::of).orElseGet(List::of);
+
+    if (devices.isEmpty()) {
+      return Mono.empty();
+    }
 
     final String userAgent = RequestAttributesUtil.getUserAgent().orElse(null);
-    return devices
-        .flatMap(device -> {
-          final int registrationId = device.getRegistrationId(targetServiceIdentifier.identityType());
-          return Mono
-              .fromFuture(keysManager.takeDevicePreKeys(device.getId(), targetServiceIdentifier, userAgent))
-              .flatMap(Mono::justOrEmpty)
-              .map(devicePreKeys -> {
-                final DevicePreKeyBundle.Builder builder = DevicePreKeyBundle.newBuilder()
-                    .setEcSignedPreKey(EcSignedPreKey.newBuilder()
-                        .setKeyId(devicePreKeys.ecSignedPreKey().keyId())
-                        .setPublicKey(ByteString.copyFrom(devicePreKeys.ecSignedPreKey().serializedPublicKey()))
-                        .setSignature(ByteString.copyFrom(devicePreKeys.ecSignedPreKey().signature()))
-                        .build())
-                    .setKemOneTimePreKey(KemSignedPreKey.newBuilder()
-                        .setKeyId(devicePreKeys.kemSignedPreKey().keyId())
-                        .setPublicKey(ByteString.copyFrom(devicePreKeys.kemSignedPreKey().serializedPublicKey()))
-                        .setSignature(ByteString.copyFrom(devicePreKeys.kemSignedPreKey().signature()))
-                        .build())
-                    .setRegistrationId(registrationId);
-                devicePreKeys.ecPreKey().ifPresent(ecPreKey -> builder.setEcOneTimePreKey(EcPreKey.newBuilder()
-                    .setKeyId(ecPreKey.keyId())
-                    .setPublicKey(ByteString.copyFrom(ecPreKey.serializedPublicKey()))
-                    .build()));
-                // Cast device IDs to `int` to match data types in the response object’s protobuf definition
-                return Tuples.of((int) device.getId(), builder.build());
-              });
+    return Mono.fromFuture(() -> keysManager.takeDevicePreKeys(
+            devices.stream().map(Device::getId).toList(), targetServiceIdentifier, userAgent))
+        .map(devicePreKeysByDeviceId -> {
+          final Map<Integer, DevicePreKeyBundle> preKeyBundles = new HashMap<>();
+
+          for (final Device device : devices) {
+            final KeysManager.DevicePreKeys devicePreKeys = devicePreKeysByDeviceId.get(device.getId());
+
+            if (devicePreKeys == null) {
+              continue;
+            }
+
+            final DevicePreKeyBundle.Builder builder = DevicePreKeyBundle.newBuilder()
+                .setEcSignedPreKey(EcSignedPreKey.newBuilder()
+                    .setKeyId(devicePreKeys.ecSignedPreKey().keyId())
+                    .setPublicKey(ByteString.copyFrom(devicePreKeys.ecSignedPreKey().serializedPublicKey()))
+                    .setSignature(ByteString.copyFrom(devicePreKeys.ecSignedPreKey().signature()))
+                    .build())
+                .setKemOneTimePreKey(KemSignedPreKey.newBuilder()
+                    .setKeyId(devicePreKeys.kemSignedPreKey().keyId())
+                    .setPublicKey(ByteString.copyFrom(devicePreKeys.kemSignedPreKey().serializedPublicKey()))
+                    .setSignature(ByteString.copyFrom(devicePreKeys.kemSignedPreKey().signature()))
+                    .build())
+                .setRegistrationId(device.getRegistrationId(targetServiceIdentifier.identityType()));
+            devicePreKeys.ecPreKey().ifPresent(ecPreKey -> builder.setEcOneTimePreKey(EcPreKey.newBuilder()
+                .setKeyId(ecPreKey.keyId())
+                .setPublicKey(ByteString.copyFrom(ecPreKey.serializedPublicKey()))
+                .build()));
+            // Cast device IDs to `int` to match data types in the response object’s protobuf definition
+            preKeyBundles.put((int) device.getId(), builder.build());
+          }
+
+          return preKeyBundles;
         })
-        .collectMap(Tuple2::getT1, Tuple2::getT2)
         .flatMap(preKeyBundles -> {
           if (preKeyBundles.isEmpty()) {
             // If there were no devices with valid prekey bundles in the account, the account is gone
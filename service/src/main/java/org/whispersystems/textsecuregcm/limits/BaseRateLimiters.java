@@ -7,24 +7,37 @@ package org.whispersystems.textsecuregcm.limits;
 
 import static java.util.Objects.requireNonNull;
 
+import io.dropwizard.lifecycle.Managed;
 import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.SlotHash;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.controllers.RateLimitExceededException;
 import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
 
-public abstract class BaseRateLimiters<T extends RateLimiterDescriptor> {
+public abstract class BaseRateLimiters<T extends RateLimiterDescriptor> implements Managed {
 
-  private final Map<T, RateLimiter> rateLimiterByDescriptor;
+  private final Map<T, LeakyBucketRateLimiter> rateLimiterByDescriptor;
+  private final ClusterLuaScript batchValidateScript;
+  private final Clock clock;
 
   protected BaseRateLimiters(
       final T[] values,
@@ -38,12 +51,183 @@ public abstract class BaseRateLimiters<T extends RateLimiterDescriptor> {
             descriptor,
             createForDescriptor(descriptor, dynamicConfigurationManager, validateScript, cacheCluster, retryExecutor, clock)))
         .collect(Collectors.toUnmodifiableMap(Pair::getKey, Pair::getValue));
+
+    this.batchValidateScript = batchScript(cacheCluster);
+    this.clock = clock;
   }
 
   public RateLimiter forDescriptor(final T handle) {
     return requireNonNull(rateLimiterByDescriptor.get(handle));
   }
 
+  @Override
+  public void stop() {
+    // Stop sweeping local leases and hand any unused leased permits back to the shared buckets
+    CompletableFuture.allOf(rateLimiterByDescriptor.values().stream()
+            .map(LeakyBucketRateLimiter::stop)
+            .toArray(CompletableFuture[]::new))
+        .join();
+  }
+
+  /**
+   * Evaluates a batch of rate limit checks together and reports the outcome of each check. Checks whose buckets live in
+   * the same Redis cluster slot are evaluated by a single script call, and calls for different slots are dispatched at
+   * once so they share round trips instead of waiting on one another. Each check is evaluated independently: checks
+   * with sufficient permits withdraw them even if other checks in the batch fail.
+   *
+   * @param checks the rate limit checks to evaluate
+   *
+   * @return a future that yields, for each check in the order given, the time after which the check may succeed if it
+   * failed, or empty if the check passed
+   */
+  public CompletionStage<List<Optional<Duration>>> checkAllAsync(final List<RateLimitCheck<T>> checks) {
+    return tryAcquireAll(checks, false)
+        .thenApply(acquisitionResults -> acquisitionResults.stream()
+            .map(LeakyBucketRateLimiter.AcquisitionResult::retryAfter)
+            .toList());
+  }
+
+  /**
+   * Evaluates a batch of rate limit checks together as described in {@link #checkAllAsync(List)}.
+   *
+   * @param checks the rate limit checks to evaluate
+   *
+   * @return a future that completes when all checks have been evaluated; the future fails with a
+   * {@link RateLimitExceededException} carrying the longest retry-after duration if any check failed
+   */
+  public CompletionStage<Void> validateAllAsync(final List<RateLimitCheck<T>> checks) {
+    return checkAllAsync(checks)
+        .thenCompose(retryAfterDurations -> failIfAnyExceeded(retryAfterDurations.stream()
+            .flatMap(Optional::stream)
+            .toList()));
+  }
+
+  /**
+   * Evaluates a batch of rate limit checks together with all-or-nothing semantics. Checks are grouped and dispatched as
+   * in {@link #checkAllAsync(List)}. Checks whose buckets share a slot are evaluated atomically: if any of them fails,
+   * none of them withdraw permits. If a check in another slot fails, permits withdrawn by the other checks in the batch
+   * are returned to their buckets. Checks that passed only because their rate limiter failed open never withdrew any
+   * permits, and so have nothing to return.
+   * <p>
+   * Buckets in different slots may live on different Redis nodes, so the batch as a whole is not atomic: concurrent
+   * callers may briefly observe permits that are later returned.
+   *
+   * @param checks the rate limit checks to evaluate
+   *
+   * @return a future that completes when all checks have been evaluated; the future fails with a
+   * {@link RateLimitExceededException} carrying the longest retry-after duration if any check failed
+   */
+  public CompletionStage<Void> validateAllOrNothingAsync(final List<RateLimitCheck<T>> checks) {
+    return tryAcquireAll(checks, true)
+        .thenCompose(acquisitionResults -> {
+          final List<Duration> exceeded = acquisitionResults.stream()
+              .map(LeakyBucketRateLimiter.AcquisitionResult::retryAfter)
+              .flatMap(Optional::stream)
+              .toList();
+
+          if (!exceeded.isEmpty()) {
+            for (int i = 0; i < checks.size(); i++) {
+              if (acquisitionResults.get(i).acquired()) {
+                final RateLimitCheck<T> check = checks.get(i);
+                rateLimiterByDescriptor.get(check.descriptor()).releaseAsync(check.key(), check.amount());
+              }
+            }
+          }
+
+          return failIfAnyExceeded(exceeded);
+        });
+  }
+
+  private CompletableFuture<List<LeakyBucketRateLimiter.AcquisitionResult>> tryAcquireAll(
+      final List<RateLimitCheck<T>> checks, final boolean allOrNothing) {
+
+    @SuppressWarnings("unchecked") final CompletableFuture<LeakyBucketRateLimiter.AcquisitionResult>[] futures =
+        new CompletableFuture[checks.size()];
+
+    final LeakyBucketRateLimiter[] rateLimiters = new LeakyBucketRateLimiter[checks.size()];
+    final LeakyBucketRateLimiter.PendingAcquisition[] pendingAcquisitions =
+        new LeakyBucketRateLimiter.PendingAcquisition[checks.size()];
+
+    // Cluster scripts may only touch keys in a single slot, so group checks that need Redis by their buckets' slots
+    final Map<Integer, List<Integer>> checkIndicesBySlot = new HashMap<>();
+
+    for (int i = 0; i < checks.size(); i++) {
+      final RateLimitCheck<T> check = checks.get(i);
+      rateLimiters[i] = requireNonNull(rateLimiterByDescriptor.get(check.descriptor()));
+
+      if (rateLimiters[i].tryAcquireFromLease(check.key(), check.amount())) {
+        futures[i] = CompletableFuture.completedFuture(LeakyBucketRateLimiter.AcquisitionResult.ACQUIRED);
+      } else {
+        pendingAcquisitions[i] = rateLimiters[i].prepareAcquisition(check.key(), check.amount());
+
+        checkIndicesBySlot.computeIfAbsent(SlotHash.getSlot(pendingAcquisitions[i].bucketName()), _ -> new ArrayList<>())
+            .add(i);
+      }
+    }
+
+    checkIndicesBySlot.values().forEach(checkIndices -> {
+      if (checkIndices.size() == 1) {
+        final int i = checkIndices.getFirst();
+        futures[i] = rateLimiters[i].acquireAsync(pendingAcquisitions[i]);
+      } else {
+        final CompletableFuture<List<Long>> batchResultFuture = executeBatchValidateScriptAsync(
+            checkIndices.stream().map(i -> pendingAcquisitions[i]).toList(), allOrNothing);
+
+        for (int j = 0; j < checkIndices.size(); j++) {
+          final int i = checkIndices.get(j);
+          final int resultIndex = j;
+
+          futures[i] = batchResultFuture
+              .thenApply(results -> {
+                final long result = results.get(resultIndex);
+
+                // In an all-or-nothing batch, a single deficit means no permits were withdrawn from any bucket
+                if (allOrNothing && result <= 0 && results.stream().anyMatch(r -> r > 0)) {
+                  return LeakyBucketRateLimiter.AcquisitionResult.ROLLED_BACK;
+                }
+
+                return rateLimiters[i].completeAcquisition(pendingAcquisitions[i], result);
+              })
+              .exceptionally(throwable -> rateLimiters[i].failAcquisition(pendingAcquisitions[i], throwable));
+        }
+      }
+    });
+
+    return CompletableFuture.allOf(futures)
+        .thenApply(_ -> Arrays.stream(futures).map(CompletableFuture::join).toList());
+  }
+
+  private CompletableFuture<List<Long>> executeBatchValidateScriptAsync(
+      final List<LeakyBucketRateLimiter.PendingAcquisition> pendingAcquisitions, final boolean allOrNothing) {
+
+    final List<String> keys = new ArrayList<>(pendingAcquisitions.size());
+    final List<String> arguments = new ArrayList<>(2 + pendingAcquisitions.size() * 4);
+
+    arguments.add(String.valueOf(clock.millis()));
+    arguments.add(String.valueOf(allOrNothing));
+
+    for (final LeakyBucketRateLimiter.PendingAcquisition pendingAcquisition : pendingAcquisitions) {
+      keys.add(pendingAcquisition.bucketName());
+
+      arguments.add(String.valueOf(pendingAcquisition.config().bucketSize()));
+      arguments.add(String.valueOf(pendingAcquisition.config().leakRatePerMillis()));
+      arguments.add(String.valueOf(pendingAcquisition.amount()));
+      arguments.add(String.valueOf(pendingAcquisition.leaseSize()));
+    }
+
+    @SuppressWarnings("unchecked") final CompletableFuture<List<Long>> resultFuture =
+        batchValidateScript.executeAsync(keys, arguments).thenApply(results -> (List<Long>) results);
+
+    return resultFuture;
+  }
+
+  private static CompletionStage<Void> failIfAnyExceeded(final List<Duration> retryAfterDurations) {
+    return retryAfterDurations.stream()
+        .max(Comparator.naturalOrder())
+        .<CompletionStage<Void>>map(retryAfter -> CompletableFuture.failedFuture(new RateLimitExceededException(retryAfter)))
+        .orElseGet(() -> CompletableFuture.completedFuture(null));
+  }
+
   public static ClusterLuaScript defaultScript(final FaultTolerantRedisClusterClient cacheCluster) {
     try {
       return ClusterLuaScript.fromResource(
@@ -53,7 +237,16 @@ public abstract class BaseRateLimiters<T extends RateLimiterDescriptor> {
     }
   }
 
-  private static RateLimiter createForDescriptor(
+  private static ClusterLuaScript batchScript(final FaultTolerantRedisClusterClient cacheCluster) {
+    try {
+      return ClusterLuaScript.fromResource(
+          cacheCluster, "lua/validate_rate_limits.lua", ScriptOutputType.MULTI);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to load batch rate limit validation script", e);
+    }
+  }
+
+  private static LeakyBucketRateLimiter createForDescriptor(
       final RateLimiterDescriptor descriptor,
       final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager,
       final ClusterLuaScript validateScript,
@@ -7,15 +7,25 @@ package org.whispersystems.textsecuregcm.limits;
 
 import static java.util.Objects.requireNonNull;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.controllers.RateLimitExceededException;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
@@ -24,6 +34,17 @@ import org.whispersystems.textsecuregcm.util.ResilienceUtil;
 import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import org.whispersystems.textsecuregcm.util.Util;
 
+/**
+ * A rate limiter backed by leaky buckets stored in a Redis cluster.
+ * <p>
+ * If its configuration specifies a positive local lease size, the rate limiter operates in a "hybrid" mode: when a request for a
+ * given key needs to consult Redis, it also withdraws a small lease of additional permits from the Redis bucket and
+ * holds them locally. Subsequent requests for the same key draw from the local lease without a round trip to Redis
+ * until the lease runs out or expires. Because leased permits have already been withdrawn from the shared bucket, the
+ * global limit still holds across all nodes; unused permits are returned to the shared bucket asynchronously when a
+ * lease expires or is replaced. Leasing is off unless configured, since it makes limits slightly stricter while leased
+ * permits go unused on one server and other servers ask for permits for the same key.
+ */
 public class LeakyBucketRateLimiter implements RateLimiter {
 
   private final String name;
@@ -35,11 +56,100 @@ public class LeakyBucketRateLimiter implements RateLimiter {
   private final ScheduledExecutorService retryExecutor;
 
   private final Counter limitExceededCounter;
+  private final Counter localLeaseHitCounter;
+  private final Counter localLeaseAcquiredCounter;
 
   private final Clock clock;
 
+  private final Map<String, Lease> leasesByKey = new ConcurrentHashMap<>();
+
+  @Nullable
+  private final ScheduledFuture<?> expireLeasesFuture;
+
   private static final String RETRY_NAME = ResilienceUtil.name(LeakyBucketRateLimiter.class);
 
+  @VisibleForTesting
+  static final Duration LOCAL_LEASE_DURATION = Duration.ofSeconds(1);
+
+  // The maximum number of keys for which a single rate limiter holds local leases; once reached, requests for other keys
+  // go straight to the shared bucket until existing leases expire
+  @VisibleForTesting
+  static final int MAX_LOCAL_LEASES = 10_000;
+
+  private static final Logger logger = LoggerFactory.getLogger(LeakyBucketRateLimiter.class);
+
+  private static class Lease {
+
+    private final AtomicLong permitsRemaining;
+    private final long expirationMillis;
+
+    private Lease(final long permits, final long expirationMillis) {
+      this.permitsRemaining = new AtomicLong(permits);
+      this.expirationMillis = expirationMillis;
+    }
+
+    boolean isExpired(final long currentTimeMillis) {
+      return currentTimeMillis >= expirationMillis;
+    }
+
+    boolean hasAvailablePermits(final long permits) {
+      return permitsRemaining.get() >= permits;
+    }
+
+    boolean tryAcquire(final long permits) {
+      long remaining;
+
+      do {
+        remaining = permitsRemaining.get();
+
+        if (remaining < permits) {
+          return false;
+        }
+      } while (!permitsRemaining.compareAndSet(remaining, remaining - permits));
+
+      return true;
+    }
+
+    // Removes all remaining permits from this lease and returns the number of permits removed
+    long drain() {
+      return permitsRemaining.getAndSet(0);
+    }
+  }
+
+  /**
+   * The outcome of an attempt to withdraw permits from a bucket.
+   *
+   * @param acquired whether permits were actually withdrawn; {@code false} if the bucket didn't have enough permits or
+   * if the bucket could not be checked and the rate limiter failed open
+   * @param retryAfter the time after which the permits may be available if the bucket didn't have enough permits, or
+   * empty if the caller may proceed
+   */
+  record AcquisitionResult(boolean acquired, Optional<Duration> retryAfter) {
+
+    static final AcquisitionResult ACQUIRED = new AcquisitionResult(true, Optional.empty());
+    static final AcquisitionResult FAILED_OPEN = new AcquisitionResult(false, Optional.empty());
+
+    // The bucket had enough permits, but permits weren't withdrawn because another check in the same all-or-nothing
+    // batch failed
+    static final AcquisitionResult ROLLED_BACK = new AcquisitionResult(false, Optional.empty());
+
+    static AcquisitionResult exceeded(final Duration retryAfter) {
+      return new AcquisitionResult(false, Optional.of(retryAfter));
+    }
+  }
+
+  /**
+   * An attempt to withdraw permits from a shared bucket that has been prepared but not yet sent to Redis.
+   *
+   * @param bucketName the name of the Redis key for the bucket
+   * @param config the rate limiter configuration at the time the attempt was prepared
+   * @param key the key for the bucket from which to withdraw permits
+   * @param amount the number of permits to withdraw
+   * @param leaseSize the number of additional permits to lease if the bucket can cover them
+   */
+  record PendingAcquisition(String bucketName, RateLimiterConfig config, String key, long amount, long leaseSize) {
+  }
+
   public LeakyBucketRateLimiter(
       final String name,
       final RateLimiterConfig rateLimiterConfig,
@@ -58,6 +168,7 @@ public class LeakyBucketRateLimiter implements RateLimiter {
       final FaultTolerantRedisClusterClient cluster,
       final ScheduledExecutorService retryExecutor,
       final Clock clock) {
+
     this.name = requireNonNull(name);
     this.configResolver = requireNonNull(configResolver);
     this.validateScript = requireNonNull(validateScript);
@@ -65,13 +176,40 @@ public class LeakyBucketRateLimiter implements RateLimiter {
     this.retryExecutor = requireNonNull(retryExecutor);
     this.clock = requireNonNull(clock);
     this.limitExceededCounter = Metrics.counter(MetricsUtil.name(getClass(), "exceeded"), "rateLimiterName", name);
+    this.localLeaseHitCounter = Metrics.counter(MetricsUtil.name(getClass(), "localLeaseHit"), "rateLimiterName", name);
+    this.localLeaseAcquiredCounter =
+        Metrics.counter(MetricsUtil.name(getClass(), "localLeaseAcquired"), "rateLimiterName", name);
+
+    // Lease sizes may change with dynamic configuration, so always sweep; sweeping is cheap when nothing is leased
+    this.expireLeasesFuture = retryExecutor.scheduleAtFixedRate(this::expireLeases,
+        LOCAL_LEASE_DURATION.toMillis(), LOCAL_LEASE_DURATION.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops periodically expiring local leases and returns all unused leased permits to their shared buckets.
+   *
+   * @return a future that completes when unused permits have been returned or the attempt has failed
+   */
+  CompletableFuture<Void> stop() {
+    if (expireLeasesFuture != null) {
+      expireLeasesFuture.cancel(false);
+    }
+
+    return CompletableFuture.allOf(leasesByKey.entrySet().stream()
+        .filter(entry -> leasesByKey.remove(entry.getKey(), entry.getValue()))
+        .map(entry -> returnUnusedPermits(entry.getKey(), entry.getValue()))
+        .toArray(CompletableFuture[]::new));
   }
 
   @Override
   public void validate(final String key, final long amount) throws RateLimitExceededException {
+    if (tryAcquireFromLease(key, amount)) {
+      return;
+    }
+
     final RateLimiterConfig config = config();
     try {
-      final long deficitPermitsAmount = executeValidateScript(config, key, amount, true);
+      final long deficitPermitsAmount = acquirePermits(config, key, amount);
       if (deficitPermitsAmount > 0) {
         limitExceededCounter.increment();
         final Duration retryAfter = Duration.ofMillis(
@@ -91,33 +229,130 @@ public class LeakyBucketRateLimiter implements RateLimiter {
 
   @Override
   public CompletionStage<Void> validateAsync(final String key, final long amount) {
+    return tryAcquireAsync(key, amount)
+        .thenCompose(acquisitionResult -> acquisitionResult.retryAfter()
+            .<CompletionStage<Void>>map(retryAfter -> CompletableFuture.failedFuture(new RateLimitExceededException(retryAfter)))
+            .orElseGet(() -> CompletableFuture.completedFuture(null)));
+  }
+
+  /**
+   * Attempts to withdraw the given number of permits from the bucket for the given key.
+   *
+   * @param key the key for the bucket from which to withdraw permits
+   * @param amount the number of permits to withdraw
+   *
+   * @return a future that yields the outcome of the attempt; callers that may later return permits must only do so
+   * if the permits were actually acquired, and not if the caller was allowed to proceed because this rate limiter
+   * failed open
+   */
+  CompletionStage<AcquisitionResult> tryAcquireAsync(final String key, final long amount) {
+    if (tryAcquireFromLease(key, amount)) {
+      return CompletableFuture.completedFuture(AcquisitionResult.ACQUIRED);
+    }
+
+    return acquireAsync(prepareAcquisition(key, amount));
+  }
+
+  /**
+   * Evaluates a single pending acquisition against its shared bucket.
+   *
+   * @param pendingAcquisition the pending acquisition to evaluate
+   *
+   * @return a future that yields the outcome of the acquisition
+   */
+  CompletableFuture<AcquisitionResult> acquireAsync(final PendingAcquisition pendingAcquisition) {
+    return executeValidateScriptAsync(pendingAcquisition.config(), pendingAcquisition.key(), pendingAcquisition.amount(),
+        true, pendingAcquisition.leaseSize())
+        .toCompletableFuture()
+        .thenApply(result -> completeAcquisition(pendingAcquisition, result))
+        .exceptionally(throwable -> failAcquisition(pendingAcquisition, throwable));
+  }
+
+  /**
+   * Prepares an attempt to withdraw permits from the shared bucket for the given key so that it can be evaluated
+   * together with other attempts. Callers should first try to withdraw permits from a local lease via
+   * {@link #tryAcquireFromLease(String, long)}.
+   *
+   * @param key the key for the bucket from which to withdraw permits
+   * @param amount the number of permits to withdraw
+   *
+   * @return a pending acquisition to be evaluated with {@link #acquireAsync(PendingAcquisition)} or as part of a batch
+   * and then completed with {@link #completeAcquisition(PendingAcquisition, long)} or
+   * {@link #failAcquisition(PendingAcquisition, Throwable)}
+   */
+  PendingAcquisition prepareAcquisition(final String key, final long amount) {
     final RateLimiterConfig config = config();
+    return new PendingAcquisition(bucketName(name, key), config, key, amount, getLeaseSize(config, key, amount));
+  }
 
-    return executeValidateScriptAsync(config, key, amount, true)
-        .thenCompose(deficitPermitsAmount -> {
-          if (deficitPermitsAmount == 0) {
-            return CompletableFuture.completedFuture((Void) null);
-          }
-          limitExceededCounter.increment();
-          final Duration retryAfter = Duration.ofMillis(
-              (long) Math.ceil((double) deficitPermitsAmount / config.leakRatePerMillis()));
-          return CompletableFuture.failedFuture(new RateLimitExceededException(retryAfter));
-        })
-        .exceptionally(throwable -> {
-          if (ExceptionUtils.unwrap(throwable) instanceof RateLimitExceededException rateLimitExceededException) {
-            throw ExceptionUtils.wrap(rateLimitExceededException);
-          }
+  /**
+   * Completes a pending acquisition with the result of the validation script.
+   *
+   * @param pendingAcquisition the pending acquisition to complete
+   * @param result the result returned by the validation script for the acquisition's bucket
+   *
+   * @return the outcome of the acquisition
+   */
+  AcquisitionResult completeAcquisition(final PendingAcquisition pendingAcquisition, final long result) {
+    final long deficitPermitsAmount = handleAcquireResult(pendingAcquisition.key(), result);
 
-          if (config.failOpen()) {
-            return null;
+    if (deficitPermitsAmount == 0) {
+      return AcquisitionResult.ACQUIRED;
+    }
+
+    limitExceededCounter.increment();
+    return AcquisitionResult.exceeded(Duration.ofMillis(
+        (long) Math.ceil((double) deficitPermitsAmount / pendingAcquisition.config().leakRatePerMillis())));
+  }
+
+  /**
+   * Completes a pending acquisition whose bucket could not be checked, failing open if so configured.
+   *
+   * @param pendingAcquisition the pending acquisition to complete
+   * @param throwable the cause of the failure
+   *
+   * @return {@link AcquisitionResult#FAILED_OPEN} if the rate limiter fails open
+   *
+   * @throws java.util.concurrent.CompletionException wrapping the given throwable if the rate limiter does not fail
+   * open
+   */
+  AcquisitionResult failAcquisition(final PendingAcquisition pendingAcquisition, final Throwable throwable) {
+    if (pendingAcquisition.config().failOpen()) {
+      return AcquisitionResult.FAILED_OPEN;
+    }
+
+    throw ExceptionUtils.wrap(throwable);
+  }
+
+  /**
+   * Returns previously-withdrawn permits to the bucket for the given key (up to the bucket's capacity). This is a
+   * best-effort operation; failures are ignored.
+   *
+   * @param key the key for the bucket to which to return permits
+   * @param amount the number of permits to return
+   *
+   * @return a future that completes when the permits have been returned or the attempt has failed
+   */
+  CompletableFuture<Void> releaseAsync(final String key, final long amount) {
+    // A negative amount adds permits back to the bucket (up to its capacity)
+    return executeValidateScriptAsync(config(), key, -amount, true)
+        .toCompletableFuture()
+        .handle((_, throwable) -> {
+          if (throwable != null) {
+            // Best-effort; the permits will regenerate on their own
+            logger.debug("Failed to return unused permits", throwable);
           }
 
-          throw ExceptionUtils.wrap(throwable);
+          return null;
         });
   }
 
   @Override
   public boolean hasAvailablePermits(final String key, final long permits) {
+    if (leaseHasAvailablePermits(key, permits)) {
+      return true;
+    }
+
     final RateLimiterConfig config = config();
     try {
       final long deficitPermitsAmount = executeValidateScript(config, key, permits, false);
@@ -133,6 +368,10 @@ public class LeakyBucketRateLimiter implements RateLimiter {
 
   @Override
   public CompletionStage<Boolean> hasAvailablePermitsAsync(final String key, final long amount) {
+    if (leaseHasAvailablePermits(key, amount)) {
+      return CompletableFuture.completedFuture(true);
+    }
+
     final RateLimiterConfig config = config();
     return executeValidateScriptAsync(config, key, amount, false)
         .thenApply(deficitPermitsAmount -> deficitPermitsAmount == 0)
@@ -146,12 +385,16 @@ public class LeakyBucketRateLimiter implements RateLimiter {
 
   @Override
   public void clear(final String key) {
+    discardLease(key);
+
     ResilienceUtil.getGeneralRedisRetry(RETRY_NAME)
         .executeRunnable(() -> cluster.useCluster(connection -> connection.sync().del(bucketName(name, key))));
   }
 
   @Override
   public CompletionStage<Void> clearAsync(final String key) {
+    discardLease(key);
+
     return ResilienceUtil.getGeneralRedisRetry(RETRY_NAME)
         .executeCompletionStage(retryExecutor, () -> cluster.withCluster(connection -> connection.async().del(bucketName(name, key)))
             .thenRun(Util.NOOP));
@@ -162,26 +405,151 @@ public class LeakyBucketRateLimiter implements RateLimiter {
     return configResolver.get();
   }
 
+  boolean tryAcquireFromLease(final String key, final long amount) {
+    // Leases taken before the lease size was reduced (or disabled) remain valid until they run out or expire
+    final Lease lease = getUnexpiredLease(key);
+
+    if (lease != null && lease.tryAcquire(amount)) {
+      localLeaseHitCounter.increment();
+      return true;
+    }
+
+    return false;
+  }
+
+  private boolean leaseHasAvailablePermits(final String key, final long permits) {
+    final Lease lease = getUnexpiredLease(key);
+    return lease != null && lease.hasAvailablePermits(permits);
+  }
+
+  // Returns the lease for the given key if it hasn't expired; expired leases are removed (and their unused permits
+  // returned) as they're found rather than waiting for the next periodic sweep
+  @Nullable
+  private Lease getUnexpiredLease(final String key) {
+    final Lease lease = leasesByKey.get(key);
+
+    if (lease == null) {
+      return null;
+    }
+
+    if (lease.isExpired(clock.millis())) {
+      if (leasesByKey.remove(key, lease)) {
+        returnUnusedPermits(key, lease);
+      }
+
+      return null;
+    }
+
+    return lease;
+  }
+
+  // Returns the number of permits to lease in addition to the given amount, or 0 if no lease should be taken
+  private long getLeaseSize(final RateLimiterConfig config, final String key, final long amount) {
+    if (config.localLeaseSize() <= 0 || (leasesByKey.size() >= MAX_LOCAL_LEASES && !leasesByKey.containsKey(key))) {
+      return 0;
+    }
+
+    // Don't ask for more permits than the bucket could ever hold; such a lease could never be granted
+    return Math.max(0, Math.min(config.localLeaseSize(), config.bucketSize() - amount));
+  }
+
+  // Withdraws the given amount of permits from the shared bucket, attempting to also withdraw a local lease in the same
+  // call if hybrid mode is enabled, and returns the deficit (if any)
+  private long acquirePermits(final RateLimiterConfig config, final String key, final long amount) {
+    final long leaseSize = getLeaseSize(config, key, amount);
+
+    return handleAcquireResult(key, executeValidateScript(config, key, amount, true, leaseSize));
+  }
+
+  // The validation script returns a positive deficit if the requested permits weren't available, or the negated number
+  // of permits leased in addition to the requested permits otherwise
+  private long handleAcquireResult(final String key, final long result) {
+    if (result > 0) {
+      return result;
+    }
+
+    if (result < 0) {
+      putLease(key, -result);
+    }
+
+    return 0;
+  }
+
+  private void putLease(final String key, final long permits) {
+    localLeaseAcquiredCounter.increment();
+
+    final Lease previousLease =
+        leasesByKey.put(key, new Lease(permits, clock.millis() + LOCAL_LEASE_DURATION.toMillis()));
+
+    if (previousLease != null) {
+      returnUnusedPermits(key, previousLease);
+    }
+  }
+
+  private void discardLease(final String key) {
+    final Lease lease = leasesByKey.remove(key);
+
+    if (lease != null) {
+      lease.drain();
+    }
+  }
+
+  // Removes expired leases and returns their unused permits to the shared buckets
+  @VisibleForTesting
+  CompletableFuture<Void> expireLeases() {
+    final long currentTimeMillis = clock.millis();
+
+    return CompletableFuture.allOf(leasesByKey.entrySet().stream()
+        .filter(entry -> entry.getValue().isExpired(currentTimeMillis))
+        .filter(entry -> leasesByKey.remove(entry.getKey(), entry.getValue()))
+        .map(entry -> returnUnusedPermits(entry.getKey(), entry.getValue()))
+        .toArray(CompletableFuture[]::new));
+  }
+
+  private CompletableFuture<Void> returnUnusedPermits(final String key, final Lease lease) {
+    final long unusedPermits = lease.drain();
+
+    if (unusedPermits <= 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return releaseAsync(key, unusedPermits);
+  }
+
   private long executeValidateScript(final RateLimiterConfig config, final String key, final long amount, final boolean applyChanges) {
+    return executeValidateScript(config, key, amount, applyChanges, 0);
+  }
+
+  private long executeValidateScript(final RateLimiterConfig config, final String key, final long amount,
+      final boolean applyChanges, final long leaseAmount) {
+
     final List<String> keys = List.of(bucketName(name, key));
     final List<String> arguments = List.of(
         String.valueOf(config.bucketSize()),
         String.valueOf(config.leakRatePerMillis()),
         String.valueOf(clock.millis()),
         String.valueOf(amount),
-        String.valueOf(applyChanges)
+        String.valueOf(applyChanges),
+        String.valueOf(leaseAmount)
     );
     return (Long) validateScript.execute(keys, arguments);
   }
 
   private CompletionStage<Long> executeValidateScriptAsync(final RateLimiterConfig config, final String key, final long amount, final boolean applyChanges) {
+    return executeValidateScriptAsync(config, key, amount, applyChanges, 0);
+  }
+
+  private CompletionStage<Long> executeValidateScriptAsync(final RateLimiterConfig config, final String key,
+      final long amount, final boolean applyChanges, final long leaseAmount) {
+
     final List<String> keys = List.of(bucketName(name, key));
     final List<String> arguments = List.of(
         String.valueOf(config.bucketSize()),
         String.valueOf(config.leakRatePerMillis()),
         String.valueOf(clock.millis()),
         String.valueOf(amount),
-        String.valueOf(applyChanges)
+        String.valueOf(applyChanges),
+        String.valueOf(leaseAmount)
     );
     return validateScript.executeAsync(keys, arguments).thenApply(o -> (Long) o);
   }
@@ -18,6 +18,7 @@ import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.ExceptionMapper;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Optional;
 import org.glassfish.jersey.server.ExtendedUriInfo;
 import org.slf4j.Logger;
@@ -26,6 +27,7 @@ import org.whispersystems.textsecuregcm.controllers.RateLimitExceededException;
 import org.whispersystems.textsecuregcm.filters.RemoteAddressFilter;
 import org.whispersystems.textsecuregcm.mappers.RateLimitExceededExceptionMapper;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 
 public class RateLimitByIpFilter implements ContainerRequestFilter {
 
@@ -53,32 +55,32 @@ public class RateLimitByIpFilter implements ContainerRequestFilter {
       return;
     }
 
-    final RateLimitedByIp annotation = uriInfo.getMatchedResourceMethod()
+    final RateLimitedByIp[] annotations = uriInfo.getMatchedResourceMethod()
         .getInvocable()
         .getHandlingMethod()
-        .getAnnotation(RateLimitedByIp.class);
+        .getAnnotationsByType(RateLimitedByIp.class);
 
-    if (annotation == null) {
+    if (annotations.length == 0) {
       return;
     }
 
-    final RateLimiters.For handle = annotation.value();
-
     try {
       final Optional<String> remoteAddress = Optional.ofNullable(
           (String) requestContext.getProperty(RemoteAddressFilter.REMOTE_ADDRESS_ATTRIBUTE_NAME));
 
       // checking if we failed to extract the most recent IP for any reason
       if (remoteAddress.isEmpty()) {
-        Metrics.counter(
-            NO_IP_COUNTER_NAME,
-            Tags.of(
-                Tag.of("limiter", handle.id()),
-                Tag.of("fail", String.valueOf(annotation.failOnUnresolvedIp()))))
-            .increment();
-
-        // checking if annotation is configured to fail when the most recent IP is not resolved
-        if (annotation.failOnUnresolvedIp()) {
+        for (final RateLimitedByIp annotation : annotations) {
+          Metrics.counter(
+              NO_IP_COUNTER_NAME,
+              Tags.of(
+                  Tag.of("limiter", annotation.value().id()),
+                  Tag.of("fail", String.valueOf(annotation.failOnUnresolvedIp()))))
+              .increment();
+        }
+
+        // checking if any annotation is configured to fail when the most recent IP is not resolved
+        if (Arrays.stream(annotations).anyMatch(RateLimitedByIp::failOnUnresolvedIp)) {
           logger.error("Remote address was null");
           throw INVALID_HEADER_EXCEPTION;
         }
@@ -86,8 +88,18 @@ public class RateLimitByIpFilter implements ContainerRequestFilter {
         return;
       }
 
-      final RateLimiter rateLimiter = rateLimiters.forDescriptor(handle);
-      rateLimiter.validate(remoteAddress.get());
+      if (annotations.length == 1) {
+        final RateLimiter rateLimiter = rateLimiters.forDescriptor(annotations[0].value());
+        rateLimiter.validate(remoteAddress.get());
+      } else {
+        // Check all of the endpoint's limiters at once instead of waiting on each in turn
+        ExceptionUtils.unwrapSupply(RateLimitExceededException.class, () -> rateLimiters.validateAllAsync(
+                Arrays.stream(annotations)
+                    .map(annotation -> new RateLimitCheck<>(annotation.value(), remoteAddress.get()))
+                    .toList())
+            .toCompletableFuture()
+            .join());
+      }
     } catch (RateLimitExceededException e) {
       final Response response = EXCEPTION_MAPPER.toResponse(e);
       throw new ClientErrorException(response);
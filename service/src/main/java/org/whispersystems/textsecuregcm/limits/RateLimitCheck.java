@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.limits;
+
+import java.util.UUID;
+
+/**
+ * A single rate limit check to be evaluated as part of a batch.
+ *
+ * @param descriptor the rate limiter to check
+ * @param key the key for the rate limiter's bucket
+ * @param amount the number of permits to withdraw
+ *
+ * @param <T> the type of rate limiter descriptor
+ *
+ * @see BaseRateLimiters#validateAllAsync(java.util.List)
+ * @see BaseRateLimiters#validateAllOrNothingAsync(java.util.List)
+ */
+public record RateLimitCheck<T extends RateLimiterDescriptor>(T descriptor, String key, long amount) {
+
+  public RateLimitCheck(final T descriptor, final String key) {
+    this(descriptor, key, 1);
+  }
+
+  public RateLimitCheck(final T descriptor, final UUID accountIdentifier) {
+    this(descriptor, accountIdentifier.toString());
+  }
+}
@@ -6,15 +6,28 @@
 package org.whispersystems.textsecuregcm.limits;
 
 import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Marks an endpoint as rate limited by the caller's IP address. An endpoint may be rate limited by more than one
+ * limiter, in which case {@link RateLimitByIpFilter} evaluates all of the limiters together in a single batch.
+ */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
+@Repeatable(RateLimitedByIp.List.class)
 public @interface RateLimitedByIp {
 
   RateLimiters.For value();
 
   boolean failOnUnresolvedIp() default true;
+
+  @Target(ElementType.METHOD)
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface List {
+
+    RateLimitedByIp[] value();
+  }
 }
@@ -7,9 +7,29 @@ package org.whispersystems.textsecuregcm.limits;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.PositiveOrZero;
 import java.time.Duration;
 
-public record RateLimiterConfig(long bucketSize, Duration permitRegenerationDuration, boolean failOpen) {
+/**
+ * Configures a leaky bucket rate limiter.
+ *
+ * @param bucketSize the maximum number of permits in a bucket
+ * @param permitRegenerationDuration the time it takes to regenerate a single permit
+ * @param failOpen whether to allow requests to proceed if the bucket can't be checked
+ * @param localLeaseSize the number of extra permits each server may lease from the shared bucket and hold locally, or 0
+ * (the default) if permits should never be leased; a positive lease size reduces round trips to Redis for
+ * frequently-checked keys at the cost of making the limit slightly stricter while leased permits go unused
+ *
+ * @see LeakyBucketRateLimiter
+ */
+public record RateLimiterConfig(long bucketSize,
+                                Duration permitRegenerationDuration,
+                                boolean failOpen,
+                                @PositiveOrZero long localLeaseSize) {
+
+  public RateLimiterConfig(final long bucketSize, final Duration permitRegenerationDuration, final boolean failOpen) {
+    this(bucketSize, permitRegenerationDuration, failOpen, 0);
+  }
 
   public double leakRatePerMillis() {
     return 1.0 / (permitRegenerationDuration.toNanos() / 1e6);
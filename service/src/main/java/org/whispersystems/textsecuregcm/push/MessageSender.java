@@ -158,6 +158,83 @@ public class MessageSender {
         });
   }
 
+  /**
+   * Sends a batch of server-generated messages (e.g. delivery receipts) to every device associated with the given
+   * destination account. All messages are inserted into destination queues together, and each destination device
+   * receives at most one push notification for the whole batch. Each message is validated as if it had been sent on
+   * its own with {@link #sendMessages}; if any message fails validation, no messages are sent.
+   *
+   * @param destination the account to which to send messages
+   * @param destinationIdentifier the service identifier to which the messages are addressed
+   * @param messages the messages to send to each of the destination account's devices, in order
+   *
+   * @throws MismatchedDevicesException if the batch could not be addressed to all of the destination account's devices
+   * @throws MessageTooLargeException if any message payload is too large
+   */
+  public void sendServerMessages(final Account destination,
+      final ServiceIdentifier destinationIdentifier,
+      final List<Envelope> messages) throws MismatchedDevicesException, MessageTooLargeException {
+
+    if (messages.isEmpty()) {
+      return;
+    }
+
+    final Tag platformTag = UserAgentTagUtil.getPlatformTag(UserAgentTagUtil.SERVER_UA);
+
+    final Map<Byte, Integer> registrationIdsByDeviceId = destination.getDevices().stream()
+        .collect(Collectors.toMap(Device::getId,
+            device -> device.getRegistrationId(destinationIdentifier.identityType())));
+
+    for (final Envelope message : messages) {
+      validateIndividualMessageBundle(destination,
+          destinationIdentifier,
+          registrationIdsByDeviceId.keySet().stream().collect(Collectors.toMap(deviceId -> deviceId, _ -> message)),
+          registrationIdsByDeviceId,
+          Optional.empty(),
+          platformTag);
+    }
+
+    final Map<Byte, List<Envelope>> messagesByDeviceId = registrationIdsByDeviceId.keySet().stream()
+        .collect(Collectors.toMap(deviceId -> deviceId, _ -> messages));
+
+    final boolean anyUrgent = messages.stream().anyMatch(Envelope::getUrgent);
+    final boolean allEphemeral = messages.stream().allMatch(Envelope::getEphemeral);
+
+    messagesManager.insertBatch(destination.getIdentifier(IdentityType.ACI), messagesByDeviceId)
+        .forEach((deviceId, destinationPresent) -> {
+          if (!destinationPresent && !allEphemeral) {
+            try {
+              pushNotificationManager.sendNewMessageNotification(destination, deviceId, anyUrgent);
+            } catch (final NotPushRegisteredException ignored) {
+            }
+          }
+
+          for (final Envelope message : messages) {
+            final Tags tags = Tags.of(
+                EPHEMERAL_TAG_NAME, String.valueOf(message.getEphemeral()),
+                CLIENT_ONLINE_TAG_NAME, String.valueOf(destinationPresent),
+                URGENT_TAG_NAME, String.valueOf(message.getUrgent()),
+                STORY_TAG_NAME, String.valueOf(message.getStory()),
+                SEALED_SENDER_TAG_NAME, String.valueOf(!message.hasSourceServiceId()),
+                SYNC_MESSAGE_TAG_NAME, "false",
+                MULTI_RECIPIENT_TAG_NAME, "false")
+                .and(platformTag);
+
+            Metrics.counter(SEND_COUNTER_NAME, tags).increment();
+
+            messageDeliveryListeners.forEach(messageDeliveryListener ->
+                messageDeliveryListener.handleMessageDelivered(destination,
+                    deviceId,
+                    message.getEphemeral(),
+                    message.getUrgent(),
+                    message.getStory(),
+                    !message.hasSourceServiceId(),
+                    false,
+                    false));
+          }
+        });
+  }
+
   /**
    * Sends messages to a group of recipients. If a destination device has a valid push notification token and does not
    * have an active connection to a Signal server, then this method will also send a push notification to that device to
@@ -6,23 +6,18 @@
 package org.whispersystems.textsecuregcm.push;
 
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import org.signal.libsignal.protocol.SealedSenderMultiRecipientMessage;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.Device;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
-import reactor.util.function.Tuple2;
-import reactor.util.function.Tuples;
 
 public class MessageUtil {
 
-  public static final int DEFAULT_MAX_FETCH_ACCOUNT_CONCURRENCY = 8;
-
   private MessageUtil() {
   }
 
@@ -42,39 +37,19 @@ public class MessageUtil {
       final AccountsManager accountsManager,
       final SealedSenderMultiRecipientMessage multiRecipientMessage) {
 
-    return resolveRecipients(accountsManager, multiRecipientMessage, DEFAULT_MAX_FETCH_ACCOUNT_CONCURRENCY);
-  }
+    final Map<ServiceIdentifier, SealedSenderMultiRecipientMessage.Recipient> recipientsByServiceIdentifier =
+        multiRecipientMessage.getRecipients().entrySet().stream()
+            .collect(Collectors.toMap(entry -> ServiceIdentifier.fromLibsignal(entry.getKey()), Map.Entry::getValue));
 
-  /**
-   * Finds account records for all recipients named in the given multi-recipient manager. Note that the returned map
-   * of recipients to account records will omit entries for recipients that could not be resolved to active accounts;
-   * callers that require full resolution should check for a missing entries and take appropriate action.
-   *
-   * @param accountsManager the {@code AccountsManager} instance to use to find account records
-   * @param multiRecipientMessage the message for which to resolve recipients
-   * @param maxFetchAccountConcurrency the maximum number of concurrent account-retrieval operations
-   *
-   * @return a map of recipients to account records
-   *
-   * @see #getUnresolvedRecipients(SealedSenderMultiRecipientMessage, Map)
-   */
-  public static Map<SealedSenderMultiRecipientMessage.Recipient, Account> resolveRecipients(
-      final AccountsManager accountsManager,
-      final SealedSenderMultiRecipientMessage multiRecipientMessage,
-      final int maxFetchAccountConcurrency) {
-
-    return Flux.fromIterable(multiRecipientMessage.getRecipients().entrySet())
-        .flatMap(serviceIdAndRecipient -> {
-          final ServiceIdentifier serviceIdentifier =
-              ServiceIdentifier.fromLibsignal(serviceIdAndRecipient.getKey());
-
-          return Mono.fromFuture(() -> accountsManager.getByServiceIdentifierAsync(serviceIdentifier))
-              .flatMap(Mono::justOrEmpty)
-              .map(account -> Tuples.of(serviceIdAndRecipient.getValue(), account));
-        }, maxFetchAccountConcurrency)
-        .collectMap(Tuple2::getT1, Tuple2::getT2)
-        .blockOptional()
-        .orElse(Collections.emptyMap());
+    final Map<ServiceIdentifier, Account> accountsByServiceIdentifier =
+        accountsManager.getByServiceIdentifiers(recipientsByServiceIdentifier.keySet()).join();
+
+    final Map<SealedSenderMultiRecipientMessage.Recipient, Account> accountsByRecipient = new HashMap<>();
+
+    accountsByServiceIdentifier.forEach((serviceIdentifier, account) ->
+        accountsByRecipient.put(recipientsByServiceIdentifier.get(serviceIdentifier), account));
+
+    return accountsByRecipient;
   }
 
   /**
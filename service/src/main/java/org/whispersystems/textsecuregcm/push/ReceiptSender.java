@@ -5,32 +5,89 @@
 
 package org.whispersystems.textsecuregcm.push;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.dropwizard.lifecycle.Managed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
 import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
-import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
+import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
-import org.whispersystems.textsecuregcm.storage.Device;
 
-public class ReceiptSender {
+/**
+ * A receipt sender sends delivery receipts to the senders of messages that have been delivered to a destination
+ * device.
+ * <p>
+ * Receipts are coalesced: receipts for the same destination account from the same source device are held for a short
+ * window (or until a batch is full) and then sent together. Each batch resolves the destination account once and
+ * inserts all of its receipts into the destination account's message queues at once, which avoids a storm of
+ * single-receipt inserts when a device drains a large message queue.
+ * <p>
+ * When stopped, a receipt sender immediately sends any receipts still waiting for their coalescing window to close, and
+ * sends receipts requested after it has stopped without coalescing them.
+ */
+public class ReceiptSender implements Managed {
 
   private final MessageSender messageSender;
   private final AccountsManager accountManager;
   private final ExecutorService executor;
+  private final Duration coalescingWindow;
+
+  private record ReceiptBatchKey(ServiceIdentifier sourceIdentifier,
+                                 byte sourceDeviceId,
+                                 AciServiceIdentifier destinationIdentifier) {
+  }
+
+  private final Map<ReceiptBatchKey, List<Long>> pendingMessageIdsByBatch = new HashMap<>();
+
+  private volatile boolean stopped = false;
+
+  @VisibleForTesting
+  static final Duration DEFAULT_COALESCING_WINDOW = Duration.ofMillis(100);
+
+  @VisibleForTesting
+  static final int MAX_BATCH_SIZE = 100;
+
+  private static final Counter RECEIPTS_REQUESTED_COUNTER =
+      Metrics.counter(name(ReceiptSender.class, "receiptsRequested"));
+
+  private static final Counter RECEIPT_BATCHES_SENT_COUNTER =
+      Metrics.counter(name(ReceiptSender.class, "receiptBatchesSent"));
+
+  private static final DistributionSummary RECEIPT_BATCH_SIZE_DISTRIBUTION_SUMMARY =
+      Metrics.summary(name(ReceiptSender.class, "receiptBatchSize"));
 
   private static final Logger logger = LoggerFactory.getLogger(ReceiptSender.class);
 
   public ReceiptSender(final AccountsManager accountManager, final MessageSender messageSender,
       final ExecutorService executor) {
+
+    this(accountManager, messageSender, executor, DEFAULT_COALESCING_WINDOW);
+  }
+
+  @VisibleForTesting
+  ReceiptSender(final AccountsManager accountManager, final MessageSender messageSender,
+      final ExecutorService executor, final Duration coalescingWindow) {
+
     this.accountManager = accountManager;
     this.messageSender = messageSender;
     this.executor = executor;
+    this.coalescingWindow = coalescingWindow;
   }
 
   public void sendReceipt(ServiceIdentifier sourceIdentifier, byte sourceDeviceId, AciServiceIdentifier destinationIdentifier, long messageId) {
@@ -38,45 +95,85 @@ public class ReceiptSender {
       return;
     }
 
-    executor.submit(() -> {
-      try {
-        accountManager.getByAccountIdentifier(destinationIdentifier.uuid()).ifPresentOrElse(
-            destinationAccount -> {
-              final Envelope message = Envelope.newBuilder()
-                  .setServerTimestamp(System.currentTimeMillis())
-                  .setSourceServiceId(sourceIdentifier.toServiceIdentifierString())
-                  .setSourceDevice(sourceDeviceId)
-                  .setDestinationServiceId(destinationIdentifier.toServiceIdentifierString())
-                  .setClientTimestamp(messageId)
-                  .setType(Envelope.Type.SERVER_DELIVERY_RECEIPT)
-                  .setUrgent(false)
-                  .build();
-
-              final Map<Byte, Envelope> messagesByDeviceId = destinationAccount.getDevices().stream()
-                  .collect(Collectors.toMap(Device::getId, ignored -> message));
-
-              final Map<Byte, Integer> registrationIdsByDeviceId = destinationAccount.getDevices().stream()
-                  .collect(Collectors.toMap(Device::getId,
-                      device -> device.getRegistrationId(destinationIdentifier.identityType())));
-
-              try {
-                messageSender.sendMessages(destinationAccount,
-                    destinationIdentifier,
-                    messagesByDeviceId,
-                    registrationIdsByDeviceId,
-                    Optional.empty(),
-                    UserAgentTagUtil.SERVER_UA);
-              } catch (final Exception e) {
-                logger.warn("Could not send delivery receipt", e);
-              }
-            },
-            () -> logger.info("No longer registered: {}", destinationIdentifier)
-        );
-
-      } catch (final Exception e) {
-        // this exception is most likely a Dynamo timeout or a Redis timeout/circuit breaker
-        logger.warn("Could not send delivery receipt", e);
+    RECEIPTS_REQUESTED_COUNTER.increment();
+
+    final ReceiptBatchKey batchKey = new ReceiptBatchKey(sourceIdentifier, sourceDeviceId, destinationIdentifier);
+    final boolean firstInBatch;
+    final boolean batchFull;
+
+    synchronized (pendingMessageIdsByBatch) {
+      final List<Long> pendingMessageIds = pendingMessageIdsByBatch.computeIfAbsent(batchKey, _ -> new ArrayList<>());
+      pendingMessageIds.add(messageId);
+
+      firstInBatch = pendingMessageIds.size() == 1;
+      batchFull = pendingMessageIds.size() >= MAX_BATCH_SIZE;
+    }
+
+    if (stopped) {
+      sendBatch(batchKey);
+    } else if (batchFull) {
+      executor.submit(() -> sendBatch(batchKey));
+    } else if (firstInBatch) {
+      CompletableFuture.delayedExecutor(coalescingWindow.toMillis(), TimeUnit.MILLISECONDS, executor)
+          .execute(() -> sendBatch(batchKey));
+    }
+  }
+
+  @Override
+  public void stop() {
+    stopped = true;
+
+    final List<ReceiptBatchKey> pendingBatchKeys;
+
+    synchronized (pendingMessageIdsByBatch) {
+      pendingBatchKeys = new ArrayList<>(pendingMessageIdsByBatch.keySet());
+    }
+
+    // Don't wait for coalescing windows to close (or rely on the executor still accepting work); scheduled sends for
+    // these batches will find nothing left to send
+    pendingBatchKeys.forEach(this::sendBatch);
+  }
+
+  private void sendBatch(final ReceiptBatchKey batchKey) {
+    final List<Long> messageIds;
+
+    synchronized (pendingMessageIdsByBatch) {
+      messageIds = pendingMessageIdsByBatch.remove(batchKey);
+    }
+
+    if (messageIds == null) {
+      // The batch has already been sent because it filled up before its coalescing window closed
+      return;
+    }
+
+    RECEIPT_BATCHES_SENT_COUNTER.increment();
+    RECEIPT_BATCH_SIZE_DISTRIBUTION_SUMMARY.record(messageIds.size());
+
+    try {
+      final Optional<Account> maybeDestinationAccount =
+          accountManager.getByAccountIdentifier(batchKey.destinationIdentifier().uuid());
+
+      if (maybeDestinationAccount.isEmpty()) {
+        logger.info("No longer registered: {}", batchKey.destinationIdentifier());
+        return;
       }
-    });
+
+      final List<Envelope> receipts = messageIds.stream()
+          .map(messageId -> Envelope.newBuilder()
+              .setServerTimestamp(System.currentTimeMillis())
+              .setSourceServiceId(batchKey.sourceIdentifier().toServiceIdentifierString())
+              .setSourceDevice(batchKey.sourceDeviceId())
+              .setDestinationServiceId(batchKey.destinationIdentifier().toServiceIdentifierString())
+              .setClientTimestamp(messageId)
+              .setType(Envelope.Type.SERVER_DELIVERY_RECEIPT)
+              .setUrgent(false)
+              .build())
+          .toList();
+
+      messageSender.sendServerMessages(maybeDestinationAccount.get(), batchKey.destinationIdentifier(), receipts);
+    } catch (final Exception e) {
+      // this exception is most likely a Dynamo timeout or a Redis timeout/circuit breaker
+      logger.warn("Could not send delivery receipts", e);
+    }
   }
 }
@@ -13,20 +13,28 @@ import io.lettuce.core.cluster.event.ClusterTopologyChangedEvent;
 import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
 import io.lettuce.core.cluster.pubsub.RedisClusterPubSubAdapter;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,7 +43,6 @@ import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubClusterConnecti
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.util.RedisClusterUtil;
 import org.whispersystems.textsecuregcm.util.UUIDUtil;
-import org.whispersystems.textsecuregcm.util.Util;
 
 /**
  * The Redis message availability manager distributes events related to client presence and message availability to
@@ -62,6 +69,13 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
   // non-blocking, but can rarely block, and do so in the order in which those tasks were submitted.
   private final Executor asyncOperationQueueingExecutor;
 
+  // Runs tasks on the async operation queueing executor after a short delay, giving subscription operations a chance to
+  // accumulate so they can be issued as a smaller number of multi-channel commands
+  private final Executor subscriptionBatchExecutor;
+
+  private final Queue<SubscriptionOperation> pendingSubscriptionOperations = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean subscriptionBatchScheduled = new AtomicBoolean(false);
+
   @Nullable
   private FaultTolerantPubSubClusterConnection<byte[], byte[]> pubSubConnection;
 
@@ -91,12 +105,24 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
   private static final String LISTENER_GAUGE_NAME =
       MetricsUtil.name(RedisMessageAvailabilityManager.class, "listeners");
 
+  private static final DistributionSummary SUBSCRIPTION_BATCH_SIZE_DISTRIBUTION_SUMMARY =
+      Metrics.summary(MetricsUtil.name(RedisMessageAvailabilityManager.class, "subscriptionBatchSize"));
+
+  private static final DistributionSummary SUBSCRIPTION_COMMAND_SIZE_DISTRIBUTION_SUMMARY =
+      Metrics.summary(MetricsUtil.name(RedisMessageAvailabilityManager.class, "subscriptionCommandSize"));
+
+  @VisibleForTesting
+  static final Duration SUBSCRIPTION_BATCH_WINDOW = Duration.ofMillis(5);
+
   private static final Logger logger = LoggerFactory.getLogger(RedisMessageAvailabilityManager.class);
 
   @VisibleForTesting
   record AccountAndDeviceIdentifier(UUID accountIdentifier, byte deviceId) {
   }
 
+  private record SubscriptionOperation(byte[] eventChannel, boolean subscribe, CompletableFuture<Void> future) {
+  }
+
   public RedisMessageAvailabilityManager(final FaultTolerantRedisClusterClient clusterClient,
       final Executor listenerEventExecutor,
       final Executor asyncOperationQueueingExecutor) {
@@ -104,6 +130,8 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
     this.clusterClient = clusterClient;
     this.listenerEventExecutor = listenerEventExecutor;
     this.asyncOperationQueueingExecutor = asyncOperationQueueingExecutor;
+    this.subscriptionBatchExecutor = CompletableFuture.delayedExecutor(SUBSCRIPTION_BATCH_WINDOW.toMillis(),
+        TimeUnit.MILLISECONDS, asyncOperationQueueingExecutor);
 
     this.listenersByAccountAndDeviceIdentifier =
         Metrics.gaugeMapSize(LISTENER_GAUGE_NAME, Tags.empty(), new ConcurrentHashMap<>());
@@ -164,9 +192,7 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
     // operation is asynchronous; we're not blocking on it in the scope of the `compute` operation.
     listenersByAccountAndDeviceIdentifier.compute(new AccountAndDeviceIdentifier(accountIdentifier, deviceId),
         (key, existingListener) -> {
-          subscribeFuture.set(CompletableFuture.supplyAsync(() -> pubSubConnection.withPubSubConnection(connection ->
-                  connection.async().ssubscribe(eventChannel)), asyncOperationQueueingExecutor)
-              .thenCompose(Function.identity()));
+          subscribeFuture.set(enqueueSubscriptionOperation(eventChannel, true));
 
           if (existingListener != null) {
             displacedListener.set(existingListener);
@@ -219,10 +245,7 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
     // operation is asynchronous; we're not blocking on it in the scope of the `compute` operation.
     listenersByAccountAndDeviceIdentifier.compute(new AccountAndDeviceIdentifier(accountIdentifier, deviceId),
         (ignored, existingListener) -> {
-          unsubscribeFuture.set(CompletableFuture.supplyAsync(() -> pubSubConnection.withPubSubConnection(connection ->
-                      connection.async().sunsubscribe(getClientEventChannel(accountIdentifier, deviceId)))
-                  .thenRun(Util.NOOP), asyncOperationQueueingExecutor)
-              .thenCompose(Function.identity()));
+          unsubscribeFuture.set(enqueueSubscriptionOperation(getClientEventChannel(accountIdentifier, deviceId), false));
 
           return null;
         });
@@ -234,6 +257,121 @@ public class RedisMessageAvailabilityManager extends RedisClusterPubSubAdapter<b
     });
   }
 
+  /**
+   * Enqueues a subscribe or unsubscribe operation for the given event channel. Operations are issued in batches shortly
+   * after they're enqueued; callers that need operations for the same channel to be issued in a particular order must
+   * enqueue them in that order.
+   *
+   * @param eventChannel the event channel to which to subscribe or from which to unsubscribe
+   * @param subscribe {@code true} to subscribe to the given channel or {@code false} to unsubscribe
+   *
+   * @return a future that completes when the operation has been acknowledged by the server
+   */
+  private CompletableFuture<Void> enqueueSubscriptionOperation(final byte[] eventChannel, final boolean subscribe) {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    pendingSubscriptionOperations.add(new SubscriptionOperation(eventChannel, subscribe, future));
+
+    if (subscriptionBatchScheduled.compareAndSet(false, true)) {
+      subscriptionBatchExecutor.execute(this::processSubscriptionOperations);
+    }
+
+    return future;
+  }
+
+  /**
+   * Issues all pending subscription operations, grouping operations by slot so that each group can be issued as a
+   * single multi-channel command.
+   * <p>
+   * A channel's operations must be issued in order, but a multi-channel command can't contain both a subscription and
+   * an unsubscription, and operations in different commands may be processed in any order. To preserve per-channel
+   * ordering, pending operations are divided into consecutive "rounds" in which each channel appears at most once; a
+   * new round begins whenever a channel appears a second time. Commands for each round are dispatched before commands
+   * for the next round, and because all operations for a channel go to the same slot (and therefore the same node
+   * connection), the server processes them in the order in which they were dispatched.
+   */
+  @VisibleForTesting
+  void processSubscriptionOperations() {
+    // Clear the flag before draining so operations enqueued while we're working schedule another batch
+    subscriptionBatchScheduled.set(false);
+
+    final List<SubscriptionOperation> operations = new ArrayList<>();
+
+    for (SubscriptionOperation operation = pendingSubscriptionOperations.poll();
+        operation != null;
+        operation = pendingSubscriptionOperations.poll()) {
+
+      operations.add(operation);
+    }
+
+    if (operations.isEmpty()) {
+      return;
+    }
+
+    SUBSCRIPTION_BATCH_SIZE_DISTRIBUTION_SUMMARY.record(operations.size());
+
+    final Set<ByteBuffer> channelsInRound = new HashSet<>();
+    final Map<Integer, List<SubscriptionOperation>> subscriptionsBySlot = new HashMap<>();
+    final Map<Integer, List<SubscriptionOperation>> unsubscriptionsBySlot = new HashMap<>();
+
+    for (final SubscriptionOperation operation : operations) {
+      if (!channelsInRound.add(ByteBuffer.wrap(operation.eventChannel()))) {
+        dispatchSubscriptionCommands(subscriptionsBySlot, unsubscriptionsBySlot);
+
+        channelsInRound.clear();
+        channelsInRound.add(ByteBuffer.wrap(operation.eventChannel()));
+      }
+
+      (operation.subscribe() ? subscriptionsBySlot : unsubscriptionsBySlot)
+          .computeIfAbsent(SlotHash.getSlot(operation.eventChannel()), ignored -> new ArrayList<>())
+          .add(operation);
+    }
+
+    dispatchSubscriptionCommands(subscriptionsBySlot, unsubscriptionsBySlot);
+  }
+
+  private void dispatchSubscriptionCommands(final Map<Integer, List<SubscriptionOperation>> subscriptionsBySlot,
+      final Map<Integer, List<SubscriptionOperation>> unsubscriptionsBySlot) {
+
+    subscriptionsBySlot.values().forEach(this::dispatchSubscriptionCommand);
+    unsubscriptionsBySlot.values().forEach(this::dispatchSubscriptionCommand);
+
+    subscriptionsBySlot.clear();
+    unsubscriptionsBySlot.clear();
+  }
+
+  /**
+   * Issues a single multi-channel subscribe or unsubscribe command for the given operations, all of which must have the
+   * same type and refer to channels in the same slot.
+   */
+  private void dispatchSubscriptionCommand(final List<SubscriptionOperation> operations) {
+    final boolean subscribe = operations.getFirst().subscribe();
+    final byte[][] eventChannels = operations.stream().map(SubscriptionOperation::eventChannel).toArray(byte[][]::new);
+
+    SUBSCRIPTION_COMMAND_SIZE_DISTRIBUTION_SUMMARY.record(eventChannels.length);
+
+    CompletionStage<Void> commandFuture;
+
+    try {
+      if (pubSubConnection == null) {
+        throw new IllegalStateException("WebSocket connection event manager not started");
+      }
+
+      commandFuture = pubSubConnection.withPubSubConnection(connection -> subscribe
+          ? connection.async().ssubscribe(eventChannels)
+          : connection.async().sunsubscribe(eventChannels));
+    } catch (final Exception e) {
+      commandFuture = CompletableFuture.failedFuture(e);
+    }
+
+    commandFuture.whenComplete((ignored, throwable) -> operations.forEach(operation -> {
+      if (throwable != null) {
+        operation.future().completeExceptionally(throwable);
+      } else {
+        operation.future().complete(null);
+      }
+    }));
+  }
+
   /**
    * Tests whether a client with the given account/device is connected to this manager instance.
    *
@@ -15,14 +15,19 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 import javax.annotation.Nonnull;
@@ -35,6 +40,19 @@ public abstract class AbstractDynamoDbStore {
 
   public static final int RESULT_SET_CHUNK_SIZE = 100;
 
+  // DynamoDB rejects BatchGetItem requests for more than 100 items
+  static final int MAX_BATCH_GET_SIZE = 100;
+
+  private static final int MAX_BATCH_GET_ATTEMPTS = 5;
+
+  private static final long BATCH_RETRY_DELAY_MILLIS = 50;
+
+  private static final String ASYNC_BATCH_WRITE_RETRY_COUNTER_NAME =
+      name(AbstractDynamoDbStore.class, "asyncBatchWriteItemsRetry");
+
+  private static final String ASYNC_BATCH_WRITE_UNPROCESSED_COUNTER_NAME =
+      name(AbstractDynamoDbStore.class, "asyncBatchWriteItemsUnprocessed");
+
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
   private final Timer batchWriteItemsFirstPass = timer(name(getClass(), "batchWriteItems"), "firstAttempt", "true");
@@ -71,6 +89,58 @@ public abstract class AbstractDynamoDbStore {
     }
   }
 
+  /**
+   * Asynchronously writes a batch of items with {@code BatchWriteItem}, retrying any items DynamoDB leaves unprocessed
+   * with a linearly increasing delay.
+   *
+   * @param dynamoDbAsyncClient the client with which to write items
+   * @param items the write requests to execute, keyed by table name; must contain no more than
+   * {@link #DYNAMO_DB_MAX_BATCH_SIZE} requests in total
+   * @param maxAttempts the maximum number of {@code BatchWriteItem} calls to make
+   *
+   * @return a future that completes when all items have been written; the future fails with an
+   * {@link UnprocessedBatchWriteItemsException} if some items remain unprocessed after {@code maxAttempts} attempts, in
+   * which case callers should not treat any item in the batch as written
+   */
+  static CompletableFuture<Void> executeTableWriteItemsUntilCompleteAsync(
+      final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final Map<String, ? extends Collection<WriteRequest>> items,
+      final int maxAttempts) {
+
+    return executeTableWriteItemsUntilCompleteAsync(dynamoDbAsyncClient, items, maxAttempts, 0);
+  }
+
+  private static CompletableFuture<Void> executeTableWriteItemsUntilCompleteAsync(
+      final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final Map<String, ? extends Collection<WriteRequest>> items,
+      final int maxAttempts,
+      final int attempt) {
+
+    return dynamoDbAsyncClient.batchWriteItem(BatchWriteItemRequest.builder().requestItems(items).build())
+        .thenCompose(response -> {
+          if (!response.hasUnprocessedItems() || response.unprocessedItems().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+          }
+
+          if (attempt + 1 >= maxAttempts) {
+            response.unprocessedItems().forEach((tableName, unprocessedItems) ->
+                counter(ASYNC_BATCH_WRITE_UNPROCESSED_COUNTER_NAME, "table", tableName)
+                    .increment(unprocessedItems.size()));
+
+            return CompletableFuture.failedFuture(new UnprocessedBatchWriteItemsException(
+                response.unprocessedItems().values().stream().mapToInt(List::size).sum(), attempt + 1));
+          }
+
+          response.unprocessedItems().keySet().forEach(tableName ->
+              counter(ASYNC_BATCH_WRITE_RETRY_COUNTER_NAME, "table", tableName).increment());
+
+          return CompletableFuture.supplyAsync(() -> null,
+                  CompletableFuture.delayedExecutor(BATCH_RETRY_DELAY_MILLIS * (attempt + 1), TimeUnit.MILLISECONDS))
+              .thenCompose(_ -> executeTableWriteItemsUntilCompleteAsync(dynamoDbAsyncClient,
+                  response.unprocessedItems(), maxAttempts, attempt + 1));
+        });
+  }
+
   @Nonnull
   protected List<Map<String, AttributeValue>> scan(final ScanRequest scanRequest, final int max) {
     return db().scanPaginator(scanRequest)
@@ -89,6 +159,75 @@ public abstract class AbstractDynamoDbStore {
     );
   }
 
+  /**
+   * Fetches items by primary key from the given table with consistent reads. Keys are fetched in concurrent batches of
+   * at most {@link #MAX_BATCH_GET_SIZE} keys, and any keys DynamoDB leaves unprocessed are retried with a linearly
+   * increasing delay.
+   *
+   * @param dynamoDbAsyncClient the client with which to fetch items
+   * @param tableName the name of the table from which to fetch items
+   * @param keys the primary keys of the items to fetch
+   *
+   * @return a future that yields all items that exist for the given keys, in no particular order; the future fails with
+   * an {@link IllegalStateException} if some keys remain unprocessed after {@link #MAX_BATCH_GET_ATTEMPTS} attempts
+   */
+  static CompletableFuture<List<Map<String, AttributeValue>>> batchGetItemsAsync(
+      final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final String tableName,
+      final List<Map<String, AttributeValue>> keys) {
+
+    final List<CompletableFuture<List<Map<String, AttributeValue>>>> batchFutures = new ArrayList<>();
+
+    for (int i = 0; i < keys.size(); i += MAX_BATCH_GET_SIZE) {
+      batchFutures.add(batchGetItemsAsync(dynamoDbAsyncClient, tableName,
+          keys.subList(i, Math.min(i + MAX_BATCH_GET_SIZE, keys.size())), 0));
+    }
+
+    return CompletableFuture.allOf(batchFutures.toArray(CompletableFuture[]::new))
+        .thenApply(_ -> batchFutures.stream()
+            .flatMap(batchFuture -> batchFuture.join().stream())
+            .toList());
+  }
+
+  private static CompletableFuture<List<Map<String, AttributeValue>>> batchGetItemsAsync(
+      final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final String tableName,
+      final List<Map<String, AttributeValue>> keys,
+      final int attempt) {
+
+    return dynamoDbAsyncClient.batchGetItem(BatchGetItemRequest.builder()
+            .requestItems(Map.of(tableName, KeysAndAttributes.builder()
+                .keys(keys)
+                .consistentRead(true)
+                .build()))
+            .build())
+        .thenCompose(response -> {
+          final List<Map<String, AttributeValue>> items = response.responses().getOrDefault(tableName, List.of());
+          final List<Map<String, AttributeValue>> unprocessedKeys = response.hasUnprocessedKeys()
+              && response.unprocessedKeys().containsKey(tableName)
+              ? response.unprocessedKeys().get(tableName).keys()
+              : List.of();
+
+          if (unprocessedKeys.isEmpty()) {
+            return CompletableFuture.completedFuture(items);
+          }
+
+          if (attempt + 1 >= MAX_BATCH_GET_ATTEMPTS) {
+            return CompletableFuture.failedFuture(
+                new IllegalStateException("Failed to fetch " + unprocessedKeys.size() + " items after retries"));
+          }
+
+          return CompletableFuture.supplyAsync(() -> null,
+                  CompletableFuture.delayedExecutor(BATCH_RETRY_DELAY_MILLIS * (attempt + 1), TimeUnit.MILLISECONDS))
+              .thenCompose(_ -> batchGetItemsAsync(dynamoDbAsyncClient, tableName, unprocessedKeys, attempt + 1))
+              .thenApply(retriedItems -> {
+                final List<Map<String, AttributeValue>> allItems = new ArrayList<>(items);
+                allItems.addAll(retriedItems);
+                return allItems;
+              });
+        });
+  }
+
   static <T> void writeInBatches(final Iterable<T> items, final Consumer<List<T>> action) {
     final List<T> batch = new ArrayList<>(DYNAMO_DB_MAX_BATCH_SIZE);
 
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.annotations.VisibleForTesting;
+import io.dropwizard.util.DataSize;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+
+/// A bounded, node-local cache of accounts that sits in front of the shared Redis account cache.
+///
+/// Accounts are mutable and are updated (and marked stale) in place, so callers get a private copy on every hit. Rather
+/// than holding accounts in their serialized form and parsing a copy on every hit, the near-cache holds each account as
+/// a buffer of already-parsed Jackson tokens; building a copy from the buffer skips decoding and tokenizing entirely and
+/// leaves only object binding. Entries are bounded by the total size of their serialized forms and by a short
+/// time-to-live, which limits staleness if an invalidation is ever missed.
+///
+/// Every entry carries the account's version. Invalidations carry a minimum version: entries older than the minimum
+/// are discarded, and a "tombstone" remembers the minimum so that a concurrent read of an older copy from Redis can't
+/// repopulate the near-cache with a stale account.
+class AccountNearCache {
+
+  private final long maxWeight;
+  private final Duration timeToLive;
+  private final Clock clock;
+
+  // Guarded by `this`; iteration order is least-recently-accessed first
+  private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalWeight = 0;
+
+  static final long DEFAULT_MAX_WEIGHT = DataSize.mebibytes(64).toBytes();
+
+  static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofSeconds(10);
+
+  private static final Counter HIT_COUNTER = Metrics.counter(name(AccountNearCache.class, "get"), "outcome", "hit");
+  private static final Counter MISS_COUNTER = Metrics.counter(name(AccountNearCache.class, "get"), "outcome", "miss");
+
+  private static final String REMOVED_COUNTER_NAME = name(AccountNearCache.class, "removed");
+  private static final Counter EVICTED_COUNTER = Metrics.counter(REMOVED_COUNTER_NAME, "reason", "evicted");
+  private static final Counter EXPIRED_COUNTER = Metrics.counter(REMOVED_COUNTER_NAME, "reason", "expired");
+  private static final Counter INVALIDATED_COUNTER = Metrics.counter(REMOVED_COUNTER_NAME, "reason", "invalidated");
+
+  private static final Counter REJECTED_STALE_COUNTER = Metrics.counter(name(AccountNearCache.class, "rejectedStale"));
+
+  private static final DistributionSummary HIT_AGE_DISTRIBUTION_SUMMARY = DistributionSummary
+      .builder(name(AccountNearCache.class, "hitAgeMillis"))
+      .publishPercentiles(0.5, 0.99)
+      .register(Metrics.globalRegistry);
+
+  private static final Logger logger = LoggerFactory.getLogger(AccountNearCache.class);
+
+  /// A cached account or, if `accountTokens` is `null`, a tombstone that blocks accounts older than `version`
+  private record Entry(@Nullable TokenBuffer accountTokens, int serializedSize, int version, long createdMillis) {
+
+    long weight() {
+      // A rough estimate of the retained size of the entry, including a fixed per-entry overhead
+      return serializedSize + 64;
+    }
+  }
+
+  AccountNearCache(final long maxWeight, final Duration timeToLive, final Clock clock) {
+    this.maxWeight = maxWeight;
+    this.timeToLive = timeToLive;
+    this.clock = clock;
+
+    Metrics.gauge(name(AccountNearCache.class, "weight"), this, AccountNearCache::getTotalWeight);
+  }
+
+  boolean isEnabled() {
+    return maxWeight > 0;
+  }
+
+  /// Returns a private copy of the account with the given identifier if present and not expired
+  Optional<Account> get(final UUID accountIdentifier) {
+    final TokenBuffer accountTokens;
+
+    synchronized (this) {
+      final Entry entry = entries.get(accountIdentifier);
+
+      if (entry == null || entry.accountTokens() == null) {
+        MISS_COUNTER.increment();
+        return Optional.empty();
+      }
+
+      final long ageMillis = clock.millis() - entry.createdMillis();
+
+      if (ageMillis >= timeToLive.toMillis()) {
+        remove(accountIdentifier);
+        EXPIRED_COUNTER.increment();
+        MISS_COUNTER.increment();
+
+        return Optional.empty();
+      }
+
+      HIT_COUNTER.increment();
+      HIT_AGE_DISTRIBUTION_SUMMARY.record(ageMillis);
+
+      accountTokens = entry.accountTokens();
+    }
+
+    // Token buffers are never modified once stored, and each parser reads them independently, so copies can be built
+    // without holding the lock
+    try {
+      return Optional.of(SystemMapper.jsonMapper().readValue(accountTokens.asParser(), Account.class));
+    } catch (final IOException e) {
+      logger.warn("Failed to copy near-cached account", e);
+      return Optional.empty();
+    }
+  }
+
+  /// Stores an account that was just written to the shared cache; because it was just written, this copy is
+  /// authoritative and replaces any existing entry
+  ///
+  /// @param account the account to store; the near-cache keeps its own copy, so callers may continue to use the account
+  /// @param serializedSize the size of the account's serialized form, used to bound the near-cache's total size
+  void put(final Account account, final int serializedSize) {
+    if (!isEnabled()) {
+      return;
+    }
+
+    final Entry entry = buildEntry(account, serializedSize);
+
+    synchronized (this) {
+      store(account.getUuid(), entry);
+    }
+  }
+
+  /// Stores an account that was read from the shared cache, unless a newer copy is already present or the account has
+  /// been invalidated at a newer version
+  ///
+  /// @param account the account to store; the near-cache keeps its own copy, so callers may continue to use the account
+  /// @param serializedSize the size of the account's serialized form, used to bound the near-cache's total size
+  void putIfNewer(final Account account, final int serializedSize) {
+    if (!isEnabled()) {
+      return;
+    }
+
+    final Entry entry = buildEntry(account, serializedSize);
+
+    synchronized (this) {
+      final Entry existingEntry = entries.get(account.getUuid());
+
+      if (existingEntry != null && !isExpired(existingEntry) && existingEntry.version() >= entry.version()) {
+        if (existingEntry.accountTokens() == null || existingEntry.version() > entry.version()) {
+          REJECTED_STALE_COUNTER.increment();
+        }
+
+        return;
+      }
+
+      store(account.getUuid(), entry);
+    }
+  }
+
+  /// Discards any cached copy of the given account older than the given version and prevents older copies from being
+  /// cached until the tombstone expires
+  synchronized void invalidate(final UUID accountIdentifier, final int minimumVersion) {
+    final Entry existingEntry = entries.get(accountIdentifier);
+
+    if (existingEntry != null && !isExpired(existingEntry) && existingEntry.version() >= minimumVersion) {
+      return;
+    }
+
+    if (existingEntry != null && existingEntry.accountTokens() != null) {
+      INVALIDATED_COUNTER.increment();
+    }
+
+    store(accountIdentifier, new Entry(null, 0, minimumVersion, clock.millis()));
+  }
+
+  @VisibleForTesting
+  synchronized long getTotalWeight() {
+    return totalWeight;
+  }
+
+  @VisibleForTesting
+  synchronized Set<UUID> getAccountIdentifiers() {
+    return new HashSet<>(entries.keySet());
+  }
+
+  private Entry buildEntry(final Account account, final int serializedSize) {
+    final TokenBuffer accountTokens = new TokenBuffer(SystemMapper.jsonMapper(), false);
+
+    try {
+      SystemMapper.jsonMapper().writeValue(accountTokens, account);
+    } catch (final IOException e) {
+      // this should really, truly, never happen
+      throw new IllegalArgumentException(e);
+    }
+
+    return new Entry(accountTokens, serializedSize, account.getVersion(), clock.millis());
+  }
+
+  private boolean isExpired(final Entry entry) {
+    return clock.millis() - entry.createdMillis() >= timeToLive.toMillis();
+  }
+
+  private void store(final UUID accountIdentifier, final Entry entry) {
+    if (!isEnabled()) {
+      return;
+    }
+
+    final Entry replacedEntry = entries.put(accountIdentifier, entry);
+
+    if (replacedEntry != null) {
+      totalWeight -= replacedEntry.weight();
+    }
+
+    totalWeight += entry.weight();
+
+    final Iterator<Map.Entry<UUID, Entry>> iterator = entries.entrySet().iterator();
+
+    // Evict least-recently-used entries until we're back under the weight limit, and opportunistically drop expired
+    // entries at the head of the queue so they don't count against the weight limit
+    while (iterator.hasNext()) {
+      final Map.Entry<UUID, Entry> eldest = iterator.next();
+      final boolean expired = isExpired(eldest.getValue());
+
+      if (totalWeight <= maxWeight && !expired) {
+        break;
+      }
+
+      iterator.remove();
+      totalWeight -= eldest.getValue().weight();
+
+      if (expired) {
+        EXPIRED_COUNTER.increment();
+      } else {
+        EVICTED_COUNTER.increment();
+      }
+    }
+  }
+
+  private void remove(final UUID accountIdentifier) {
+    final Entry removedEntry = entries.remove(accountIdentifier);
+
+    if (removedEntry != null) {
+      totalWeight -= removedEntry.weight();
+    }
+  }
+}
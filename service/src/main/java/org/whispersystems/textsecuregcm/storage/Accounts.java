@@ -108,6 +108,8 @@ public class Accounts {
   private static final Timer GET_BY_USERNAME_LINK_HANDLE_TIMER = Metrics.timer(name(Accounts.class, "getByUsernameLinkHandle"));
   private static final Timer GET_BY_PNI_TIMER = Metrics.timer(name(Accounts.class, "getByPni"));
   private static final Timer GET_BY_UUID_TIMER = Metrics.timer(name(Accounts.class, "getByUuid"));
+  private static final Timer GET_BY_UUIDS_TIMER = Metrics.timer(name(Accounts.class, "getByUuids"));
+  private static final Timer GET_BY_PNIS_TIMER = Metrics.timer(name(Accounts.class, "getByPnis"));
   private static final Timer DELETE_TIMER = Metrics.timer(name(Accounts.class, "delete"));
   private static final String USERNAME_HOLD_ADDED_COUNTER_NAME = name(Accounts.class, "usernameHoldAdded");
 
@@ -1180,6 +1182,82 @@ public class Accounts {
         .toCompletableFuture();
   }
 
+  /**
+   * Retrieves the accounts with the given account identifiers using batched reads.
+   *
+   * @param uuids the account identifiers of the accounts to retrieve
+   *
+   * @return a future that yields a map of account identifiers to accounts; identifiers that don't correspond to an
+   * existing account are absent from the map
+   */
+  @Nonnull
+  public CompletableFuture<Map<UUID, Account>> getByAccountIdentifiers(final Collection<UUID> uuids) {
+    if (uuids.isEmpty()) {
+      return CompletableFuture.completedFuture(Map.of());
+    }
+
+    final List<AttributeValue> keyValues = uuids.stream().distinct().map(AttributeValues::fromUUID).toList();
+
+    return AsyncTimerUtil.record(GET_BY_UUIDS_TIMER, () -> batchGetItems(accountsTableName, KEY_ACCOUNT_UUID, keyValues)
+            .thenApply(items -> items.stream()
+                .map(Accounts::fromItem)
+                .collect(Collectors.toMap(Account::getUuid, account -> account))))
+        .toCompletableFuture();
+  }
+
+  /**
+   * Retrieves the accounts with the given phone number identifiers using batched reads, first of the phone number
+   * identifier constraint table and then of the accounts table.
+   *
+   * @param phoneNumberIdentifiers the phone number identifiers of the accounts to retrieve
+   *
+   * @return a future that yields a map of phone number identifiers to accounts; identifiers that don't correspond to an
+   * existing account are absent from the map
+   */
+  @Nonnull
+  public CompletableFuture<Map<UUID, Account>> getByPhoneNumberIdentifiers(final Collection<UUID> phoneNumberIdentifiers) {
+    if (phoneNumberIdentifiers.isEmpty()) {
+      return CompletableFuture.completedFuture(Map.of());
+    }
+
+    final List<AttributeValue> keyValues =
+        phoneNumberIdentifiers.stream().distinct().map(AttributeValues::fromUUID).toList();
+
+    return AsyncTimerUtil.record(GET_BY_PNIS_TIMER, () ->
+            batchGetItems(phoneNumberIdentifierConstraintTableName, ATTR_PNI_UUID, keyValues)
+                .thenCompose(items -> {
+                  final Map<UUID, UUID> accountIdentifiersByPhoneNumberIdentifier = items.stream()
+                      .collect(Collectors.toMap(
+                          item -> AttributeValues.getUUID(item, ATTR_PNI_UUID, null),
+                          item -> AttributeValues.getUUID(item, KEY_ACCOUNT_UUID, null)));
+
+                  return getByAccountIdentifiers(accountIdentifiersByPhoneNumberIdentifier.values())
+                      .thenApply(accountsByAccountIdentifier -> {
+                        final Map<UUID, Account> accountsByPhoneNumberIdentifier = new HashMap<>();
+
+                        accountIdentifiersByPhoneNumberIdentifier.forEach((pni, aci) -> {
+                          final Account account = accountsByAccountIdentifier.get(aci);
+
+                          if (account != null) {
+                            accountsByPhoneNumberIdentifier.put(pni, account);
+                          }
+                        });
+
+                        return accountsByPhoneNumberIdentifier;
+                      });
+                }))
+        .toCompletableFuture();
+  }
+
+  private CompletableFuture<List<Map<String, AttributeValue>>> batchGetItems(final String tableName,
+      final String keyName,
+      final List<AttributeValue> keyValues) {
+
+    return AbstractDynamoDbStore.batchGetItemsAsync(dynamoDbAsyncClient, tableName, keyValues.stream()
+        .map(keyValue -> Map.of(keyName, keyValue))
+        .toList());
+  }
+
   public Optional<UUID> findRecentlyDeletedAccountIdentifier(final UUID phoneNumberIdentifier) {
     final GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
         .tableName(deletedAccountsTableName)
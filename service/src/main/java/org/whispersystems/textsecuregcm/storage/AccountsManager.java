@@ -10,13 +10,18 @@ import static java.util.Objects.requireNonNull;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import io.dropwizard.lifecycle.Managed;
 import io.lettuce.core.RedisCommandTimeoutException;
 import io.lettuce.core.RedisException;
 import io.lettuce.core.SetArgs;
+import io.lettuce.core.cluster.SlotHash;
 import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
+import io.lettuce.core.cluster.event.ClusterTopologyChangedEvent;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import io.lettuce.core.cluster.pubsub.RedisClusterPubSubAdapter;
 import io.lettuce.core.pubsub.RedisPubSubAdapter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
@@ -37,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -54,8 +60,10 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import javax.crypto.Mac;
@@ -66,6 +74,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestManager;
 import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
+import org.whispersystems.textsecuregcm.configuration.AccountsCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.controllers.MismatchedDevices;
 import org.whispersystems.textsecuregcm.controllers.MismatchedDevicesException;
@@ -75,9 +84,12 @@ import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
 import org.whispersystems.textsecuregcm.entities.KEMSignedPreKey;
 import org.whispersystems.textsecuregcm.entities.RestoreAccountRequest;
 import org.whispersystems.textsecuregcm.entities.TransferArchiveResult;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.identity.PniServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubClusterConnection;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantPubSubConnection;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClient;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
@@ -85,6 +97,7 @@ import org.whispersystems.textsecuregcm.securestorage.SecureStorageClient;
 import org.whispersystems.textsecuregcm.securevaluerecovery.SecureValueRecoveryClient;
 import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import org.whispersystems.textsecuregcm.util.Pair;
+import org.whispersystems.textsecuregcm.util.RedisClusterUtil;
 import org.whispersystems.textsecuregcm.util.RegistrationIdValidator;
 import org.whispersystems.textsecuregcm.util.ResilienceUtil;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
@@ -102,6 +115,8 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
   private static final Timer getByUsernameHashTimer = Metrics.timer(name(AccountsManager.class, "getByUsernameHash"));
   private static final Timer getByUsernameLinkHandleTimer = Metrics.timer(name(AccountsManager.class, "getByUsernameLinkHandle"));
   private static final Timer getByUuidTimer = Metrics.timer(name(AccountsManager.class, "getByUuid"));
+  private static final Timer getByServiceIdentifiersTimer =
+      Metrics.timer(name(AccountsManager.class, "getByServiceIdentifiers"));
   private static final Timer deleteTimer = Metrics.timer(name(AccountsManager.class, "delete"));
 
   private static final Timer redisSetTimer = Metrics.timer(name(AccountsManager.class, "redisSet"));
@@ -145,6 +160,20 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
 
   private final FaultTolerantPubSubConnection<String, String> pubSubConnection;
 
+  private final AccountNearCache accountNearCache;
+
+  @Nullable
+  private final FaultTolerantPubSubClusterConnection<String, String> nearCacheInvalidationConnection;
+
+  private final RedisClusterPubSubAdapter<String, String> nearCacheInvalidationListener = new RedisClusterPubSubAdapter<>() {
+    @Override
+    public void smessage(final RedisClusterNode node, final String shardChannel, final String message) {
+      handleNearCacheInvalidation(shardChannel, message);
+    }
+  };
+  private final AccountsCacheConfiguration.SerializationFormat cacheSerializationFormat;
+  private final boolean readAlternateCacheSerializationFormat;
+
   private final Map<String, CompletableFuture<Optional<DeviceInfo>>> waitForDeviceFuturesByTokenIdentifier =
       new ConcurrentHashMap<>();
 
@@ -169,9 +198,18 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
   private static final String RESTORE_ACCOUNT_REQUEST_PREFIX = "restore_account::";
   private static final String RESTORE_ACCOUNT_REQUEST_KEYSPACE_PATTERN = "__keyspace@0__:" + RESTORE_ACCOUNT_REQUEST_PREFIX + "*";
 
+  private static final String ACCOUNT_NEAR_CACHE_INVALIDATION_CHANNEL_PREFIX = "account_near_cache_invalidation::";
+
+  // Invalidations are spread across a fixed set of sharded channels so they don't all land on a single cluster node
+  @VisibleForTesting
+  static final int ACCOUNT_NEAR_CACHE_INVALIDATION_CHANNEL_COUNT = 64;
+
   private static final ObjectWriter ACCOUNT_REDIS_JSON_WRITER = SystemMapper.jsonMapper()
       .writer(SystemMapper.excludingField(Account.class, List.of("uuid")));
 
+  private static final ObjectWriter ACCOUNT_REDIS_SMILE_WRITER = SystemMapper.smileMapper()
+      .writer(SystemMapper.excludingField(Account.class, List.of("uuid")));
+
   private static final Duration MESSAGE_POLL_INTERVAL = Duration.ofSeconds(1);
 
   // An account that's used at least daily will get reset in the cache at least once per day when its "last seen"
@@ -224,6 +262,33 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
       final Clock clock,
       final byte[] linkDeviceSecret,
       final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager) {
+
+    this(accounts, phoneNumberIdentifiers, cacheCluster, pubSubRedisClient, accountLockManager, keysManager,
+        messagesManager, profilesManager, secureStorageClient, secureValueRecovery2Client, disconnectionRequestManager,
+        registrationRecoveryPasswordsManager, clientPublicKeysManager, accountLockExecutor, messagesPollExecutor,
+        retryExecutor, clock, linkDeviceSecret, dynamicConfigurationManager,
+        new AccountsCacheConfiguration(false, AccountsCacheConfiguration.SerializationFormat.JSON, false));
+  }
+
+  public AccountsManager(final Accounts accounts,
+      final PhoneNumberIdentifiers phoneNumberIdentifiers,
+      final FaultTolerantRedisClusterClient cacheCluster,
+      final FaultTolerantRedisClient pubSubRedisClient,
+      final AccountLockManager accountLockManager,
+      final KeysManager keysManager,
+      final MessagesManager messagesManager,
+      final ProfilesManager profilesManager,
+      final SecureStorageClient secureStorageClient,
+      final SecureValueRecoveryClient secureValueRecovery2Client,
+      final DisconnectionRequestManager disconnectionRequestManager,
+      final RegistrationRecoveryPasswordsManager registrationRecoveryPasswordsManager,
+      final ClientPublicKeysManager clientPublicKeysManager,
+      final Executor accountLockExecutor,
+      final ScheduledExecutorService messagesPollExecutor, final ScheduledExecutorService retryExecutor,
+      final Clock clock,
+      final byte[] linkDeviceSecret,
+      final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager,
+      final AccountsCacheConfiguration accountsCacheConfiguration) {
     this.accounts = accounts;
     this.phoneNumberIdentifiers = phoneNumberIdentifiers;
     this.cacheCluster = cacheCluster;
@@ -253,6 +318,16 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
     }
 
     this.pubSubConnection = pubSubRedisClient.createPubSubConnection();
+
+    this.nearCacheInvalidationConnection =
+        accountsCacheConfiguration.nearCacheEnabled() ? cacheCluster.createPubSubConnection() : null;
+
+    this.accountNearCache = new AccountNearCache(
+        accountsCacheConfiguration.nearCacheEnabled() ? AccountNearCache.DEFAULT_MAX_WEIGHT : 0,
+        AccountNearCache.DEFAULT_TIME_TO_LIVE, clock);
+
+    this.cacheSerializationFormat = accountsCacheConfiguration.format();
+    this.readAlternateCacheSerializationFormat = accountsCacheConfiguration.readAlternateFormat();
   }
 
   @Override
@@ -281,6 +356,17 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
         }
       } while (!subscribed);
     });
+
+    if (nearCacheInvalidationConnection != null) {
+      nearCacheInvalidationConnection.usePubSubConnection(connection ->
+          connection.addListener(nearCacheInvalidationListener));
+
+      nearCacheInvalidationConnection.subscribeToClusterTopologyChangedEvents(this::resubscribeNearCacheInvalidations);
+
+      // Invalidations published before the subscriptions take effect are missed; the near-cache's short time-to-live
+      // bounds how long a copy cached in that window can remain stale
+      subscribeToNearCacheInvalidations(_ -> true);
+    }
   }
 
   @Override
@@ -289,6 +375,13 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
       connection.sync().punsubscribe();
       connection.removeListener(this);
     });
+
+    if (nearCacheInvalidationConnection != null) {
+      nearCacheInvalidationConnection.usePubSubConnection(connection -> {
+        connection.removeListener(nearCacheInvalidationListener);
+        connection.close();
+      });
+    }
   }
 
   public Account create(final String number,
@@ -1198,6 +1291,109 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
     );
   }
 
+  /**
+   * Retrieves the accounts with the given service identifiers in bulk. Cached accounts are fetched from Redis with
+   * multi-key reads (which the cluster client splits by slot and sends in parallel); any accounts not found in the
+   * cache are read from DynamoDB in batches and then written back to the cache.
+   *
+   * @param serviceIdentifiers the service identifiers of the accounts to retrieve
+   *
+   * @return a future that yields a map of service identifiers to accounts; service identifiers that don't correspond to
+   * an existing account are absent from the map
+   */
+  public CompletableFuture<Map<ServiceIdentifier, Account>> getByServiceIdentifiers(
+      final Collection<? extends ServiceIdentifier> serviceIdentifiers) {
+
+    final Timer.Sample sample = Timer.start();
+
+    final Set<UUID> accountIdentifiers = new HashSet<>();
+    final Set<UUID> phoneNumberIdentifiers = new HashSet<>();
+
+    for (final ServiceIdentifier serviceIdentifier : serviceIdentifiers) {
+      switch (serviceIdentifier.identityType()) {
+        case ACI -> accountIdentifiers.add(serviceIdentifier.uuid());
+        case PNI -> phoneNumberIdentifiers.add(serviceIdentifier.uuid());
+      }
+    }
+
+    return getByAccountIdentifiers(accountIdentifiers)
+        .thenCombine(getByPhoneNumberIdentifiers(phoneNumberIdentifiers), (accountsByAci, accountsByPni) -> {
+          final Map<ServiceIdentifier, Account> accountsByServiceIdentifier =
+              new HashMap<>(accountsByAci.size() + accountsByPni.size());
+
+          accountsByAci.forEach((aci, account) ->
+              accountsByServiceIdentifier.put(new AciServiceIdentifier(aci), account));
+
+          accountsByPni.forEach((pni, account) ->
+              accountsByServiceIdentifier.put(new PniServiceIdentifier(pni), account));
+
+          return accountsByServiceIdentifier;
+        })
+        .whenComplete((_, _) -> sample.stop(getByServiceIdentifiersTimer));
+  }
+
+  private CompletableFuture<Map<UUID, Account>> getByAccountIdentifiers(final Collection<UUID> uuids) {
+    if (uuids.isEmpty()) {
+      return CompletableFuture.completedFuture(Map.of());
+    }
+
+    return redisGetByAccountIdentifiers(uuids)
+        .thenCompose(cachedAccountsByUuid -> {
+          final List<UUID> uncachedUuids = uuids.stream()
+              .filter(uuid -> !cachedAccountsByUuid.containsKey(uuid))
+              .toList();
+
+          if (uncachedUuids.isEmpty()) {
+            return CompletableFuture.completedFuture(cachedAccountsByUuid);
+          }
+
+          return accounts.getByAccountIdentifiers(uncachedUuids)
+              .thenCompose(accountsByUuid -> redisSetAllAsync(accountsByUuid.values())
+                  .thenApply(_ -> {
+                    final Map<UUID, Account> allAccountsByUuid = new HashMap<>(cachedAccountsByUuid);
+                    allAccountsByUuid.putAll(accountsByUuid);
+
+                    return allAccountsByUuid;
+                  }));
+        });
+  }
+
+  private CompletableFuture<Map<UUID, Account>> getByPhoneNumberIdentifiers(final Collection<UUID> pnis) {
+    if (pnis.isEmpty()) {
+      return CompletableFuture.completedFuture(Map.of());
+    }
+
+    return redisGetAccountIdentifiersByPhoneNumberIdentifiers(pnis)
+        .thenCompose(accountIdentifiersByPni -> getByAccountIdentifiers(new HashSet<>(accountIdentifiersByPni.values()))
+            .thenCompose(accountsByAci -> {
+              final Map<UUID, Account> accountsByPni = new HashMap<>();
+
+              accountIdentifiersByPni.forEach((pni, aci) -> {
+                final Account account = accountsByAci.get(aci);
+
+                if (account != null) {
+                  accountsByPni.put(pni, account);
+                }
+              });
+
+              // As with single lookups, fall back to the PNI constraint table if the cached mapping was missing or stale
+              final List<UUID> unresolvedPnis = pnis.stream()
+                  .filter(pni -> !accountsByPni.containsKey(pni))
+                  .toList();
+
+              if (unresolvedPnis.isEmpty()) {
+                return CompletableFuture.completedFuture(accountsByPni);
+              }
+
+              return accounts.getByPhoneNumberIdentifiers(unresolvedPnis)
+                  .thenCompose(uncachedAccountsByPni -> redisSetAllAsync(uncachedAccountsByPni.values())
+                      .thenApply(_ -> {
+                        accountsByPni.putAll(uncachedAccountsByPni);
+                        return accountsByPni;
+                      }));
+            }));
+  }
+
   public UUID getPhoneNumberIdentifier(String e164) {
     return phoneNumberIdentifiers.getPhoneNumberIdentifier(e164).join();
   }
@@ -1271,18 +1467,47 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
     return "Account3::" + uuid.toString();
   }
 
+  /// Returns the key for the binary (Smile) form of a cached account. The JSON and binary forms live under different
+  /// keys so that each can be read with the appropriate codec; writing either form deletes the other, so at most one of
+  /// the two is present at a time.
+  private String getBinaryAccountEntityKey(final UUID uuid) {
+    return "Account4::" + uuid.toString();
+  }
+
   private void redisSet(Account account) {
     redisSetTimer.record(() -> {
       try {
-        final String accountJson = writeRedisAccountJson(account);
+        final byte[] accountData;
 
-        cacheCluster.useCluster(connection -> {
-          final RedisAdvancedClusterCommands<String, String> commands = connection.sync();
+        if (cacheSerializationFormat == AccountsCacheConfiguration.SerializationFormat.SMILE) {
+          accountData = writeRedisAccountSmile(account);
 
-          commands.setex(getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
-              account.getUuid().toString());
-          commands.setex(getAccountEntityKey(account.getUuid()), CACHE_TTL_SECONDS, accountJson);
-        });
+          cacheCluster.useCluster(connection -> {
+            final RedisAdvancedClusterCommands<String, String> commands = connection.sync();
+
+            commands.setex(getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
+                account.getUuid().toString());
+            commands.del(getAccountEntityKey(account.getUuid()));
+          });
+
+          cacheCluster.useBinaryCluster(connection -> connection.sync().setex(
+              getBinaryAccountEntityKey(account.getUuid()).getBytes(StandardCharsets.UTF_8), CACHE_TTL_SECONDS,
+              accountData));
+        } else {
+          final String accountJson = writeRedisAccountJson(account);
+          accountData = accountJson.getBytes(StandardCharsets.UTF_8);
+
+          cacheCluster.useCluster(connection -> {
+            final RedisAdvancedClusterCommands<String, String> commands = connection.sync();
+
+            commands.setex(getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
+                account.getUuid().toString());
+            commands.setex(getAccountEntityKey(account.getUuid()), CACHE_TTL_SECONDS, accountJson);
+            commands.del(getBinaryAccountEntityKey(account.getUuid()));
+          });
+        }
+
+        updateNearCache(account, accountData);
       } catch (JsonProcessingException e) {
         throw new IllegalStateException(e);
       }
@@ -1290,21 +1515,144 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
   }
 
   private CompletableFuture<Void> redisSetAsync(final Account account) {
-    final String accountJson;
+    final byte[] accountData;
+    final CompletableFuture<?> setAccountDataFuture;
+    final String alternateAccountEntityKey;
 
     try {
-      accountJson = writeRedisAccountJson(account);
+      if (cacheSerializationFormat == AccountsCacheConfiguration.SerializationFormat.SMILE) {
+        accountData = writeRedisAccountSmile(account);
+
+        setAccountDataFuture = cacheCluster.withBinaryCluster(connection -> connection.async()
+            .setex(getBinaryAccountEntityKey(account.getUuid()).getBytes(StandardCharsets.UTF_8), CACHE_TTL_SECONDS,
+                accountData)
+            .toCompletableFuture());
+
+        alternateAccountEntityKey = getAccountEntityKey(account.getUuid());
+      } else {
+        final String accountJson = writeRedisAccountJson(account);
+        accountData = accountJson.getBytes(StandardCharsets.UTF_8);
+
+        setAccountDataFuture = cacheCluster.withCluster(connection -> connection.async()
+            .setex(getAccountEntityKey(account.getUuid()), CACHE_TTL_SECONDS, accountJson)
+            .toCompletableFuture());
+
+        alternateAccountEntityKey = getBinaryAccountEntityKey(account.getUuid());
+      }
     } catch (final JsonProcessingException e) {
       throw new UncheckedIOException(e);
     }
 
-    return cacheCluster.withCluster(connection -> CompletableFuture.allOf(
-        connection.async().setex(
-                getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
-                account.getUuid().toString())
-            .toCompletableFuture(),
-        connection.async().setex(getAccountEntityKey(account.getUuid()), CACHE_TTL_SECONDS, accountJson)
-            .toCompletableFuture()));
+    return CompletableFuture.allOf(
+            cacheCluster.withCluster(connection -> connection.async().setex(
+                    getAccountMapKey(account.getPhoneNumberIdentifier().toString()), CACHE_TTL_SECONDS,
+                    account.getUuid().toString())
+                .toCompletableFuture()),
+            setAccountDataFuture,
+            // Don't leave a copy of the account in the other format behind to be read later
+            cacheCluster.withCluster(connection -> connection.async().del(alternateAccountEntityKey)
+                .toCompletableFuture()))
+        .thenRun(() -> updateNearCache(account, accountData));
+  }
+
+  private CompletableFuture<Void> redisSetAllAsync(final Collection<Account> accounts) {
+    // Lettuce pipelines commands issued without waiting for replies, so these writes go out together
+    return CompletableFuture.allOf(accounts.stream()
+        .map(account -> {
+          try {
+            return redisSetAsync(account);
+          } catch (final RuntimeException e) {
+            return CompletableFuture.<Void>failedFuture(e);
+          }
+        })
+        .map(future -> future.exceptionally(throwable -> {
+          logger.warn("Failed to cache retrieved account", throwable);
+          return null;
+        }))
+        .toArray(CompletableFuture[]::new));
+  }
+
+  private void updateNearCache(final Account account, final byte[] accountData) {
+    // Cache fills don't change the account, so there's nothing to tell other servers here; updates and deletions have
+    // already published an invalidation for the previous version via `invalidateNearCache`
+    if (accountNearCache.isEnabled()) {
+      accountNearCache.put(account, accountData.length);
+    }
+  }
+
+  private void invalidateNearCache(final Account account) {
+    if (accountNearCache.isEnabled()) {
+      // The cached copy is about to change, so anything at or below the current version is stale
+      accountNearCache.invalidate(account.getUuid(), account.getVersion() + 1);
+      publishNearCacheInvalidation(account.getUuid(), account.getVersion() + 1);
+    }
+  }
+
+  private void publishNearCacheInvalidation(final UUID accountIdentifier, final int minimumVersion) {
+    // Other servers' near-cached copies will expire on their own if an invalidation can't be published
+    try {
+      cacheCluster.withCluster(connection -> connection.async()
+              .spublish(getNearCacheInvalidationChannel(accountIdentifier), accountIdentifier + ":" + minimumVersion))
+          .whenComplete((_, throwable) -> {
+            if (throwable != null) {
+              logger.warn("Failed to publish account near-cache invalidation", throwable);
+            }
+          });
+    } catch (final RuntimeException e) {
+      logger.warn("Failed to publish account near-cache invalidation", e);
+    }
+  }
+
+  private void resubscribeNearCacheInvalidations(final ClusterTopologyChangedEvent clusterTopologyChangedEvent) {
+    final boolean[] changedSlots = RedisClusterUtil.getChangedSlots(clusterTopologyChangedEvent);
+    subscribeToNearCacheInvalidations(slot -> changedSlots[slot]);
+  }
+
+  private void subscribeToNearCacheInvalidations(final IntPredicate slotFilter) {
+    if (nearCacheInvalidationConnection == null) {
+      return;
+    }
+
+    // Sharded subscriptions must be issued per slot, so group channels to issue as few commands as possible
+    final Map<Integer, List<String>> channelsBySlot = IntStream.range(0, ACCOUNT_NEAR_CACHE_INVALIDATION_CHANNEL_COUNT)
+        .mapToObj(AccountsManager::getNearCacheInvalidationChannel)
+        .filter(channel -> slotFilter.test(SlotHash.getSlot(channel)))
+        .collect(Collectors.groupingBy(SlotHash::getSlot));
+
+    channelsBySlot.forEach((_, channels) -> nearCacheInvalidationConnection.withPubSubConnection(connection ->
+            connection.async().ssubscribe(channels.toArray(String[]::new)))
+        .whenComplete((_, throwable) -> {
+          if (throwable != null) {
+            logger.warn("Failed to subscribe to account near-cache invalidations", throwable);
+          }
+        }));
+  }
+
+  private void handleNearCacheInvalidation(final String channel, final String message) {
+    if (!channel.startsWith(ACCOUNT_NEAR_CACHE_INVALIDATION_CHANNEL_PREFIX)) {
+      return;
+    }
+
+    try {
+      final int separatorIndex = message.indexOf(':');
+
+      final UUID accountIdentifier = UUID.fromString(message.substring(0, separatorIndex));
+      final int minimumVersion = Integer.parseInt(message.substring(separatorIndex + 1));
+
+      accountNearCache.invalidate(accountIdentifier, minimumVersion);
+    } catch (final IllegalArgumentException | IndexOutOfBoundsException e) {
+      logger.warn("Could not parse account near-cache invalidation on {}: {}", channel, message);
+    }
+  }
+
+  @VisibleForTesting
+  static String getNearCacheInvalidationChannel(final UUID accountIdentifier) {
+    return getNearCacheInvalidationChannel(
+        Math.floorMod(accountIdentifier.hashCode(), ACCOUNT_NEAR_CACHE_INVALIDATION_CHANNEL_COUNT));
+  }
+
+  private static String getNearCacheInvalidationChannel(final int channelIndex) {
+    return ACCOUNT_NEAR_CACHE_INVALIDATION_CHANNEL_PREFIX + "{" + channelIndex + "}";
   }
 
   private Optional<Account> checkRedisThenAccounts(
@@ -1384,10 +1732,24 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
 
   private Optional<Account> redisGetByAccountIdentifier(UUID uuid) {
     return redisUuidGetTimer.record(() -> {
+      final Optional<Account> maybeNearCachedAccount = accountNearCache.get(uuid);
+
+      if (maybeNearCachedAccount.isPresent()) {
+        return maybeNearCachedAccount;
+      }
+
       try {
-        final String json = cacheCluster.withCluster(connection -> connection.sync().get(getAccountEntityKey(uuid)));
+        byte[] accountData = redisGetAccountData(uuid, cacheSerializationFormat);
+
+        // While the format is changing in a rolling deployment, accept the other format, too
+        if (accountData == null && readAlternateCacheSerializationFormat) {
+          accountData = redisGetAccountData(uuid, getAlternateSerializationFormat());
+        }
+
+        final byte[] finalAccountData = accountData;
 
-        return parseAccountJson(json, uuid);
+        return parseAccountData(accountData, uuid)
+            .map(account -> populateNearCache(account, finalAccountData));
       } catch (final RedisException e) {
         logger.warn("Failed to retrieve account from cache", e);
         return Optional.empty();
@@ -1396,20 +1758,188 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
   }
 
   private CompletableFuture<Optional<Account>> redisGetByAccountIdentifierAsync(final UUID uuid) {
-    return cacheCluster.withCluster(connection -> connection.async().get(getAccountEntityKey(uuid)))
-        .thenApply(accountJson -> parseAccountJson(accountJson, uuid))
+    final Optional<Account> maybeNearCachedAccount = accountNearCache.get(uuid);
+
+    if (maybeNearCachedAccount.isPresent()) {
+      return CompletableFuture.completedFuture(maybeNearCachedAccount);
+    }
+
+    // While the format is changing in a rolling deployment, accept the other format, too
+    return redisGetAccountDataAsync(uuid, cacheSerializationFormat)
+        .thenCompose(accountData -> accountData != null || !readAlternateCacheSerializationFormat
+            ? CompletableFuture.completedFuture(accountData)
+            : redisGetAccountDataAsync(uuid, getAlternateSerializationFormat()))
+        .thenApply(accountData -> parseAccountData(accountData, uuid)
+            .map(account -> populateNearCache(account, accountData)))
         .exceptionally(throwable -> {
           logger.warn("Failed to retrieve account from Redis", throwable);
           return Optional.empty();
+        });
+  }
+
+  private CompletableFuture<Map<UUID, UUID>> redisGetAccountIdentifiersByPhoneNumberIdentifiers(
+      final Collection<UUID> pnis) {
+
+    final Timer.Sample sample = Timer.start();
+
+    final List<UUID> pniList = List.copyOf(pnis);
+    final String[] keys = pniList.stream()
+        .map(pni -> getAccountMapKey(pni.toString()))
+        .toArray(String[]::new);
+
+    return cacheCluster.withCluster(connection -> connection.async().mget(keys))
+        .thenApply(keyValues -> {
+          final Map<UUID, UUID> accountIdentifiersByPni = new HashMap<>();
+
+          for (int i = 0; i < keyValues.size(); i++) {
+            if (keyValues.get(i).hasValue()) {
+              try {
+                accountIdentifiersByPni.put(pniList.get(i), UUID.fromString(keyValues.get(i).getValue()));
+              } catch (final IllegalArgumentException e) {
+                logger.warn("Deserialization error", e);
+              }
+            }
+          }
+
+          return accountIdentifiersByPni;
         })
+        .exceptionally(throwable -> {
+          logger.warn("Failed to retrieve account identifiers from Redis", throwable);
+          return Map.of();
+        })
+        .whenComplete((_, _) -> sample.stop(redisPniGetTimer))
         .toCompletableFuture();
   }
 
+  private CompletableFuture<Map<UUID, Account>> redisGetByAccountIdentifiers(final Collection<UUID> uuids) {
+    final Timer.Sample sample = Timer.start();
+
+    final Map<UUID, Account> accountsByUuid = new HashMap<>();
+    final List<UUID> uuidsToFetch = new ArrayList<>();
+
+    for (final UUID uuid : uuids) {
+      accountNearCache.get(uuid)
+          .ifPresentOrElse(account -> accountsByUuid.put(uuid, account), () -> uuidsToFetch.add(uuid));
+    }
+
+    if (uuidsToFetch.isEmpty()) {
+      sample.stop(redisUuidGetTimer);
+      return CompletableFuture.completedFuture(accountsByUuid);
+    }
+
+    return redisGetAccountData(uuidsToFetch, cacheSerializationFormat)
+        .thenCompose(accountDataByUuid -> {
+          // While the format is changing in a rolling deployment, accept the other format, too
+          if (!readAlternateCacheSerializationFormat) {
+            return CompletableFuture.completedFuture(accountDataByUuid);
+          }
+
+          final List<UUID> missingUuids = uuidsToFetch.stream()
+              .filter(uuid -> !accountDataByUuid.containsKey(uuid))
+              .toList();
+
+          if (missingUuids.isEmpty()) {
+            return CompletableFuture.completedFuture(accountDataByUuid);
+          }
+
+          return redisGetAccountData(missingUuids, getAlternateSerializationFormat())
+              .thenApply(alternateAccountDataByUuid -> {
+                final Map<UUID, byte[]> allAccountDataByUuid = new HashMap<>(accountDataByUuid);
+                allAccountDataByUuid.putAll(alternateAccountDataByUuid);
+
+                return allAccountDataByUuid;
+              });
+        })
+        .thenApply(accountDataByUuid -> {
+          accountDataByUuid.forEach((uuid, accountData) -> parseAccountData(accountData, uuid)
+              .map(account -> populateNearCache(account, accountData))
+              .ifPresent(account -> accountsByUuid.put(uuid, account)));
+
+          return accountsByUuid;
+        })
+        .exceptionally(throwable -> {
+          logger.warn("Failed to retrieve accounts from Redis", throwable);
+          return accountsByUuid;
+        })
+        .whenComplete((_, _) -> sample.stop(redisUuidGetTimer));
+  }
+
+  private CompletableFuture<Map<UUID, byte[]>> redisGetAccountData(final List<UUID> uuids,
+      final AccountsCacheConfiguration.SerializationFormat format) {
+
+    // Both formats are stored under string keys, and JSON values are UTF-8, so raw bytes work for either
+    final byte[][] keys = uuids.stream()
+        .map(uuid -> switch (format) {
+          case JSON -> getAccountEntityKey(uuid);
+          case SMILE -> getBinaryAccountEntityKey(uuid);
+        })
+        .map(key -> key.getBytes(StandardCharsets.UTF_8))
+        .toArray(byte[][]::new);
+
+    return cacheCluster.withBinaryCluster(connection -> connection.async().mget(keys))
+        .thenApply(keyValues -> {
+          final Map<UUID, byte[]> accountDataByUuid = new HashMap<>();
+
+          for (int i = 0; i < keyValues.size(); i++) {
+            if (keyValues.get(i).hasValue()) {
+              accountDataByUuid.put(uuids.get(i), keyValues.get(i).getValue());
+            }
+          }
+
+          return accountDataByUuid;
+        })
+        .toCompletableFuture();
+  }
+
+  private AccountsCacheConfiguration.SerializationFormat getAlternateSerializationFormat() {
+    return switch (cacheSerializationFormat) {
+      case JSON -> AccountsCacheConfiguration.SerializationFormat.SMILE;
+      case SMILE -> AccountsCacheConfiguration.SerializationFormat.JSON;
+    };
+  }
+
+  @Nullable
+  private byte[] redisGetAccountData(final UUID uuid, final AccountsCacheConfiguration.SerializationFormat format) {
+    return switch (format) {
+      case JSON -> {
+        final String accountJson =
+            cacheCluster.withCluster(connection -> connection.sync().get(getAccountEntityKey(uuid)));
+
+        yield accountJson != null ? accountJson.getBytes(StandardCharsets.UTF_8) : null;
+      }
+      case SMILE -> cacheCluster.withBinaryCluster(connection ->
+          connection.sync().get(getBinaryAccountEntityKey(uuid).getBytes(StandardCharsets.UTF_8)));
+    };
+  }
+
+  private CompletableFuture<byte[]> redisGetAccountDataAsync(final UUID uuid,
+      final AccountsCacheConfiguration.SerializationFormat format) {
+
+    return switch (format) {
+      case JSON -> cacheCluster.withCluster(connection -> connection.async().get(getAccountEntityKey(uuid)))
+          .thenApply(accountJson -> accountJson != null ? accountJson.getBytes(StandardCharsets.UTF_8) : null)
+          .toCompletableFuture();
+      case SMILE -> cacheCluster.withBinaryCluster(connection ->
+              connection.async().get(getBinaryAccountEntityKey(uuid).getBytes(StandardCharsets.UTF_8)))
+          .toCompletableFuture();
+    };
+  }
+
+  private Account populateNearCache(final Account account, final byte[] accountData) {
+    if (accountNearCache.isEnabled()) {
+      accountNearCache.putIfNewer(account, accountData.length);
+    }
+
+    return account;
+  }
+
   @VisibleForTesting
-  static Optional<Account> parseAccountJson(@Nullable final String accountJson, final UUID uuid) {
+  static Optional<Account> parseAccountData(@Nullable final byte[] accountData, final UUID uuid) {
     try {
-      if (StringUtils.isNotBlank(accountJson)) {
-        Account account = SystemMapper.jsonMapper().readValue(accountJson, Account.class);
+      if (accountData != null && accountData.length > 0) {
+        Account account = (isSmile(accountData) ? SystemMapper.smileMapper() : SystemMapper.jsonMapper())
+            .readValue(accountData, Account.class);
+
         account.setUuid(uuid);
 
         if (account.getPhoneNumberIdentifier() == null) {
@@ -1426,25 +1956,43 @@ public class AccountsManager extends RedisPubSubAdapter<String, String> implemen
     }
   }
 
+  private static boolean isSmile(final byte[] accountData) {
+    return accountData.length >= 3
+        && accountData[0] == SmileConstants.HEADER_BYTE_1
+        && accountData[1] == SmileConstants.HEADER_BYTE_2
+        && accountData[2] == SmileConstants.HEADER_BYTE_3;
+  }
+
   @VisibleForTesting
   static String writeRedisAccountJson(final Account account) throws JsonProcessingException {
     return ACCOUNT_REDIS_JSON_WRITER.writeValueAsString(account);
   }
 
+  @VisibleForTesting
+  static byte[] writeRedisAccountSmile(final Account account) throws JsonProcessingException {
+    return ACCOUNT_REDIS_SMILE_WRITER.writeValueAsBytes(account);
+  }
+
   private void redisDelete(final Account account) {
+    invalidateNearCache(account);
+
     ResilienceUtil.getGeneralRedisRetry(RETRY_NAME).executeRunnable(() ->
         redisDeleteTimer.record(() ->
             cacheCluster.useCluster(connection ->
                 connection.sync().del(getAccountMapKey(account.getPhoneNumberIdentifier().toString()),
-                    getAccountEntityKey(account.getUuid())))));
+                    getAccountEntityKey(account.getUuid()),
+                    getBinaryAccountEntityKey(account.getUuid())))));
   }
 
   private CompletableFuture<Void> redisDeleteAsync(final Account account) {
     final Timer.Sample sample = Timer.start();
 
+    invalidateNearCache(account);
+
     final String[] keysToDelete = new String[]{
         getAccountMapKey(account.getPhoneNumberIdentifier().toString()),
-        getAccountEntityKey(account.getUuid())
+        getAccountEntityKey(account.getUuid()),
+        getBinaryAccountEntityKey(account.getUuid())
     };
 
     return ResilienceUtil.getGeneralRedisRetry(RETRY_NAME).executeCompletionStage(retryExecutor,
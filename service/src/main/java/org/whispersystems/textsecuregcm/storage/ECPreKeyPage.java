@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+package org.whispersystems.textsecuregcm.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.signal.libsignal.protocol.InvalidKeyException;
+import org.signal.libsignal.protocol.ecc.ECPublicKey;
+import org.whispersystems.textsecuregcm.entities.ECPreKey;
+
+/**
+ * The serialized form of a page of single-use EC prekeys. Pages are small enough (tens of bytes per key) to be stored
+ * inline in a DynamoDB item.
+ *
+ * @see KEMPreKeyPage
+ */
+class ECPreKeyPage {
+
+  static final byte FORMAT = 1;
+
+  // Serialized pages start with a 4 byte magic constant, followed by 3 bytes of 0s and then the format byte
+  static final int HEADER_MAGIC = 0x3CE5A1D2;
+  static final int HEADER_SIZE = 8;
+  // Serialize bigendian to produce the serialized page header
+  private static final long HEADER = ((long) HEADER_MAGIC) << 32L | (long) FORMAT;
+
+  // The length of libsignal's serialized EC public key, which is a single-byte type followed by the public key
+  private static final int SERIALIZED_PUBKEY_LENGTH = 33;
+  private static final int KEY_ID_LENGTH = Long.BYTES;
+
+  // The internal prefix byte libsignal uses to indicate a key is a Curve25519 key. Currently, this is the only type of
+  // key allowed to be written to a prekey page
+  private static final byte EC_KEY_TYPE_DJB = 0x05;
+
+  @VisibleForTesting
+  static final int SERIALIZED_PREKEY_LENGTH = KEY_ID_LENGTH + SERIALIZED_PUBKEY_LENGTH;
+
+  private ECPreKeyPage() {}
+
+  /**
+   * Serialize the list of preKeys into a single buffer
+   *
+   * @param format the format to serialize as. Currently, the only valid format is {@link ECPreKeyPage#FORMAT}
+   * @param preKeys the preKeys to serialize
+   * @return The serialized buffer
+   */
+  static ByteBuffer serialize(final byte format, final List<ECPreKey> preKeys) {
+    if (format != FORMAT) {
+      throw new IllegalArgumentException("Unknown format: " + format + ", must be " + FORMAT);
+    }
+
+    if (preKeys.isEmpty()) {
+      throw new IllegalArgumentException("PreKeys cannot be empty");
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + SERIALIZED_PREKEY_LENGTH * preKeys.size());
+    buffer.putLong(HEADER);
+
+    for (final ECPreKey preKey : preKeys) {
+      buffer.putLong(preKey.keyId());
+
+      final byte[] publicKeyBytes = preKey.serializedPublicKey();
+      if (publicKeyBytes[0] != EC_KEY_TYPE_DJB) {
+        // As with KEM pages, if some future version of libsignal supports additional EC key types, we'll have to roll
+        // out read support before rolling out write support
+        throw new IllegalArgumentException("Format 1 only supports " + EC_KEY_TYPE_DJB + " public keys");
+      }
+      if (publicKeyBytes.length != SERIALIZED_PUBKEY_LENGTH) {
+        throw new IllegalArgumentException("Unexpected public key length " + publicKeyBytes.length);
+      }
+      buffer.put(publicKeyBytes);
+    }
+
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Deserialize the key at the given index within a serialized page
+   *
+   * @param format The format of the page
+   * @param page   The serialized page. The position and limit of the buffer are not modified.
+   * @param index  The index of the key to deserialize
+   * @return The deserialized key
+   * @throws InvalidKeyException if the serialized public key is invalid
+   */
+  static ECPreKey deserializeKey(final int format, final ByteBuffer page, final int index) throws InvalidKeyException {
+    if (format != FORMAT) {
+      throw new IllegalArgumentException("Unknown prekey page format " + format);
+    }
+
+    if (page.remaining() < HEADER_SIZE || page.getLong(page.position()) != HEADER) {
+      throw new IllegalArgumentException("Invalid prekey page header");
+    }
+
+    final int startOffset = HEADER_SIZE + (index * SERIALIZED_PREKEY_LENGTH);
+    if (index < 0 || startOffset + SERIALIZED_PREKEY_LENGTH > page.remaining()) {
+      throw new IllegalArgumentException("Index " + index + " out of bounds for page of length " + page.remaining());
+    }
+
+    final ByteBuffer key = page.slice(page.position() + startOffset, SERIALIZED_PREKEY_LENGTH);
+    final long keyId = key.getLong();
+
+    final byte[] publicKeyBytes = new byte[SERIALIZED_PUBKEY_LENGTH];
+    key.get(publicKeyBytes);
+
+    return new ECPreKey(keyId, new ECPublicKey(publicKeyBytes));
+  }
+}
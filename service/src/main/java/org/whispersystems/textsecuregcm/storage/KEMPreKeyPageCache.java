@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/// A bounded, node-local cache of serialized KEM pre-key pages, keyed by page ID.
+///
+/// Pages are immutable once written; a device's "current" page and the index of its next unused key live in DynamoDB.
+/// That means a cached page can never be stale in a way that matters: the database decides which key a take gets, and
+/// this cache only saves the trip to the object store to read it. Popular targets (a new contact being messaged by many
+/// people, for example, or a large group add) tend to have many keys taken from the same page within a short period,
+/// and this cache lets all but the first of those takes skip the object store entirely.
+///
+/// Concurrent requests for a page that isn't yet cached share a single load. Pages may optionally be held in direct
+/// (off-heap) buffers to keep large caches out of the garbage-collected heap.
+public class KEMPreKeyPageCache {
+
+  private final Cache<UUID, ByteBuffer> pagesById;
+  private final Map<UUID, CompletableFuture<ByteBuffer>> pendingLoadsByPageId = new ConcurrentHashMap<>();
+  private final boolean offHeap;
+
+  private static final Counter CACHE_HIT_COUNTER =
+      Metrics.counter(name(KEMPreKeyPageCache.class, "getPage"), "outcome", "hit");
+
+  private static final Counter CACHE_MISS_COUNTER =
+      Metrics.counter(name(KEMPreKeyPageCache.class, "getPage"), "outcome", "miss");
+
+  private static final Counter CACHE_PENDING_LOAD_COUNTER =
+      Metrics.counter(name(KEMPreKeyPageCache.class, "getPage"), "outcome", "pendingLoad");
+
+  /// @param maxSizeBytes the maximum total size of all cached pages, in bytes
+  /// @param expiration   how long to keep a page after it was last accessed
+  /// @param offHeap      whether to copy cached pages into direct (off-heap) buffers
+  public KEMPreKeyPageCache(final long maxSizeBytes, final Duration expiration, final boolean offHeap) {
+    this(maxSizeBytes, expiration, offHeap, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  KEMPreKeyPageCache(final long maxSizeBytes, final Duration expiration, final boolean offHeap, final Ticker ticker) {
+    this.pagesById = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeBytes)
+        .<UUID, ByteBuffer>weigher((_, page) -> page.capacity())
+        .expireAfterAccess(expiration)
+        .ticker(ticker)
+        .build();
+
+    this.offHeap = offHeap;
+
+    Metrics.gauge(name(KEMPreKeyPageCache.class, "size"), pagesById, Cache::size);
+  }
+
+  /// Returns the serialized page with the given ID, loading it with the given loader if it's not already cached.
+  ///
+  /// @param pageId the ID of the page to retrieve
+  /// @param loader a supplier of a future that yields the entire serialized page
+  ///
+  /// @return a future that yields a read-only view of the entire serialized page; each caller gets its own view, so
+  /// callers may freely change the returned buffer's position and limit
+  CompletableFuture<ByteBuffer> getPage(final UUID pageId, final Supplier<CompletableFuture<ByteBuffer>> loader) {
+    final ByteBuffer cachedPage = pagesById.getIfPresent(pageId);
+
+    if (cachedPage != null) {
+      CACHE_HIT_COUNTER.increment();
+      return CompletableFuture.completedFuture(cachedPage.duplicate());
+    }
+
+    final CompletableFuture<ByteBuffer> load = new CompletableFuture<>();
+    final CompletableFuture<ByteBuffer> pendingLoad = pendingLoadsByPageId.putIfAbsent(pageId, load);
+
+    if (pendingLoad != null) {
+      CACHE_PENDING_LOAD_COUNTER.increment();
+      return pendingLoad.thenApply(ByteBuffer::duplicate);
+    }
+
+    // Only count requests that actually load a page as misses
+    CACHE_MISS_COUNTER.increment();
+
+    CompletableFuture<ByteBuffer> loaderFuture;
+
+    try {
+      loaderFuture = loader.get();
+    } catch (final RuntimeException e) {
+      loaderFuture = CompletableFuture.failedFuture(e);
+    }
+
+    loaderFuture.whenComplete((page, throwable) -> {
+      if (throwable != null) {
+        pendingLoadsByPageId.remove(pageId, load);
+        load.completeExceptionally(throwable);
+      } else {
+        final ByteBuffer cachedPage = copyForCache(page);
+
+        // Add the page to the cache before removing the pending load so there's no window in which a new request
+        // would start a second load
+        pagesById.put(pageId, cachedPage);
+        pendingLoadsByPageId.remove(pageId, load);
+        load.complete(cachedPage);
+      }
+    });
+
+    return load.thenApply(ByteBuffer::duplicate);
+  }
+
+  /// Discards the page with the given ID, if cached. Pages are never modified, so this is only needed to keep pages that
+  /// can no longer be read from taking up room in the cache when they're replaced or deleted. Note that the memory
+  /// behind an off-heap page is only reclaimed once its buffer (and any views handed to callers) are garbage-collected.
+  void invalidate(final UUID pageId) {
+    pagesById.invalidate(pageId);
+  }
+
+  private ByteBuffer copyForCache(final ByteBuffer page) {
+    final ByteBuffer copy = offHeap
+        ? ByteBuffer.allocateDirect(page.remaining())
+        : ByteBuffer.allocate(page.remaining());
+
+    copy.put(page.duplicate());
+    copy.flip();
+
+    return copy.asReadOnlyBuffer();
+  }
+}
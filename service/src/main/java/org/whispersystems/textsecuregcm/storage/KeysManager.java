@@ -9,19 +9,25 @@ import com.google.common.annotations.VisibleForTesting;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicPreKeysConfiguration;
 import org.whispersystems.textsecuregcm.entities.ECPreKey;
 import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
 import org.whispersystems.textsecuregcm.entities.KEMSignedPreKey;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
-import org.whispersystems.textsecuregcm.util.Futures;
-import org.whispersystems.textsecuregcm.util.Optionals;
 import reactor.core.publisher.Flux;
 import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
 
@@ -30,21 +36,28 @@ public class KeysManager {
   private static final String GET_KEYS_COUNTER_NAME = MetricsUtil.name(KeysManager.class, "getKeys");
 
   private final SingleUseECPreKeyStore ecPreKeys;
+  private final PagedSingleUseECPreKeyStore pagedEcPreKeys;
   private final PagedSingleUseKEMPreKeyStore pagedPqPreKeys;
   private final RepeatedUseECSignedPreKeyStore ecSignedPreKeys;
   private final RepeatedUseKEMSignedPreKeyStore pqLastResortKeys;
+  private final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
 
   private static final String  TAKE_PQ_NAME = MetricsUtil.name(KeysManager.class, "takePq");
+  private static final String TAKE_EC_NAME = MetricsUtil.name(KeysManager.class, "takeEc");
 
   public KeysManager(
       final SingleUseECPreKeyStore ecPreKeys,
+      final PagedSingleUseECPreKeyStore pagedEcPreKeys,
       final PagedSingleUseKEMPreKeyStore pagedPqPreKeys,
       final RepeatedUseECSignedPreKeyStore ecSignedPreKeys,
-      final RepeatedUseKEMSignedPreKeyStore pqLastResortKeys) {
+      final RepeatedUseKEMSignedPreKeyStore pqLastResortKeys,
+      final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager) {
     this.ecPreKeys = ecPreKeys;
+    this.pagedEcPreKeys = pagedEcPreKeys;
     this.pagedPqPreKeys = pagedPqPreKeys;
     this.ecSignedPreKeys = ecSignedPreKeys;
     this.pqLastResortKeys = pqLastResortKeys;
+    this.dynamicConfigurationManager = dynamicConfigurationManager;
   }
 
   public TransactWriteItem buildWriteItemForEcSignedPreKey(final UUID identifier,
@@ -101,7 +114,13 @@ public class KeysManager {
 
   public CompletableFuture<Void> storeEcOneTimePreKeys(final UUID identifier, final byte deviceId,
       final List<ECPreKey> preKeys) {
-    return ecPreKeys.store(identifier, deviceId, preKeys);
+    return switch (getEcPreKeyStoreMode()) {
+      case LEGACY -> ecPreKeys.store(identifier, deviceId, preKeys);
+      // Clear any keys in the legacy store so takes and counts reflect only the newly-uploaded keys
+      case MIGRATION -> pagedEcPreKeys.store(identifier, deviceId, preKeys)
+          .thenCompose(_ -> ecPreKeys.delete(identifier, deviceId));
+      case PAGED -> pagedEcPreKeys.store(identifier, deviceId, preKeys);
+    };
   }
 
   public CompletableFuture<Void> storeKemOneTimePreKeys(final UUID identifier, final byte deviceId,
@@ -112,7 +131,32 @@ public class KeysManager {
 
   @VisibleForTesting
   CompletableFuture<Optional<ECPreKey>> takeEC(final UUID identifier, final byte deviceId) {
-    return ecPreKeys.take(identifier, deviceId);
+    return switch (getEcPreKeyStoreMode()) {
+      case LEGACY -> tagTakeEC(ecPreKeys.take(identifier, deviceId), ECSource.LEGACY);
+      case MIGRATION -> tagTakeEC(pagedEcPreKeys.take(identifier, deviceId), ECSource.PAGE)
+          .thenCompose(maybePreKey -> maybePreKey
+              .map(_ -> CompletableFuture.completedFuture(maybePreKey))
+              .orElseGet(() -> tagTakeEC(ecPreKeys.take(identifier, deviceId), ECSource.LEGACY)));
+      case PAGED -> tagTakeEC(pagedEcPreKeys.take(identifier, deviceId), ECSource.PAGE);
+    };
+  }
+
+  private enum ECSource {
+    PAGE,
+    LEGACY
+  }
+
+  private CompletableFuture<Optional<ECPreKey>> tagTakeEC(final CompletableFuture<Optional<ECPreKey>> preKey,
+      final ECSource source) {
+
+    return preKey.thenApply(maybePreKey -> {
+      maybePreKey.ifPresent(_ -> Metrics.counter(TAKE_EC_NAME, "source", source.name()).increment());
+      return maybePreKey;
+    });
+  }
+
+  private DynamicPreKeysConfiguration.ECPreKeyStoreMode getEcPreKeyStoreMode() {
+    return dynamicConfigurationManager.getConfiguration().getPreKeysConfiguration().ecPreKeyStoreMode();
   }
 
   @VisibleForTesting
@@ -129,18 +173,51 @@ public class KeysManager {
   }
   private CompletableFuture<Optional<KEMSignedPreKey>> tagTakePQ(CompletableFuture<Optional<KEMSignedPreKey>> prekey, final PQSource source) {
     return prekey.thenApply(maybeSingleUsePreKey -> {
-      final Optional<String> maybeSourceTag = maybeSingleUsePreKey
-          // If we found a PK, use this source tag
-          .map(ignore -> source.name())
-          // If we didn't and this is our last resort, we didn't find a PK
-          .or(() -> source == PQSource.LAST_RESORT ? Optional.of("absent") : Optional.empty());
-      maybeSourceTag.ifPresent(sourceTag -> {
-        Metrics.counter(TAKE_PQ_NAME, "source", sourceTag).increment();
-      });
+      recordTakePQ(maybeSingleUsePreKey, source);
       return maybeSingleUsePreKey;
     });
   }
 
+  private static void recordTakePQ(final Optional<KEMSignedPreKey> maybePreKey, final PQSource source) {
+    final Optional<String> maybeSourceTag = maybePreKey
+        // If we found a PK, use this source tag
+        .map(ignore -> source.name())
+        // If we didn't and this is our last resort, we didn't find a PK
+        .or(() -> source == PQSource.LAST_RESORT ? Optional.of("absent") : Optional.empty());
+    maybeSourceTag.ifPresent(sourceTag -> {
+      Metrics.counter(TAKE_PQ_NAME, "source", sourceTag).increment();
+    });
+  }
+
+  /**
+   * Takes a single-use PQ pre-key for each of the given devices, falling back to last-resort keys (fetched together in
+   * a single batch) for any devices that have run out of single-use keys.
+   */
+  private CompletableFuture<Map<Byte, KEMSignedPreKey>> takePQ(final UUID identifier, final List<Byte> deviceIds) {
+    final Map<Byte, CompletableFuture<Optional<KEMSignedPreKey>>> singleUsePreKeyFutures = deviceIds.stream()
+        .collect(Collectors.toMap(Function.identity(),
+            deviceId -> tagTakePQ(pagedPqPreKeys.take(identifier, deviceId), PQSource.PAGE)));
+
+    return CompletableFuture.allOf(singleUsePreKeyFutures.values().toArray(CompletableFuture[]::new))
+        .thenCompose(_ -> {
+          final Map<Byte, KEMSignedPreKey> preKeysByDeviceId = new HashMap<>();
+          final List<Byte> deviceIdsWithoutSingleUsePreKeys = new ArrayList<>();
+
+          singleUsePreKeyFutures.forEach((deviceId, preKeyFuture) -> preKeyFuture.join().ifPresentOrElse(
+              preKey -> preKeysByDeviceId.put(deviceId, preKey),
+              () -> deviceIdsWithoutSingleUsePreKeys.add(deviceId)));
+
+          return pqLastResortKeys.findAll(identifier, deviceIdsWithoutSingleUsePreKeys)
+              .thenApply(lastResortKeysByDeviceId -> {
+                deviceIdsWithoutSingleUsePreKeys.forEach(deviceId ->
+                    recordTakePQ(Optional.ofNullable(lastResortKeysByDeviceId.get(deviceId)), PQSource.LAST_RESORT));
+
+                preKeysByDeviceId.putAll(lastResortKeysByDeviceId);
+                return preKeysByDeviceId;
+              });
+        });
+  }
+
   public CompletableFuture<Optional<KEMSignedPreKey>> getLastResort(final UUID identifier, final byte deviceId) {
     return pqLastResortKeys.find(identifier, deviceId);
   }
@@ -150,7 +227,13 @@ public class KeysManager {
   }
 
   public CompletableFuture<Integer> getEcCount(final UUID identifier, final byte deviceId) {
-    return ecPreKeys.getCount(identifier, deviceId);
+    return switch (getEcPreKeyStoreMode()) {
+      case LEGACY -> ecPreKeys.getCount(identifier, deviceId);
+      // Uploads in migration mode clear the legacy store, so at most one store should have keys for a given device
+      case MIGRATION -> pagedEcPreKeys.getCount(identifier, deviceId)
+          .thenCombine(ecPreKeys.getCount(identifier, deviceId), Integer::sum);
+      case PAGED -> pagedEcPreKeys.getCount(identifier, deviceId);
+    };
   }
 
   public CompletableFuture<Integer> getPqCount(final UUID identifier, final byte deviceId) {
@@ -160,6 +243,7 @@ public class KeysManager {
   public CompletableFuture<Void> deleteSingleUsePreKeys(final UUID identifier) {
     return CompletableFuture.allOf(
         ecPreKeys.delete(identifier),
+        pagedEcPreKeys.delete(identifier),
         pagedPqPreKeys.delete(identifier)
     );
   }
@@ -167,6 +251,7 @@ public class KeysManager {
   public CompletableFuture<Void> deleteSingleUsePreKeys(final UUID accountUuid, final byte deviceId) {
     return CompletableFuture.allOf(
         ecPreKeys.delete(accountUuid, deviceId),
+        pagedEcPreKeys.delete(accountUuid, deviceId),
         pagedPqPreKeys.delete(accountUuid, deviceId)
     );
   }
@@ -200,30 +285,67 @@ public class KeysManager {
       Optional<ECPreKey> ecPreKey,
       KEMSignedPreKey kemSignedPreKey) {}
 
-  public CompletableFuture<Optional<DevicePreKeys>> takeDevicePreKeys(
-      final byte deviceId,
+  /**
+   * Takes pre-keys for each of the given devices associated with the same account/identity. Signed pre-keys and any
+   * needed last-resort keys are fetched with one batched read per store, and single-use pre-keys are taken for all
+   * devices in parallel.
+   *
+   * @param deviceIds the identifiers of the devices for which to take pre-keys
+   * @param serviceIdentifier the identifier for the account/identity with which the target devices are associated
+   * @param userAgent the user agent of the requesting client, if known
+   *
+   * @return a future that yields a map of device IDs to pre-keys; devices for which a complete set of pre-keys was not
+   * available (which should only happen if the device was removed concurrently) are absent from the map
+   */
+  public CompletableFuture<Map<Byte, DevicePreKeys>> takeDevicePreKeys(
+      final Collection<Byte> deviceIds,
       final ServiceIdentifier serviceIdentifier,
       final @Nullable String userAgent) {
+
     final UUID uuid = serviceIdentifier.uuid();
-    return Futures.zipWith(
-            this.takeEC(uuid, deviceId),
-            this.getEcSignedPreKey(uuid, deviceId),
-            this.takePQ(uuid, deviceId),
-            (maybeUnsignedEcPreKey, maybeSignedEcPreKey, maybePqPreKey) -> {
-
-              Metrics.counter(GET_KEYS_COUNTER_NAME, Tags.of(
-                      UserAgentTagUtil.getPlatformTag(userAgent),
-                      Tag.of("identityType", serviceIdentifier.identityType().name()),
-                      Tag.of("oneTimeEcKeyAvailable", String.valueOf(maybeUnsignedEcPreKey.isPresent())),
-                      Tag.of("signedEcKeyAvailable", String.valueOf(maybeSignedEcPreKey.isPresent())),
-                      Tag.of("pqKeyAvailable", String.valueOf(maybePqPreKey.isPresent()))))
-                  .increment();
-
-              // The pq prekey and signed EC prekey should never be null for an existing account. This should only happen
-              // if the account or device has been removed and the read was split, so we can return empty in those cases.
-              return Optionals.zipWith(maybeSignedEcPreKey, maybePqPreKey, (signedEcPreKey, pqPreKey) ->
-                  new DevicePreKeys(signedEcPreKey, maybeUnsignedEcPreKey, pqPreKey));
-            })
-        .toCompletableFuture();
+    final List<Byte> distinctDeviceIds = deviceIds.stream().distinct().toList();
+
+    final CompletableFuture<Map<Byte, ECSignedPreKey>> signedEcPreKeysFuture =
+        ecSignedPreKeys.findAll(uuid, distinctDeviceIds);
+
+    final Map<Byte, CompletableFuture<Optional<ECPreKey>>> unsignedEcPreKeyFutures = distinctDeviceIds.stream()
+        .collect(Collectors.toMap(Function.identity(), deviceId -> takeEC(uuid, deviceId)));
+
+    final CompletableFuture<Map<Byte, KEMSignedPreKey>> pqPreKeysFuture = takePQ(uuid, distinctDeviceIds);
+
+    final List<CompletableFuture<?>> futures = new ArrayList<>(unsignedEcPreKeyFutures.values());
+    futures.add(signedEcPreKeysFuture);
+    futures.add(pqPreKeysFuture);
+
+    return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+        .thenApply(_ -> {
+          final Map<Byte, ECSignedPreKey> signedEcPreKeys = signedEcPreKeysFuture.join();
+          final Map<Byte, KEMSignedPreKey> pqPreKeys = pqPreKeysFuture.join();
+          final Map<Byte, DevicePreKeys> devicePreKeysByDeviceId = new HashMap<>();
+
+          for (final byte deviceId : distinctDeviceIds) {
+            final Optional<ECPreKey> maybeUnsignedEcPreKey = unsignedEcPreKeyFutures.get(deviceId).join();
+            final Optional<ECSignedPreKey> maybeSignedEcPreKey = Optional.ofNullable(signedEcPreKeys.get(deviceId));
+            final Optional<KEMSignedPreKey> maybePqPreKey = Optional.ofNullable(pqPreKeys.get(deviceId));
+
+            Metrics.counter(GET_KEYS_COUNTER_NAME, Tags.of(
+                    UserAgentTagUtil.getPlatformTag(userAgent),
+                    Tag.of("identityType", serviceIdentifier.identityType().name()),
+                    Tag.of("oneTimeEcKeyAvailable", String.valueOf(maybeUnsignedEcPreKey.isPresent())),
+                    Tag.of("signedEcKeyAvailable", String.valueOf(maybeSignedEcPreKey.isPresent())),
+                    Tag.of("pqKeyAvailable", String.valueOf(maybePqPreKey.isPresent()))))
+                .increment();
+
+            // The pq prekey and signed EC prekey should never be null for an existing account. This should only happen
+            // if the account or device has been removed and the read was split, so we can leave the device out in
+            // those cases.
+            if (maybeSignedEcPreKey.isPresent() && maybePqPreKey.isPresent()) {
+              devicePreKeysByDeviceId.put(deviceId,
+                  new DevicePreKeys(maybeSignedEcPreKey.get(), maybeUnsignedEcPreKey, maybePqPreKey.get()));
+            }
+          }
+
+          return devicePreKeysByDeviceId;
+        });
   }
 }
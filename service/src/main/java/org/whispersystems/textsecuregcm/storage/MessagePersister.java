@@ -8,27 +8,48 @@ package org.whispersystems.textsecuregcm.storage;
 import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
 import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.DataSize;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.cluster.SlotHash;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.IntStream;
+import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.metrics.DevicePlatformUtil;
 import org.whispersystems.textsecuregcm.util.Util;
 import reactor.core.publisher.Flux;
@@ -44,13 +65,29 @@ public class MessagePersister implements Managed {
   private final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
 
   private final Duration persistDelay;
-
-  private final Thread[] workerThreads;
+  private final int workerThreadsPerShard;
+
+  // Identifies this persister instance's lease on its share of the Redis cluster's slots
+  private final String instanceId = UUID.randomUUID().toString();
+
+  private final ScheduledExecutorService leaseRenewalExecutor;
+  private final ExecutorService persistQueueExecutor;
+  private final Semaphore inFlightBytes = new Semaphore(MAX_IN_FLIGHT_BYTES);
+  private final Map<String, ShardPersister> shardPersistersByShard = new ConcurrentHashMap<>();
+  private final Set<CompletableFuture<Void>> stoppingShardPersisterFutures = ConcurrentHashMap.newKeySet();
+  private final Map<String, AtomicInteger> queuesPersistedLastSlotByShard = new ConcurrentHashMap<>();
+  private final Map<String, Map<Integer, Long>> persistLagMillisBySlotByShard = new ConcurrentHashMap<>();
+  private final AtomicInteger ownedSlotCount = Metrics.gauge(OWNED_SLOTS_GAUGE_NAME, new AtomicInteger());
   private volatile boolean running;
 
   private static final String OVERSIZED_QUEUE_COUNTER_NAME = name(MessagePersister.class, "persistQueueOversized");
   private static final String PERSISTED_MESSAGE_COUNTER_NAME = name(MessagePersister.class, "persistMessage");
   private static final String PERSISTED_BYTES_COUNTER_NAME = name(MessagePersister.class, "persistBytes");
+  private static final String PERSISTED_QUEUE_COUNTER_NAME = name(MessagePersister.class, "persistedQueues");
+  private static final String QUEUES_PERSISTED_LAST_SLOT_GAUGE_NAME =
+      name(MessagePersister.class, "queuesPersistedLastSlot");
+  private static final String PERSIST_LAG_GAUGE_NAME = name(MessagePersister.class, "persistLag");
+  private static final String OWNED_SLOTS_GAUGE_NAME = name(MessagePersister.class, "ownedSlots");
 
   private static final Timer GET_QUEUES_TIMER = Metrics.timer(name(MessagePersister.class, "getQueues"));
   private static final Timer PERSIST_QUEUE_TIMER = Metrics.timer(name(MessagePersister.class, "persistQueue"));
@@ -64,52 +101,56 @@ public class MessagePersister implements Managed {
   static final int QUEUE_BATCH_LIMIT = 100;
   static final int MESSAGE_BATCH_LIMIT = 100;
 
+  // Slots are leased to persister instances in contiguous ranges of this size
+  @VisibleForTesting
+  static final int SLOT_RANGE_SIZE = 128;
+
+  private static final int SLOT_RANGE_COUNT = SlotHash.SLOT_COUNT / SLOT_RANGE_SIZE;
+
+  private static final Duration LEASE_RENEWAL_INTERVAL = Duration.ofSeconds(10);
+
+  // How long an instance's lease on its slots survives without a heartbeat; if an instance stops without releasing its
+  // lease, its slots are reassigned once the lease lapses
+  private static final Duration LEASE_DURATION = LEASE_RENEWAL_INTERVAL.multipliedBy(3);
+
   private static final DistributionSummary QUEUE_COUNT_DISTRIBUTION_SUMMARY = DistributionSummary.builder(
           name(MessagePersister.class, "queueCount"))
       .register(Metrics.globalRegistry);
 
+  // The maximum number of message bytes being written to DynamoDB at any one time across all of this persister's queues
+  private static final int MAX_IN_FLIGHT_BYTES = (int) DataSize.megabytes(16).toBytes();
+
   private static final long EXCEPTION_PAUSE_MILLIS = Duration.ofSeconds(3).toMillis();
 
   private static final int CONSECUTIVE_EMPTY_CACHE_REMOVAL_LIMIT = 3;
 
+  // The maximum number of worker threads across all shards; shards share this budget evenly (but always get at least
+  // one worker thread each) so that the number of threads doesn't grow with the number of shards
+  @VisibleForTesting
+  static final int MAX_WORKER_THREADS = 64;
+
   private static final Logger logger = LoggerFactory.getLogger(MessagePersister.class);
 
+  /// @param workerThreadsPerShard the maximum number of worker threads persisting queues from each Redis shard on which
+  ///                              this instance owns slots; fewer threads are used per shard if this instance owns
+  ///                              slots on enough shards that it would otherwise exceed [#MAX_WORKER_THREADS]
   public MessagePersister(final MessagesCache messagesCache,
       final MessagesManager messagesManager,
       final AccountsManager accountsManager,
       final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager,
       final Duration persistDelay,
-      final int dedicatedProcessWorkerThreadCount) {
+      final int workerThreadsPerShard) {
 
     this.messagesCache = messagesCache;
     this.messagesManager = messagesManager;
     this.accountsManager = accountsManager;
     this.dynamicConfigurationManager = dynamicConfigurationManager;
     this.persistDelay = persistDelay;
-    this.workerThreads = new Thread[dedicatedProcessWorkerThreadCount];
-
-    for (int i = 0; i < workerThreads.length; i++) {
-      workerThreads[i] = new Thread(() -> {
-        while (running) {
-          if (dynamicConfigurationManager.getConfiguration().getMessagePersisterConfiguration()
-              .isPersistenceEnabled()) {
-            try {
-              final int queuesPersisted = persistNextQueues(Instant.now());
-              QUEUE_COUNT_DISTRIBUTION_SUMMARY.record(queuesPersisted);
-
-              if (queuesPersisted == 0) {
-                Util.sleep(100);
-              }
-            } catch (final Throwable t) {
-              logger.warn("Failed to persist queues", t);
-              Util.sleep(EXCEPTION_PAUSE_MILLIS);
-            }
-          } else {
-            Util.sleep(1000);
-          }
-        }
-      }, "MessagePersisterWorker-" + i);
-    }
+    this.workerThreadsPerShard = workerThreadsPerShard;
+    this.leaseRenewalExecutor = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("MessagePersisterLeaseRenewal").factory());
+    this.persistQueueExecutor =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("MessagePersisterQueue-", 0).factory());
   }
 
   @VisibleForTesting
@@ -121,72 +162,315 @@ public class MessagePersister implements Managed {
   public void start() {
     running = true;
 
-    for (final Thread workerThread : workerThreads) {
-      workerThread.start();
-    }
+    // Claim slots before returning so workers start persisting right away, then keep the lease alive (and pick up
+    // changes in persister membership and cluster topology) in the background
+    renewLease();
+    leaseRenewalExecutor.scheduleWithFixedDelay(this::renewLease,
+        LEASE_RENEWAL_INTERVAL.toMillis(), LEASE_RENEWAL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
   }
 
   @Override
   public void stop() {
     running = false;
 
-    for (final Thread workerThread : workerThreads) {
+    leaseRenewalExecutor.shutdown();
+
+    try {
+      leaseRenewalExecutor.awaitTermination(LEASE_RENEWAL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException e) {
+      logger.warn("Interrupted while waiting for lease renewal to complete");
+    }
+
+    shardPersistersByShard.values().forEach(ShardPersister::stop);
+
+    for (final ShardPersister shardPersister : shardPersistersByShard.values()) {
       try {
-        workerThread.join();
+        shardPersister.join();
       } catch (final InterruptedException e) {
         logger.warn("Interrupted while waiting for worker thread to complete current operation");
       }
     }
+
+    shardPersistersByShard.clear();
+
+    // Pipelines stopped by a lease renewal may still be finishing their current operation
+    try {
+      CompletableFuture.allOf(stoppingShardPersisterFutures.toArray(CompletableFuture[]::new)).join();
+    } catch (final Exception e) {
+      logger.warn("Failed to wait for stopped worker threads to complete current operation", e);
+    }
+
+    try {
+      messagesCache.releasePersisterLease(instanceId);
+    } catch (final Exception e) {
+      logger.warn("Failed to release persister lease; slots will be reassigned when the lease expires", e);
+    }
+
+    persistQueueExecutor.shutdown();
   }
 
+  /// Renews this instance's lease, recalculates the set of slots it owns, and starts or stops per-shard pipelines to
+  /// match. If the lease can't be renewed, this instance keeps working on the slots it already owns; other instances
+  /// will take them over if the lease lapses, and persisting the same slot from two instances is safe (if redundant)
+  /// because fetching queues to persist removes them from the slot's index atomically.
+  private void renewLease() {
+    if (!running) {
+      return;
+    }
+
+    final List<Integer> ownedSlots;
+
+    try {
+      ownedSlots = getOwnedSlots(instanceId, messagesCache.renewPersisterLease(instanceId, LEASE_DURATION));
+    } catch (final Exception e) {
+      logger.warn("Failed to renew persister lease", e);
+      return;
+    }
+
+    final Map<String, List<Integer>> ownedSlotsByShard = ownedSlots.stream()
+        .collect(Collectors.groupingBy(messagesCache::shardForSlot));
+
+    final int workerThreadCount = getWorkerThreadCount(workerThreadsPerShard, ownedSlotsByShard.size());
+
+    for (final Map.Entry<String, List<Integer>> entry : ownedSlotsByShard.entrySet()) {
+      final String shard = entry.getKey();
+      final int[] slots = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+
+      final ShardPersister shardPersister = shardPersistersByShard.computeIfAbsent(shard, ShardPersister::new);
+      shardPersister.setSlots(slots);
+      shardPersister.setWorkerThreadCount(workerThreadCount);
+    }
+
+    // Stop pipelines for shards on which this instance no longer owns any slots (because of a rebalance or a change in
+    // cluster topology). Stopped pipelines finish whatever they're persisting in the background rather than holding up
+    // lease renewal; persisting a slot that now belongs to another instance is safe, if redundant.
+    shardPersistersByShard.entrySet().removeIf(entry -> {
+      if (ownedSlotsByShard.containsKey(entry.getKey())) {
+        return false;
+      }
+
+      final CompletableFuture<Void> stoppedFuture = entry.getValue().stopAsync();
+      stoppingShardPersisterFutures.add(stoppedFuture);
+      stoppedFuture.whenComplete((_, _) -> stoppingShardPersisterFutures.remove(stoppedFuture));
+
+      return true;
+    });
+
+    // Lag observations for slots that have moved elsewhere are no longer ours to report
+    persistLagMillisBySlotByShard.forEach((shard, persistLagMillisBySlot) -> {
+      final Set<Integer> slotsInShard = new HashSet<>(ownedSlotsByShard.getOrDefault(shard, List.of()));
+      persistLagMillisBySlot.keySet().retainAll(slotsInShard);
+    });
+
+    ownedSlotCount.set(ownedSlots.size());
+  }
+
+  /// Determines how many worker threads to run for each shard so that the total number of worker threads stays within
+  /// [#MAX_WORKER_THREADS] unless this instance owns slots on more shards than that.
+  ///
+  /// @param workerThreadsPerShard the configured maximum number of worker threads per shard
+  /// @param shardCount the number of shards on which this instance owns slots
+  ///
+  /// @return the number of worker threads to run for each shard
   @VisibleForTesting
-  int persistNextQueues(final Instant currentTime) {
-    final int slot = messagesCache.getNextSlotToPersist();
+  static int getWorkerThreadCount(final int workerThreadsPerShard, final int shardCount) {
+    return Math.max(1, Math.min(workerThreadsPerShard, MAX_WORKER_THREADS / Math.max(shardCount, 1)));
+  }
+
+  /// Determines which slots the given instance owns, given the set of live persister instances. Slots are grouped into
+  /// fixed-size, contiguous ranges, and each range is assigned to an instance by rendezvous (highest random weight)
+  /// hashing so that when an instance joins or leaves, only the ranges it gains or loses move.
+  ///
+  /// @param instanceId the ID of the instance for which to determine owned slots
+  /// @param liveInstanceIds the IDs of all live persister instances
+  ///
+  /// @return the slots owned by the given instance, in ascending order
+  @VisibleForTesting
+  static List<Integer> getOwnedSlots(final String instanceId, final Collection<String> liveInstanceIds) {
+    final Set<String> instanceIds = new HashSet<>(liveInstanceIds);
+    instanceIds.add(instanceId);
+
+    final List<Integer> ownedSlots = new ArrayList<>();
+
+    for (int range = 0; range < SLOT_RANGE_COUNT; range++) {
+      if (instanceId.equals(getSlotRangeOwner(range, instanceIds))) {
+        for (int slot = range * SLOT_RANGE_SIZE; slot < (range + 1) * SLOT_RANGE_SIZE; slot++) {
+          ownedSlots.add(slot);
+        }
+      }
+    }
+
+    return ownedSlots;
+  }
+
+  private static String getSlotRangeOwner(final int range, final Collection<String> instanceIds) {
+    String owner = null;
+    long ownerWeight = Long.MIN_VALUE;
+
+    for (final String instanceId : instanceIds) {
+      final long weight = Hashing.murmur3_128().newHasher()
+          .putString(instanceId, StandardCharsets.UTF_8)
+          .putInt(range)
+          .hash()
+          .asLong();
+
+      if (owner == null || weight > ownerWeight || (weight == ownerWeight && instanceId.compareTo(owner) < 0)) {
+        owner = instanceId;
+        ownerWeight = weight;
+      }
+    }
+
+    return owner;
+  }
+
+  /// Persists all queues in the given slot that have been waiting for at least the persist delay as of the given time.
+  ///
+  /// @return the number of queues persisted
+  @VisibleForTesting
+  int persistSlot(final int slot, final Instant currentTime) {
     final String shard = messagesCache.shardForSlot(slot);
+    final int persistQueueConcurrency = dynamicConfigurationManager.getConfiguration()
+        .getMessagePersisterConfiguration()
+        .getPersistQueueConcurrency();
+
+    final Instant persistDeadline = currentTime.minus(persistDelay);
 
     List<String> queuesToPersist;
     int queuesPersisted = 0;
 
     do {
-      queuesToPersist = GET_QUEUES_TIMER.record(
-          () -> messagesCache.getQueuesToPersist(slot, currentTime.minus(persistDelay), QUEUE_BATCH_LIMIT));
+      final List<ScoredValue<String>> scoredQueuesToPersist = GET_QUEUES_TIMER.record(
+          () -> messagesCache.getQueuesToPersist(slot, persistDeadline, QUEUE_BATCH_LIMIT));
 
-      for (final String queue : queuesToPersist) {
-        final UUID accountUuid = MessagesCache.getAccountUuidFromQueueName(queue);
-        final byte deviceId = MessagesCache.getDeviceIdFromQueueName(queue);
-
-        final Optional<Account> maybeAccount = accountsManager.getByAccountIdentifier(accountUuid);
-        if (maybeAccount.isEmpty()) {
-          logger.error("No account record found for account {}", accountUuid);
-          continue;
-        }
-        final Optional<Device> maybeDevice = maybeAccount.flatMap(account -> account.getDevice(deviceId));
-        if (maybeDevice.isEmpty()) {
-          logger.error("Account {} does not have a device with id {}", accountUuid, deviceId);
-          continue;
-        }
-        try {
-          persistQueue(maybeAccount.get(), maybeDevice.get(), shard);
-        } catch (final Exception e) {
-          PERSIST_QUEUE_EXCEPTION_METER.increment();
-          logger.warn("Failed to persist queue {}::{} (slot {}, shard {}); will schedule for retry",
-              accountUuid, deviceId, slot, shard, e);
+      if (queuesPersisted == 0) {
+        // Queues come back oldest first, so the first queue in the first batch is the oldest in the slot
+        recordPersistLag(slot, shard, persistDeadline, scoredQueuesToPersist.stream().findFirst()
+            .map(oldestQueue -> Instant.ofEpochMilli((long) oldestQueue.getScore())));
+      }
 
-          messagesCache.addQueueToPersist(accountUuid, deviceId);
+      queuesToPersist = scoredQueuesToPersist.stream().map(ScoredValue::getValue).toList();
 
-          if (!(e instanceof MessagePersistenceException)) {
-            // Pause after unexpected exceptions
-            Util.sleep(EXCEPTION_PAUSE_MILLIS);
-          }
-        }
-      }
+      final boolean unexpectedFailure = persistQueues(queuesToPersist, slot, shard, persistQueueConcurrency);
 
       queuesPersisted += queuesToPersist.size();
+
+      if (unexpectedFailure) {
+        // Failed queues have already been rescheduled; pause this worker once (rather than once per failed queue) and
+        // leave the rest of the slot for a later pass
+        Util.sleep(EXCEPTION_PAUSE_MILLIS);
+        break;
+      }
     } while (queuesToPersist.size() >= QUEUE_BATCH_LIMIT);
 
+    // This is the number of queues handled in this pass over the slot, not the number still waiting to be persisted
+    queuesPersistedLastSlotByShard.computeIfAbsent(shard, s -> Metrics.gauge(QUEUES_PERSISTED_LAST_SLOT_GAUGE_NAME,
+            Tags.of("shard", s), new AtomicInteger()))
+        .set(queuesPersisted);
+
+    Metrics.counter(PERSISTED_QUEUE_COUNTER_NAME, "shard", shard).increment(queuesPersisted);
+
     return queuesPersisted;
   }
 
+  /// Records how long past its persist deadline the oldest queue in the given slot was when this instance got to it.
+  /// The per-shard lag gauge reports the greatest lag most recently observed across all of this instance's slots in the
+  /// shard; a lag that grows over time means persisters aren't keeping up with the shard's backlog.
+  private void recordPersistLag(final int slot, final String shard, final Instant persistDeadline,
+      final Optional<Instant> maybeOldestQueueTimestamp) {
+
+    final long persistLagMillis = maybeOldestQueueTimestamp
+        .map(oldestQueueTimestamp -> Duration.between(oldestQueueTimestamp, persistDeadline).toMillis())
+        .map(lagMillis -> Math.max(lagMillis, 0))
+        .orElse(0L);
+
+    persistLagMillisBySlotByShard.computeIfAbsent(shard, s -> Metrics.gauge(PERSIST_LAG_GAUGE_NAME,
+            Tags.of("shard", s),
+            new ConcurrentHashMap<Integer, Long>(),
+            persistLagMillisBySlot -> persistLagMillisBySlot.values().stream()
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(0L)))
+        .put(slot, persistLagMillis);
+  }
+
+  /// Persists a batch of queues from a single slot. Accounts for all queues in the batch are resolved with a single
+  /// bulk lookup up front, and up to `concurrency` queues are persisted at the same time so that Redis reads for one
+  /// queue overlap with DynamoDB writes for another. Queues that can't be persisted are rescheduled for a later pass.
+  ///
+  /// @return `true` if any queue in the batch failed for an unexpected reason, in which case the caller should pause
+  /// before persisting more queues
+  private boolean persistQueues(final List<String> queues, final int slot, final String shard, final int concurrency) {
+    if (queues.isEmpty()) {
+      return false;
+    }
+
+    final Map<ServiceIdentifier, Account> accountsByIdentifier;
+
+    try {
+      accountsByIdentifier = accountsManager.getByServiceIdentifiers(queues.stream()
+              .map(MessagesCache::getAccountUuidFromQueueName)
+              .distinct()
+              .map(AciServiceIdentifier::new)
+              .toList())
+          .join();
+    } catch (final Exception e) {
+      PERSIST_QUEUE_EXCEPTION_METER.increment(queues.size());
+      logger.warn("Failed to look up accounts for {} queues (slot {}, shard {}); will schedule for retry",
+          queues.size(), slot, shard, e);
+
+      // Fetching queues to persist removed them from the slot's index, so put them back for a later pass
+      for (final String queue : queues) {
+        messagesCache.addQueueToPersist(MessagesCache.getAccountUuidFromQueueName(queue),
+            MessagesCache.getDeviceIdFromQueueName(queue));
+      }
+
+      return true;
+    }
+
+    final Semaphore queueSemaphore = new Semaphore(concurrency);
+    final AtomicBoolean unexpectedFailure = new AtomicBoolean(false);
+    final List<CompletableFuture<Void>> persistQueueFutures = new ArrayList<>(queues.size());
+
+    for (final String queue : queues) {
+      final UUID accountUuid = MessagesCache.getAccountUuidFromQueueName(queue);
+      final byte deviceId = MessagesCache.getDeviceIdFromQueueName(queue);
+      final Optional<Account> maybeAccount =
+          Optional.ofNullable(accountsByIdentifier.get(new AciServiceIdentifier(accountUuid)));
+
+      queueSemaphore.acquireUninterruptibly();
+
+      persistQueueFutures.add(CompletableFuture.runAsync(() -> {
+            if (maybeAccount.isEmpty()) {
+              logger.error("No account record found for account {}", accountUuid);
+              return;
+            }
+            final Optional<Device> maybeDevice = maybeAccount.flatMap(account -> account.getDevice(deviceId));
+            if (maybeDevice.isEmpty()) {
+              logger.error("Account {} does not have a device with id {}", accountUuid, deviceId);
+              return;
+            }
+            try {
+              persistQueue(maybeAccount.get(), maybeDevice.get(), shard);
+            } catch (final Exception e) {
+              PERSIST_QUEUE_EXCEPTION_METER.increment();
+              logger.warn("Failed to persist queue {}::{} (slot {}, shard {}); will schedule for retry",
+                  accountUuid, deviceId, slot, shard, e);
+
+              messagesCache.addQueueToPersist(accountUuid, deviceId);
+
+              if (!(e instanceof MessagePersistenceException)) {
+                unexpectedFailure.set(true);
+              }
+            }
+          }, persistQueueExecutor)
+          .whenComplete((_, _) -> queueSemaphore.release()));
+    }
+
+    CompletableFuture.allOf(persistQueueFutures.toArray(CompletableFuture[]::new)).join();
+
+    return unexpectedFailure.get();
+  }
+
   @VisibleForTesting
   void persistQueue(final Account account, final Device device, final String shard) throws MessagePersistenceException {
     final UUID accountUuid = account.getUuid();
@@ -219,7 +503,20 @@ public class MessagePersister implements Managed {
         Metrics.counter(PERSISTED_BYTES_COUNTER_NAME, tags)
             .increment(messages.stream().mapToInt(MessageProtos.Envelope::getSerializedSize).sum());
 
-        int messagesRemovedFromCache = messagesManager.persistMessages(accountUuid, device, messages);
+        // Bound the number of bytes being written to DynamoDB across all concurrently-persisted queues
+        final int batchBytes = Math.min(
+            messages.stream().mapToInt(MessageProtos.Envelope::getSerializedSize).sum(), MAX_IN_FLIGHT_BYTES);
+
+        final int messagesRemovedFromCache;
+
+        inFlightBytes.acquireUninterruptibly(batchBytes);
+
+        try {
+          messagesRemovedFromCache = messagesManager.persistMessages(accountUuid, device, messages);
+        } finally {
+          inFlightBytes.release(batchBytes);
+        }
+
         messageCount += messages.size();
 
         if (messagesRemovedFromCache == 0) {
@@ -313,4 +610,114 @@ public class MessagePersister implements Managed {
         targetDeleteBytes, cachedMessageBytes,
         outcomes.getLeft(), outcomes.getRight());
   }
+
+  /// An independent pipeline that persists queues from the slots this instance owns on a single Redis shard, so a slow
+  /// shard only holds up its own workers. Worker threads share a cursor over the shard's slots and pause briefly once
+  /// they've made roughly a full pass over the shard without finding anything to persist.
+  private class ShardPersister {
+
+    private final String shard;
+    // Only modified from the lease renewal thread
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private final AtomicInteger nextSlotIndex = new AtomicInteger();
+
+    private volatile int[] slots = new int[0];
+    private volatile int workerThreadCount;
+    private volatile boolean shardRunning = true;
+
+    ShardPersister(final String shard) {
+      this.shard = shard;
+    }
+
+    void setSlots(final int[] slots) {
+      this.slots = slots;
+    }
+
+    /// Sets the number of worker threads for this shard, starting new worker threads if needed. Worker threads beyond
+    /// the new count exit once they finish their current operation.
+    void setWorkerThreadCount(final int workerThreadCount) {
+      this.workerThreadCount = workerThreadCount;
+
+      for (int i = 0; i < workerThreadCount; i++) {
+        if (i < workerThreads.size() && workerThreads.get(i).isAlive()) {
+          continue;
+        }
+
+        final int workerIndex = i;
+        final Thread workerThread =
+            new Thread(() -> runWorker(workerIndex), "MessagePersisterWorker-" + shard + "-" + workerIndex);
+
+        if (i < workerThreads.size()) {
+          workerThreads.set(i, workerThread);
+        } else {
+          workerThreads.add(workerThread);
+        }
+
+        workerThread.start();
+      }
+    }
+
+    void stop() {
+      shardRunning = false;
+    }
+
+    void join() throws InterruptedException {
+      for (final Thread workerThread : workerThreads) {
+        workerThread.join();
+      }
+    }
+
+    /// Stops this shard's worker threads and returns a future that completes once they've all finished their current
+    /// operation. Waiting happens on a virtual thread so that callers aren't blocked.
+    CompletableFuture<Void> stopAsync() {
+      stop();
+
+      final List<Thread> threadsToJoin = List.copyOf(workerThreads);
+
+      return CompletableFuture.runAsync(() -> {
+        for (final Thread workerThread : threadsToJoin) {
+          try {
+            workerThread.join();
+          } catch (final InterruptedException e) {
+            logger.warn("Interrupted while waiting for worker thread to complete current operation");
+          }
+        }
+      }, persistQueueExecutor);
+    }
+
+    private void runWorker(final int workerIndex) {
+      int consecutiveEmptySlots = 0;
+
+      while (running && shardRunning && workerIndex < workerThreadCount) {
+        if (!dynamicConfigurationManager.getConfiguration().getMessagePersisterConfiguration().isPersistenceEnabled()) {
+          Util.sleep(1000);
+          continue;
+        }
+
+        final int[] currentSlots = slots;
+
+        if (currentSlots.length == 0) {
+          Util.sleep(100);
+          continue;
+        }
+
+        final int slot = currentSlots[Math.floorMod(nextSlotIndex.getAndIncrement(), currentSlots.length)];
+
+        try {
+          final int queuesPersisted = persistSlot(slot, Instant.now());
+          QUEUE_COUNT_DISTRIBUTION_SUMMARY.record(queuesPersisted);
+
+          consecutiveEmptySlots = queuesPersisted == 0 ? consecutiveEmptySlots + 1 : 0;
+
+          if (consecutiveEmptySlots >= Math.max(currentSlots.length / workerThreadCount, 1)) {
+            consecutiveEmptySlots = 0;
+            Util.sleep(100);
+          }
+        } catch (final Throwable t) {
+          logger.warn("Failed to persist queues for slot {} (shard {})", slot, shard, t);
+          Util.sleep(EXCEPTION_PAUSE_MILLIS);
+        }
+      }
+    }
+  }
 }
@@ -17,6 +17,7 @@ import io.lettuce.core.ScoredValue;
 import io.lettuce.core.ZAddArgs;
 import io.lettuce.core.cluster.SlotHash;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
@@ -29,15 +30,22 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.IntSupplier;
 import java.util.function.Predicate;
+import javax.annotation.Nullable;
 import org.reactivestreams.Publisher;
 import org.signal.libsignal.protocol.SealedSenderMultiRecipientMessage;
 import org.signal.libsignal.protocol.ServiceId;
@@ -49,13 +57,14 @@ import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.util.ResilienceUtil;
-import org.whispersystems.textsecuregcm.util.Pair;
 import org.whispersystems.textsecuregcm.util.RedisClusterUtil;
 import reactor.core.observability.micrometer.Micrometer;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuples;
 
 /**
  * Manages short-term storage of messages in Redis. Messages are frequently delivered to their destination and deleted
@@ -132,18 +141,34 @@ public class MessagesCache {
   private final MessagesCacheRemoveRecipientViewFromMrmDataScript removeRecipientViewFromMrmDataScript;
   private final MessagesCacheUnlockQueueScript unlockQueueScript;
 
+  private final SharedMrmDataCache sharedMrmDataCache;
+
+  // Recipient views waiting to be removed from shared MRM data, by shared MRM key. Removals are gathered for a short
+  // interval so views for many recipients of the same multi-recipient message can be removed with a single script call.
+  private final Map<ByteString, Set<ByteString>> pendingRecipientViewRemovalsBySharedMrmKey = new ConcurrentHashMap<>();
+  private final AtomicBoolean recipientViewRemovalFlushScheduled = new AtomicBoolean(false);
+
   private final Timer insertTimer = Metrics.timer(name(MessagesCache.class, "insert"));
+  private final Timer insertBatchTimer = Metrics.timer(name(MessagesCache.class, "insertBatch"));
+  private final DistributionSummary insertBatchSizeDistributionSummary =
+      Metrics.summary(name(MessagesCache.class, "insertBatchSize"));
   private final Timer insertSharedMrmPayloadTimer = Metrics.timer(name(MessagesCache.class, "insertSharedMrmPayload"));
   private final Timer getMessagesTimer = Metrics.timer(name(MessagesCache.class, "get"));
   private final Timer getQueuesToPersistTimer = Metrics.timer(name(MessagesCache.class, "getQueuesToPersist"));
   private final Timer removeByGuidTimer = Metrics.timer(name(MessagesCache.class, "removeByGuid"));
   private final Timer removeRecipientViewTimer = Metrics.timer(name(MessagesCache.class, "removeRecipientView"));
+  private final DistributionSummary removeRecipientViewBatchSizeDistributionSummary =
+      Metrics.summary(name(MessagesCache.class, "removeRecipientViewBatchSize"));
   private final Timer clearQueueTimer = Metrics.timer(name(MessagesCache.class, "clear"));
   private final Counter removeMessageCounter = Metrics.counter(name(MessagesCache.class, "remove"));
   private final Counter staleEphemeralMessagesCounter = Metrics.counter(
       name(MessagesCache.class, "staleEphemeralMessages"));
   private final Counter staleMrmMessagesCounter = Metrics.counter(name(MessagesCache.class, "staleMrmMessages"));
   private final Counter mrmContentRetrievedCounter = Metrics.counter(name(MessagesCache.class, "mrmViewRetrieved"));
+  private final DistributionSummary pageSizeDistributionSummary =
+      Metrics.summary(name(MessagesCache.class, "getPageSize"));
+  private final DistributionSummary mrmBatchSizeDistributionSummary =
+      Metrics.summary(name(MessagesCache.class, "mrmBatchSize"));
   private final String MRM_RETRIEVAL_ERROR_COUNTER_NAME = name(MessagesCache.class, "mrmRetrievalError");
   private final String EPHEMERAL_TAG_NAME = "ephemeral";
   private final String MISSING_MRM_DATA_TAG_NAME = "missingMrmData";
@@ -154,7 +179,7 @@ public class MessagesCache {
 
   static final String RETRY_NAME = ResilienceUtil.name(MessagesCache.class);
 
-  static final String NEXT_SLOT_TO_PERSIST_KEY = "user_queue_persist_slot";
+  static final String PERSISTER_INSTANCES_KEY = "user_queue_persister_instances";
   private static final byte[] LOCK_VALUE = "1".getBytes(StandardCharsets.UTF_8);
 
   @VisibleForTesting
@@ -165,8 +190,15 @@ public class MessagesCache {
 
   private static final String GET_FLUX_NAME = MetricsUtil.name(MessagesCache.class, "get");
   private static final int PAGE_SIZE = 100;
+  private static final int MAX_PAGE_SIZE = 800;
+
+  private static final byte[] MRM_DATA_FIELD = "data".getBytes(StandardCharsets.UTF_8);
 
   private static final int REMOVE_MRM_RECIPIENT_VIEW_CONCURRENCY = 8;
+  private static final Duration REMOVE_MRM_RECIPIENT_VIEW_BATCH_INTERVAL = Duration.ofMillis(20);
+
+  private static final long SHARED_MRM_DATA_CACHE_MAX_SIZE_BYTES = 64 * 1024 * 1024;
+  private static final Duration SHARED_MRM_DATA_CACHE_EXPIRATION = Duration.ofSeconds(30);
 
   private static final Logger logger = LoggerFactory.getLogger(MessagesCache.class);
 
@@ -224,6 +256,23 @@ public class MessagesCache {
     this.getQueuesToPersistScript = getQueuesToPersistScript;
     this.removeRecipientViewFromMrmDataScript = removeRecipientViewFromMrmDataScript;
     this.unlockQueueScript = unlockQueueScript;
+
+    this.sharedMrmDataCache =
+        new SharedMrmDataCache(SHARED_MRM_DATA_CACHE_MAX_SIZE_BYTES, SHARED_MRM_DATA_CACHE_EXPIRATION);
+  }
+
+  /**
+   * A message to be inserted into a destination device's queue.
+   *
+   * @param messageGuid the GUID to assign to the message
+   * @param destinationAccountIdentifier the identifier of the destination account
+   * @param destinationDeviceId the ID of the destination device within the destination account
+   * @param message the message to insert
+   */
+  public record MessageInsertion(UUID messageGuid,
+                                 UUID destinationAccountIdentifier,
+                                 byte destinationDeviceId,
+                                 MessageProtos.Envelope message) {
   }
 
   public CompletableFuture<Boolean> insert(final UUID messageGuid,
@@ -239,6 +288,35 @@ public class MessagesCache {
         .whenComplete((_, _) -> sample.stop(insertTimer));
   }
 
+  /**
+   * Inserts a group of messages into their destination devices' queues with as few round trips to the cache as
+   * possible. Messages destined for the same queue are inserted in the order in which they appear in the given list.
+   *
+   * @param insertions the messages to insert
+   *
+   * @return a future that yields a list with one element for each given insertion, in order, that is {@code true} if
+   * the destination device had a registered "presence"/event subscriber or {@code false} otherwise
+   */
+  public CompletableFuture<List<Boolean>> insert(final List<MessageInsertion> insertions) {
+    if (insertions.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+
+    final List<MessageInsertion> insertionsWithGuids = insertions.stream()
+        .map(insertion -> new MessageInsertion(insertion.messageGuid(),
+            insertion.destinationAccountIdentifier(),
+            insertion.destinationDeviceId(),
+            insertion.message().toBuilder().setServerGuid(insertion.messageGuid().toString()).build()))
+        .toList();
+
+    final Timer.Sample sample = Timer.start();
+    insertBatchSizeDistributionSummary.record(insertions.size());
+
+    return insertScript.executeAsync(insertionsWithGuids)
+        .toCompletableFuture()
+        .whenComplete((_, _) -> sample.stop(insertBatchTimer));
+  }
+
   public CompletableFuture<byte[]> insertSharedMultiRecipientMessagePayload(
       final SealedSenderMultiRecipientMessage sealedSenderMultiRecipientMessage) {
 
@@ -372,55 +450,98 @@ public class MessagesCache {
             e -> logger.warn("Could not remove stale {} messages from cache", context, e));
   }
 
+  /**
+   * Returns all messages in the given device's queue. Pages are fetched from Redis on demand; the first page contains
+   * at most {@code initialPageSize} messages, and each later page is sized to the subscriber's outstanding demand at the
+   * time it's fetched, bounded below by {@code initialPageSize} and above by {@link #MAX_PAGE_SIZE}. Subscribers that
+   * consume messages quickly drain long queues in fewer round trips, while subscribers that request a few messages at a
+   * time don't cause messages to be fetched long before they're needed. Shared multi-recipient message data for all MRM
+   * messages in a page is fetched in a pipelined batch.
+   */
   @VisibleForTesting
   Flux<MessageProtos.Envelope> getAllMessages(final UUID destinationUuid, final byte destinationDevice,
-      final long earliestAllowableEphemeralTimestamp, final int pageSize) {
+      final long earliestAllowableEphemeralTimestamp, final int initialPageSize) {
+
+    return Flux.defer(() -> {
+      // the number of messages requested by the subscriber but not yet delivered
+      final AtomicLong outstandingDemand = new AtomicLong();
+
+      return getAllMessages(destinationUuid, destinationDevice, earliestAllowableEphemeralTimestamp, initialPageSize,
+          () -> Math.clamp(outstandingDemand.get(), initialPageSize, Math.max(initialPageSize, MAX_PAGE_SIZE)))
+          .doOnNext(_ -> outstandingDemand.getAndUpdate(demand -> demand == Long.MAX_VALUE ? demand : demand - 1))
+          .doOnRequest(requested -> outstandingDemand.accumulateAndGet(requested, Operators::addCap));
+    });
+  }
+
+  private Flux<MessageProtos.Envelope> getAllMessages(final UUID destinationUuid, final byte destinationDevice,
+      final long earliestAllowableEphemeralTimestamp, final int initialPageSize, final IntSupplier nextPageSize) {
 
     // fetch messages by page
-    return getNextMessagePage(destinationUuid, destinationDevice, -1, pageSize)
-        .expand(queueItemsAndLastMessageId -> {
+    return getNextMessagePage(destinationUuid, destinationDevice, -1, initialPageSize)
+        .expand(messagePage -> {
           // expand() is breadth-first, so each page will be published in order
-          if (queueItemsAndLastMessageId.first().isEmpty()) {
+          if (messagePage.queueItems().isEmpty()) {
             return Mono.empty();
           }
 
-          return getNextMessagePage(destinationUuid, destinationDevice, queueItemsAndLastMessageId.second(), pageSize);
+          // defer choosing a page size until the page is actually requested, when demand is most up to date
+          return Mono.defer(() -> getNextMessagePage(destinationUuid, destinationDevice, messagePage.lastMessageId(),
+              nextPageSize.getAsInt()));
         })
         .limitRate(1)
         // we want to ensure we don’t accidentally block the Lettuce/netty i/o executors
         .publishOn(messageDeliveryScheduler)
-        .map(Pair::first)
+        .map(MessagePage::queueItems)
         .concatMap(queueItems -> {
 
-          final List<Mono<MessageProtos.Envelope>> envelopes = new ArrayList<>(queueItems.size() / 2);
+          final List<MessageProtos.Envelope> messages = new ArrayList<>(queueItems.size() / 2);
+          final List<MessageProtos.Envelope> mrmMessagesToFetch = new ArrayList<>();
 
           for (int i = 0; i < queueItems.size() - 1; i += 2) {
             try {
               final MessageProtos.Envelope message = parseEnvelope(queueItems.get(i));
 
-              final Mono<MessageProtos.Envelope> messageMono;
               if (message.hasSharedMrmKey()) {
 
                 if (isStaleEphemeralMessage(message, earliestAllowableEphemeralTimestamp)) {
                   // skip fetching content for message that will be discarded
-                  messageMono = Mono.just(message.toBuilder().clearSharedMrmKey().build());
+                  messages.add(message.toBuilder().clearSharedMrmKey().build());
                   skippedStaleEphemeralMrmCounter.increment();
                 } else {
-                  messageMono = getMessageWithSharedMrmData(message, destinationDevice);
+                  messages.add(message);
+                  mrmMessagesToFetch.add(message);
                 }
 
               } else {
-                messageMono = Mono.just(message);
+                messages.add(message);
               }
 
-              envelopes.add(messageMono);
-
             } catch (InvalidProtocolBufferException e) {
               logger.warn("Failed to parse envelope", e);
             }
           }
 
-          return Flux.mergeSequential(envelopes);
+          if (mrmMessagesToFetch.isEmpty()) {
+            return Flux.fromIterable(messages);
+          }
+
+          return getMessagesWithSharedMrmData(mrmMessagesToFetch, destinationDevice)
+              .flatMapIterable(mrmMessagesWithData -> {
+                final List<MessageProtos.Envelope> messagesWithData = new ArrayList<>(messages.size());
+                int mrmMessageIndex = 0;
+
+                for (final MessageProtos.Envelope message : messages) {
+                  if (message.hasSharedMrmKey()) {
+                    // Messages that failed for unexpected reasons are omitted, and will remain in the queue to be
+                    // retried in the future
+                    mrmMessagesWithData.get(mrmMessageIndex++).ifPresent(messagesWithData::add);
+                  } else {
+                    messagesWithData.add(message);
+                  }
+                }
+
+                return messagesWithData;
+              });
         });
   }
 
@@ -436,74 +557,178 @@ public class MessagesCache {
   private Mono<MessageProtos.Envelope> getMessageWithSharedMrmData(final MessageProtos.Envelope mrmMessage,
       final byte destinationDevice) {
 
-    assert mrmMessage.hasSharedMrmKey();
+    return getMessagesWithSharedMrmData(List.of(mrmMessage), destinationDevice)
+        .flatMap(mrmMessagesWithData -> Mono.justOrEmpty(mrmMessagesWithData.getFirst()))
+        .share();
+  }
 
-    final byte[] key = mrmMessage.getSharedMrmKey().toByteArray();
-    final byte[] sharedMrmViewKey = MessagesCache.getSharedMrmViewKey(
-        // the message might be addressed to the account's PNI, so use the service ID from the envelope
-        ServiceIdentifier.valueOf(mrmMessage.getDestinationServiceId()), destinationDevice);
+  /**
+   * Returns the given messages with their shared MRM data, in the same order as the given messages. Messages are
+   * grouped by the cluster slot of their shared MRM key, and the commands for all groups are dispatched together so
+   * that they're pipelined on the cluster connection rather than waiting for one another. Each group is retried and,
+   * if retries are exhausted, fails independently of the others, so an error reading one shard only affects the
+   * messages whose shared data lives there. Shared payloads come from a short-lived, node-local
+   * {@link SharedMrmDataCache}, so concurrent deliveries of the same multi-recipient message share a single fetch of
+   * its payload, and each message only needs to fetch its recipient's view. Each element of the returned list follows
+   * the cases described in {@link #getMessageWithSharedMrmData(MessageProtos.Envelope, byte)}, with an empty
+   * {@code Optional} in place of an empty {@code Mono}.
+   */
+  private Mono<List<Optional<MessageProtos.Envelope>>> getMessagesWithSharedMrmData(
+      final List<MessageProtos.Envelope> mrmMessages,
+      final byte destinationDevice) {
 
-    return Mono.from(redisCluster.withBinaryCluster(
-            conn -> conn.reactive().hmget(key, "data".getBytes(StandardCharsets.UTF_8), sharedMrmViewKey)
-                .collectList()
-                .publishOn(messageDeliveryScheduler)))
-        .transformDeferred(RetryOperator.of(ResilienceUtil.getGeneralRedisRetry(RETRY_NAME)))
-        .<MessageProtos.Envelope>handle((mrmDataAndView, sink) -> {
-          try {
-            assert mrmDataAndView.size() == 2;
+    assert mrmMessages.stream().allMatch(MessageProtos.Envelope::hasSharedMrmKey);
 
-            if (mrmDataAndView.getFirst().isEmpty()) {
-              // shared data is missing
-              //noinspection ReactiveStreamsThrowInOperator
-              throw new MrmDataMissingException(MrmDataMissingException.Type.SHARED);
-            }
+    mrmBatchSizeDistributionSummary.record(mrmMessages.size());
+
+    final Map<Integer, List<Integer>> messageIndexesBySlot = new HashMap<>();
+
+    for (int i = 0; i < mrmMessages.size(); i++) {
+      messageIndexesBySlot.computeIfAbsent(
+              SlotHash.getSlot(mrmMessages.get(i).getSharedMrmKey().asReadOnlyByteBuffer()), _ -> new ArrayList<>())
+          .add(i);
+    }
 
-            if (mrmDataAndView.getLast().isEmpty()) {
-              // recipient's view is missing
-              //noinspection ReactiveStreamsThrowInOperator
-              throw new MrmDataMissingException(MrmDataMissingException.Type.RECIPIENT_VIEW);
+    if (messageIndexesBySlot.size() == 1) {
+      return getMessagesWithSharedMrmDataInSlot(mrmMessages, destinationDevice);
+    }
+
+    return Flux.fromIterable(messageIndexesBySlot.values())
+        .flatMap(messageIndexes -> getMessagesWithSharedMrmDataInSlot(
+                messageIndexes.stream().map(mrmMessages::get).toList(), destinationDevice)
+            .map(mrmMessagesWithData -> Tuples.of(messageIndexes, mrmMessagesWithData)))
+        .collectList()
+        .map(slotResults -> {
+          final List<Optional<MessageProtos.Envelope>> mrmMessagesWithData =
+              new ArrayList<>(Collections.nCopies(mrmMessages.size(), Optional.empty()));
+
+          slotResults.forEach(slotResult -> {
+            for (int i = 0; i < slotResult.getT1().size(); i++) {
+              mrmMessagesWithData.set(slotResult.getT1().get(i), slotResult.getT2().get(i));
             }
+          });
+
+          return mrmMessagesWithData;
+        });
+  }
+
+  /**
+   * Returns the given messages, whose shared MRM keys must all be in the same cluster slot, with their shared MRM
+   * data as described in {@link #getMessagesWithSharedMrmData(List, byte)}.
+   */
+  private Mono<List<Optional<MessageProtos.Envelope>>> getMessagesWithSharedMrmDataInSlot(
+      final List<MessageProtos.Envelope> mrmMessages,
+      final byte destinationDevice) {
+
+    return Mono.defer(() -> Mono.fromCompletionStage(redisCluster.withBinaryCluster(connection -> {
+              final List<CompletableFuture<MrmDataAndView>> mrmDataAndViewFutures =
+                  new ArrayList<>(mrmMessages.size());
+
+              for (final MessageProtos.Envelope mrmMessage : mrmMessages) {
+                final byte[] sharedMrmKey = mrmMessage.getSharedMrmKey().toByteArray();
+                final byte[] sharedMrmViewKey = MessagesCache.getSharedMrmViewKey(
+                    // the message might be addressed to the account's PNI, so use the service ID from the envelope
+                    ServiceIdentifier.valueOf(mrmMessage.getDestinationServiceId()), destinationDevice);
 
-            final byte[] content = SealedSenderMultiRecipientMessage.messageForRecipient(
-                mrmDataAndView.getFirst().getValue(),
-                mrmDataAndView.getLast().getValue());
+                final CompletableFuture<Optional<byte[]>> dataFuture =
+                    sharedMrmDataCache.getData(mrmMessage.getSharedMrmKey(), () -> connection.async()
+                        .hget(sharedMrmKey, MRM_DATA_FIELD)
+                        .toCompletableFuture()
+                        .thenApply(Optional::ofNullable));
 
-            sink.next(mrmMessage.toBuilder()
-                .clearSharedMrmKey()
-                .setContent(ByteString.copyFrom(content))
-                .build());
+                final CompletableFuture<Optional<byte[]>> viewFuture = connection.async()
+                    .hget(sharedMrmKey, sharedMrmViewKey)
+                    .toCompletableFuture()
+                    .thenApply(Optional::ofNullable);
 
-            mrmContentRetrievedCounter.increment();
-          } catch (Exception e) {
-            sink.error(e);
+                mrmDataAndViewFutures.add(dataFuture.thenCombine(viewFuture, MrmDataAndView::new));
+              }
+
+              return CompletableFuture.allOf(mrmDataAndViewFutures.toArray(CompletableFuture[]::new))
+                  .thenApply(_ -> mrmDataAndViewFutures.stream().map(CompletableFuture::join).toList());
+            })))
+        .transformDeferred(RetryOperator.of(ResilienceUtil.getGeneralRedisRetry(RETRY_NAME)))
+        .publishOn(messageDeliveryScheduler)
+        .map(mrmDataAndViews -> {
+          final List<Optional<MessageProtos.Envelope>> mrmMessagesWithData = new ArrayList<>(mrmMessages.size());
+
+          for (int i = 0; i < mrmMessages.size(); i++) {
+            mrmMessagesWithData.add(buildMessageWithSharedMrmData(mrmMessages.get(i), mrmDataAndViews.get(i)));
           }
+
+          return mrmMessagesWithData;
         })
         .onErrorResume(throwable -> {
+          logger.warn("Failed to retrieve shared mrm data", throwable);
 
-          final List<Tag> tags = new ArrayList<>();
-          tags.add(Tag.of(EPHEMERAL_TAG_NAME, String.valueOf(mrmMessage.getEphemeral())));
+          // For unexpected errors, return empty. The messages in this slot will remain in the queue and be retried in
+          // the future; messages in other slots are unaffected.
+          mrmMessages.forEach(mrmMessage -> Metrics.counter(MRM_RETRIEVAL_ERROR_COUNTER_NAME,
+                  EPHEMERAL_TAG_NAME, String.valueOf(mrmMessage.getEphemeral()))
+              .increment());
 
-          final Mono<MessageProtos.Envelope> result;
-          if (throwable instanceof MrmDataMissingException mdme) {
-            tags.add(Tag.of(MISSING_MRM_DATA_TAG_NAME, mdme.getType().name()));
-            // MRM data may be missing if either of the two non-transactional writes (delete from queue, update shared
-            // MRM data) fails after it has been delivered. We return it so that it may be discarded from the queue.
-            result = Mono.just(mrmMessage.toBuilder().setSharedMrmKey(STALE_MRM_KEY).build());
-          } else {
-            logger.warn("Failed to retrieve shared mrm data", throwable);
-            // For unexpected errors, return empty. The message will remain in the queue and be retried in the future.
-            result = Mono.empty();
-          }
+          return Mono.just(Collections.nCopies(mrmMessages.size(), Optional.<MessageProtos.Envelope>empty()));
+        });
+  }
+
+  /**
+   * The shared payload of a multi-recipient message and a single recipient's view into it, either of which may be
+   * missing.
+   */
+  private record MrmDataAndView(Optional<byte[]> data, Optional<byte[]> view) {
+  }
 
-          Metrics.counter(MRM_RETRIEVAL_ERROR_COUNTER_NAME, tags).increment();
+  private Optional<MessageProtos.Envelope> buildMessageWithSharedMrmData(final MessageProtos.Envelope mrmMessage,
+      final MrmDataAndView mrmDataAndView) {
 
-          return result;
-        })
-        .share();
+    try {
+      if (mrmDataAndView.data().isEmpty()) {
+        // shared data is missing
+        throw new MrmDataMissingException(MrmDataMissingException.Type.SHARED);
+      }
+
+      if (mrmDataAndView.view().isEmpty()) {
+        // recipient's view is missing
+        throw new MrmDataMissingException(MrmDataMissingException.Type.RECIPIENT_VIEW);
+      }
+
+      final byte[] content = SealedSenderMultiRecipientMessage.messageForRecipient(
+          mrmDataAndView.data().get(),
+          mrmDataAndView.view().get());
+
+      mrmContentRetrievedCounter.increment();
+
+      return Optional.of(mrmMessage.toBuilder()
+          .clearSharedMrmKey()
+          .setContent(ByteString.copyFrom(content))
+          .build());
+    } catch (final Exception e) {
+      final List<Tag> tags = new ArrayList<>();
+      tags.add(Tag.of(EPHEMERAL_TAG_NAME, String.valueOf(mrmMessage.getEphemeral())));
+
+      final Optional<MessageProtos.Envelope> result;
+      if (e instanceof MrmDataMissingException mdme) {
+        tags.add(Tag.of(MISSING_MRM_DATA_TAG_NAME, mdme.getType().name()));
+        // MRM data may be missing if either of the two non-transactional writes (delete from queue, update shared
+        // MRM data) fails after it has been delivered. We return it so that it may be discarded from the queue.
+        result = Optional.of(mrmMessage.toBuilder().setSharedMrmKey(STALE_MRM_KEY).build());
+      } else {
+        logger.warn("Failed to retrieve shared mrm data", e);
+        // For unexpected errors, return empty. The message will remain in the queue and be retried in the future.
+        result = Optional.empty();
+      }
+
+      Metrics.counter(MRM_RETRIEVAL_ERROR_COUNTER_NAME, tags).increment();
+
+      return result;
+    }
   }
 
   /**
-   * Makes a best-effort attempt at asynchronously updating (and removing when empty) the MRM data structure
+   * Makes a best-effort attempt at asynchronously updating (and removing when empty) the MRM data structure. Removals
+   * are gathered for a short interval and then applied together, so that removals of many recipients' views from the
+   * same shared MRM data (as when a group message is delivered to many online recipients at once) are combined into a
+   * single script call per shared MRM key.
    */
   void removeRecipientViewFromMrmData(final List<byte[]> sharedMrmKeys, final ServiceIdentifier serviceIdentifier,
       final byte deviceId) {
@@ -512,12 +737,56 @@ public class MessagesCache {
       return;
     }
 
+    final ByteString sharedMrmViewKey = ByteString.copyFrom(getSharedMrmViewKey(serviceIdentifier, deviceId));
+
+    for (final byte[] sharedMrmKey : sharedMrmKeys) {
+      pendingRecipientViewRemovalsBySharedMrmKey.compute(ByteString.copyFrom(sharedMrmKey), (_, views) -> {
+        final Set<ByteString> updatedViews = views != null ? views : new HashSet<>();
+        updatedViews.add(sharedMrmViewKey);
+
+        return updatedViews;
+      });
+    }
+
+    if (recipientViewRemovalFlushScheduled.compareAndSet(false, true)) {
+      Mono.delay(REMOVE_MRM_RECIPIENT_VIEW_BATCH_INTERVAL)
+          .then(Mono.defer(this::flushRecipientViewRemovals))
+          .subscribe();
+    }
+  }
+
+  private Mono<Void> flushRecipientViewRemovals() {
+    // Clear the flag before draining pending removals so that any removals added after this point schedule another flush
+    recipientViewRemovalFlushScheduled.set(false);
+
+    final Map<ByteString, Set<ByteString>> recipientViewsBySharedMrmKey = new HashMap<>();
+
+    for (final ByteString sharedMrmKey : pendingRecipientViewRemovalsBySharedMrmKey.keySet()) {
+      final Set<ByteString> views = pendingRecipientViewRemovalsBySharedMrmKey.remove(sharedMrmKey);
+
+      if (views != null) {
+        recipientViewsBySharedMrmKey.put(sharedMrmKey, views);
+      }
+    }
+
+    if (recipientViewsBySharedMrmKey.isEmpty()) {
+      return Mono.empty();
+    }
+
+    removeRecipientViewBatchSizeDistributionSummary.record(
+        recipientViewsBySharedMrmKey.values().stream().mapToInt(Set::size).sum());
+
     final Timer.Sample sample = Timer.start();
-    Flux.fromIterable(sharedMrmKeys)
-        .collectMultimap(SlotHash::getSlot)
+
+    return Flux.fromIterable(recipientViewsBySharedMrmKey.keySet())
+        .collectMultimap(sharedMrmKey -> SlotHash.getSlot(sharedMrmKey.asReadOnlyByteBuffer()))
         .flatMapMany(slotsAndKeys -> Flux.fromIterable(slotsAndKeys.values()))
-        .flatMap(
-            keys -> removeRecipientViewFromMrmDataScript.execute(keys, serviceIdentifier, deviceId),
+        .flatMap(keys -> {
+              final Map<ByteString, Set<ByteString>> recipientViewsBySharedMrmKeyInSlot = new HashMap<>();
+              keys.forEach(key -> recipientViewsBySharedMrmKeyInSlot.put(key, recipientViewsBySharedMrmKey.get(key)));
+
+              return removeRecipientViewFromMrmDataScript.execute(recipientViewsBySharedMrmKeyInSlot);
+            },
             REMOVE_MRM_RECIPIENT_VIEW_CONCURRENCY)
         .doOnNext(sharedMrmDataKeyRemovedCounter::increment)
         .onErrorResume(e -> {
@@ -525,11 +794,19 @@ public class MessagesCache {
           return Mono.just(0L);
         })
         .then()
-        .doOnTerminate(() -> sample.stop(removeRecipientViewTimer))
-        .subscribe();
+        .doOnTerminate(() -> sample.stop(removeRecipientViewTimer));
+  }
+
+  /**
+   * A page of queue items (alternating serialized envelopes and queue-local message IDs) from a device's queue.
+   *
+   * @param queueItems the items in the page
+   * @param lastMessageId the queue-local ID of the last message in the page, or {@code null} if the page is empty
+   */
+  private record MessagePage(List<byte[]> queueItems, @Nullable Long lastMessageId) {
   }
 
-  private Mono<Pair<List<byte[]>, Long>> getNextMessagePage(final UUID destinationUuid, final byte destinationDevice,
+  private Mono<MessagePage> getNextMessagePage(final UUID destinationUuid, final byte destinationDevice,
       long messageId, int pageSize) {
 
     return getItemsScript.execute(destinationUuid, destinationDevice, pageSize, messageId)
@@ -537,18 +814,20 @@ public class MessagesCache {
           logger.trace("Processing page: {}", messageId);
 
           if (queueItems.isEmpty()) {
-            return new Pair<>(Collections.emptyList(), null);
+            return new MessagePage(Collections.emptyList(), null);
           }
 
           if (queueItems.size() % 2 != 0) {
             logger.error("\"Get messages\" operation returned a list with a non-even number of elements.");
-            return new Pair<>(Collections.emptyList(), null);
+            return new MessagePage(Collections.emptyList(), null);
           }
 
           final long lastMessageId = Long.parseLong(
               new String(queueItems.getLast(), StandardCharsets.UTF_8));
 
-          return new Pair<>(queueItems, lastMessageId);
+          pageSizeDistributionSummary.record(queueItems.size() / 2);
+
+          return new MessagePage(queueItems, lastMessageId);
         });
   }
 
@@ -689,12 +968,34 @@ public class MessagesCache {
     }
   }
 
-  int getNextSlotToPersist() {
-    return (int) (redisCluster.withCluster(connection -> connection.sync().incr(NEXT_SLOT_TO_PERSIST_KEY))
-        % SlotHash.SLOT_COUNT);
+  /// Records a heartbeat for the message persister instance with the given ID and returns the IDs of all persister
+  /// instances whose leases are still live (i.e. that have sent a heartbeat within the given lease duration).
+  ///
+  /// @param instanceId the ID of the persister instance renewing its lease
+  /// @param leaseDuration how long a persister instance's lease lasts after its most recent heartbeat
+  ///
+  /// @return the IDs of all live persister instances, including the given instance
+  List<String> renewPersisterLease(final String instanceId, final Duration leaseDuration) {
+    final long now = clock.millis();
+
+    return redisCluster.withCluster(connection -> {
+      connection.sync().zadd(PERSISTER_INSTANCES_KEY, now, instanceId);
+      connection.sync().zremrangebyscore(PERSISTER_INSTANCES_KEY,
+          Range.create(Double.NEGATIVE_INFINITY, (double) (now - leaseDuration.toMillis())));
+
+      return connection.sync().zrange(PERSISTER_INSTANCES_KEY, 0, -1);
+    });
+  }
+
+  /// Gives up the lease held by the message persister instance with the given ID so its slots can be reassigned to
+  /// other instances without waiting for the lease to expire.
+  void releasePersisterLease(final String instanceId) {
+    redisCluster.useCluster(connection -> connection.sync().zrem(PERSISTER_INSTANCES_KEY, instanceId));
   }
 
-  List<String> getQueuesToPersist(final int slot, final Instant maxTime, final int limit) {
+  /// Removes and returns up to `limit` queues from the given slot whose oldest message is no newer than `maxTime`,
+  /// oldest first. Each queue is scored by the timestamp, in milliseconds since the epoch, of its oldest message.
+  List<ScoredValue<String>> getQueuesToPersist(final int slot, final Instant maxTime, final int limit) {
     return getQueuesToPersistTimer.record(() -> getQueuesToPersistScript.execute(slot, maxTime, limit));
   }
 
@@ -5,17 +5,19 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import io.lettuce.core.ScoredValue;
 import io.lettuce.core.ScriptOutputType;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 
 /**
- * Returns a list of queues that may be persisted. They will be sorted from oldest to more recent, limited by the
- * {@code maxTime} argument.
+ * Returns a list of queues that may be persisted, each scored by the timestamp of its oldest message. They will be
+ * sorted from oldest to more recent, limited by the {@code maxTime} argument.
  *
  * @see MessagePersister
  */
@@ -28,7 +30,7 @@ class MessagesCacheGetQueuesToPersistScript {
         ScriptOutputType.MULTI);
   }
 
-  List<String> execute(final int slot, final Instant maxTime, final int limit) {
+  List<ScoredValue<String>> execute(final int slot, final Instant maxTime, final int limit) {
     final List<String> keys = List.of(
         new String(MessagesCache.getQueueIndexKey(slot), StandardCharsets.UTF_8) // queueTotalIndexKey
     );
@@ -38,6 +40,13 @@ class MessagesCacheGetQueuesToPersistScript {
     );
 
     //noinspection unchecked
-    return (List<String>) getQueuesToPersistScript.execute(keys, args);
+    final List<String> queuesAndScores = (List<String>) getQueuesToPersistScript.execute(keys, args);
+    final List<ScoredValue<String>> scoredQueues = new ArrayList<>(queuesAndScores.size() / 2);
+
+    for (int i = 0; i < queuesAndScores.size(); i += 2) {
+      scoredQueues.add(ScoredValue.just(Double.parseDouble(queuesAndScores.get(i + 1)), queuesAndScores.get(i)));
+    }
+
+    return scoredQueues;
   }
 }
@@ -6,12 +6,16 @@
 package org.whispersystems.textsecuregcm.storage;
 
 import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.SlotHash;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ScheduledExecutorService;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
@@ -23,11 +27,12 @@ import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.util.ResilienceUtil;
 
 /**
- * Inserts an envelope into the message queue for a destination device and publishes a "new message available" event.
+ * Inserts envelopes into the message queues for destination devices and publishes "new message available" events.
  */
 class MessagesCacheInsertScript {
 
   private final ClusterLuaScript insertScript;
+  private final ClusterLuaScript insertBatchScript;
   private final ScheduledExecutorService retryExecutor;
 
   private static final byte[] NEW_MESSAGE_EVENT_BYTES = ClientEvent.newBuilder()
@@ -39,6 +44,7 @@ class MessagesCacheInsertScript {
       final ScheduledExecutorService retryExecutor) throws IOException {
 
     this.insertScript = ClusterLuaScript.fromResource(redisCluster, "lua/insert_item.lua", ScriptOutputType.BOOLEAN);
+    this.insertBatchScript = ClusterLuaScript.fromResource(redisCluster, "lua/insert_items.lua", ScriptOutputType.MULTI);
     this.retryExecutor = retryExecutor;
   }
 
@@ -52,25 +58,102 @@ class MessagesCacheInsertScript {
    * otherwise
    */
   CompletionStage<Boolean> executeAsync(final UUID destinationUuid, final byte destinationDevice, final MessageProtos.Envelope envelope) {
-    assert envelope.hasServerGuid();
-    assert envelope.hasServerTimestamp();
+    final List<byte[]> keys = getKeys(destinationUuid, destinationDevice);
+
+    final List<byte[]> args = new ArrayList<>(getArgs(envelope));
+    args.add(NEW_MESSAGE_EVENT_BYTES); // eventPayload
+
+    return ResilienceUtil.getGeneralRedisRetry(MessagesCache.RETRY_NAME)
+        .executeCompletionStage(retryExecutor, () -> insertScript.executeBinaryAsync(keys, args))
+        .thenApply(result -> (boolean) result);
+  }
+
+  /**
+   * Inserts a group of messages into their destination devices' message queues and publishes "new message available"
+   * events.
+   * <p>
+   * Messages are grouped by the cluster slot of their destination queue, and all messages for a slot are inserted with
+   * a single script invocation that publishes at most one event per queue. Invocations for all slots are dispatched
+   * together without waiting for one another, so they share as few round trips as the cluster topology allows. Messages
+   * for the same queue are inserted in the order in which they appear in the given list.
+   *
+   * @param insertions the messages to insert; each message must already have a server GUID and timestamp
+   *
+   * @return a list with one element for each given insertion, in order, that is {@code true} if the destination device
+   * had a registered "presence"/event subscriber or {@code false} otherwise
+   */
+  CompletionStage<List<Boolean>> executeAsync(final List<MessagesCache.MessageInsertion> insertions) {
+    final Map<Integer, List<Integer>> insertionIndexesBySlot = new LinkedHashMap<>();
+
+    for (int i = 0; i < insertions.size(); i++) {
+      final MessagesCache.MessageInsertion insertion = insertions.get(i);
+
+      insertionIndexesBySlot.computeIfAbsent(SlotHash.getSlot(MessagesCache.getMessageQueueKey(
+              insertion.destinationAccountIdentifier(), insertion.destinationDeviceId())), _ -> new ArrayList<>())
+          .add(i);
+    }
+
+    final Boolean[] presence = new Boolean[insertions.size()];
+
+    return CompletableFuture.allOf(insertionIndexesBySlot.values().stream()
+            .map(insertionIndexes -> executeSlotAsync(insertions, insertionIndexes)
+                .thenAccept(slotPresence -> {
+                  for (int i = 0; i < insertionIndexes.size(); i++) {
+                    presence[insertionIndexes.get(i)] = slotPresence.get(i);
+                  }
+                })
+                .toCompletableFuture())
+            .toArray(CompletableFuture[]::new))
+        .thenApply(_ -> Arrays.asList(presence));
+  }
+
+  private CompletionStage<List<Boolean>> executeSlotAsync(final List<MessagesCache.MessageInsertion> insertions,
+      final List<Integer> insertionIndexes) {
 
-    final List<byte[]> keys = List.of(
+    if (insertionIndexes.size() == 1) {
+      final MessagesCache.MessageInsertion insertion = insertions.get(insertionIndexes.getFirst());
+
+      return executeAsync(insertion.destinationAccountIdentifier(), insertion.destinationDeviceId(), insertion.message())
+          .thenApply(List::of);
+    }
+
+    final List<byte[]> keys = new ArrayList<>(insertionIndexes.size() * 4);
+    final List<byte[]> args = new ArrayList<>(insertionIndexes.size() * 3 + 1);
+
+    args.add(NEW_MESSAGE_EVENT_BYTES); // eventPayload
+
+    for (final int insertionIndex : insertionIndexes) {
+      final MessagesCache.MessageInsertion insertion = insertions.get(insertionIndex);
+
+      keys.addAll(getKeys(insertion.destinationAccountIdentifier(), insertion.destinationDeviceId()));
+      args.addAll(getArgs(insertion.message()));
+    }
+
+    return ResilienceUtil.getGeneralRedisRetry(MessagesCache.RETRY_NAME)
+        .executeCompletionStage(retryExecutor, () -> insertBatchScript.executeBinaryAsync(keys, args))
+        .thenApply(result -> {
+          @SuppressWarnings("unchecked") final List<Long> slotPresence = (List<Long>) result;
+          return slotPresence.stream().map(present -> present > 0).toList();
+        });
+  }
+
+  private static List<byte[]> getKeys(final UUID destinationUuid, final byte destinationDevice) {
+    return List.of(
         MessagesCache.getMessageQueueKey(destinationUuid, destinationDevice), // queueKey
         MessagesCache.getMessageQueueMetadataKey(destinationUuid, destinationDevice), // queueMetadataKey
         MessagesCache.getQueueIndexKey(destinationUuid, destinationDevice), // queueTotalIndexKey
         RedisMessageAvailabilityManager.getClientEventChannel(destinationUuid, destinationDevice) // eventChannelKey
     );
+  }
 
-    final List<byte[]> args = new ArrayList<>(Arrays.asList(
+  private static List<byte[]> getArgs(final MessageProtos.Envelope envelope) {
+    assert envelope.hasServerGuid();
+    assert envelope.hasServerTimestamp();
+
+    return List.of(
         EnvelopeUtil.compress(envelope).toByteArray(), // message
         String.valueOf(envelope.getServerTimestamp()).getBytes(StandardCharsets.UTF_8), // currentTime
-        envelope.getServerGuid().getBytes(StandardCharsets.UTF_8), // guid
-        NEW_MESSAGE_EVENT_BYTES // eventPayload
-    ));
-
-    return ResilienceUtil.getGeneralRedisRetry(MessagesCache.RETRY_NAME)
-        .executeCompletionStage(retryExecutor, () -> insertScript.executeBinaryAsync(keys, args))
-        .thenApply(result -> (boolean) result);
+        envelope.getServerGuid().getBytes(StandardCharsets.UTF_8) // guid
+    );
   }
 }
@@ -5,19 +5,22 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import com.google.protobuf.ByteString;
 import io.lettuce.core.ScriptOutputType;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import reactor.core.publisher.Mono;
 
 /**
- * Removes the given destination device from the given {@code sharedMrmKeys}. If there are no devices remaining in the
- * hash as a result, the shared payload is deleted.
+ * Removes recipient views (either a single destination device's view or views for many destination devices) from the
+ * given {@code sharedMrmKeys}. If there are no devices remaining in a hash as a result, the shared payload is deleted.
  * <p>
  * NOTE: Callers are responsible for ensuring that all keys are in the same slot.
  */
@@ -25,6 +28,8 @@ class MessagesCacheRemoveRecipientViewFromMrmDataScript {
 
   private final ClusterLuaScript removeRecipientViewFromMrmDataScript;
 
+  private static final byte[] ONE = "1".getBytes(StandardCharsets.UTF_8);
+
   MessagesCacheRemoveRecipientViewFromMrmDataScript(final FaultTolerantRedisClusterClient redisCluster) throws IOException {
     this.removeRecipientViewFromMrmDataScript = ClusterLuaScript.fromResource(redisCluster,
         "lua/remove_recipient_view_from_mrm_data.lua", ScriptOutputType.INTEGER);
@@ -37,8 +42,42 @@ class MessagesCacheRemoveRecipientViewFromMrmDataScript {
         ? (List<byte[]>) keysCollection
         : new ArrayList<>(keysCollection);
 
-    return removeRecipientViewFromMrmDataScript.executeBinaryReactive(keys,
-            List.of(MessagesCache.getSharedMrmViewKey(serviceIdentifier, deviceId)))
+    final byte[] sharedMrmViewKey = MessagesCache.getSharedMrmViewKey(serviceIdentifier, deviceId);
+    final List<byte[]> args = new ArrayList<>(keys.size() * 2);
+
+    for (int i = 0; i < keys.size(); i++) {
+      args.add(ONE);
+      args.add(sharedMrmViewKey);
+    }
+
+    return execute(keys, args);
+  }
+
+  /**
+   * Removes any number of recipient views from each of the given shared MRM keys, which must all be in the same slot.
+   *
+   * @param recipientViewsBySharedMrmKey the recipient views to remove, by shared MRM key; every key must have at least
+   * one view
+   *
+   * @return the number of shared MRM keys that were deleted because no recipient views remained
+   */
+  Mono<Long> execute(final Map<ByteString, ? extends Collection<ByteString>> recipientViewsBySharedMrmKey) {
+    final List<byte[]> keys = new ArrayList<>(recipientViewsBySharedMrmKey.size());
+    final List<byte[]> args = new ArrayList<>();
+
+    recipientViewsBySharedMrmKey.forEach((sharedMrmKey, recipientViews) -> {
+      assert !recipientViews.isEmpty();
+
+      keys.add(sharedMrmKey.toByteArray());
+      args.add(String.valueOf(recipientViews.size()).getBytes(StandardCharsets.UTF_8));
+      recipientViews.forEach(recipientView -> args.add(recipientView.toByteArray()));
+    });
+
+    return execute(keys, args);
+  }
+
+  private Mono<Long> execute(final List<byte[]> keys, final List<byte[]> args) {
+    return removeRecipientViewFromMrmDataScript.executeBinaryReactive(keys, args)
         .map(o -> (long) o)
         .next();
   }
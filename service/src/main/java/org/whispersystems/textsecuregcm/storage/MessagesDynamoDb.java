@@ -21,6 +21,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Predicate;
 import org.reactivestreams.Publisher;
@@ -29,12 +30,14 @@ import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.util.AttributeValues;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import reactor.core.publisher.Flux;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
 import software.amazon.awssdk.services.dynamodb.model.PutRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
@@ -59,6 +62,9 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
 
   private final Timer storeTimer = timer(name(getClass(), "store"));
 
+  @VisibleForTesting
+  static final int MAX_BATCH_WRITE_ATTEMPTS = 10;
+
   private final DynamoDbAsyncClient dbAsyncClient;
   private final String tableName;
   private final Duration timeToLive;
@@ -82,11 +88,45 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
 
   public void store(final List<MessageProtos.Envelope> messages, final UUID destinationAccountUuid,
       final Device destinationDevice) {
-    storeTimer.record(() -> writeInBatches(messages, (messageBatch) -> storeBatch(messageBatch, destinationAccountUuid, destinationDevice)));
+
+    try {
+      storeTimer.record(() -> storeAsync(messages, destinationAccountUuid, destinationDevice).join());
+    } catch (final CompletionException e) {
+      // Callers (i.e. the message persister) act on specific DynamoDB exceptions, so surface the underlying cause
+      if (ExceptionUtils.unwrap(e) instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+
+      throw e;
+    }
+  }
+
+  /// Stores the given messages for the given destination device. Messages are divided into batches of at most
+  /// [#DYNAMO_DB_MAX_BATCH_SIZE] items, and all batches are written concurrently with `BatchWriteItem` calls.
+  /// Unprocessed items are retried with a short backoff; if items remain unprocessed after every attempt, the returned
+  /// future fails with an [UnprocessedBatchWriteItemsException].
+  ///
+  /// @param messages the messages to store
+  /// @param destinationAccountUuid the identifier of the destination account
+  /// @param destinationDevice the destination device
+  ///
+  /// @return a future that completes when all messages have been stored
+  public CompletableFuture<Void> storeAsync(final List<MessageProtos.Envelope> messages,
+      final UUID destinationAccountUuid,
+      final Device destinationDevice) {
+
+    final List<CompletableFuture<Void>> batchFutures = new ArrayList<>();
+
+    writeInBatches(messages, messageBatch ->
+        batchFutures.add(storeBatch(List.copyOf(messageBatch), destinationAccountUuid, destinationDevice)));
+
+    return CompletableFuture.allOf(batchFutures.toArray(CompletableFuture[]::new));
   }
 
-  private void storeBatch(final List<MessageProtos.Envelope> messages, final UUID destinationAccountUuid,
+  private CompletableFuture<Void> storeBatch(final List<MessageProtos.Envelope> messages,
+      final UUID destinationAccountUuid,
       final Device destinationDevice) {
+
     if (messages.size() > DYNAMO_DB_MAX_BATCH_SIZE) {
       throw new IllegalArgumentException("Maximum batch size of " + DYNAMO_DB_MAX_BATCH_SIZE + " exceeded with " + messages.size() + " messages");
     }
@@ -108,7 +148,10 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
           .build()).build());
     }
 
-    executeTableWriteItemsUntilComplete(Map.of(tableName, writeItems));
+    // Callers (i.e. the message persister) only remove messages from the cache once they've been stored, and will retry
+    // the whole batch later if any items remain unprocessed
+    return executeTableWriteItemsUntilCompleteAsync(dbAsyncClient, Map.of(tableName, writeItems),
+        MAX_BATCH_WRITE_ATTEMPTS);
   }
 
   public CompletableFuture<Boolean> mayHaveMessages(final UUID accountIdentifier, final Device device) {
@@ -177,6 +220,39 @@ public class MessagesDynamoDb extends AbstractDynamoDbStore {
         }, messageDeletionExecutor);
   }
 
+  /// Deletes the given messages from the given destination device's queue. Messages are divided into batches of at most
+  /// [#DYNAMO_DB_MAX_BATCH_SIZE] items, and all batches are deleted concurrently with `BatchWriteItem` calls. Unlike
+  /// [#deleteMessage(UUID, Device, UUID, long)], this method does not return the deleted messages.
+  ///
+  /// @param destinationAccountUuid the identifier of the destination account
+  /// @param destinationDevice the destination device
+  /// @param messages the messages to delete
+  ///
+  /// @return a future that completes when all messages have been deleted
+  public CompletableFuture<Void> deleteMessages(final UUID destinationAccountUuid,
+      final Device destinationDevice,
+      final List<MessageProtos.Envelope> messages) {
+
+    final AttributeValue partitionKey = convertPartitionKey(destinationAccountUuid, destinationDevice);
+    final List<CompletableFuture<Void>> batchFutures = new ArrayList<>();
+
+    writeInBatches(messages, messageBatch -> {
+      final List<WriteRequest> deleteRequests = messageBatch.stream()
+          .map(message -> WriteRequest.builder()
+              .deleteRequest(DeleteRequest.builder()
+                  .key(Map.of(KEY_PARTITION, partitionKey,
+                      KEY_SORT, convertSortKey(message.getServerTimestamp(), UUID.fromString(message.getServerGuid()))))
+                  .build())
+              .build())
+          .toList();
+
+      batchFutures.add(executeTableWriteItemsUntilCompleteAsync(dbAsyncClient, Map.of(tableName, deleteRequests),
+          MAX_BATCH_WRITE_ATTEMPTS));
+    });
+
+    return CompletableFuture.allOf(batchFutures.toArray(CompletableFuture[]::new));
+  }
+
   @VisibleForTesting
   static MessageProtos.Envelope convertItemToEnvelope(final Map<String, AttributeValue> item,
       final ExperimentEnrollmentManager experimentEnrollmentManager) throws InvalidProtocolBufferException {
@@ -11,18 +11,18 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 import org.reactivestreams.Publisher;
 import org.signal.libsignal.protocol.SealedSenderMultiRecipientMessage;
@@ -91,28 +91,71 @@ public class MessagesManager {
     return insertAsync(accountIdentifier, messagesByDeviceId).join();
   }
 
+  /**
+   * Inserts batches of messages into the message queues for devices associated with the identified account. All
+   * insertions are dispatched together and so share as few round trips to the message cache as possible.
+   *
+   * @param accountIdentifier the account identifier for the destination queue
+   * @param messagesByDeviceId a map of device IDs to the messages to insert into each device's queue, in order
+   *
+   * @return a map of device IDs to a device's presence state (i.e. if the device has an active event listener)
+   *
+   * @see RedisMessageAvailabilityManager
+   */
+  public Map<Byte, Boolean> insertBatch(final UUID accountIdentifier, final Map<Byte, List<Envelope>> messagesByDeviceId) {
+    final List<MessagesCache.MessageInsertion> insertions = messagesByDeviceId.entrySet().stream()
+        .flatMap(deviceIdAndMessages -> deviceIdAndMessages.getValue().stream()
+            .map(message -> new MessagesCache.MessageInsertion(UUID.randomUUID(), accountIdentifier,
+                deviceIdAndMessages.getKey(), message)))
+        .toList();
+
+    return insertAsync(insertions)
+        .thenApply(presence -> getPresenceByDeviceId(insertions, presence))
+        .join();
+  }
+
   private CompletableFuture<Map<Byte, Boolean>> insertAsync(final UUID accountIdentifier, final Map<Byte, Envelope> messagesByDeviceId) {
-    final Map<Byte, Boolean> devicePresenceById = new ConcurrentHashMap<>();
-
-    return CompletableFuture.allOf(messagesByDeviceId.entrySet().stream()
-            .map(deviceIdAndMessage -> {
-              final byte deviceId = deviceIdAndMessage.getKey();
-              final Envelope message = deviceIdAndMessage.getValue();
-              final UUID messageGuid = UUID.randomUUID();
-
-              return messagesCache.insert(messageGuid, accountIdentifier, deviceId, message)
-                  .thenAccept(present -> {
-                    if (message.hasSourceServiceId() && !accountIdentifier.toString()
-                        .equals(message.getSourceServiceId())) {
-                      // Note that this is an asynchronous, best-effort, fire-and-forget operation
-                      reportMessageManager.store(message.getSourceServiceId(), messageGuid);
-                    }
-
-                    devicePresenceById.put(deviceId, present);
-                  });
-            })
-            .toArray(CompletableFuture[]::new))
-        .thenApply(ignored -> devicePresenceById);
+    final List<MessagesCache.MessageInsertion> insertions = messagesByDeviceId.entrySet().stream()
+        .map(deviceIdAndMessage -> new MessagesCache.MessageInsertion(UUID.randomUUID(), accountIdentifier,
+            deviceIdAndMessage.getKey(), deviceIdAndMessage.getValue()))
+        .toList();
+
+    return insertAsync(insertions)
+        .thenApply(presence -> getPresenceByDeviceId(insertions, presence));
+  }
+
+  /**
+   * Inserts a group of messages into their destination queues with a single call to the message cache.
+   *
+   * @return a future that yields a list with one presence state for each given insertion, in order
+   */
+  private CompletableFuture<List<Boolean>> insertAsync(final List<MessagesCache.MessageInsertion> insertions) {
+    return messagesCache.insert(insertions)
+        .thenApply(presence -> {
+          insertions.forEach(insertion -> {
+            final Envelope message = insertion.message();
+
+            if (message.hasSourceServiceId() && !insertion.destinationAccountIdentifier().toString()
+                .equals(message.getSourceServiceId())) {
+              // Note that this is an asynchronous, best-effort, fire-and-forget operation
+              reportMessageManager.store(message.getSourceServiceId(), insertion.messageGuid());
+            }
+          });
+
+          return presence;
+        });
+  }
+
+  private static Map<Byte, Boolean> getPresenceByDeviceId(final List<MessagesCache.MessageInsertion> insertions,
+      final List<Boolean> presence) {
+
+    final Map<Byte, Boolean> presenceByDeviceId = new HashMap<>();
+
+    for (int i = 0; i < insertions.size(); i++) {
+      presenceByDeviceId.merge(insertions.get(i).destinationDeviceId(), presence.get(i), Boolean::logicalOr);
+    }
+
+    return presenceByDeviceId;
   }
 
   /**
@@ -159,26 +202,40 @@ public class MessagesManager {
 
           final Envelope prototypeMessage = envelopeBuilder.build();
 
-          final Map<Account, Map<Byte, Boolean>> clientPresenceByAccountAndDevice = new ConcurrentHashMap<>();
-
-          return CompletableFuture.allOf(multiRecipientMessage.getRecipients().entrySet().stream()
-                  .filter(serviceIdAndRecipient -> resolvedRecipients.containsKey(serviceIdAndRecipient.getValue()))
-                  .map(serviceIdAndRecipient -> {
-                    final ServiceIdentifier serviceIdentifier = ServiceIdentifier.fromLibsignal(serviceIdAndRecipient.getKey());
-                    final SealedSenderMultiRecipientMessage.Recipient recipient = serviceIdAndRecipient.getValue();
-                    final byte[] devices = recipient.getDevices();
-
-                    return insertAsync(resolvedRecipients.get(recipient).getIdentifier(IdentityType.ACI),
-                        IntStream.range(0, devices.length).mapToObj(i -> devices[i])
-                            .collect(Collectors.toMap(deviceId -> deviceId, deviceId -> prototypeMessage.toBuilder()
-                                .setDestinationServiceId(serviceIdentifier.toServiceIdentifierString())
-                                .build())))
-                        .thenAccept(clientPresenceByDeviceId ->
-                            clientPresenceByAccountAndDevice.put(resolvedRecipients.get(recipient),
-                                clientPresenceByDeviceId));
-                  })
-                  .toArray(CompletableFuture[]::new))
-              .thenApply(ignored -> clientPresenceByAccountAndDevice);
+          // Insert messages for all recipients with a single call to the message cache so insertions can share round
+          // trips across recipients; keep track of the destination account for each insertion along the way
+          final List<MessagesCache.MessageInsertion> insertions = new ArrayList<>();
+          final List<Account> destinationAccounts = new ArrayList<>();
+
+          multiRecipientMessage.getRecipients().forEach((serviceId, recipient) -> {
+            final Account destinationAccount = resolvedRecipients.get(recipient);
+
+            if (destinationAccount == null) {
+              return;
+            }
+
+            final Envelope message = prototypeMessage.toBuilder()
+                .setDestinationServiceId(ServiceIdentifier.fromLibsignal(serviceId).toServiceIdentifierString())
+                .build();
+
+            for (final byte deviceId : recipient.getDevices()) {
+              insertions.add(new MessagesCache.MessageInsertion(UUID.randomUUID(),
+                  destinationAccount.getIdentifier(IdentityType.ACI), deviceId, message));
+
+              destinationAccounts.add(destinationAccount);
+            }
+          });
+
+          return insertAsync(insertions).thenApply(presence -> {
+            final Map<Account, Map<Byte, Boolean>> clientPresenceByAccountAndDevice = new HashMap<>();
+
+            for (int i = 0; i < insertions.size(); i++) {
+              clientPresenceByAccountAndDevice.computeIfAbsent(destinationAccounts.get(i), _ -> new HashMap<>())
+                  .merge(insertions.get(i).destinationDeviceId(), presence.get(i), Boolean::logicalOr);
+            }
+
+            return clientPresenceByAccountAndDevice;
+          });
         });
   }
 
@@ -229,7 +286,8 @@ public class MessagesManager {
   }
 
   public MessageStream getMessages(final UUID destinationUuid, final Device destinationDevice) {
-    return new RedisDynamoDbMessageStream(messagesDynamoDb, messagesCache, redisMessageAvailabilityManager, destinationUuid, destinationDevice);
+    return new RedisDynamoDbMessageStream(messagesDynamoDb, messagesCache, redisMessageAvailabilityManager,
+        destinationUuid, destinationDevice, messageDeletionExecutor);
   }
 
   private Publisher<Envelope> getMessagesForDevice(UUID destinationUuid, Device destinationDevice,
@@ -22,6 +22,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.signal.libsignal.protocol.InvalidKeyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,6 +66,8 @@ public class PagedSingleUseKEMPreKeyStore {
   private final S3AsyncClient s3AsyncClient;
   private final String tableName;
   private final String bucketName;
+  @Nullable
+  private final KEMPreKeyPageCache pageCache;
 
   private final Timer getKeyCountTimer = Metrics.timer(name(getClass(), "getCount"));
   private final Timer storeKeyBatchTimer = Metrics.timer(name(getClass(), "storeKeyBatch"));
@@ -91,10 +94,26 @@ public class PagedSingleUseKEMPreKeyStore {
       final S3AsyncClient s3AsyncClient,
       final String tableName,
       final String bucketName) {
+
+    this(dynamoDbAsyncClient, s3AsyncClient, tableName, bucketName, null);
+  }
+
+  /**
+   * @param pageCache an optional cache of recently-read pages; if present, the first take from a page reads the whole
+   *                  page from the object store and subsequent takes from the same page are served from the cache. If
+   *                  {@code null}, each take reads only the requested key with a ranged read.
+   */
+  public PagedSingleUseKEMPreKeyStore(
+      final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final S3AsyncClient s3AsyncClient,
+      final String tableName,
+      final String bucketName,
+      @Nullable final KEMPreKeyPageCache pageCache) {
     this.s3AsyncClient = s3AsyncClient;
     this.dynamoDbAsyncClient = dynamoDbAsyncClient;
     this.tableName = tableName;
     this.bucketName = bucketName;
+    this.pageCache = pageCache;
   }
 
   /**
@@ -140,6 +159,7 @@ public class PagedSingleUseKEMPreKeyStore {
               log.error("Replaced record: {} with no pageId", response.attributes());
               return CompletableFuture.completedFuture(null);
             }
+            invalidateCachedPage(pageId);
             return deleteBundleFromS3(identifier, deviceId, pageId);
           } else {
             return CompletableFuture.completedFuture(null);
@@ -190,7 +210,11 @@ public class PagedSingleUseKEMPreKeyStore {
                 new IOException("unexpected page descriptor " + updateItemResponse.attributes()));
           }
 
-          return readPreKeyAtIndexFromS3(identifier, deviceId, pageId, format, index).thenApply(Optional::of);
+          final CompletableFuture<KEMSignedPreKey> preKeyFuture = pageCache != null
+              ? readPreKeyAtIndexFromCachedPage(identifier, deviceId, pageId, format, index)
+              : readPreKeyAtIndexFromS3(identifier, deviceId, pageId, format, index);
+
+          return preKeyFuture.thenApply(Optional::of);
         })
         // If this check fails, it means that the item did not exist, or its index was already at the last key. Either
         // way, there are no keys left so we return empty
@@ -343,6 +367,8 @@ public class PagedSingleUseKEMPreKeyStore {
           final UUID pageId = AttributeValues.getUUID(item, ATTR_PAGE_ID, null);
           if (aci == null || deviceId < 0 || pageId == null) {
             log.error("can't delete page from unexpected page descriptor {}", item);
+          } else {
+            invalidateCachedPage(pageId);
           }
           return Mono.fromFuture(deleteBundleFromS3(aci, deviceId, pageId))
               .thenReturn(Map.of(
@@ -427,4 +453,42 @@ public class PagedSingleUseKEMPreKeyStore {
           }
         });
   }
+
+  private CompletableFuture<KEMSignedPreKey> readPreKeyAtIndexFromCachedPage(
+      final UUID identifier, final byte deviceId, final UUID pageId, final int format, final int index) {
+
+    final KEMPreKeyPage.KeyLocation keyLocation = KEMPreKeyPage.keyLocation(format, index);
+
+    // Pages are never modified after they're written, and the database (not the cache) decides which index a take gets,
+    // so a cached page is always safe to read from
+    return pageCache.getPage(pageId, () -> readPageFromS3(identifier, deviceId, pageId))
+        .thenApply(page -> {
+          if (keyLocation.getStartInclusive() + keyLocation.length() > page.remaining()) {
+            log.error("Page {} of length {} too short to contain key at offset {}",
+                s3Key(identifier, deviceId, pageId), page.remaining(), keyLocation);
+            throw new CompletionException(new IOException("Page too short"));
+          }
+
+          try {
+            return KEMPreKeyPage.deserializeKey(format,
+                page.slice(page.position() + keyLocation.getStartInclusive(), keyLocation.length()));
+          } catch (InvalidKeyException e) {
+            throw new CompletionException(new IOException(e));
+          }
+        });
+  }
+
+  private CompletableFuture<ByteBuffer> readPageFromS3(final UUID identifier, final byte deviceId, final UUID pageId) {
+    return s3AsyncClient.getObject(GetObjectRequest.builder()
+            .bucket(bucketName)
+            .key(s3Key(identifier, deviceId, pageId))
+            .build(), AsyncResponseTransformer.toBytes())
+        .thenApply(bytes -> bytes.asByteBuffer());
+  }
+
+  private void invalidateCachedPage(final UUID pageId) {
+    if (pageCache != null) {
+      pageCache.invalidate(pageId);
+    }
+  }
 }
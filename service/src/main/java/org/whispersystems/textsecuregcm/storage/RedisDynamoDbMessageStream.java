@@ -5,15 +5,33 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Flow;
-import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.push.RedisMessageAvailabilityManager;
-import org.whispersystems.textsecuregcm.util.Util;
+import reactor.adapter.JdkFlowAdapter;
 
 /// A [MessageStream] implementation that produces message from a joint DynamoDB/Redis message store.
+///
+/// Acknowledged messages are buffered and deleted in batches: a batch is flushed when it reaches
+/// [#MAX_ACKNOWLEDGEMENT_BATCH_SIZE] messages, when [#ACKNOWLEDGEMENT_FLUSH_DELAY] has passed since the first message in
+/// the batch was acknowledged, or when the message stream terminates. Each flush removes all buffered messages from the
+/// Redis queue in a single call, then deletes any messages that weren't in Redis from DynamoDB with batch writes.
 public class RedisDynamoDbMessageStream implements MessageStream {
 
   private final MessagesDynamoDb messagesDynamoDb;
@@ -23,18 +41,36 @@ public class RedisDynamoDbMessageStream implements MessageStream {
   private final Device device;
 
   private final RedisDynamoDbMessagePublisher messagePublisher;
+  private final Flow.Publisher<MessageStreamEntry> publisher;
+  private final Executor flushExecutor;
+
+  private record PendingAcknowledgement(MessageProtos.Envelope message, CompletableFuture<Void> future) {
+  }
+
+  private List<PendingAcknowledgement> pendingAcknowledgements = new ArrayList<>();
+  private boolean flushScheduled = false;
+
+  @VisibleForTesting
+  static final int MAX_ACKNOWLEDGEMENT_BATCH_SIZE = 32;
+
+  @VisibleForTesting
+  static final Duration ACKNOWLEDGEMENT_FLUSH_DELAY = Duration.ofMillis(20);
+
+  private static final DistributionSummary ACKNOWLEDGEMENT_BATCH_SIZE_DISTRIBUTION_SUMMARY =
+      Metrics.summary(name(RedisDynamoDbMessageStream.class, "acknowledgementBatchSize"));
 
   public RedisDynamoDbMessageStream(final MessagesDynamoDb messagesDynamoDb,
       final MessagesCache messagesCache,
       final RedisMessageAvailabilityManager redisMessageAvailabilityManager,
       final UUID accountIdentifier,
-      final Device device) {
+      final Device device,
+      final Executor flushExecutor) {
 
     this(messagesDynamoDb, messagesCache, accountIdentifier, device, new RedisDynamoDbMessagePublisher(messagesDynamoDb,
         messagesCache,
         redisMessageAvailabilityManager,
         accountIdentifier,
-        device));
+        device), flushExecutor);
   }
 
   @VisibleForTesting
@@ -42,29 +78,100 @@ public class RedisDynamoDbMessageStream implements MessageStream {
       final MessagesCache messagesCache,
       final UUID accountIdentifier,
       final Device device,
-      final RedisDynamoDbMessagePublisher messagePublisher) {
+      final RedisDynamoDbMessagePublisher messagePublisher,
+      final Executor flushExecutor) {
 
     this.messagesDynamoDb = messagesDynamoDb;
     this.messagesCache = messagesCache;
     this.accountIdentifier = accountIdentifier;
     this.device = device;
     this.messagePublisher = messagePublisher;
+    this.flushExecutor = flushExecutor;
+
+    // Make sure buffered acknowledgements are processed promptly when the stream terminates (i.e. because the client
+    // disconnected) so they're not redelivered on the next connection
+    this.publisher = JdkFlowAdapter.publisherToFlowPublisher(JdkFlowAdapter.flowPublisherToFlux(messagePublisher)
+        .doFinally(_ -> flushAcknowledgements()));
   }
 
   @Override
   public Flow.Publisher<MessageStreamEntry> getMessages() {
-    return messagePublisher;
+    return publisher;
   }
 
   @Override
   public CompletableFuture<Void> acknowledgeMessage(final MessageProtos.Envelope message) {
-    final UUID guid = UUID.fromString(message.getServerGuid());
-
-    return messagesCache.remove(accountIdentifier, device.getId(), guid)
-        .thenCompose(removed -> removed.map(_ -> CompletableFuture.<Void>completedFuture(null))
-            .orElseGet(() ->
-                messagesDynamoDb.deleteMessage(accountIdentifier, device, guid, message.getServerTimestamp())
-                    .thenRun(Util.NOOP)))
-        .whenComplete((_, _) -> messagePublisher.handleMessageAcknowledged());
+    final CompletableFuture<Void> acknowledgementFuture = new CompletableFuture<>();
+    final boolean flushNow;
+    final boolean scheduleFlush;
+
+    synchronized (this) {
+      pendingAcknowledgements.add(new PendingAcknowledgement(message, acknowledgementFuture));
+
+      flushNow = pendingAcknowledgements.size() >= MAX_ACKNOWLEDGEMENT_BATCH_SIZE;
+      scheduleFlush = !flushNow && !flushScheduled;
+
+      if (scheduleFlush) {
+        flushScheduled = true;
+      }
+    }
+
+    if (flushNow) {
+      flushAcknowledgements();
+    } else if (scheduleFlush) {
+      CompletableFuture.delayedExecutor(ACKNOWLEDGEMENT_FLUSH_DELAY.toMillis(), TimeUnit.MILLISECONDS, flushExecutor)
+          .execute(this::flushAcknowledgements);
+    }
+
+    return acknowledgementFuture;
+  }
+
+  @VisibleForTesting
+  void flushAcknowledgements() {
+    final List<PendingAcknowledgement> acknowledgements;
+
+    synchronized (this) {
+      flushScheduled = false;
+
+      if (pendingAcknowledgements.isEmpty()) {
+        return;
+      }
+
+      acknowledgements = pendingAcknowledgements;
+      pendingAcknowledgements = new ArrayList<>();
+    }
+
+    ACKNOWLEDGEMENT_BATCH_SIZE_DISTRIBUTION_SUMMARY.record(acknowledgements.size());
+
+    final Map<UUID, MessageProtos.Envelope> messagesByGuid = acknowledgements.stream()
+        .map(PendingAcknowledgement::message)
+        .collect(Collectors.toMap(message -> UUID.fromString(message.getServerGuid()), message -> message,
+            (a, _) -> a, LinkedHashMap::new));
+
+    messagesCache.remove(accountIdentifier, device.getId(), new ArrayList<>(messagesByGuid.keySet()))
+        .thenCompose(removedMessages -> {
+          final Set<UUID> removedGuids = removedMessages.stream()
+              .map(RemovedMessage::serverGuid)
+              .collect(Collectors.toSet());
+
+          // Anything that wasn't in Redis has most likely been persisted to DynamoDB
+          final List<MessageProtos.Envelope> persistedMessages = messagesByGuid.entrySet().stream()
+              .filter(entry -> !removedGuids.contains(entry.getKey()))
+              .map(Map.Entry::getValue)
+              .toList();
+
+          return persistedMessages.isEmpty()
+              ? CompletableFuture.<Void>completedFuture(null)
+              : messagesDynamoDb.deleteMessages(accountIdentifier, device, persistedMessages);
+        })
+        .whenComplete((_, throwable) -> acknowledgements.forEach(acknowledgement -> {
+          if (throwable != null) {
+            acknowledgement.future().completeExceptionally(throwable);
+          } else {
+            acknowledgement.future().complete(null);
+          }
+
+          messagePublisher.handleMessageAcknowledged();
+        }));
   }
 }
@@ -7,6 +7,9 @@ package org.whispersystems.textsecuregcm.storage;
 
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -44,6 +47,7 @@ public abstract class RepeatedUseSignedPreKeyStore<K extends SignedPreKey<?>> {
   private final Timer storeSingleKeyTimer = Metrics.timer(MetricsUtil.name(getClass(), "storeSingleKey"));
 
   private final String findKeyTimerName = MetricsUtil.name(getClass(), "findKey");
+  private final Timer findAllKeysTimer = Metrics.timer(MetricsUtil.name(getClass(), "findAllKeys"));
 
   public RepeatedUseSignedPreKeyStore(final DynamoDbAsyncClient dynamoDbAsyncClient, final String tableName) {
     this.dynamoDbAsyncClient = dynamoDbAsyncClient;
@@ -114,6 +118,39 @@ public abstract class RepeatedUseSignedPreKeyStore<K extends SignedPreKey<?>> {
     return findFuture;
   }
 
+  /**
+   * Finds repeated-use pre-keys for several devices associated with the same account/identity, using as few requests
+   * as possible.
+   *
+   * @param identifier the identifier for the account/identity with which the target devices are associated
+   * @param deviceIds the identifiers for the devices within the given account/identity
+   *
+   * @return a future that yields a map of device IDs to signed pre-keys; devices with no stored key are absent from
+   * the map
+   */
+  public CompletableFuture<Map<Byte, K>> findAll(final UUID identifier, final Collection<Byte> deviceIds) {
+    if (deviceIds.isEmpty()) {
+      return CompletableFuture.completedFuture(Map.of());
+    }
+
+    final Timer.Sample sample = Timer.start();
+
+    final List<Map<String, AttributeValue>> keys = deviceIds.stream()
+        .distinct()
+        .map(deviceId -> getPrimaryKey(identifier, deviceId))
+        .toList();
+
+    return AbstractDynamoDbStore.batchGetItemsAsync(dynamoDbAsyncClient, tableName, keys)
+        .thenApply(items -> {
+          final Map<Byte, K> preKeysByDeviceId = new HashMap<>();
+          items.forEach(item ->
+              preKeysByDeviceId.put((byte) AttributeValues.getInt(item, KEY_DEVICE_ID, -1), getPreKeyFromItem(item)));
+
+          return preKeysByDeviceId;
+        })
+        .whenComplete((_, _) -> sample.stop(findAllKeysTimer));
+  }
+
   protected static Map<String, AttributeValue> getPrimaryKey(final UUID identifier, final byte deviceId) {
     return Map.of(
         KEY_ACCOUNT_UUID, getPartitionKey(identifier),
@@ -6,12 +6,16 @@ import org.whispersystems.textsecuregcm.util.AttributeValues;
 import org.whispersystems.textsecuregcm.util.Util;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
 import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -27,6 +31,8 @@ public class ReportMessageDynamoDb {
   private final String tableName;
   private final Duration ttl;
 
+  private static final int MAX_BATCH_WRITE_ATTEMPTS = 3;
+
   private static final String REMOVED_MESSAGE_COUNTER_NAME = name(ReportMessageDynamoDb.class, "removed");
   private static final Timer REMOVED_MESSAGE_AGE_TIMER = Timer
       .builder(name(ReportMessageDynamoDb.class, "removedMessageAge"))
@@ -48,14 +54,48 @@ public class ReportMessageDynamoDb {
   public CompletableFuture<Void> store(byte[] hash) {
     return dynamoDbAsyncClient.putItem(PutItemRequest.builder()
         .tableName(tableName)
-        .item(Map.of(
-            KEY_HASH, AttributeValues.fromByteArray(hash),
-            ATTR_TTL, AttributeValues.fromLong(Instant.now().plus(ttl).getEpochSecond())
-        ))
+        .item(buildItem(hash, Instant.now()))
         .build())
         .thenRun(Util.NOOP);
   }
 
+  /**
+   * Stores a batch of hashes with a single {@code BatchWriteItem} call, retrying any unprocessed items a limited number
+   * of times.
+   *
+   * @param hashes the hashes to store; must contain no more than {@link AbstractDynamoDbStore#DYNAMO_DB_MAX_BATCH_SIZE}
+   * distinct items
+   *
+   * @return a future that completes when all hashes have been stored; the future fails with an
+   * {@link UnprocessedBatchWriteItemsException} if some hashes could not be stored after all retries
+   */
+  public CompletableFuture<Void> storeBatch(final List<byte[]> hashes) {
+    if (hashes.size() > AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE) {
+      throw new IllegalArgumentException("Too many hashes in batch: " + hashes.size());
+    }
+
+    if (hashes.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    final Instant now = Instant.now();
+
+    final List<WriteRequest> writeRequests = hashes.stream()
+        .map(hash -> WriteRequest.builder()
+            .putRequest(PutRequest.builder().item(buildItem(hash, now)).build())
+            .build())
+        .toList();
+
+    return AbstractDynamoDbStore.executeTableWriteItemsUntilCompleteAsync(dynamoDbAsyncClient,
+        Map.of(tableName, writeRequests), MAX_BATCH_WRITE_ATTEMPTS);
+  }
+
+  private Map<String, AttributeValue> buildItem(final byte[] hash, final Instant now) {
+    return Map.of(
+        KEY_HASH, AttributeValues.fromByteArray(hash),
+        ATTR_TTL, AttributeValues.fromLong(now.plus(ttl).getEpochSecond()));
+  }
+
   public boolean remove(byte[] hash) {
     final DeleteItemResponse deleteItemResponse = db.deleteItem(DeleteItemRequest.builder()
         .tableName(tableName)
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
+import org.whispersystems.textsecuregcm.util.Util;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+
+/// A write-behind buffer for reported-message hashes.
+///
+/// Hashes are stored for every message with an identified sender, but are only ever read if a recipient reports a
+/// message as spam, and losing a small number of them is harmless. Rather than writing each hash to DynamoDB as its
+/// message is sent, this writer queues hashes and writes them in batches of up to
+/// [AbstractDynamoDbStore#DYNAMO_DB_MAX_BATCH_SIZE] from a single background thread.
+///
+/// The queue is bounded and the number of concurrent batch writes is limited. If DynamoDB can't keep up, the writer
+/// pauses briefly after throttled batches, the queue fills, and new hashes are dropped rather than blocking message
+/// delivery. When stopped, the writer flushes everything still in its queue.
+class ReportMessageHashWriter {
+
+  private final ReportMessageDynamoDb reportMessageDynamoDb;
+  private final BlockingQueue<byte[]> queue;
+  private final Semaphore batchPermits;
+  private final int maxConcurrentBatches;
+
+  private volatile boolean running = false;
+  private volatile long throttledUntilNanos = 0;
+
+  private Thread writerThread;
+
+  static final int DEFAULT_QUEUE_CAPACITY = 100_000;
+  static final int DEFAULT_MAX_CONCURRENT_BATCHES = 8;
+
+  @VisibleForTesting
+  static final Duration THROTTLE_BACKOFF = Duration.ofMillis(250);
+
+  private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+  private static final DistributionSummary BATCH_SIZE_DISTRIBUTION_SUMMARY =
+      Metrics.summary(name(ReportMessageHashWriter.class, "batchSize"));
+
+  private static final String DROPPED_COUNTER_NAME = name(ReportMessageHashWriter.class, "dropped");
+  private static final String REASON_TAG_NAME = "reason";
+
+  private static final Logger logger = LoggerFactory.getLogger(ReportMessageHashWriter.class);
+
+  ReportMessageHashWriter(final ReportMessageDynamoDb reportMessageDynamoDb) {
+    this(reportMessageDynamoDb, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_CONCURRENT_BATCHES);
+  }
+
+  @VisibleForTesting
+  ReportMessageHashWriter(final ReportMessageDynamoDb reportMessageDynamoDb,
+      final int queueCapacity,
+      final int maxConcurrentBatches) {
+
+    this.reportMessageDynamoDb = reportMessageDynamoDb;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.batchPermits = new Semaphore(maxConcurrentBatches);
+    this.maxConcurrentBatches = maxConcurrentBatches;
+
+    Metrics.gauge(name(ReportMessageHashWriter.class, "queueDepth"), queue, BlockingQueue::size);
+  }
+
+  synchronized void start() {
+    running = true;
+
+    writerThread = Thread.ofPlatform().name("ReportMessageHashWriter").start(this::processQueue);
+  }
+
+  synchronized void stop() throws InterruptedException {
+    running = false;
+
+    if (writerThread != null) {
+      // The writer thread drains the queue before exiting
+      writerThread.join(SHUTDOWN_TIMEOUT.toMillis());
+      writerThread = null;
+    }
+
+    // Catch anything that was queued as the writer thread was exiting
+    while (!queue.isEmpty()) {
+      final List<byte[]> batch = new ArrayList<>(AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE);
+      queue.drainTo(batch, AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE);
+
+      batchPermits.acquire();
+      writeBatch(batch);
+    }
+
+    // Wait for in-flight batches to finish
+    if (!batchPermits.tryAcquire(maxConcurrentBatches, SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+      logger.warn("Timed out waiting for reported message hash batches to finish");
+    } else {
+      batchPermits.release(maxConcurrentBatches);
+    }
+  }
+
+  /// Queues a hash to be written. If the writer isn't running, the hash is written immediately instead.
+  void store(final byte[] hash) {
+    if (!running) {
+      reportMessageDynamoDb.store(hash);
+      return;
+    }
+
+    if (!queue.offer(hash)) {
+      Metrics.counter(DROPPED_COUNTER_NAME, REASON_TAG_NAME, "queueFull").increment();
+    }
+  }
+
+  private void processQueue() {
+    while (running || !queue.isEmpty()) {
+      try {
+        final long throttledNanos = throttledUntilNanos - System.nanoTime();
+
+        if (throttledNanos > 0 && running) {
+          Util.sleep(TimeUnit.NANOSECONDS.toMillis(throttledNanos));
+        }
+
+        final byte[] firstHash = queue.poll(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+
+        if (firstHash == null) {
+          continue;
+        }
+
+        final List<byte[]> batch = new ArrayList<>(AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE);
+        batch.add(firstHash);
+        queue.drainTo(batch, AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE - 1);
+
+        // Blocks if too many batches are already in flight, which lets the queue (and eventually the drop counter)
+        // absorb the excess
+        batchPermits.acquire();
+
+        writeBatch(batch);
+      } catch (final InterruptedException e) {
+        logger.warn("Interrupted while writing reported message hashes", e);
+      } catch (final Exception e) {
+        logger.warn("Unexpected error writing reported message hashes", e);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  void writeBatch(final List<byte[]> batch) {
+    BATCH_SIZE_DISTRIBUTION_SUMMARY.record(batch.size());
+
+    reportMessageDynamoDb.storeBatch(batch)
+        .whenComplete((_, throwable) -> {
+          batchPermits.release();
+
+          if (throwable != null) {
+            final Throwable unwrapped = ExceptionUtils.unwrap(throwable);
+
+            if (unwrapped instanceof UnprocessedBatchWriteItemsException unprocessedBatchWriteItemsException) {
+              throttle();
+              Metrics.counter(DROPPED_COUNTER_NAME, REASON_TAG_NAME, "unprocessed")
+                  .increment(unprocessedBatchWriteItemsException.getUnprocessedItemCount());
+            } else if (unwrapped instanceof ProvisionedThroughputExceededException
+                || unwrapped instanceof RequestLimitExceededException) {
+
+              throttle();
+              Metrics.counter(DROPPED_COUNTER_NAME, REASON_TAG_NAME, "throttled").increment(batch.size());
+            } else {
+              logger.warn("Failed to store reported message hashes", throwable);
+              Metrics.counter(DROPPED_COUNTER_NAME, REASON_TAG_NAME, "error").increment(batch.size());
+            }
+          }
+        });
+  }
+
+  private void throttle() {
+    throttledUntilNanos = System.nanoTime() + THROTTLE_BACKOFF.toNanos();
+  }
+
+  @VisibleForTesting
+  int getQueueDepth() {
+    return queue.size();
+  }
+}
@@ -5,6 +5,7 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import io.dropwizard.lifecycle.Managed;
 import io.lettuce.core.RedisException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -24,9 +25,10 @@ import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.util.UUIDUtil;
 
-public class ReportMessageManager {
+public class ReportMessageManager implements Managed {
 
   private final ReportMessageDynamoDb reportMessageDynamoDb;
+  private final ReportMessageHashWriter hashWriter;
   private final FaultTolerantRedisClusterClient rateLimitCluster;
 
   private final Duration counterTtl;
@@ -47,6 +49,18 @@ public class ReportMessageManager {
     this.rateLimitCluster = rateLimitCluster;
 
     this.counterTtl = counterTtl;
+
+    this.hashWriter = new ReportMessageHashWriter(reportMessageDynamoDb);
+  }
+
+  @Override
+  public void start() throws Exception {
+    hashWriter.start();
+  }
+
+  @Override
+  public void stop() throws Exception {
+    hashWriter.stop();
   }
 
   public void addListener(final ReportedMessageListener listener) {
@@ -55,7 +69,7 @@ public class ReportMessageManager {
 
   public void store(String sourceAci, UUID messageGuid) {
     try {
-      reportMessageDynamoDb.store(hash(messageGuid, Objects.requireNonNull(sourceAci)));
+      hashWriter.store(hash(messageGuid, Objects.requireNonNull(sourceAci)));
     } catch (final Exception e) {
       logger.warn("Failed to store hash", e);
     }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/// A short-lived, node-local cache of the shared `data` field of multi-recipient messages, keyed by `sharedMrmKey`.
+///
+/// When a multi-recipient message is sent to a group, many of its recipients are likely to be online and connected to
+/// the same server at the same time, and each of them needs the same (potentially large) shared payload to reconstruct
+/// its copy of the message. This cache lets concurrent and closely-spaced deliveries of the same message share a single
+/// fetch of the shared payload; each recipient still fetches its own (small) view from Redis.
+///
+/// Shared MRM keys are derived from random UUIDs and the `data` field is never modified after it's written, so a cached
+/// payload is never stale. If the shared hash has been removed entirely, the recipient's view will also be missing, and
+/// the message is treated as stale just as it would be if the payload were missing.
+class SharedMrmDataCache {
+
+  private final Cache<ByteString, byte[]> dataBySharedMrmKey;
+  private final Map<ByteString, CompletableFuture<Optional<byte[]>>> pendingLoadsBySharedMrmKey =
+      new ConcurrentHashMap<>();
+
+  private static final Counter CACHE_HIT_COUNTER =
+      Metrics.counter(name(SharedMrmDataCache.class, "getData"), "outcome", "hit");
+
+  private static final Counter CACHE_MISS_COUNTER =
+      Metrics.counter(name(SharedMrmDataCache.class, "getData"), "outcome", "miss");
+
+  private static final Counter PENDING_LOAD_COUNTER =
+      Metrics.counter(name(SharedMrmDataCache.class, "getData"), "outcome", "pending");
+
+  /// @param maxSizeBytes the maximum total size of all cached payloads, in bytes
+  /// @param expiration   how long to keep a payload after it was loaded
+  SharedMrmDataCache(final long maxSizeBytes, final Duration expiration) {
+    this(maxSizeBytes, expiration, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  SharedMrmDataCache(final long maxSizeBytes, final Duration expiration, final Ticker ticker) {
+    this.dataBySharedMrmKey = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeBytes)
+        .<ByteString, byte[]>weigher((_, data) -> data.length)
+        .expireAfterWrite(expiration)
+        .ticker(ticker)
+        .build();
+
+    Metrics.gauge(name(SharedMrmDataCache.class, "size"), dataBySharedMrmKey, Cache::size);
+  }
+
+  /// Returns the shared payload for the given multi-recipient message, loading it with the given loader if it's neither
+  /// cached nor already being loaded by another caller.
+  ///
+  /// @param sharedMrmKey the key of the shared multi-recipient message hash
+  /// @param loader a supplier of a future that yields the shared payload, or empty if the payload is missing
+  ///
+  /// @return a future that yields the shared payload, or empty if the payload is missing; missing payloads are not
+  /// cached
+  CompletableFuture<Optional<byte[]>> getData(final ByteString sharedMrmKey,
+      final Supplier<CompletableFuture<Optional<byte[]>>> loader) {
+
+    final byte[] cachedData = dataBySharedMrmKey.getIfPresent(sharedMrmKey);
+
+    if (cachedData != null) {
+      CACHE_HIT_COUNTER.increment();
+      return CompletableFuture.completedFuture(Optional.of(cachedData));
+    }
+
+    final CompletableFuture<Optional<byte[]>> load = new CompletableFuture<>();
+    final CompletableFuture<Optional<byte[]>> pendingLoad = pendingLoadsBySharedMrmKey.putIfAbsent(sharedMrmKey, load);
+
+    if (pendingLoad != null) {
+      PENDING_LOAD_COUNTER.increment();
+      return pendingLoad;
+    }
+
+    CACHE_MISS_COUNTER.increment();
+
+    CompletableFuture<Optional<byte[]>> loaderFuture;
+
+    try {
+      loaderFuture = loader.get();
+    } catch (final RuntimeException e) {
+      loaderFuture = CompletableFuture.failedFuture(e);
+    }
+
+    loaderFuture.whenComplete((maybeData, throwable) -> {
+      if (throwable == null) {
+        // Add the payload to the cache before removing the pending load so there's no window in which a new request
+        // would start a second load
+        maybeData.ifPresent(data -> dataBySharedMrmKey.put(sharedMrmKey, data));
+      }
+
+      pendingLoadsBySharedMrmKey.remove(sharedMrmKey, load);
+
+      if (throwable != null) {
+        load.completeExceptionally(throwable);
+      } else {
+        load.complete(maybeData);
+      }
+    });
+
+    return load;
+  }
+}
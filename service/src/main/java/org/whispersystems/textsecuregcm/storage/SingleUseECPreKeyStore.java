@@ -15,12 +15,15 @@ import io.micrometer.core.instrument.Timer;
 import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.signal.libsignal.protocol.InvalidKeyException;
 import org.signal.libsignal.protocol.ecc.ECPublicKey;
 import org.whispersystems.textsecuregcm.entities.ECPreKey;
@@ -32,9 +35,11 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
-import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 /**
  * A single-use EC pre-key store stores single-use EC prekeys. Keys returned by a single-use pre-key
@@ -52,7 +57,8 @@ public class SingleUseECPreKeyStore {
   private final String tableName;
 
   private final Timer getKeyCountTimer = Metrics.timer(name(getClass(), "getCount"));
-  private final Timer storeKeyTimer = Metrics.timer(name(getClass(), "storeKey"));
+  private final Timer storeKeyChunkTimer = Metrics.timer(name(getClass(), "storeKeyChunk"));
+  private final Timer deleteKeyChunkTimer = Metrics.timer(name(getClass(), "deleteKeyChunk"));
   private final Timer storeKeyBatchTimer = Metrics.timer(name(getClass(), "storeKeyBatch"));
   private final Timer deleteForDeviceTimer = Metrics.timer(name(getClass(), "deleteForDevice"));
   private final Timer deleteForAccountTimer = Metrics.timer(name(getClass(), "deleteForAccount"));
@@ -76,6 +82,9 @@ public class SingleUseECPreKeyStore {
   private final String takeKeyTimerName = name(getClass(), "takeKey");
   private static final String KEY_PRESENT_TAG_NAME = "keyPresent";
 
+  private static final int MAX_CONCURRENT_BATCH_WRITES = 4;
+  private static final int MAX_BATCH_WRITE_ATTEMPTS = 10;
+
   static final String KEY_ACCOUNT_UUID = "U";
   static final String KEY_DEVICE_ID_KEY_ID = "DK";
   static final String ATTR_PUBLIC_KEY = "P";
@@ -88,7 +97,8 @@ public class SingleUseECPreKeyStore {
 
   /**
    * Stores a batch of single-use pre-keys for a specific device. All previously-stored keys for the device are cleared
-   * before storing new keys.
+   * before storing new keys. Both the removal of old keys and the storage of new keys happen in chunks of batch
+   * writes; if the given collection contains more than one key with the same ID, only the first is stored.
    *
    * @param identifier the identifier for the account/identity with which the target device is associated
    * @param deviceId the identifier for the device within the given account/identity
@@ -100,29 +110,31 @@ public class SingleUseECPreKeyStore {
   public CompletableFuture<Void> store(final UUID identifier, final byte deviceId, final List<ECPreKey> preKeys) {
     final Timer.Sample sample = Timer.start();
 
+    // A single batch write request may not contain more than one operation on the same item, so if a client uploads
+    // multiple keys with the same ID, we keep only the first
+    final List<ECPreKey> sortedPreKeys = preKeys.stream()
+        .sorted(Comparator.comparing(ECPreKey::keyId))
+        .collect(Collectors.toMap(ECPreKey::keyId, Function.identity(), (a, _) -> a, LinkedHashMap::new))
+        .values()
+        .stream()
+        .toList();
+
     return Mono.fromFuture(() -> delete(identifier, deviceId))
         .thenMany(
-            Flux.fromIterable(preKeys)
-                .sort(Comparator.comparing(preKey -> preKey.keyId()))
-                .zipWith(Flux.range(0, preKeys.size()).map(i -> preKeys.size() - i))
-                .flatMap(preKeyAndRemainingCount -> Mono.fromFuture(() ->
-                        store(identifier, deviceId, preKeyAndRemainingCount.getT1(), preKeyAndRemainingCount.getT2())),
-                    DYNAMO_DB_MAX_BATCH_SIZE))
+            Flux.range(0, sortedPreKeys.size())
+                .map(i -> WriteRequest.builder()
+                    .putRequest(PutRequest.builder()
+                        .item(getItemFromPreKey(identifier, deviceId, sortedPreKeys.get(i), sortedPreKeys.size() - i))
+                        .build())
+                    .build())
+                .buffer(DYNAMO_DB_MAX_BATCH_SIZE)
+                .flatMap(writeRequests -> Mono.fromFuture(() -> writeItemsUntilComplete(writeRequests, storeKeyChunkTimer)),
+                    MAX_CONCURRENT_BATCH_WRITES))
         .then()
         .toFuture()
         .thenRun(() -> sample.stop(storeKeyBatchTimer));
   }
 
-  private CompletableFuture<Void> store(final UUID identifier, final byte deviceId, final ECPreKey preKey, final int remainingKeys) {
-    final Timer.Sample sample = Timer.start();
-
-    return dynamoDbAsyncClient.putItem(PutItemRequest.builder()
-            .tableName(tableName)
-            .item(getItemFromPreKey(identifier, deviceId, preKey, remainingKeys))
-            .build())
-        .thenRun(() -> sample.stop(storeKeyTimer));
-  }
-
   /**
    * Attempts to retrieve a single-use pre-key for a specific device. Keys may only be returned by this method at most
    * once; once the key is returned, it is removed from the key store and subsequent calls to this method will never
@@ -270,19 +282,34 @@ public class SingleUseECPreKeyStore {
 
   private CompletableFuture<Void> deleteItems(final AttributeValue partitionKey, final Flux<Map<String, AttributeValue>> items) {
     return items
-        .map(item -> DeleteItemRequest.builder()
-            .tableName(tableName)
-            .key(Map.of(
-                KEY_ACCOUNT_UUID, partitionKey,
-                KEY_DEVICE_ID_KEY_ID, item.get(KEY_DEVICE_ID_KEY_ID)
-            ))
+        .map(item -> WriteRequest.builder()
+            .deleteRequest(DeleteRequest.builder()
+                .key(Map.of(
+                    KEY_ACCOUNT_UUID, partitionKey,
+                    KEY_DEVICE_ID_KEY_ID, item.get(KEY_DEVICE_ID_KEY_ID)))
+                .build())
             .build())
-        .flatMap(deleteItemRequest -> Mono.fromFuture(() -> dynamoDbAsyncClient.deleteItem(deleteItemRequest)), DYNAMO_DB_MAX_BATCH_SIZE)
+        .buffer(DYNAMO_DB_MAX_BATCH_SIZE)
+        .flatMap(writeRequests -> Mono.fromFuture(() -> writeItemsUntilComplete(writeRequests, deleteKeyChunkTimer)),
+            MAX_CONCURRENT_BATCH_WRITES)
         .then()
         .toFuture()
         .thenRun(Util.NOOP);
   }
 
+  /**
+   * Writes a batch of at most {@link AbstractDynamoDbStore#DYNAMO_DB_MAX_BATCH_SIZE} items, retrying any unprocessed
+   * items. The returned future fails if items remain unprocessed after the last attempt; silently dropping keys would
+   * leave a device with fewer keys than it thinks it has.
+   */
+  private CompletableFuture<Void> writeItemsUntilComplete(final List<WriteRequest> writeRequests, final Timer timer) {
+    final Timer.Sample sample = Timer.start();
+
+    return AbstractDynamoDbStore.executeTableWriteItemsUntilCompleteAsync(dynamoDbAsyncClient,
+            Map.of(tableName, writeRequests), MAX_BATCH_WRITE_ATTEMPTS)
+        .whenComplete((ignored, throwable) -> sample.stop(timer));
+  }
+
   protected static AttributeValue getPartitionKey(final UUID accountUuid) {
     return AttributeValues.fromUUID(accountUuid);
   }
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import org.whispersystems.textsecuregcm.util.NoStackTraceRuntimeException;
+
+/// Indicates that DynamoDB still reported some items as unprocessed after all attempts to write a batch. None of the
+/// items in the batch should be considered durably stored.
+public class UnprocessedBatchWriteItemsException extends NoStackTraceRuntimeException {
+
+  private final int unprocessedItemCount;
+
+  public UnprocessedBatchWriteItemsException(final int unprocessedItemCount, final int attempts) {
+    super("Failed to write %d items after %d attempts".formatted(unprocessedItemCount, attempts));
+
+    this.unprocessedItemCount = unprocessedItemCount;
+  }
+
+  /// @return the number of items DynamoDB still reported as unprocessed after the last attempt
+  public int getUnprocessedItemCount() {
+    return unprocessedItemCount;
+  }
+}
@@ -1,14 +1,18 @@
 package org.whispersystems.textsecuregcm.storage.foundationdb;
 
 import com.apple.foundationdb.Database;
+import com.apple.foundationdb.KeySelector;
 import com.apple.foundationdb.MutationType;
 import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
 import com.apple.foundationdb.subspace.Subspace;
 import com.apple.foundationdb.tuple.Tuple;
 import com.apple.foundationdb.tuple.Versionstamp;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.hash.Hashing;
+import com.google.protobuf.InvalidProtocolBufferException;
 import io.dropwizard.util.DataSize;
+import java.io.UncheckedIOException;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -20,6 +24,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.util.Conversions;
@@ -58,6 +63,21 @@ public class FoundationDbMessageStore {
   public record InsertResult(Optional<Versionstamp> versionstamp, boolean present) {
   }
 
+  /// A message read from a device's queue
+  ///
+  /// @param versionstamp the versionstamp under which the message is stored; messages in a queue are ordered by
+  ///                     versionstamp
+  /// @param envelope     the stored message
+  public record QueuedMessage(Versionstamp versionstamp, MessageProtos.Envelope envelope) {
+  }
+
+  /// An inclusive range of messages in a device's queue
+  ///
+  /// @param first the versionstamp of the first message in the range
+  /// @param last  the versionstamp of the last message in the range
+  public record MessageRange(Versionstamp first, Versionstamp last) {
+  }
+
   public FoundationDbMessageStore(final Database[] databases, final Executor executor, final Clock clock) {
     this.databases = databases;
     this.executor = executor;
@@ -246,6 +266,126 @@ public class FoundationDbMessageStore {
         }, executor);
   }
 
+  /// Reads a page of messages from a device's queue in versionstamp order.
+  ///
+  /// @param aci              accountId of the recipient
+  /// @param deviceId         the recipient's device
+  /// @param afterVersionstamp if present, only messages stored under a versionstamp strictly greater than this one are
+  ///                         returned; if `null`, messages are read from the start of the queue
+  /// @param limit            the maximum number of messages to return
+  /// @return a future that yields up to `limit` messages; fewer than `limit` messages indicates that the end of the
+  /// queue was reached as of the read version of the transaction
+  public CompletableFuture<List<QueuedMessage>> getMessages(final AciServiceIdentifier aci,
+      final byte deviceId,
+      @Nullable final Versionstamp afterVersionstamp,
+      final int limit) {
+
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+
+    final Subspace queueSubspace = getDeviceQueueSubspace(aci, deviceId);
+
+    final KeySelector begin = afterVersionstamp == null
+        ? KeySelector.firstGreaterOrEqual(queueSubspace.range().begin)
+        : KeySelector.firstGreaterThan(queueSubspace.pack(Tuple.from(afterVersionstamp)));
+
+    final KeySelector end = KeySelector.firstGreaterOrEqual(queueSubspace.range().end);
+
+    return getShardForAci(aci).readAsync(transaction -> transaction.getRange(begin, end, limit).asList())
+        .thenApply(keyValues -> keyValues.stream()
+            .map(keyValue -> {
+              try {
+                return new QueuedMessage(queueSubspace.unpack(keyValue.getKey()).getVersionstamp(0),
+                    MessageProtos.Envelope.parseFrom(keyValue.getValue()));
+              } catch (final InvalidProtocolBufferException e) {
+                throw new UncheckedIOException(e);
+              }
+            })
+            .toList());
+  }
+
+  /// Deletes ranges of messages from a device's queue. All ranges are cleared in a single transaction.
+  ///
+  /// @param aci      accountId of the recipient
+  /// @param deviceId the recipient's device
+  /// @param ranges   the inclusive ranges of messages to delete
+  /// @return a future that completes when the messages have been deleted
+  ///
+  /// @implNote Callers are expected to collapse runs of adjacent messages into a single range; each range is cleared
+  /// with a single `clear(begin, end)` mutation regardless of how many messages it contains.
+  public CompletableFuture<Void> deleteMessages(final AciServiceIdentifier aci,
+      final byte deviceId,
+      final List<MessageRange> ranges) {
+
+    if (ranges.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    final Subspace queueSubspace = getDeviceQueueSubspace(aci, deviceId);
+
+    return getShardForAci(aci).runAsync(transaction -> {
+      ranges.forEach(range -> transaction.clear(queueSubspace.pack(Tuple.from(range.first())),
+          ByteArrayUtil.join(queueSubspace.pack(Tuple.from(range.last())), new byte[]{0x00})));
+
+      return CompletableFuture.completedFuture(null);
+    });
+  }
+
+  /// Registers a watch on the account's "messages available" key. The key is updated whenever a message is inserted for
+  /// a present device of the account.
+  ///
+  /// @param aci accountId of the recipient
+  /// @return a future that yields, once the watch has been registered, a future that completes when the "messages
+  /// available" key changes
+  ///
+  /// @implNote Watches only fire for changes committed after the watch is registered, so callers should register a
+  /// watch and wait for the outer future to complete before reading the queue to avoid missing new messages.
+  public CompletableFuture<CompletableFuture<Void>> watchMessagesAvailable(final AciServiceIdentifier aci) {
+    return getShardForAci(aci).runAsync(transaction ->
+        CompletableFuture.completedFuture(transaction.watch(getMessagesAvailableWatchKey(aci))));
+  }
+
+  /// Marks a device as present on the given server as of the current time. Present devices must refresh their presence
+  /// more frequently than [#PRESENCE_STALE_THRESHOLD] to continue receiving ephemeral messages and "messages available"
+  /// signals.
+  ///
+  /// @param aci      accountId of the recipient
+  /// @param deviceId the recipient's device
+  /// @param serverId the identifier of the server holding the device's connection
+  /// @return a future that completes when the presence key has been written
+  public CompletableFuture<Void> updatePresence(final AciServiceIdentifier aci, final byte deviceId,
+      final short serverId) {
+
+    final long presenceValue = ((long) serverId << 48) | (clock.instant().getEpochSecond() & 0x0000ffffffffffffL);
+
+    return getShardForAci(aci).runAsync(transaction -> {
+      transaction.set(getPresenceKey(aci, deviceId), Conversions.longToByteArray(presenceValue));
+      return CompletableFuture.completedFuture(null);
+    });
+  }
+
+  /// Clears a device's presence if (and only if) the presence key was last written by the given server. This prevents a
+  /// server that is closing a stale connection from clearing the presence of a newer connection on another server.
+  ///
+  /// @param aci      accountId of the recipient
+  /// @param deviceId the recipient's device
+  /// @param serverId the identifier of the server that held the device's connection
+  /// @return a future that completes when the presence key has been cleared (or left in place)
+  public CompletableFuture<Void> clearPresence(final AciServiceIdentifier aci, final byte deviceId,
+      final short serverId) {
+
+    final byte[] presenceKey = getPresenceKey(aci, deviceId);
+
+    return getShardForAci(aci).runAsync(transaction -> transaction.get(presenceKey)
+        .thenAccept(presenceValueBytes -> {
+          if (presenceValueBytes != null
+              && (short) (Conversions.byteArrayToLong(presenceValueBytes) >>> 48) == serverId) {
+            transaction.clear(presenceKey);
+          }
+        }));
+  }
+
   @VisibleForTesting
   Database getShardForAci(final AciServiceIdentifier aci) {
     return databases[hashAciToShardNumber(aci)];
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage.foundationdb;
+
+import com.apple.foundationdb.tuple.Versionstamp;
+import com.google.common.annotations.VisibleForTesting;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.entities.MessageProtos;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
+import org.whispersystems.textsecuregcm.storage.MessageStream;
+import org.whispersystems.textsecuregcm.storage.MessageStreamEntry;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/// A [MessageStream] implementation backed by a [FoundationDbMessageStore].
+///
+/// While subscribed, the stream marks the destination device as present so that new messages update the account's
+/// "messages available" watch key. The stream first drains the device's queue in versionstamp order, then emits a
+/// [MessageStreamEntry.QueueEmpty] signal, and then waits on the watch key and reads new messages as they arrive.
+/// Because messages are ordered by versionstamp, the stream keeps a cursor and never needs to re-read messages that
+/// have already been emitted, even if they have not yet been acknowledged.
+///
+/// Acknowledged messages are deleted in batches. While a deletion transaction is in flight, further acknowledgements
+/// accumulate and are deleted together in the next transaction. Runs of acknowledged messages that are adjacent in the
+/// queue are collapsed into a single range clear. Clearing a range is idempotent, so ranges from a failed deletion are
+/// always kept and cleared again with the next deletion; a failed deletion is retried after a short, linearly increasing
+/// delay (along with the acknowledgements that depend on it and any that arrive in the meantime) up to
+/// [#MAX_DELETION_ATTEMPTS] times before those acknowledgements fail.
+public class FoundationDbMessageStream implements MessageStream {
+
+  private final FoundationDbMessageStore messageStore;
+  private final AciServiceIdentifier aci;
+  private final byte deviceId;
+  private final short serverId;
+
+  private final Flow.Publisher<MessageStreamEntry> publisher;
+
+  // The versionstamp of the last message read from the queue; subsequent reads start after this versionstamp
+  @Nullable
+  private volatile Versionstamp lastReadVersionstamp;
+
+  // Messages that have been emitted, but not yet deleted, in queue order, mapped to whether they've been acknowledged
+  private final NavigableMap<Versionstamp, Boolean> acknowledgedByVersionstamp = new TreeMap<>();
+
+  // Versionstamps of emitted, but not yet acknowledged, messages by server GUID
+  private final Map<String, Versionstamp> versionstampsByGuid = new HashMap<>();
+
+  // Futures for acknowledgements that will be included in the next deletion transaction
+  private List<CompletableFuture<Void>> pendingAcknowledgementFutures = new ArrayList<>();
+
+  // Acknowledged ranges whose deletion failed and should be included in the next deletion transaction
+  private List<FoundationDbMessageStore.MessageRange> rangesToRetry = new ArrayList<>();
+
+  private boolean deletionInProgress = false;
+  private int failedDeletionAttempts = 0;
+
+  @VisibleForTesting
+  static final int MAX_DELETION_ATTEMPTS = 3;
+
+  private static final Duration DELETION_RETRY_DELAY = Duration.ofMillis(50);
+
+  @VisibleForTesting
+  static final int PAGE_SIZE = 100;
+
+  @VisibleForTesting
+  static final Duration PRESENCE_REFRESH_INTERVAL = Duration.ofMinutes(1);
+
+  private static final Logger logger = LoggerFactory.getLogger(FoundationDbMessageStream.class);
+
+  public FoundationDbMessageStream(final FoundationDbMessageStore messageStore,
+      final AciServiceIdentifier aci,
+      final byte deviceId,
+      final short serverId) {
+
+    this.messageStore = messageStore;
+    this.aci = aci;
+    this.deviceId = deviceId;
+    this.serverId = serverId;
+
+    final Flux<MessageStreamEntry> messages = Flux.using(this::startPresenceRefresh,
+        _ -> Mono.fromFuture(() -> messageStore.updatePresence(aci, deviceId, serverId))
+            .thenMany(Flux.concat(
+                readQueue().map(this::handleMessageRead),
+                Mono.just(new MessageStreamEntry.QueueEmpty()),
+                readNewMessages().map(this::handleMessageRead))),
+        presenceRefresh -> {
+          presenceRefresh.dispose();
+
+          messageStore.clearPresence(aci, deviceId, serverId)
+              .whenComplete((_, throwable) -> {
+                if (throwable != null) {
+                  logger.warn("Failed to clear presence", throwable);
+                }
+              });
+        });
+
+    this.publisher = JdkFlowAdapter.publisherToFlowPublisher(messages);
+  }
+
+  @Override
+  public Flow.Publisher<MessageStreamEntry> getMessages() {
+    return publisher;
+  }
+
+  @Override
+  public CompletableFuture<Void> acknowledgeMessage(final MessageProtos.Envelope message) {
+    final CompletableFuture<Void> acknowledgementFuture;
+
+    synchronized (this) {
+      final Versionstamp versionstamp = versionstampsByGuid.remove(message.getServerGuid());
+
+      if (versionstamp == null) {
+        // Either we never emitted this message or it has already been acknowledged
+        return CompletableFuture.completedFuture(null);
+      }
+
+      acknowledgedByVersionstamp.put(versionstamp, true);
+
+      acknowledgementFuture = new CompletableFuture<>();
+      pendingAcknowledgementFutures.add(acknowledgementFuture);
+    }
+
+    maybeDeleteAcknowledgedMessages();
+
+    return acknowledgementFuture;
+  }
+
+  /// Reads messages from the device's queue, starting after the last message read, until the end of the queue is
+  /// reached. Pages are fetched only as downstream demand allows.
+  private Flux<FoundationDbMessageStore.QueuedMessage> readQueue() {
+    return Mono.defer(() -> Mono.fromFuture(messageStore.getMessages(aci, deviceId, lastReadVersionstamp, PAGE_SIZE)))
+        .doOnNext(page -> {
+          if (!page.isEmpty()) {
+            lastReadVersionstamp = page.getLast().versionstamp();
+          }
+        })
+        .repeat()
+        .takeUntil(page -> page.size() < PAGE_SIZE)
+        .concatMapIterable(Function.identity(), 1);
+  }
+
+  /// Produces a non-terminating stream of messages that arrive after the initial queue drain. Each iteration registers a
+  /// watch on the account's "messages available" key before reading the queue so that messages inserted while reading
+  /// will trigger another iteration.
+  private Flux<FoundationDbMessageStore.QueuedMessage> readNewMessages() {
+    return Mono.defer(() -> Mono.fromFuture(messageStore.watchMessagesAvailable(aci)))
+        .flatMapMany(watch -> readQueue()
+            .concatWith(Mono.fromFuture(watch).then(Mono.<FoundationDbMessageStore.QueuedMessage>empty())))
+        .repeat();
+  }
+
+  private synchronized MessageStreamEntry handleMessageRead(final FoundationDbMessageStore.QueuedMessage queuedMessage) {
+    acknowledgedByVersionstamp.put(queuedMessage.versionstamp(), false);
+    versionstampsByGuid.put(queuedMessage.envelope().getServerGuid(), queuedMessage.versionstamp());
+
+    return new MessageStreamEntry.Envelope(queuedMessage.envelope());
+  }
+
+  private void maybeDeleteAcknowledgedMessages() {
+    final List<FoundationDbMessageStore.MessageRange> ranges;
+    final List<CompletableFuture<Void>> acknowledgementFutures;
+
+    synchronized (this) {
+      if (deletionInProgress || pendingAcknowledgementFutures.isEmpty()) {
+        return;
+      }
+
+      ranges = new ArrayList<>(rangesToRetry);
+      ranges.addAll(removeAcknowledgedRanges());
+      acknowledgementFutures = pendingAcknowledgementFutures;
+
+      rangesToRetry = new ArrayList<>();
+      pendingAcknowledgementFutures = new ArrayList<>();
+      deletionInProgress = true;
+    }
+
+    messageStore.deleteMessages(aci, deviceId, ranges)
+        .whenComplete((_, throwable) -> {
+          final boolean retry;
+          final int attempt;
+
+          synchronized (this) {
+            attempt = failedDeletionAttempts + 1;
+
+            if (throwable != null) {
+              // Don't lose track of acknowledged messages just because we couldn't delete them this time; otherwise,
+              // they'd be delivered again the next time the device connects
+              rangesToRetry.addAll(ranges);
+              failedDeletionAttempts += 1;
+
+              retry = failedDeletionAttempts < MAX_DELETION_ATTEMPTS;
+
+              if (retry) {
+                pendingAcknowledgementFutures.addAll(acknowledgementFutures);
+              } else {
+                // The ranges will still be retried with the next acknowledgement, which gets a fresh set of attempts
+                failedDeletionAttempts = 0;
+              }
+            } else {
+              failedDeletionAttempts = 0;
+              retry = false;
+            }
+
+            // While waiting to retry, leave the deletion marked as in progress so that new acknowledgements accumulate
+            // and join the retry instead of starting a deletion of their own right away
+            deletionInProgress = retry;
+          }
+
+          if (throwable == null) {
+            acknowledgementFutures.forEach(future -> future.complete(null));
+          } else if (!retry) {
+            logger.warn("Failed to delete acknowledged messages", throwable);
+            acknowledgementFutures.forEach(future -> future.completeExceptionally(throwable));
+          }
+
+          if (retry) {
+            CompletableFuture.runAsync(() -> {
+                  synchronized (this) {
+                    deletionInProgress = false;
+                  }
+
+                  maybeDeleteAcknowledgedMessages();
+                }, CompletableFuture.delayedExecutor(DELETION_RETRY_DELAY.toMillis() * attempt, TimeUnit.MILLISECONDS));
+          } else {
+            maybeDeleteAcknowledgedMessages();
+          }
+        });
+  }
+
+  /// Removes all acknowledged messages from the set of emitted messages and collapses them into ranges. Two
+  /// acknowledged messages belong to the same range if no unacknowledged emitted message lies between them; because
+  /// messages are emitted in queue order, every other key between them has already been deleted.
+  @VisibleForTesting
+  synchronized List<FoundationDbMessageStore.MessageRange> removeAcknowledgedRanges() {
+    final List<FoundationDbMessageStore.MessageRange> ranges = new ArrayList<>();
+
+    @Nullable Versionstamp rangeStart = null;
+    @Nullable Versionstamp rangeEnd = null;
+
+    final Iterator<Map.Entry<Versionstamp, Boolean>> iterator = acknowledgedByVersionstamp.entrySet().iterator();
+
+    while (iterator.hasNext()) {
+      final Map.Entry<Versionstamp, Boolean> entry = iterator.next();
+
+      if (entry.getValue()) {
+        if (rangeStart == null) {
+          rangeStart = entry.getKey();
+        }
+
+        rangeEnd = entry.getKey();
+        iterator.remove();
+      } else if (rangeStart != null) {
+        ranges.add(new FoundationDbMessageStore.MessageRange(rangeStart, rangeEnd));
+        rangeStart = null;
+      }
+    }
+
+    if (rangeStart != null) {
+      ranges.add(new FoundationDbMessageStore.MessageRange(rangeStart, rangeEnd));
+    }
+
+    return ranges;
+  }
+
+  private Disposable startPresenceRefresh() {
+    return Flux.interval(PRESENCE_REFRESH_INTERVAL, PRESENCE_REFRESH_INTERVAL)
+        .onBackpressureDrop()
+        .concatMap(_ -> Mono.fromFuture(() -> messageStore.updatePresence(aci, deviceId, serverId))
+            .onErrorResume(throwable -> {
+              logger.warn("Failed to refresh presence", throwable);
+              return Mono.empty();
+            }))
+        .subscribe();
+  }
+}
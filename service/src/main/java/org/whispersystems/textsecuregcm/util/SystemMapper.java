@@ -13,6 +13,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.FilterProvider;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -30,6 +31,8 @@ public class SystemMapper {
   private static final ObjectMapper YAML_MAPPER = configureMapper(new YAMLMapper())
       .setSubtypeResolver(new DiscoverableSubtypeResolver());
 
+  private static final ObjectMapper SMILE_MAPPER = configureMapper(new SmileMapper());
+
 
   @Nonnull
   public static ObjectMapper jsonMapper() {
@@ -41,6 +44,15 @@ public class SystemMapper {
     return YAML_MAPPER;
   }
 
+  /**
+   * Returns a mapper for Smile, a compact binary encoding of the JSON data model. Smile documents begin with a fixed
+   * header, and so can be distinguished from JSON documents without any additional framing.
+   */
+  @Nonnull
+  public static ObjectMapper smileMapper() {
+    return SMILE_MAPPER;
+  }
+
   public static ObjectMapper configureMapper(final ObjectMapper mapper) {
     return mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
         .setFilterProvider(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()))
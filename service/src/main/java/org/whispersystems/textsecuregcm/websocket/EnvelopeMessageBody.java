@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.websocket;
+
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
+import org.whispersystems.websocket.messages.WebSocketMessageBody;
+
+/// A websocket request body that writes an envelope for delivery to a client.
+///
+/// The `ephemeral` flag is for the server's own bookkeeping and is never sent to clients. Rather than building a copy
+/// of each envelope with the flag cleared, this body writes the envelope's fields directly, skipping `ephemeral`. Fields
+/// are written in field-number order, so the bytes written are identical to those of the envelope with `ephemeral`
+/// cleared.
+///
+/// @param envelope the envelope to write
+record EnvelopeMessageBody(Envelope envelope) implements WebSocketMessageBody {
+
+  @Override
+  public int getSerializedSize() {
+    // Envelopes memoize their serialized size, so this is cheap to call repeatedly
+    return envelope.getSerializedSize() - (envelope.hasEphemeral()
+        ? CodedOutputStream.computeBoolSize(Envelope.EPHEMERAL_FIELD_NUMBER, envelope.getEphemeral())
+        : 0);
+  }
+
+  @Override
+  public void writeTo(final CodedOutputStream outputStream) throws IOException {
+    if (envelope.hasType()) {
+      outputStream.writeEnum(Envelope.TYPE_FIELD_NUMBER, envelope.getType().getNumber());
+    }
+
+    if (envelope.hasClientTimestamp()) {
+      outputStream.writeUInt64(Envelope.CLIENT_TIMESTAMP_FIELD_NUMBER, envelope.getClientTimestamp());
+    }
+
+    if (envelope.hasSourceDevice()) {
+      outputStream.writeUInt32(Envelope.SOURCE_DEVICE_FIELD_NUMBER, envelope.getSourceDevice());
+    }
+
+    if (envelope.hasContent()) {
+      outputStream.writeBytes(Envelope.CONTENT_FIELD_NUMBER, envelope.getContent());
+    }
+
+    if (envelope.hasServerGuid()) {
+      outputStream.writeBytes(Envelope.SERVER_GUID_FIELD_NUMBER, envelope.getServerGuidBytes());
+    }
+
+    if (envelope.hasServerTimestamp()) {
+      outputStream.writeUInt64(Envelope.SERVER_TIMESTAMP_FIELD_NUMBER, envelope.getServerTimestamp());
+    }
+
+    if (envelope.hasSourceServiceId()) {
+      outputStream.writeBytes(Envelope.SOURCE_SERVICE_ID_FIELD_NUMBER, envelope.getSourceServiceIdBytes());
+    }
+
+    // Field 12 (`ephemeral`) is intentionally omitted
+
+    if (envelope.hasDestinationServiceId()) {
+      outputStream.writeBytes(Envelope.DESTINATION_SERVICE_ID_FIELD_NUMBER, envelope.getDestinationServiceIdBytes());
+    }
+
+    if (envelope.hasUrgent()) {
+      outputStream.writeBool(Envelope.URGENT_FIELD_NUMBER, envelope.getUrgent());
+    }
+
+    if (envelope.hasUpdatedPni()) {
+      outputStream.writeBytes(Envelope.UPDATED_PNI_FIELD_NUMBER, envelope.getUpdatedPniBytes());
+    }
+
+    if (envelope.hasStory()) {
+      outputStream.writeBool(Envelope.STORY_FIELD_NUMBER, envelope.getStory());
+    }
+
+    if (envelope.hasReportSpamToken()) {
+      outputStream.writeBytes(Envelope.REPORT_SPAM_TOKEN_FIELD_NUMBER, envelope.getReportSpamToken());
+    }
+
+    if (envelope.hasSharedMrmKey()) {
+      outputStream.writeBytes(Envelope.SHARED_MRM_KEY_FIELD_NUMBER, envelope.getSharedMrmKey());
+    }
+
+    if (envelope.hasSourceServiceIdBinary()) {
+      outputStream.writeBytes(Envelope.SOURCE_SERVICE_ID_BINARY_FIELD_NUMBER, envelope.getSourceServiceIdBinary());
+    }
+
+    if (envelope.hasDestinationServiceIdBinary()) {
+      outputStream.writeBytes(Envelope.DESTINATION_SERVICE_ID_BINARY_FIELD_NUMBER,
+          envelope.getDestinationServiceIdBinary());
+    }
+
+    if (envelope.hasServerGuidBinary()) {
+      outputStream.writeBytes(Envelope.SERVER_GUID_BINARY_FIELD_NUMBER, envelope.getServerGuidBinary());
+    }
+
+    if (envelope.hasUpdatedPniBinary()) {
+      outputStream.writeBytes(Envelope.UPDATED_PNI_BINARY_FIELD_NUMBER, envelope.getUpdatedPniBinary());
+    }
+
+    envelope.getUnknownFields().writeTo(outputStream);
+  }
+}
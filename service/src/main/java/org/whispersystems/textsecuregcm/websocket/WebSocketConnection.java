@@ -87,8 +87,9 @@ public class WebSocketConnection implements DisconnectionRequestListener {
   @VisibleForTesting
   static final int MESSAGE_PUBLISHER_LIMIT_RATE = 100;
 
-  @VisibleForTesting
-  static final int MESSAGE_SENDER_MAX_CONCURRENCY = 256;
+  // The client's byte-based send window decides how many messages are actually written and awaiting acknowledgement at
+  // any time; this only bounds how many messages may be held in memory while they wait for room in that window
+  private static final int MESSAGE_SENDER_MAX_PENDING = 1024;
 
   private static final Duration CLOSE_WITH_PENDING_MESSAGES_NOTIFICATION_DELAY = Duration.ofMinutes(1);
 
@@ -179,7 +180,7 @@ public class WebSocketConnection implements DisconnectionRequestListener {
         .flatMapSequential(entry -> switch (entry) {
           case MessageStreamEntry.Envelope envelope -> Mono.fromFuture(() -> sendMessage(envelope.message())).thenReturn(entry);
           case MessageStreamEntry.QueueEmpty _ -> Mono.just(entry);
-        }, MESSAGE_SENDER_MAX_CONCURRENCY)
+        }, MESSAGE_SENDER_MAX_PENDING)
         .subscribeOn(messageDeliveryScheduler)
         .subscribe(
             entry -> {
@@ -238,18 +239,26 @@ public class WebSocketConnection implements DisconnectionRequestListener {
       return messageStream.acknowledgeMessage(message);
     }
 
-    final Optional<byte[]> body = Optional.of(serializeMessage(message));
+    final EnvelopeMessageBody body = new EnvelopeMessageBody(message);
 
     sendMessageCounter.increment();
+
+    // Counts messages taken from the queue (whether or not they've been written yet), which is what the initial queue
+    // length distribution needs
     sentMessageCounter.increment();
-    bytesSentCounter.increment(body.map(bytes -> bytes.length).orElse(0));
     messageMetrics.measureAccountEnvelopeUuidMismatches(authenticatedAccount, message);
 
-    final Timer.Sample sample = Timer.start();
+    // The client may hold requests until there's room in its send window, so measure bytes sent and the time the
+    // client takes to handle a message from when the message is actually written, not from when it's queued
+    final AtomicReference<Timer.Sample> sample = new AtomicReference<>();
 
     // X-Signal-Key: false must be sent until Android stops assuming it missing means true
-    return client.sendRequest("PUT", "/api/v1/message",
-            List.of(HeaderUtils.X_SIGNAL_KEY + ": false", HeaderUtils.getTimestampHeader()), body)
+    return client.sendProtobufRequest("PUT", "/api/v1/message",
+            List.of(HeaderUtils.X_SIGNAL_KEY + ": false", HeaderUtils.getTimestampHeader()), body,
+            () -> {
+              bytesSentCounter.increment(body.getSerializedSize());
+              sample.set(Timer.start());
+            })
         .whenComplete((ignored, throwable) -> {
           if (throwable != null) {
             sendFailuresCounter.increment();
@@ -286,15 +295,16 @@ public class WebSocketConnection implements DisconnectionRequestListener {
 
           return result;
         })
-        .thenRun(() -> sample.stop(Timer.builder(SEND_MESSAGE_DURATION_TIMER_NAME)
-            .publishPercentileHistogram(true)
-            .tags(platformTag)
-            .register(Metrics.globalRegistry)));
-  }
-
-  @VisibleForTesting
-  static byte[] serializeMessage(final Envelope message) {
-    return message.toBuilder().clearEphemeral().build().toByteArray();
+        .thenRun(() -> {
+          final Timer.Sample writtenSample = sample.get();
+
+          if (writtenSample != null) {
+            writtenSample.stop(Timer.builder(SEND_MESSAGE_DURATION_TIMER_NAME)
+                .publishPercentileHistogram(true)
+                .tags(platformTag)
+                .register(Metrics.globalRegistry));
+          }
+        });
   }
 
   private void sendDeliveryReceiptFor(Envelope message) {
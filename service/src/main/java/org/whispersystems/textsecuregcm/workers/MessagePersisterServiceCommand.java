@@ -39,7 +39,7 @@ public class MessagePersisterServiceCommand extends ServerCommand<WhisperServerC
         .type(Integer.class)
         .dest(WORKER_COUNT)
         .required(true)
-        .help("The number of worker threads");
+        .help("The number of worker threads per Redis shard");
   }
 
   @Override
@@ -1,13 +1,20 @@
--- returns a list of queues that meet persistence criteria
+-- returns a list of queues that meet persistence criteria, each followed by its score (the timestamp of its oldest
+-- message)
 
 local queueTotalIndexKey = KEYS[1] -- sorted set of all queues in the shard, by timestamp of oldest message
 local maxTime            = ARGV[1] -- [number] the most recent queue timestamp that may be fetched
 local limit              = ARGV[2] -- [number] the maximum number of queues to fetch
 
-local results = redis.call("ZRANGE", queueTotalIndexKey, 0, maxTime, "BYSCORE", "LIMIT", 0, limit)
+local results = redis.call("ZRANGE", queueTotalIndexKey, 0, maxTime, "BYSCORE", "LIMIT", 0, limit, "WITHSCORES")
 
 if results and next(results) then
-    redis.call("ZREM", queueTotalIndexKey, unpack(results))
+    local queues = {}
+
+    for i = 1, #results, 2 do
+        queues[#queues + 1] = results[i]
+    end
+
+    redis.call("ZREM", queueTotalIndexKey, unpack(queues))
 end
 
 return results
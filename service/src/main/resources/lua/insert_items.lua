@@ -0,0 +1,60 @@
+-- inserts a batch of messages into one or more device queues that share a cluster slot, and updates relevant
+-- associated data; behaves as if `insert_item.lua` were called once per message, in order, but publishes at most one
+-- "message available" event per queue
+-- as in `insert_item.lua`, messages whose GUIDs are already present in their queues are not inserted again and don't
+-- publish an event
+-- returns an array with one number per message: 1 if the message was a duplicate or its destination queue had an event
+-- subscriber, or 0 otherwise
+
+-- KEYS contains a group of four keys for each message:
+--   queueKey           -- sorted set of Envelopes for a device, by queue-local ID
+--   queueMetadataKey   -- hash of message GUID to queue-local IDs
+--   queueTotalIndexKey -- sorted set of all queues in the shard, by timestamp of oldest message
+--   eventChannelKey    -- pub/sub channel for message availability events
+--
+-- ARGV[1] is a protobuf payload for a "message available" pub/sub event, followed by a group of three arguments for
+-- each message:
+--   message     -- [bytes] the Envelope to insert
+--   currentTime -- [number] the message timestamp, to sort the queue in the queueTotalIndex
+--   guid        -- [string] the message GUID
+
+local eventPayload = ARGV[1]
+local presentByEventChannel = {}
+local results = {}
+
+for i = 1, #KEYS / 4 do
+    local queueKey           = KEYS[(i - 1) * 4 + 1]
+    local queueMetadataKey   = KEYS[(i - 1) * 4 + 2]
+    local queueTotalIndexKey = KEYS[(i - 1) * 4 + 3]
+    local eventChannelKey    = KEYS[(i - 1) * 4 + 4]
+    local message            = ARGV[(i - 1) * 3 + 2]
+    local currentTime        = ARGV[(i - 1) * 3 + 3]
+    local guid               = ARGV[(i - 1) * 3 + 4]
+
+    if redis.call("HEXISTS", queueMetadataKey, guid) == 1 then
+        -- like insert_item.lua, which returns the (truthy) existing message ID for duplicates without publishing
+        results[i] = 1
+    else
+        local messageId = redis.call("HINCRBY", queueMetadataKey, "counter", 1)
+
+        redis.call("ZADD", queueKey, "NX", messageId, message)
+
+        redis.call("HSET", queueMetadataKey, guid, messageId)
+        redis.call("EXPIRE", queueKey, 3974400) -- 46 days
+        redis.call("EXPIRE", queueMetadataKey, 3974400) -- 46 days
+
+        redis.call("ZADD", queueTotalIndexKey, "NX", currentTime, queueKey)
+
+        if presentByEventChannel[eventChannelKey] == nil then
+            presentByEventChannel[eventChannelKey] = redis.call("SPUBLISH", eventChannelKey, eventPayload) > 0
+        end
+
+        if presentByEventChannel[eventChannelKey] then
+            results[i] = 1
+        else
+            results[i] = 0
+        end
+    end
+end
+
+return results
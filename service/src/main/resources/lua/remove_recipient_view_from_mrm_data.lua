@@ -1,13 +1,26 @@
--- Removes the given recipient view from the shared MRM data. If the only field remaining after the removal is the
+-- Removes the given recipient views from the shared MRM data. If the only field remaining after the removal is the
 -- `data` field, then the key will be deleted
 
-local sharedMrmKeys         = KEYS    -- KEYS: list of all keys in a single slot to update
-local recipientViewToRemove = ARGV[1] -- the recipient view to remove from the hash
+local sharedMrmKeys = KEYS -- KEYS: list of all keys in a single slot to update
+-- ARGV: for each key in KEYS, in order, the number of recipient views to remove from that key, followed by the views
 
 local keysDeleted = 0
+local argIndex = 1
+
+-- Lua limits the number of values `unpack` may return, so remove large numbers of views in chunks
+local maxViewsPerCommand = 1000
 
 for _, sharedMrmKey in ipairs(sharedMrmKeys) do
-    redis.call("HDEL", sharedMrmKey, recipientViewToRemove)
+    local viewCount = tonumber(ARGV[argIndex])
+    local firstViewIndex = argIndex + 1
+    local lastViewIndex = argIndex + viewCount
+
+    for chunkStart = firstViewIndex, lastViewIndex, maxViewsPerCommand do
+        redis.call("HDEL", sharedMrmKey, unpack(ARGV, chunkStart, math.min(chunkStart + maxViewsPerCommand - 1, lastViewIndex)))
+    end
+
+    argIndex = lastViewIndex + 1
+
     if redis.call("HLEN", sharedMrmKey) == 1 then
         redis.call("DEL", sharedMrmKey)
         keysDeleted = keysDeleted + 1
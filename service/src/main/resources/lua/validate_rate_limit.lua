@@ -5,6 +5,11 @@
 -- and the deficit amount otherwise.
 -- However, 'check-only' operation doesn't modify the bucket, while 'use-if-available' (if successful)
 -- reduces the amount of available tokens by the requested amount.
+-- A negative requested amount with 'use-if-available' returns tokens to the bucket (up to the bucket size); this is
+-- used to give back unused tokens from locally-held leases.
+-- An optional lease amount asks 'use-if-available' to also take that many extra tokens for a locally-held lease, but
+-- only if the bucket can cover both; otherwise, only the requested amount is taken. When a lease is requested and the
+-- requested amount is covered, the script returns the negated number of tokens leased (0 if no lease was granted).
 
 local bucketId = KEYS[1]
 
@@ -13,6 +18,7 @@ local refillRatePerMillis = tonumber(ARGV[2])
 local currentTimeMillis = tonumber(ARGV[3])
 local requestedAmount = tonumber(ARGV[4])
 local useTokens = ARGV[5] and string.lower(ARGV[5]) == "true"
+local leaseAmount = tonumber(ARGV[6] or "0")
 
 local SIZE_FIELD = "s"
 local TIME_FIELD = "t"
@@ -36,6 +42,12 @@ local availableAmount = math.min(
     math.floor(tokensRemaining + (elapsedTime * refillRatePerMillis))
 )
 
+if useTokens and leaseAmount > 0 and availableAmount >= requestedAmount + leaseAmount then
+    requestedAmount = requestedAmount + leaseAmount
+else
+    leaseAmount = 0
+end
+
 if availableAmount >= requestedAmount then
     if useTokens then
         tokensRemaining = availableAmount - requestedAmount
@@ -56,7 +68,7 @@ if availableAmount >= requestedAmount then
             redis.call("DEL", bucketId)
         end
     end
-    return 0
+    return -leaseAmount
 else
     return requestedAmount - availableAmount
 end
@@ -0,0 +1,89 @@
+-- Evaluates a batch of 'use-if-available' rate limit checks against token buckets in the same slot in a single call.
+-- Buckets follow the same rules as in validate_rate_limit.lua, and a bucket may appear more than once in a batch; later
+-- checks see the tokens taken by earlier checks.
+-- The first two arguments are the current time and whether the batch is all-or-nothing; they're followed by four
+-- arguments for each key: the bucket size, the refill rate, the requested amount, and the lease amount.
+-- Returns one result per key: the deficit if the bucket couldn't cover the requested amount, or the negated number of
+-- tokens leased (0 if no lease was granted) otherwise. If the batch is all-or-nothing and any check has a deficit, no
+-- bucket is modified.
+
+local currentTimeMillis = tonumber(ARGV[1])
+local allOrNothing = string.lower(ARGV[2]) == "true"
+
+local ARGS_PER_KEY = 4
+
+local SIZE_FIELD = "s"
+local TIME_FIELD = "t"
+
+local buckets = {}
+local results = {}
+local anyExceeded = false
+
+for i, bucketId in ipairs(KEYS) do
+    local offset = 2 + (i - 1) * ARGS_PER_KEY
+    local bucketSize = tonumber(ARGV[offset + 1])
+    local refillRatePerMillis = tonumber(ARGV[offset + 2])
+    local requestedAmount = tonumber(ARGV[offset + 3])
+    local leaseAmount = tonumber(ARGV[offset + 4])
+
+    local bucket = buckets[bucketId]
+
+    if not bucket then
+        local availableAmount
+        local tokensRemainingStr, lastUpdateTimeMillisStr = unpack(redis.call("HMGET", bucketId, SIZE_FIELD, TIME_FIELD))
+
+        if tokensRemainingStr and lastUpdateTimeMillisStr then
+            local elapsedTime = currentTimeMillis - tonumber(lastUpdateTimeMillisStr)
+            availableAmount = math.min(
+                bucketSize,
+                math.floor(tonumber(tokensRemainingStr) + (elapsedTime * refillRatePerMillis))
+            )
+        else
+            availableAmount = bucketSize
+        end
+
+        bucket = {
+            bucketSize = bucketSize,
+            refillRatePerMillis = refillRatePerMillis,
+            availableAmount = availableAmount,
+            changed = false
+        }
+
+        buckets[bucketId] = bucket
+    end
+
+    if leaseAmount > 0 and bucket.availableAmount >= requestedAmount + leaseAmount then
+        requestedAmount = requestedAmount + leaseAmount
+    else
+        leaseAmount = 0
+    end
+
+    if bucket.availableAmount >= requestedAmount then
+        bucket.availableAmount = bucket.availableAmount - requestedAmount
+        bucket.changed = true
+        results[i] = -leaseAmount
+    else
+        results[i] = requestedAmount - bucket.availableAmount
+        anyExceeded = true
+    end
+end
+
+if allOrNothing and anyExceeded then
+    return results
+end
+
+for bucketId, bucket in pairs(buckets) do
+    if bucket.changed then
+        -- As in validate_rate_limit.lua, a full bucket is equivalent to no bucket at all
+        local tokensUsed = bucket.bucketSize - bucket.availableAmount
+        if tokensUsed > 0 then
+            local ttlMillis = math.ceil(tokensUsed / bucket.refillRatePerMillis)
+            redis.call("HSET", bucketId, SIZE_FIELD, bucket.availableAmount, TIME_FIELD, currentTimeMillis)
+            redis.call("PEXPIRE", bucketId, ttlMillis)
+        else
+            redis.call("DEL", bucketId)
+        end
+    end
+end
+
+return results
@@ -178,6 +178,47 @@ class AccountAuthenticatorTest {
     verify(accountsManager, never()).updateDeviceAuthentication(any(), any(), any());
   }
 
+  @Test
+  void testAuthenticateCachedVerification() {
+    final UUID uuid = UUID.randomUUID();
+    final byte deviceId = 1;
+    final String password = "12345";
+
+    final Account account = mock(Account.class);
+    final Device device = mock(Device.class);
+    final SaltedTokenHash credentials = mock(SaltedTokenHash.class);
+
+    clock.unpin();
+    when(accountsManager.getByAccountIdentifier(uuid)).thenReturn(Optional.of(account));
+    when(account.getUuid()).thenReturn(uuid);
+    when(account.getIdentifier(IdentityType.ACI)).thenReturn(uuid);
+    when(account.getDevice(deviceId)).thenReturn(Optional.of(device));
+    when(account.getPrimaryDevice()).thenReturn(device);
+    when(device.getId()).thenReturn(deviceId);
+    when(device.getAuthTokenHash()).thenReturn(credentials);
+    when(credentials.verify(password)).thenReturn(true);
+    when(credentials.getVersion()).thenReturn(SaltedTokenHash.CURRENT_VERSION);
+
+    assertThat(accountAuthenticator.authenticate(new BasicCredentials(uuid.toString(), password))).isPresent();
+    assertThat(accountAuthenticator.authenticate(new BasicCredentials(uuid.toString(), password))).isPresent();
+
+    verify(credentials, times(1)).verify(password);
+
+    // A different password must be verified directly, and must not be accepted on the strength of the cached result
+    assertThat(accountAuthenticator.authenticate(new BasicCredentials(uuid.toString(), password + "incorrect")))
+        .isEmpty();
+
+    verify(credentials).verify(password + "incorrect");
+
+    // Changing the device's stored credentials makes the cached verification unusable
+    final SaltedTokenHash updatedCredentials = mock(SaltedTokenHash.class);
+    when(updatedCredentials.getVersion()).thenReturn(SaltedTokenHash.CURRENT_VERSION);
+    when(device.getAuthTokenHash()).thenReturn(updatedCredentials);
+
+    assertThat(accountAuthenticator.authenticate(new BasicCredentials(uuid.toString(), password))).isEmpty();
+    verify(updatedCredentials).verify(password);
+  }
+
   @Test
   void testAuthenticateNonDefaultDevice() {
     final UUID uuid = UUID.randomUUID();
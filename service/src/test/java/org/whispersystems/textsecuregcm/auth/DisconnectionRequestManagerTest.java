@@ -7,11 +7,16 @@ package org.whispersystems.textsecuregcm.auth;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ScheduledExecutorService;
@@ -20,7 +25,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
 import org.whispersystems.textsecuregcm.redis.RedisServerExtension;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
@@ -28,15 +37,22 @@ import org.whispersystems.textsecuregcm.storage.Device;
 @Timeout(value = 5, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
 class DisconnectionRequestManagerTest {
 
+  private ExperimentEnrollmentManager experimentEnrollmentManager;
   private DisconnectionRequestManager disconnectionRequestManager;
 
   @RegisterExtension
   static final RedisServerExtension REDIS_EXTENSION = RedisServerExtension.builder().build();
 
+  @RegisterExtension
+  static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
   @BeforeEach
   void setUp() {
+    experimentEnrollmentManager = mock(ExperimentEnrollmentManager.class);
 
     disconnectionRequestManager = new DisconnectionRequestManager(REDIS_EXTENSION.getRedisClient(),
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        experimentEnrollmentManager,
         Runnable::run,
         mock(ScheduledExecutorService.class));
 
@@ -77,8 +93,9 @@ class DisconnectionRequestManagerTest {
     assertEquals(List.of(secondListener), disconnectionRequestManager.getListeners(accountIdentifier, deviceId));
   }
 
-  @Test
-  void requestDisconnection() {
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void requestDisconnection(final boolean sharded) throws InterruptedException {
     final UUID accountIdentifier = UUID.randomUUID();
     final byte primaryDeviceId = Device.PRIMARY_ID;
     final byte linkedDeviceId = primaryDeviceId + 1;
@@ -88,26 +105,34 @@ class DisconnectionRequestManagerTest {
 
     final List<Byte> deviceIds = List.of(primaryDeviceId, linkedDeviceId);
 
+    when(experimentEnrollmentManager.isEnrolled(any(UUID.class),
+        eq(DisconnectionRequestManager.SHARDED_DISCONNECTION_REQUESTS_EXPERIMENT_NAME)))
+        .thenReturn(sharded);
+
     final DisconnectionRequestListener primaryDeviceListener = mock(DisconnectionRequestListener.class);
     final DisconnectionRequestListener linkedDeviceListener = mock(DisconnectionRequestListener.class);
 
     disconnectionRequestManager.addListener(accountIdentifier, primaryDeviceId, primaryDeviceListener);
     disconnectionRequestManager.addListener(accountIdentifier, linkedDeviceId, linkedDeviceListener);
 
-    disconnectionRequestManager.requestDisconnection(accountIdentifier, deviceIds).toCompletableFuture().join();
-
-    verify(primaryDeviceListener, timeout(1_000)).handleDisconnectionRequest();
-    verify(linkedDeviceListener, timeout(1_000)).handleDisconnectionRequest();
+    requestDisconnectionUntilHandled(
+        () -> disconnectionRequestManager.requestDisconnection(accountIdentifier, deviceIds).toCompletableFuture().join(),
+        primaryDeviceListener, linkedDeviceListener);
 
     disconnectionRequestManager.requestDisconnection(otherAccountIdentifier, List.of(otherDeviceId));
   }
 
-  @Test
-  void requestDisconnectionAllDevices() {
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void requestDisconnectionAllDevices(final boolean sharded) throws InterruptedException {
     final UUID accountIdentifier = UUID.randomUUID();
     final byte primaryDeviceId = Device.PRIMARY_ID;
     final byte linkedDeviceId = primaryDeviceId + 1;
 
+    when(experimentEnrollmentManager.isEnrolled(any(UUID.class),
+        eq(DisconnectionRequestManager.SHARDED_DISCONNECTION_REQUESTS_EXPERIMENT_NAME)))
+        .thenReturn(sharded);
+
     final Device primaryDevice = mock(Device.class);
     when(primaryDevice.getId()).thenReturn(primaryDeviceId);
 
@@ -124,9 +149,77 @@ class DisconnectionRequestManagerTest {
     disconnectionRequestManager.addListener(accountIdentifier, primaryDeviceId, primaryDeviceListener);
     disconnectionRequestManager.addListener(accountIdentifier, linkedDeviceId, linkedDeviceListener);
 
-    disconnectionRequestManager.requestDisconnection(account).toCompletableFuture().join();
+    requestDisconnectionUntilHandled(
+        () -> disconnectionRequestManager.requestDisconnection(account).toCompletableFuture().join(),
+        primaryDeviceListener, linkedDeviceListener);
+  }
+
+  @Test
+  void requestShardedDisconnectionAfterListenerRemoved() throws InterruptedException {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = Device.PRIMARY_ID;
+
+    when(experimentEnrollmentManager.isEnrolled(accountIdentifier,
+        DisconnectionRequestManager.SHARDED_DISCONNECTION_REQUESTS_EXPERIMENT_NAME))
+        .thenReturn(true);
+
+    final DisconnectionRequestListener removedListener = mock(DisconnectionRequestListener.class);
+    final DisconnectionRequestListener currentListener = mock(DisconnectionRequestListener.class);
+
+    disconnectionRequestManager.addListener(accountIdentifier, deviceId, removedListener);
+    disconnectionRequestManager.removeListener(accountIdentifier, deviceId, removedListener);
+    disconnectionRequestManager.addListener(accountIdentifier, deviceId, currentListener);
+
+    requestDisconnectionUntilHandled(() ->
+            disconnectionRequestManager.requestDisconnection(accountIdentifier, List.of(deviceId)).toCompletableFuture().join(),
+        currentListener);
+
+    verify(removedListener, never()).handleDisconnectionRequest();
+  }
+
+  @Test
+  void retryShardedSubscription() throws InterruptedException {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = Device.PRIMARY_ID;
+
+    when(experimentEnrollmentManager.isEnrolled(accountIdentifier,
+        DisconnectionRequestManager.SHARDED_DISCONNECTION_REQUESTS_EXPERIMENT_NAME))
+        .thenReturn(true);
+
+    final DisconnectionRequestListener listener = mock(DisconnectionRequestListener.class);
+    disconnectionRequestManager.addListener(accountIdentifier, deviceId, listener);
+
+    // Retrying an established subscription is harmless
+    disconnectionRequestManager.retryShardedSubscription(
+        new DisconnectionRequestManager.AccountIdentifierAndDeviceId(accountIdentifier, deviceId));
+
+    requestDisconnectionUntilHandled(() ->
+            disconnectionRequestManager.requestDisconnection(accountIdentifier, List.of(deviceId)).toCompletableFuture().join(),
+        listener);
+
+    // Retries for devices that no longer have listeners should do nothing
+    disconnectionRequestManager.removeListener(accountIdentifier, deviceId, listener);
+    disconnectionRequestManager.retryShardedSubscription(
+        new DisconnectionRequestManager.AccountIdentifierAndDeviceId(accountIdentifier, deviceId));
+
+    assertTrue(disconnectionRequestManager.getListeners(accountIdentifier, deviceId).isEmpty());
+  }
 
-    verify(primaryDeviceListener, timeout(1_000)).handleDisconnectionRequest();
-    verify(linkedDeviceListener, timeout(1_000)).handleDisconnectionRequest();
+  /**
+   * Sends disconnection requests until all the given listeners have handled at least one. Sharded subscriptions are
+   * established asynchronously when listeners are added, and so a request sent immediately after adding a listener may
+   * arrive before the subscription.
+   */
+  private static void requestDisconnectionUntilHandled(final Runnable requestDisconnection,
+      final DisconnectionRequestListener... listeners) throws InterruptedException {
+
+    while (Arrays.stream(listeners).anyMatch(listener -> mockingDetails(listener).getInvocations().isEmpty())) {
+      requestDisconnection.run();
+      Thread.sleep(50);
+    }
+
+    for (final DisconnectionRequestListener listener : listeners) {
+      verify(listener, atLeastOnce()).handleDisconnectionRequest();
+    }
   }
 }
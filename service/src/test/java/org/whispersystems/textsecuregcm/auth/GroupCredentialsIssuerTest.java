@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.google.common.base.Ticker;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.signal.libsignal.protocol.ServiceId;
+import org.signal.libsignal.zkgroup.GenericServerSecretParams;
+import org.signal.libsignal.zkgroup.ServerSecretParams;
+import org.signal.libsignal.zkgroup.auth.AuthCredentialWithPniResponse;
+import org.signal.libsignal.zkgroup.auth.ClientZkAuthOperations;
+import org.signal.libsignal.zkgroup.auth.ServerZkAuthOperations;
+import org.signal.libsignal.zkgroup.calllinks.CallLinkAuthCredentialResponse;
+import org.whispersystems.textsecuregcm.entities.GroupCredentials;
+
+class GroupCredentialsIssuerTest {
+
+  private ExecutorService executor;
+  private AtomicLong currentTimeNanos;
+
+  private static final ServerSecretParams SERVER_SECRET_PARAMS = ServerSecretParams.generate();
+  private static final GenericServerSecretParams GENERIC_SERVER_SECRET_PARAMS = GenericServerSecretParams.generate();
+
+  private static final Clock CLOCK = Clock.fixed(Instant.now(), ZoneId.systemDefault());
+  private static final Duration CACHE_TIME_TO_LIVE = Duration.ofMinutes(15);
+
+  private static final ServiceId.Aci ACI = new ServiceId.Aci(UUID.randomUUID());
+  private static final ServiceId.Pni PNI = new ServiceId.Pni(UUID.randomUUID());
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+    currentTimeNanos = new AtomicLong();
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  void issueCredentials() {
+    final Instant startOfDay = CLOCK.instant().truncatedTo(ChronoUnit.DAYS);
+    final RedemptionRange redemptionRange =
+        RedemptionRange.inclusive(CLOCK, startOfDay, startOfDay.plus(RedemptionRange.MAX_REDEMPTION_DURATION));
+
+    final GroupCredentials credentials = buildIssuer(false).issueCredentials(ACI, PNI, redemptionRange).join();
+
+    assertEquals(PNI.getRawUUID(), credentials.pni());
+    assertEquals(8, credentials.credentials().size());
+    assertEquals(8, credentials.callLinkAuthCredentials().size());
+
+    final ClientZkAuthOperations clientZkAuthOperations =
+        new ClientZkAuthOperations(SERVER_SECRET_PARAMS.getPublicParams());
+
+    for (int i = 0; i < 8; i++) {
+      // Credentials must come back in order even though they're issued in parallel
+      final Instant redemptionTime = startOfDay.plus(Duration.ofDays(i));
+      assertEquals(redemptionTime.getEpochSecond(), credentials.credentials().get(i).redemptionTime());
+      assertEquals(redemptionTime.getEpochSecond(), credentials.callLinkAuthCredentials().get(i).redemptionTime());
+
+      final int index = i;
+
+      assertDoesNotThrow(() -> clientZkAuthOperations.receiveAuthCredentialWithPniAsServiceId(ACI, PNI,
+          redemptionTime.getEpochSecond(),
+          new AuthCredentialWithPniResponse(credentials.credentials().get(index).credential())));
+
+      assertDoesNotThrow(() ->
+          new CallLinkAuthCredentialResponse(credentials.callLinkAuthCredentials().get(index).credential())
+              .receive(ACI, redemptionTime, GENERIC_SERVER_SECRET_PARAMS.getPublicParams()));
+    }
+  }
+
+  @Test
+  void issueCredentialsCached() {
+    final GroupCredentialsIssuer issuer = buildIssuer(true);
+
+    final Instant startOfDay = CLOCK.instant().truncatedTo(ChronoUnit.DAYS);
+    final RedemptionRange firstRange = RedemptionRange.inclusive(CLOCK, startOfDay, startOfDay.plus(Duration.ofDays(1)));
+    final RedemptionRange secondRange = RedemptionRange.inclusive(CLOCK,
+        startOfDay.plus(Duration.ofDays(1)), startOfDay.plus(Duration.ofDays(2)));
+
+    final GroupCredentials firstCredentials = issuer.issueCredentials(ACI, PNI, firstRange).join();
+    final GroupCredentials secondCredentials = issuer.issueCredentials(ACI, PNI, secondRange).join();
+
+    // The overlapping day should reuse the credentials that were already issued
+    assertArrayEquals(firstCredentials.credentials().get(1).credential(),
+        secondCredentials.credentials().getFirst().credential());
+
+    assertArrayEquals(firstCredentials.callLinkAuthCredentials().get(1).credential(),
+        secondCredentials.callLinkAuthCredentials().getFirst().credential());
+
+    // …but a change of phone number identifier requires new credentials
+    final ServiceId.Pni newPni = new ServiceId.Pni(UUID.randomUUID());
+    final GroupCredentials newPniCredentials = issuer.issueCredentials(ACI, newPni, firstRange).join();
+
+    assertEquals(newPni.getRawUUID(), newPniCredentials.pni());
+    assertFalse(Arrays.equals(firstCredentials.credentials().getFirst().credential(),
+        newPniCredentials.credentials().getFirst().credential()));
+  }
+
+  @Test
+  void issueCredentialsCacheExpired() {
+    final GroupCredentialsIssuer issuer = buildIssuer(true);
+
+    final Instant startOfDay = CLOCK.instant().truncatedTo(ChronoUnit.DAYS);
+    final RedemptionRange redemptionRange = RedemptionRange.inclusive(CLOCK, startOfDay, startOfDay);
+
+    final GroupCredentials firstCredentials = issuer.issueCredentials(ACI, PNI, redemptionRange).join();
+
+    currentTimeNanos.addAndGet(CACHE_TIME_TO_LIVE.toNanos() + 1);
+
+    final GroupCredentials secondCredentials = issuer.issueCredentials(ACI, PNI, redemptionRange).join();
+
+    assertFalse(Arrays.equals(firstCredentials.credentials().getFirst().credential(),
+        secondCredentials.credentials().getFirst().credential()));
+  }
+
+  @Test
+  void issueCredentialsNotCached() {
+    final GroupCredentialsIssuer issuer = buildIssuer(false);
+
+    final Instant startOfDay = CLOCK.instant().truncatedTo(ChronoUnit.DAYS);
+    final RedemptionRange redemptionRange = RedemptionRange.inclusive(CLOCK, startOfDay, startOfDay);
+
+    final GroupCredentials firstCredentials = issuer.issueCredentials(ACI, PNI, redemptionRange).join();
+    final GroupCredentials secondCredentials = issuer.issueCredentials(ACI, PNI, redemptionRange).join();
+
+    assertFalse(Arrays.equals(firstCredentials.credentials().getFirst().credential(),
+        secondCredentials.credentials().getFirst().credential()));
+  }
+
+  private GroupCredentialsIssuer buildIssuer(final boolean cacheEnabled) {
+    return new GroupCredentialsIssuer(new ServerZkAuthOperations(SERVER_SECRET_PARAMS),
+        GENERIC_SERVER_SECRET_PARAMS,
+        executor,
+        cacheEnabled,
+        CACHE_TIME_TO_LIVE,
+        new Ticker() {
+          @Override
+          public long read() {
+            return currentTimeNanos.get();
+          }
+        });
+  }
+}
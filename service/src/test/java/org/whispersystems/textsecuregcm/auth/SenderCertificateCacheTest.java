@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyByte;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.signal.libsignal.protocol.IdentityKey;
+import org.signal.libsignal.protocol.ecc.ECKeyPair;
+import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.util.TestClock;
+import org.whispersystems.textsecuregcm.util.TestRandomUtil;
+
+class SenderCertificateCacheTest {
+
+  private CertificateGenerator certificateGenerator;
+  private TestClock clock;
+  private Account account;
+
+  private SenderCertificateCache senderCertificateCache;
+
+  private static final Duration REISSUE_INTERVAL = Duration.ofHours(1);
+  private static final byte DEVICE_ID = 2;
+
+  @BeforeEach
+  void setUp() {
+    certificateGenerator = mock(CertificateGenerator.class);
+    when(certificateGenerator.createFor(any(), anyByte(), anyBoolean()))
+        .thenAnswer(_ -> TestRandomUtil.nextBytes(32));
+
+    clock = TestClock.pinned(Instant.ofEpochMilli(REISSUE_INTERVAL.toMillis() * 1000));
+
+    account = mock(Account.class);
+    when(account.getUuid()).thenReturn(UUID.randomUUID());
+    when(account.getNumber()).thenReturn("+18005551234");
+    when(account.getIdentityKey(IdentityType.ACI)).thenReturn(new IdentityKey(ECKeyPair.generate().getPublicKey()));
+
+    senderCertificateCache = new SenderCertificateCache(certificateGenerator, REISSUE_INTERVAL, 1_000, clock);
+  }
+
+  @Test
+  void getCertificate() {
+    final byte[] certificate = senderCertificateCache.getCertificate(account, DEVICE_ID, true);
+
+    clock.pin(clock.instant().plus(REISSUE_INTERVAL.dividedBy(2)));
+    assertArrayEquals(certificate, senderCertificateCache.getCertificate(account, DEVICE_ID, true));
+
+    verify(certificateGenerator).createFor(account, DEVICE_ID, true);
+  }
+
+  @Test
+  void getCertificateDistinctInputs() {
+    final byte[] certificate = senderCertificateCache.getCertificate(account, DEVICE_ID, true);
+
+    assertFalse(Arrays.equals(certificate, senderCertificateCache.getCertificate(account, DEVICE_ID, false)));
+    assertFalse(Arrays.equals(certificate,
+        senderCertificateCache.getCertificate(account, (byte) (DEVICE_ID + 1), true)));
+
+    verify(certificateGenerator, times(3)).createFor(any(), anyByte(), anyBoolean());
+  }
+
+  @Test
+  void getCertificateIdentityKeyChanged() {
+    final byte[] certificate = senderCertificateCache.getCertificate(account, DEVICE_ID, true);
+
+    when(account.getIdentityKey(IdentityType.ACI)).thenReturn(new IdentityKey(ECKeyPair.generate().getPublicKey()));
+
+    assertFalse(Arrays.equals(certificate, senderCertificateCache.getCertificate(account, DEVICE_ID, true)));
+    verify(certificateGenerator, times(2)).createFor(account, DEVICE_ID, true);
+  }
+
+  @Test
+  void getCertificateNumberChanged() {
+    final byte[] certificateWithE164 = senderCertificateCache.getCertificate(account, DEVICE_ID, true);
+    final byte[] certificateWithoutE164 = senderCertificateCache.getCertificate(account, DEVICE_ID, false);
+
+    when(account.getNumber()).thenReturn("+18005556789");
+
+    assertFalse(Arrays.equals(certificateWithE164, senderCertificateCache.getCertificate(account, DEVICE_ID, true)));
+
+    // Certificates that don't include a phone number don't need to change when the number does
+    assertArrayEquals(certificateWithoutE164, senderCertificateCache.getCertificate(account, DEVICE_ID, false));
+
+    verify(certificateGenerator, times(2)).createFor(account, DEVICE_ID, true);
+    verify(certificateGenerator, times(1)).createFor(account, DEVICE_ID, false);
+  }
+
+  @Test
+  void getCertificateReissueIntervalElapsed() {
+    final byte[] certificate = senderCertificateCache.getCertificate(account, DEVICE_ID, true);
+
+    clock.pin(clock.instant().plus(REISSUE_INTERVAL));
+
+    assertFalse(Arrays.equals(certificate, senderCertificateCache.getCertificate(account, DEVICE_ID, true)));
+    verify(certificateGenerator, times(2)).createFor(account, DEVICE_ID, true);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.base.Ticker;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.storage.Device;
+
+class VerifiedCredentialsCacheTest {
+
+  private AtomicLong nanoTime;
+  private VerifiedCredentialsCache verifiedCredentialsCache;
+
+  private static final Duration TIME_TO_LIVE = Duration.ofMinutes(1);
+  private static final String PASSWORD = "password";
+
+  @BeforeEach
+  void setUp() {
+    nanoTime = new AtomicLong();
+
+    verifiedCredentialsCache = new VerifiedCredentialsCache(TIME_TO_LIVE, 1_000, new Ticker() {
+      @Override
+      public long read() {
+        return nanoTime.get();
+      }
+    });
+  }
+
+  @Test
+  void verifyCached() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final SaltedTokenHash storedCredentials = spy(SaltedTokenHash.generateFor(PASSWORD));
+
+    assertTrue(verifiedCredentialsCache.verify(accountIdentifier, Device.PRIMARY_ID, storedCredentials, PASSWORD));
+    assertTrue(verifiedCredentialsCache.verify(accountIdentifier, Device.PRIMARY_ID, storedCredentials, PASSWORD));
+    verify(storedCredentials, times(1)).verify(PASSWORD);
+
+    assertFalse(verifiedCredentialsCache.verify(accountIdentifier, Device.PRIMARY_ID, storedCredentials, "incorrect"));
+
+    // A cached verification for one device must not apply to another
+    assertFalse(verifiedCredentialsCache.verify(accountIdentifier, (byte) (Device.PRIMARY_ID + 1),
+        SaltedTokenHash.generateFor("other-password"), PASSWORD));
+  }
+
+  @Test
+  void verifyChangedCredentials() {
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    assertTrue(verifiedCredentialsCache.verify(accountIdentifier, Device.PRIMARY_ID,
+        SaltedTokenHash.generateFor(PASSWORD), PASSWORD));
+
+    assertFalse(verifiedCredentialsCache.verify(accountIdentifier, Device.PRIMARY_ID,
+        SaltedTokenHash.generateFor("new-password"), PASSWORD));
+  }
+
+  @Test
+  void verifyExpired() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final SaltedTokenHash storedCredentials = spy(SaltedTokenHash.generateFor(PASSWORD));
+
+    assertTrue(verifiedCredentialsCache.verify(accountIdentifier, Device.PRIMARY_ID, storedCredentials, PASSWORD));
+
+    nanoTime.addAndGet(TIME_TO_LIVE.toNanos());
+
+    assertTrue(verifiedCredentialsCache.verify(accountIdentifier, Device.PRIMARY_ID, storedCredentials, PASSWORD));
+    verify(storedCredentials, times(2)).verify(PASSWORD);
+  }
+
+  @Test
+  void invalidate() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final SaltedTokenHash storedCredentials = spy(SaltedTokenHash.generateFor(PASSWORD));
+
+    assertTrue(verifiedCredentialsCache.verify(accountIdentifier, Device.PRIMARY_ID, storedCredentials, PASSWORD));
+
+    verifiedCredentialsCache.invalidate(accountIdentifier, Device.PRIMARY_ID);
+
+    assertTrue(verifiedCredentialsCache.verify(accountIdentifier, Device.PRIMARY_ID, storedCredentials, PASSWORD));
+    verify(storedCredentials, times(2)).verify(PASSWORD);
+  }
+}
@@ -325,14 +325,22 @@ class DynamicConfigurationTest {
           rateLimitReset:
             bucketSize: 17
             permitRegenerationDuration: PT0.000004S
+          messages:
+            bucketSize: 60
+            permitRegenerationDuration: PT1S
+            localLeaseSize: 5
         """);
 
-    final RateLimiterConfig resetRateLimiterConfig =
-        DynamicConfigurationManager.parseConfiguration(limitsConfig, DynamicConfiguration.class).orElseThrow()
-            .getLimits().get(RateLimiters.For.RATE_LIMIT_RESET.id());
+    final DynamicConfiguration config =
+        DynamicConfigurationManager.parseConfiguration(limitsConfig, DynamicConfiguration.class).orElseThrow();
+
+    final RateLimiterConfig resetRateLimiterConfig = config.getLimits().get(RateLimiters.For.RATE_LIMIT_RESET.id());
 
     assertThat(resetRateLimiterConfig.bucketSize()).isEqualTo(17);
     assertThat(resetRateLimiterConfig.permitRegenerationDuration()).isEqualTo(Duration.ofNanos(4_000));
+    assertThat(resetRateLimiterConfig.localLeaseSize()).isZero();
+
+    assertThat(config.getLimits().get(RateLimiters.For.MESSAGES.id()).localLeaseSize()).isEqualTo(5);
   }
 
   @Test
@@ -373,4 +381,28 @@ class DynamicConfigurationTest {
     }
   }
 
+  @Test
+  void testParsePreKeys() throws JsonProcessingException {
+    {
+      final DynamicConfiguration emptyConfig =
+          DynamicConfigurationManager.parseConfiguration(REQUIRED_CONFIG.concat("test: true"), DynamicConfiguration.class)
+              .orElseThrow();
+
+      assertEquals(DynamicPreKeysConfiguration.ECPreKeyStoreMode.LEGACY,
+          emptyConfig.getPreKeysConfiguration().ecPreKeyStoreMode());
+    }
+
+    {
+      final String preKeysYaml = REQUIRED_CONFIG.concat("""
+          preKeys:
+            ecPreKeyStoreMode: MIGRATION
+          """);
+
+      final DynamicConfiguration config =
+          DynamicConfigurationManager.parseConfiguration(preKeysYaml, DynamicConfiguration.class).orElseThrow();
+
+      assertEquals(DynamicPreKeysConfiguration.ECPreKeyStoreMode.MIGRATION,
+          config.getPreKeysConfiguration().ecPreKeyStoreMode());
+    }
+  }
 }
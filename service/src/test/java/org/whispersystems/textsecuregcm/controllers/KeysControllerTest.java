@@ -38,7 +38,9 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -202,10 +204,10 @@ class KeysControllerTest {
     final KeysManager.DevicePreKeys pniKeys =
         new KeysManager.DevicePreKeys(SAMPLE_SIGNED_PNI_KEY, Optional.of(SAMPLE_KEY_PNI), SAMPLE_PQ_KEY_PNI);
 
-    when(KEYS.takeDevicePreKeys(eq(SAMPLE_DEVICE_ID), eq(EXISTS_ACI), any()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(aciKeys)));
-    when(KEYS.takeDevicePreKeys(eq(SAMPLE_DEVICE_ID), eq(EXISTS_PNI_SERVICE_ID), any()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(pniKeys)));
+    when(KEYS.takeDevicePreKeys(eq(List.of(SAMPLE_DEVICE_ID)), eq(EXISTS_ACI), any()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(SAMPLE_DEVICE_ID, aciKeys)));
+    when(KEYS.takeDevicePreKeys(eq(List.of(SAMPLE_DEVICE_ID)), eq(EXISTS_PNI_SERVICE_ID), any()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(SAMPLE_DEVICE_ID, pniKeys)));
 
     when(existsAccount.getUuid()).thenReturn(EXISTS_UUID);
     when(existsAccount.isIdentifiedBy(new AciServiceIdentifier(EXISTS_UUID))).thenReturn(true);
@@ -297,7 +299,7 @@ class KeysControllerTest {
     assertThat(result.getDevice(SAMPLE_DEVICE_ID).getRegistrationId()).isEqualTo(SAMPLE_REGISTRATION_ID);
     assertEquals(SAMPLE_SIGNED_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeDevicePreKeys(eq(SAMPLE_DEVICE_ID), eq(EXISTS_ACI), any());
+    verify(KEYS).takeDevicePreKeys(eq(List.of(SAMPLE_DEVICE_ID)), eq(EXISTS_ACI), any());
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -317,7 +319,7 @@ class KeysControllerTest {
     assertThat(result.getDevice(SAMPLE_DEVICE_ID).getRegistrationId()).isEqualTo(SAMPLE_REGISTRATION_ID);
     assertEquals(SAMPLE_SIGNED_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeDevicePreKeys(eq(SAMPLE_DEVICE_ID), eq(EXISTS_ACI), any());
+    verify(KEYS).takeDevicePreKeys(eq(List.of(SAMPLE_DEVICE_ID)), eq(EXISTS_ACI), any());
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -336,7 +338,7 @@ class KeysControllerTest {
     assertThat(result.getDevice(SAMPLE_DEVICE_ID).getRegistrationId()).isEqualTo(SAMPLE_PNI_REGISTRATION_ID);
     assertEquals(SAMPLE_SIGNED_PNI_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeDevicePreKeys(eq(SAMPLE_DEVICE_ID), eq(EXISTS_PNI_SERVICE_ID), any());
+    verify(KEYS).takeDevicePreKeys(eq(List.of(SAMPLE_DEVICE_ID)), eq(EXISTS_PNI_SERVICE_ID), any());
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -356,7 +358,7 @@ class KeysControllerTest {
     assertThat(result.getDevice(SAMPLE_DEVICE_ID).getRegistrationId()).isEqualTo(SAMPLE_PNI_REGISTRATION_ID);
     assertEquals(SAMPLE_SIGNED_PNI_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeDevicePreKeys(eq(SAMPLE_DEVICE_ID), eq(EXISTS_PNI_SERVICE_ID), any());
+    verify(KEYS).takeDevicePreKeys(eq(List.of(SAMPLE_DEVICE_ID)), eq(EXISTS_PNI_SERVICE_ID), any());
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -398,7 +400,7 @@ class KeysControllerTest {
     assertEquals(SAMPLE_PQ_KEY, result.getDevice(SAMPLE_DEVICE_ID).getPqPreKey());
     assertEquals(SAMPLE_SIGNED_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeDevicePreKeys(eq(SAMPLE_DEVICE_ID), eq(EXISTS_ACI), any());
+    verify(KEYS).takeDevicePreKeys(eq(List.of(SAMPLE_DEVICE_ID)), eq(EXISTS_ACI), any());
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -408,11 +410,9 @@ class KeysControllerTest {
         createSampleDevice((byte) 1, 2, 3),
         createSampleDevice((byte) 4, 5, 6));
     // device 1 is missing required prekeys, device 4 is missing an optional EC prekey
-    when(KEYS.takeDevicePreKeys(eq((byte) 4), eq(EXISTS_PNI_SERVICE_ID), any()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(
+    when(KEYS.takeDevicePreKeys(eq(List.of((byte) 1, (byte) 4)), eq(EXISTS_PNI_SERVICE_ID), any()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of((byte) 4,
             new KeysManager.DevicePreKeys(SAMPLE_SIGNED_PNI_KEY, Optional.empty(), SAMPLE_PQ_KEY_PNI))));
-    when(KEYS.takeDevicePreKeys(eq((byte) 1), eq(EXISTS_PNI_SERVICE_ID), any()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
     when(existsAccount.getDevice((byte) 1)).thenReturn(Optional.of(devices.get(0)));
     when(existsAccount.getDevice((byte) 4)).thenReturn(Optional.of(devices.get(1)));
@@ -463,7 +463,7 @@ class KeysControllerTest {
       assertEquals(SAMPLE_PQ_KEY, result.getDevice(SAMPLE_DEVICE_ID).getPqPreKey());
       assertEquals(SAMPLE_SIGNED_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-      verify(KEYS).takeDevicePreKeys(eq(SAMPLE_DEVICE_ID), eq(EXISTS_ACI), any());
+      verify(KEYS).takeDevicePreKeys(eq(List.of(SAMPLE_DEVICE_ID)), eq(EXISTS_ACI), any());
     }
 
     verifyNoMoreInteractions(KEYS);
@@ -543,6 +543,7 @@ class KeysControllerTest {
 
     final List<Device> devices = new ArrayList<>();
     final List<KeysManager.DevicePreKeys> devicePreKeys = new ArrayList<>();
+    final Map<Byte, KeysManager.DevicePreKeys> devicePreKeysByDeviceId = new HashMap<>();
     for (int i = 0; i < 4; i++) {
       devices.add(createSampleDevice((byte) i, i + 100, i + 200));
 
@@ -551,12 +552,16 @@ class KeysControllerTest {
       final KEMSignedPreKey kemSignedPreKey = KeysHelper.signedKEMPreKey(i + 500, ECKeyPair.generate());
       devicePreKeys.add(new KeysManager.DevicePreKeys(signedEcPreKey, Optional.of(ecPreKey), kemSignedPreKey));
 
+      devicePreKeysByDeviceId.put((byte) i, devicePreKeys.getLast());
+
       when(existsAccount.getDevice((byte) i)).thenReturn(Optional.of(devices.getLast()));
-      when(KEYS.takeDevicePreKeys(eq((byte) i), eq(serviceIdentifier), any()))
-          .thenReturn(CompletableFuture.completedFuture(Optional.of(devicePreKeys.getLast())));
     }
     when(existsAccount.getDevices()).thenReturn(devices);
 
+    final List<Byte> deviceIds = devices.stream().map(Device::getId).toList();
+    when(KEYS.takeDevicePreKeys(eq(deviceIds), eq(serviceIdentifier), any()))
+        .thenReturn(CompletableFuture.completedFuture(devicePreKeysByDeviceId));
+
     PreKeyResponse results = resources.getJerseyTest()
         .target(String.format("/v2/keys/%s/*", serviceIdentifier.toServiceIdentifierString()))
         .request()
@@ -575,9 +580,10 @@ class KeysControllerTest {
       assertEquals(expectedPreKeys.ecPreKey().orElseThrow(), result.getPreKey());
       assertEquals(expectedPreKeys.ecSignedPreKey(), result.getSignedPreKey());
       assertEquals(expectedPreKeys.kemSignedPreKey(), result.getPqPreKey());
-
-      verify(KEYS).takeDevicePreKeys(eq((byte) i), eq(serviceIdentifier), any());
     }
+
+    // All devices' keys should be taken together in a single call
+    verify(KEYS).takeDevicePreKeys(eq(deviceIds), eq(serviceIdentifier), any());
     verifyNoMoreInteractions(KEYS);
   }
 
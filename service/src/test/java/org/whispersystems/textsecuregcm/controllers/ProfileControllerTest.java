@@ -209,6 +209,7 @@ class ProfileControllerTest {
     when(capabilitiesAccount.getIdentityKey(IdentityType.PNI)).thenReturn(ACCOUNT_PHONE_NUMBER_IDENTITY_KEY);
 
     when(accountsManager.getByServiceIdentifier(any())).thenReturn(Optional.empty());
+    AccountsHelper.setupMockGetByServiceIdentifiers(accountsManager, accountsManager::getByServiceIdentifier);
 
     when(accountsManager.getByE164(AuthHelper.VALID_NUMBER_TWO)).thenReturn(Optional.of(profileAccount));
     when(accountsManager.getByAccountIdentifier(AuthHelper.VALID_UUID_TWO)).thenReturn(Optional.of(profileAccount));
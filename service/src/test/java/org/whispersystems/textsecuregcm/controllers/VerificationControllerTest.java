@@ -12,6 +12,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
@@ -63,6 +64,7 @@ import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfigurati
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicRegistrationConfiguration;
 import org.whispersystems.textsecuregcm.entities.RegistrationServiceSession;
 import org.whispersystems.textsecuregcm.entities.VerificationSessionResponse;
+import org.whispersystems.textsecuregcm.limits.RateLimitCheck;
 import org.whispersystems.textsecuregcm.limits.RateLimiter;
 import org.whispersystems.textsecuregcm.limits.RateLimiters;
 import org.whispersystems.textsecuregcm.mappers.ImpossiblePhoneNumberExceptionMapper;
@@ -135,10 +137,26 @@ class VerificationControllerTest {
 
   @BeforeEach
   void setUp() {
-    when(rateLimiters.getVerificationCaptchaLimiter())
-        .thenReturn(captchaLimiter);
-    when(rateLimiters.getVerificationPushChallengeLimiter())
-        .thenReturn(pushChallengeLimiter);
+    when(rateLimiters.checkAllAsync(anyList())).thenAnswer(invocation -> {
+      final List<RateLimitCheck<RateLimiters.For>> checks = invocation.getArgument(0);
+
+      return CompletableFuture.completedFuture(checks.stream()
+          .map(check -> {
+            final RateLimiter rateLimiter = switch (check.descriptor()) {
+              case VERIFICATION_CAPTCHA -> captchaLimiter;
+              case VERIFICATION_PUSH_CHALLENGE -> pushChallengeLimiter;
+              default -> throw new IllegalArgumentException("Unexpected rate limiter: " + check.descriptor());
+            };
+
+            try {
+              rateLimiter.validate(check.key());
+              return Optional.<Duration>empty();
+            } catch (final RateLimitExceededException e) {
+              return Optional.of(e.getRetryDuration().orElse(Duration.ZERO));
+            }
+          })
+          .toList());
+    });
     when(accountsManager.getByE164(any()))
         .thenReturn(Optional.empty());
     when(dynamicConfiguration.getRegistrationConfiguration())
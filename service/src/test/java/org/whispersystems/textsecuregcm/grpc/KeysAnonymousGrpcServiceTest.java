@@ -57,6 +57,7 @@ import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.storage.KeysManager;
+import org.whispersystems.textsecuregcm.tests.util.AccountsHelper;
 import org.whispersystems.textsecuregcm.tests.util.AuthHelper;
 import org.whispersystems.textsecuregcm.tests.util.DevicesHelper;
 import org.whispersystems.textsecuregcm.tests.util.KeysHelper;
@@ -107,8 +108,8 @@ class KeysAnonymousGrpcServiceTest extends SimpleBaseGrpcTest<KeysAnonymousGrpcS
     final KeysManager.DevicePreKeys devicePreKeys =
         new KeysManager.DevicePreKeys(ecSignedPreKey, Optional.of(ecPreKey), kemSignedPreKey);
 
-    when(keysManager.takeDevicePreKeys(eq(Device.PRIMARY_ID), eq(identifier), any()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(devicePreKeys)));
+    when(keysManager.takeDevicePreKeys(eq(List.of(Device.PRIMARY_ID)), eq(identifier), any()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(Device.PRIMARY_ID, devicePreKeys)));
 
     final GetPreKeysAnonymousResponse response = unauthenticatedServiceStub().getPreKeys(GetPreKeysAnonymousRequest.newBuilder()
         .setUnidentifiedAccessKey(ByteString.copyFrom(unidentifiedAccessKey))
@@ -155,8 +156,8 @@ class KeysAnonymousGrpcServiceTest extends SimpleBaseGrpcTest<KeysAnonymousGrpcS
     final KeysManager.DevicePreKeys devicePreKeys =
         new KeysManager.DevicePreKeys(ecSignedPreKey, Optional.of(ecPreKey), kemSignedPreKey);
 
-    when(keysManager.takeDevicePreKeys(eq(Device.PRIMARY_ID), eq(identifier), any()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(devicePreKeys)));
+    when(keysManager.takeDevicePreKeys(eq(List.of(Device.PRIMARY_ID)), eq(identifier), any()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(Device.PRIMARY_ID, devicePreKeys)));
 
     // Expirations must be on day boundaries or libsignal will refuse to create or verify the token
     final Instant expiration = Instant.now().truncatedTo(ChronoUnit.DAYS);
@@ -340,6 +341,8 @@ class KeysAnonymousGrpcServiceTest extends SimpleBaseGrpcTest<KeysAnonymousGrpcS
     final ReactorKeysAnonymousGrpc.ReactorKeysAnonymousStub reactiveKeysAnonymousStub = ReactorKeysAnonymousGrpc.newReactorStub(SimpleBaseGrpcTest.GRPC_SERVER_EXTENSION_UNAUTHENTICATED.getChannel());
     when(accountsManager.getByServiceIdentifierAsync(any()))
         .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+    AccountsHelper.setupMockGetByServiceIdentifiers(accountsManager,
+        serviceIdentifier -> accountsManager.getByServiceIdentifierAsync(serviceIdentifier).join());
 
     final Account mismatchedAciFingerprintAccount = mock(Account.class);
     final UUID mismatchedAciFingerprintAccountIdentifier = UUID.randomUUID();
@@ -24,6 +24,7 @@ import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +33,7 @@ import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -530,9 +532,13 @@ class KeysGrpcServiceTest extends SimpleBaseGrpcTest<KeysGrpcService, KeysGrpc.K
 
     when(targetAccount.getDevices()).thenReturn(new ArrayList<>(devices.values()));
 
-    devicePreKeysMap.forEach((deviceId, preKeys) -> when(keysManager.takeDevicePreKeys(eq(deviceId),
-        eq(serviceIdentifier), any()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(preKeys))));
+    when(keysManager.takeDevicePreKeys(any(), eq(serviceIdentifier), any())).thenAnswer(invocation -> {
+      final Collection<Byte> requestedDeviceIds = invocation.getArgument(0);
+
+      return CompletableFuture.completedFuture(devicePreKeysMap.entrySet().stream()
+          .filter(entry -> requestedDeviceIds.contains(entry.getKey()))
+          .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+    });
 
     {
       final GetPreKeysResponse response = authenticatedServiceStub().getPreKeys(GetPreKeysRequest.newBuilder()
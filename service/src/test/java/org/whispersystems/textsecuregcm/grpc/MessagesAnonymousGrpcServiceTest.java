@@ -72,6 +72,7 @@ import org.whispersystems.textsecuregcm.spam.SpamChecker;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.tests.util.AccountsHelper;
 import org.whispersystems.textsecuregcm.tests.util.DevicesHelper;
 import org.whispersystems.textsecuregcm.tests.util.MultiRecipientMessageHelper;
 import org.whispersystems.textsecuregcm.tests.util.TestRecipient;
@@ -125,6 +126,8 @@ class MessagesAnonymousGrpcServiceTest extends
     when(accountsManager.getByServiceIdentifier(any())).thenReturn(Optional.empty());
     when(accountsManager.getByServiceIdentifierAsync(any()))
         .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+    AccountsHelper.setupMockGetByServiceIdentifiers(accountsManager,
+        serviceIdentifier -> accountsManager.getByServiceIdentifierAsync(serviceIdentifier).join());
 
     when(rateLimiters.getInboundMessageBytes()).thenReturn(rateLimiter);
     when(rateLimiters.getStoriesLimiter()).thenReturn(rateLimiter);
@@ -6,21 +6,31 @@
 package org.whispersystems.textsecuregcm.limits;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import io.lettuce.core.ScriptOutputType;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -291,4 +301,158 @@ class LeakyBucketRateLimiterTest {
 
     assertThrows(RuntimeException.class, () -> rateLimiter.validate(key));
   }
+
+  @Test
+  void validateLocalLease() {
+    final TestClock clock = TestClock.pinned(Instant.now());
+    final RateLimiterConfig config = new RateLimiterConfig(10, Duration.ofHours(1), false);
+    final RateLimiterConfig leasingConfig = new RateLimiterConfig(10, Duration.ofHours(1), false, 4);
+
+    final ClusterLuaScript countingScript = spy(validateRateLimitScript);
+
+    final LeakyBucketRateLimiter leasingRateLimiter = new LeakyBucketRateLimiter(
+        "test",
+        () -> leasingConfig,
+        countingScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        retryExecutor,
+        clock);
+
+    // A rate limiter that doesn't lease permits; this stands in for another server sharing the same buckets
+    final LeakyBucketRateLimiter sharedRateLimiter = new LeakyBucketRateLimiter(
+        "test",
+        () -> config,
+        validateRateLimitScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        retryExecutor,
+        clock);
+
+    final String key = RandomStringUtils.insecure().nextAlphanumeric(16);
+
+    // The first call withdraws one permit plus a lease of four more; the next four calls are served locally
+    for (int i = 0; i < 5; i++) {
+      assertDoesNotThrow(() -> leasingRateLimiter.validate(key));
+    }
+
+    verify(countingScript, times(1)).execute(any(), any());
+
+    // Leased permits are no longer available to other servers
+    assertTrue(sharedRateLimiter.hasAvailablePermits(key, 5));
+    assertFalse(sharedRateLimiter.hasAvailablePermits(key, 6));
+
+    // When the bucket can't cover a lease, the limiter should fall back to withdrawing just the requested permits in
+    // the same call
+    assertDoesNotThrow(() -> sharedRateLimiter.validate(key, 3));
+    assertDoesNotThrow(() -> leasingRateLimiter.validate(key, 2));
+    verify(countingScript, times(2)).execute(any(), any());
+
+    assertThrows(RateLimitExceededException.class, () -> leasingRateLimiter.validate(key));
+  }
+
+  @Test
+  void validateLocalLeaseLimit() {
+    final ClusterLuaScript leasingScript = mock(ClusterLuaScript.class);
+
+    // Grant a lease of four permits on every call
+    when(leasingScript.execute(any(), any())).thenReturn(-4L);
+
+    final LeakyBucketRateLimiter leasingRateLimiter = new LeakyBucketRateLimiter(
+        "test",
+        () -> new RateLimiterConfig(10, Duration.ofHours(1), false, 4),
+        leasingScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        retryExecutor,
+        TestClock.pinned(Instant.now()));
+
+    for (int i = 0; i < LeakyBucketRateLimiter.MAX_LOCAL_LEASES; i++) {
+      final String key = RandomStringUtils.insecure().nextAlphanumeric(16);
+      assertDoesNotThrow(() -> leasingRateLimiter.validate(key));
+    }
+
+    // Once the limiter holds as many leases as it's allowed, it shouldn't ask for more
+    verify(leasingScript, never()).execute(any(), argThat((List<String> arguments) -> arguments.get(5).equals("0")));
+
+    assertDoesNotThrow(() -> leasingRateLimiter.validate(RandomStringUtils.insecure().nextAlphanumeric(16)));
+    verify(leasingScript, times(1)).execute(any(), argThat((List<String> arguments) -> arguments.get(5).equals("0")));
+  }
+
+  @Test
+  void stop() {
+    final TestClock clock = TestClock.pinned(Instant.now());
+    final RateLimiterConfig config = new RateLimiterConfig(10, Duration.ofHours(1), false);
+    final RateLimiterConfig leasingConfig = new RateLimiterConfig(10, Duration.ofHours(1), false, 4);
+    final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
+    final ScheduledFuture<?> expireLeasesFuture = mock(ScheduledFuture.class);
+
+    doReturn(expireLeasesFuture).when(scheduledExecutorService).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+
+    final LeakyBucketRateLimiter leasingRateLimiter = new LeakyBucketRateLimiter(
+        "test",
+        () -> leasingConfig,
+        validateRateLimitScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        scheduledExecutorService,
+        clock);
+
+    final LeakyBucketRateLimiter sharedRateLimiter = new LeakyBucketRateLimiter(
+        "test",
+        () -> config,
+        validateRateLimitScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        retryExecutor,
+        clock);
+
+    final String key = RandomStringUtils.insecure().nextAlphanumeric(16);
+
+    assertDoesNotThrow(() -> leasingRateLimiter.validate(key));
+    assertFalse(sharedRateLimiter.hasAvailablePermits(key, 6));
+
+    leasingRateLimiter.stop().join();
+
+    verify(expireLeasesFuture).cancel(false);
+
+    // All four unused leased permits should have been returned to the shared bucket, even though the lease hadn't expired
+    assertTrue(sharedRateLimiter.hasAvailablePermits(key, 9));
+    assertFalse(sharedRateLimiter.hasAvailablePermits(key, 10));
+  }
+
+  @Test
+  void expireLocalLeases() {
+    final TestClock clock = TestClock.pinned(Instant.now());
+    final RateLimiterConfig config = new RateLimiterConfig(10, Duration.ofHours(1), false);
+    final RateLimiterConfig leasingConfig = new RateLimiterConfig(10, Duration.ofHours(1), false, 4);
+
+    final LeakyBucketRateLimiter leasingRateLimiter = new LeakyBucketRateLimiter(
+        "test",
+        () -> leasingConfig,
+        validateRateLimitScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        retryExecutor,
+        clock);
+
+    final LeakyBucketRateLimiter sharedRateLimiter = new LeakyBucketRateLimiter(
+        "test",
+        () -> config,
+        validateRateLimitScript,
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        retryExecutor,
+        clock);
+
+    final String key = RandomStringUtils.insecure().nextAlphanumeric(16);
+
+    assertDoesNotThrow(() -> leasingRateLimiter.validate(key));
+    assertDoesNotThrow(() -> leasingRateLimiter.validate(key));
+    assertFalse(sharedRateLimiter.hasAvailablePermits(key, 6));
+
+    // Unexpired leases should be left alone
+    leasingRateLimiter.expireLeases().join();
+    assertFalse(sharedRateLimiter.hasAvailablePermits(key, 6));
+
+    clock.pin(clock.instant().plus(LeakyBucketRateLimiter.LOCAL_LEASE_DURATION));
+    leasingRateLimiter.expireLeases().join();
+
+    // The three unused leased permits should have been returned to the shared bucket
+    assertTrue(sharedRateLimiter.hasAvailablePermits(key, 8));
+    assertFalse(sharedRateLimiter.hasAvailablePermits(key, 9));
+  }
 }
@@ -19,6 +19,8 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.core.Response;
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.glassfish.jersey.test.grizzly.GrizzlyWebTestContainerFactory;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -50,6 +52,14 @@ public class RateLimitedByIpTest {
     public Response loose() {
       return Response.ok().build();
     }
+
+    @GET
+    @Path("/multiple")
+    @RateLimitedByIp(RateLimiters.For.BACKUP_AUTH_CHECK)
+    @RateLimitedByIp(RateLimiters.For.USERNAME_LOOKUP)
+    public Response multiple() {
+      return Response.ok().build();
+    }
   }
 
   private static final RateLimiter RATE_LIMITER = mock(RateLimiter.class);
@@ -77,6 +87,20 @@ public class RateLimitedByIpTest {
     validateFailure("/test/strict", RETRY_AFTER);
   }
 
+  @Test
+  public void testMultipleRateLimits() {
+    final List<RateLimitCheck<RateLimiters.For>> expectedChecks = List.of(
+        new RateLimitCheck<>(RateLimiters.For.BACKUP_AUTH_CHECK, IP),
+        new RateLimitCheck<>(RateLimiters.For.USERNAME_LOOKUP, IP));
+
+    when(RATE_LIMITERS.validateAllAsync(expectedChecks)).thenReturn(CompletableFuture.completedFuture(null));
+    validateSuccess("/test/multiple");
+
+    when(RATE_LIMITERS.validateAllAsync(expectedChecks))
+        .thenReturn(CompletableFuture.failedFuture(new RateLimitExceededException(RETRY_AFTER)));
+    validateFailure("/test/multiple", RETRY_AFTER);
+  }
+
   private static void validateSuccess(final String path) {
     final Response response = RESOURCES.getJerseyTest()
         .target(path)
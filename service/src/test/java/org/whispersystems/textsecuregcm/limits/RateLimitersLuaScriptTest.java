@@ -7,7 +7,10 @@ package org.whispersystems.textsecuregcm.limits;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -21,6 +24,7 @@ import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ScheduledExecutorService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
@@ -75,6 +79,127 @@ public class RateLimitersLuaScriptTest {
     assertThrows(RateLimitExceededException.class, () -> rateLimiter.validate("test", 25));
   }
 
+  @Test
+  public void testValidateAll() {
+    final RateLimiters.For firstDescriptor = RateLimiters.For.REGISTRATION;
+    final RateLimiters.For secondDescriptor = RateLimiters.For.VERIFICATION_PUSH_CHALLENGE;
+
+    when(configuration.getLimits()).thenReturn(Map.of(
+        firstDescriptor.id(), new RateLimiterConfig(2, Duration.ofHours(1), false),
+        secondDescriptor.id(), new RateLimiterConfig(1, Duration.ofHours(1), false)));
+
+    final FaultTolerantRedisClusterClient redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
+    final RateLimiters limiters = new RateLimiters(
+        dynamicConfig,
+        RateLimiters.defaultScript(redisCluster),
+        redisCluster,
+        mock(ScheduledExecutorService.class),
+        Clock.systemUTC());
+
+    final List<RateLimitCheck<RateLimiters.For>> checks = List.of(
+        new RateLimitCheck<>(firstDescriptor, "batch-independent"),
+        new RateLimitCheck<>(secondDescriptor, "batch-independent"));
+
+    assertDoesNotThrow(() -> limiters.validateAllAsync(checks).toCompletableFuture().join());
+
+    final CompletionException completionException =
+        assertThrows(CompletionException.class, () -> limiters.validateAllAsync(checks).toCompletableFuture().join());
+
+    assertInstanceOf(RateLimitExceededException.class, completionException.getCause());
+
+    // Checks are independent, so the first limiter should have spent its second permit even though the batch failed
+    assertFalse(limiters.forDescriptor(firstDescriptor).hasAvailablePermits("batch-independent", 1));
+  }
+
+  @Test
+  public void testValidateAllOrNothing() {
+    final RateLimiters.For firstDescriptor = RateLimiters.For.REGISTRATION;
+    final RateLimiters.For secondDescriptor = RateLimiters.For.VERIFICATION_PUSH_CHALLENGE;
+
+    when(configuration.getLimits()).thenReturn(Map.of(
+        firstDescriptor.id(), new RateLimiterConfig(2, Duration.ofHours(1), false),
+        secondDescriptor.id(), new RateLimiterConfig(1, Duration.ofHours(1), false)));
+
+    final FaultTolerantRedisClusterClient redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
+    final RateLimiters limiters = new RateLimiters(
+        dynamicConfig,
+        RateLimiters.defaultScript(redisCluster),
+        redisCluster,
+        mock(ScheduledExecutorService.class),
+        Clock.systemUTC());
+
+    final List<RateLimitCheck<RateLimiters.For>> checks = List.of(
+        new RateLimitCheck<>(firstDescriptor, "batch-all-or-nothing"),
+        new RateLimitCheck<>(secondDescriptor, "batch-all-or-nothing"));
+
+    assertDoesNotThrow(() -> limiters.validateAllOrNothingAsync(checks).toCompletableFuture().join());
+
+    final CompletionException completionException = assertThrows(CompletionException.class,
+        () -> limiters.validateAllOrNothingAsync(checks).toCompletableFuture().join());
+
+    assertInstanceOf(RateLimitExceededException.class, completionException.getCause());
+
+    // The permit withdrawn by the first limiter should have been returned when the second limiter failed
+    assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+      while (!limiters.forDescriptor(firstDescriptor).hasAvailablePermits("batch-all-or-nothing", 1)) {
+        Thread.sleep(10);
+      }
+    });
+  }
+
+  @Test
+  public void testCheckAllSameSlot() {
+    final RateLimiters.For descriptor = RateLimiters.For.REGISTRATION;
+
+    when(configuration.getLimits()).thenReturn(Map.of(descriptor.id(), new RateLimiterConfig(1, Duration.ofHours(1), false)));
+
+    final FaultTolerantRedisClusterClient redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
+    final RateLimiters limiters = new RateLimiters(
+        dynamicConfig,
+        RateLimiters.defaultScript(redisCluster),
+        redisCluster,
+        mock(ScheduledExecutorService.class),
+        Clock.systemUTC());
+
+    // Both checks hit the same bucket (and so the same slot), and are evaluated in order by a single script call
+    final List<RateLimitCheck<RateLimiters.For>> checks = List.of(
+        new RateLimitCheck<>(descriptor, "batch-same-slot"),
+        new RateLimitCheck<>(descriptor, "batch-same-slot"));
+
+    final List<Optional<Duration>> retryAfterDurations = limiters.checkAllAsync(checks).toCompletableFuture().join();
+
+    assertTrue(retryAfterDurations.getFirst().isEmpty());
+    assertTrue(retryAfterDurations.getLast().isPresent());
+    assertFalse(limiters.forDescriptor(descriptor).hasAvailablePermits("batch-same-slot", 1));
+  }
+
+  @Test
+  public void testValidateAllOrNothingSameSlot() {
+    final RateLimiters.For descriptor = RateLimiters.For.REGISTRATION;
+
+    when(configuration.getLimits()).thenReturn(Map.of(descriptor.id(), new RateLimiterConfig(1, Duration.ofHours(1), false)));
+
+    final FaultTolerantRedisClusterClient redisCluster = REDIS_CLUSTER_EXTENSION.getRedisCluster();
+    final RateLimiters limiters = new RateLimiters(
+        dynamicConfig,
+        RateLimiters.defaultScript(redisCluster),
+        redisCluster,
+        mock(ScheduledExecutorService.class),
+        Clock.systemUTC());
+
+    final List<RateLimitCheck<RateLimiters.For>> checks = List.of(
+        new RateLimitCheck<>(descriptor, "batch-same-slot-all-or-nothing"),
+        new RateLimitCheck<>(descriptor, "batch-same-slot-all-or-nothing"));
+
+    final CompletionException completionException = assertThrows(CompletionException.class,
+        () -> limiters.validateAllOrNothingAsync(checks).toCompletableFuture().join());
+
+    assertInstanceOf(RateLimitExceededException.class, completionException.getCause());
+
+    // Checks in the same slot are evaluated atomically, so the first check's permit should never have been withdrawn
+    assertTrue(limiters.forDescriptor(descriptor).hasAvailablePermits("batch-same-slot-all-or-nothing", 1));
+  }
+
   @Test
   public void testTtl() throws Exception {
     final RateLimiters.For descriptor = RateLimiters.For.REGISTRATION;
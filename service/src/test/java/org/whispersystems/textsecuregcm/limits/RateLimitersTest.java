@@ -6,16 +6,25 @@
 package org.whispersystems.textsecuregcm.limits;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ScheduledExecutorService;
 import org.junit.jupiter.api.Test;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.controllers.RateLimitExceededException;
 import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
@@ -60,6 +69,41 @@ public class RateLimitersTest {
         clock) {};
   }
 
+  @Test
+  void testValidateAllOrNothingFailedOpen() {
+    final RateLimiters.For failOpenDescriptor = RateLimiters.For.REGISTRATION;
+    final RateLimiters.For exceededDescriptor = RateLimiters.For.VERIFICATION_PUSH_CHALLENGE;
+
+    when(configuration.getLimits()).thenReturn(Map.of(
+        failOpenDescriptor.id(), new RateLimiterConfig(2, Duration.ofHours(1), true),
+        exceededDescriptor.id(), new RateLimiterConfig(1, Duration.ofHours(1), false)));
+
+    // The fail-open limiter can't reach Redis; the other limiter's bucket is empty
+    when(validateScript.executeAsync(any(), any())).thenAnswer(invocation -> {
+      final List<String> keys = invocation.getArgument(0);
+
+      return keys.getFirst().contains(failOpenDescriptor.id())
+          ? CompletableFuture.failedFuture(new RuntimeException("OH NO"))
+          : CompletableFuture.completedFuture(1L);
+    });
+
+    final RateLimiters rateLimiters =
+        new RateLimiters(dynamicConfig, validateScript, redisCluster, mock(ScheduledExecutorService.class), clock);
+
+    final CompletionException completionException = assertThrows(CompletionException.class,
+        () -> rateLimiters.validateAllOrNothingAsync(List.of(
+                new RateLimitCheck<>(failOpenDescriptor, "key"),
+                new RateLimitCheck<>(exceededDescriptor, "key")))
+            .toCompletableFuture()
+            .join());
+
+    assertInstanceOf(RateLimitExceededException.class, completionException.getCause());
+
+    // The fail-open check never withdrew a permit, so it must not return one (a negative amount) to its bucket
+    verify(validateScript, never())
+        .executeAsync(any(), argThat((List<String> arguments) -> Long.parseLong(arguments.get(3)) < 0));
+  }
+
   @Test
   void testUnchangingConfiguration() {
     final RateLimiters rateLimiters = new RateLimiters(dynamicConfig, validateScript, redisCluster, mock(ScheduledExecutorService.class), clock);
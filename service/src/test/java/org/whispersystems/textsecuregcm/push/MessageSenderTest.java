@@ -15,6 +15,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -35,6 +36,7 @@ import org.junit.jupiter.api.function.Executable;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.junitpioneer.jupiter.cartesian.CartesianTest;
 import org.signal.libsignal.protocol.InvalidMessageException;
 import org.signal.libsignal.protocol.InvalidVersionException;
@@ -141,6 +143,66 @@ class MessageSenderTest {
         false);
   }
 
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void sendServerMessages(final boolean clientPresent) throws Exception {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final ServiceIdentifier serviceIdentifier = new AciServiceIdentifier(accountIdentifier);
+    final byte deviceId = Device.PRIMARY_ID;
+
+    final Account account = mock(Account.class);
+    final Device device = mock(Device.class);
+
+    when(account.getIdentifier(IdentityType.ACI)).thenReturn(accountIdentifier);
+    when(account.isIdentifiedBy(serviceIdentifier)).thenReturn(true);
+    when(account.getDevices()).thenReturn(List.of(device));
+    when(device.getId()).thenReturn(deviceId);
+    when(device.getRegistrationId(IdentityType.ACI)).thenReturn(17);
+
+    final List<MessageProtos.Envelope> messages = List.of(
+        MessageProtos.Envelope.newBuilder().setClientTimestamp(1).build(),
+        MessageProtos.Envelope.newBuilder().setClientTimestamp(2).build());
+
+    when(messagesManager.insertBatch(any(), any())).thenReturn(Map.of(deviceId, clientPresent));
+
+    messageSender.sendServerMessages(account, serviceIdentifier, messages);
+
+    verify(messagesManager).insertBatch(accountIdentifier, Map.of(deviceId, messages));
+
+    if (clientPresent) {
+      verifyNoInteractions(pushNotificationManager);
+    } else {
+      // Only one notification for the whole batch
+      verify(pushNotificationManager).sendNewMessageNotification(account, deviceId, false);
+    }
+
+    verify(messageDeliveryListener, times(messages.size())).handleMessageDelivered(account,
+        deviceId,
+        false,
+        false,
+        false,
+        true,
+        false,
+        false);
+  }
+
+  @Test
+  void sendServerMessagesWrongDestinationIdentifier() {
+    final Account account = mock(Account.class);
+    final Device device = mock(Device.class);
+
+    when(account.isIdentifiedBy(any())).thenReturn(false);
+    when(account.getDevices()).thenReturn(List.of(device));
+    when(device.getId()).thenReturn(Device.PRIMARY_ID);
+
+    assertThrows(IllegalArgumentException.class, () -> messageSender.sendServerMessages(account,
+        new AciServiceIdentifier(UUID.randomUUID()),
+        List.of(MessageProtos.Envelope.newBuilder().setClientTimestamp(1).build())));
+
+    verifyNoInteractions(messagesManager);
+    verifyNoInteractions(pushNotificationManager);
+  }
+
   @Test
   void sendMessageMismatchedDevices() {
     final UUID accountIdentifier = UUID.randomUUID();
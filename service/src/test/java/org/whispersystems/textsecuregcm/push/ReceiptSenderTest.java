@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.push;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.whispersystems.textsecuregcm.entities.MessageProtos;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
+import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.AccountsManager;
+
+class ReceiptSenderTest {
+
+  private AccountsManager accountsManager;
+  private MessageSender messageSender;
+  private ExecutorService executor;
+
+  private Account destinationAccount;
+
+  private static final AciServiceIdentifier SOURCE_IDENTIFIER = new AciServiceIdentifier(UUID.randomUUID());
+  private static final AciServiceIdentifier DESTINATION_IDENTIFIER = new AciServiceIdentifier(UUID.randomUUID());
+  private static final byte SOURCE_DEVICE_ID = 3;
+
+  @BeforeEach
+  void setUp() {
+    accountsManager = mock(AccountsManager.class);
+    messageSender = mock(MessageSender.class);
+    executor = Executors.newSingleThreadExecutor();
+
+    destinationAccount = mock(Account.class);
+    when(accountsManager.getByAccountIdentifier(DESTINATION_IDENTIFIER.uuid()))
+        .thenReturn(Optional.of(destinationAccount));
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void sendReceiptCoalesced() throws Exception {
+    final ReceiptSender receiptSender =
+        new ReceiptSender(accountsManager, messageSender, executor, Duration.ofMillis(50));
+
+    receiptSender.sendReceipt(SOURCE_IDENTIFIER, SOURCE_DEVICE_ID, DESTINATION_IDENTIFIER, 1);
+    receiptSender.sendReceipt(SOURCE_IDENTIFIER, SOURCE_DEVICE_ID, DESTINATION_IDENTIFIER, 2);
+    receiptSender.sendReceipt(SOURCE_IDENTIFIER, SOURCE_DEVICE_ID, DESTINATION_IDENTIFIER, 3);
+
+    @SuppressWarnings("unchecked") final ArgumentCaptor<List<MessageProtos.Envelope>> receiptsCaptor =
+        ArgumentCaptor.forClass(List.class);
+
+    verify(messageSender, timeout(1_000))
+        .sendServerMessages(eq(destinationAccount), eq(DESTINATION_IDENTIFIER), receiptsCaptor.capture());
+
+    verify(accountsManager).getByAccountIdentifier(DESTINATION_IDENTIFIER.uuid());
+
+    assertEquals(List.of(1L, 2L, 3L), receiptsCaptor.getValue().stream()
+        .map(MessageProtos.Envelope::getClientTimestamp)
+        .toList());
+
+    receiptsCaptor.getValue().forEach(receipt -> {
+      assertEquals(MessageProtos.Envelope.Type.SERVER_DELIVERY_RECEIPT, receipt.getType());
+      assertEquals(SOURCE_IDENTIFIER.toServiceIdentifierString(), receipt.getSourceServiceId());
+      assertEquals(SOURCE_DEVICE_ID, receipt.getSourceDevice());
+      assertEquals(DESTINATION_IDENTIFIER.toServiceIdentifierString(), receipt.getDestinationServiceId());
+    });
+  }
+
+  @Test
+  void sendReceiptBatchFull() throws Exception {
+    // A coalescing window long enough that only a full batch can trigger a send within the test's timeout
+    final ReceiptSender receiptSender =
+        new ReceiptSender(accountsManager, messageSender, executor, Duration.ofMinutes(1));
+
+    LongStream.range(0, ReceiptSender.MAX_BATCH_SIZE)
+        .forEach(messageId -> receiptSender.sendReceipt(SOURCE_IDENTIFIER, SOURCE_DEVICE_ID, DESTINATION_IDENTIFIER,
+            messageId));
+
+    @SuppressWarnings("unchecked") final ArgumentCaptor<List<MessageProtos.Envelope>> receiptsCaptor =
+        ArgumentCaptor.forClass(List.class);
+
+    verify(messageSender, timeout(1_000))
+        .sendServerMessages(eq(destinationAccount), eq(DESTINATION_IDENTIFIER), receiptsCaptor.capture());
+
+    assertEquals(ReceiptSender.MAX_BATCH_SIZE, receiptsCaptor.getValue().size());
+  }
+
+  @Test
+  void stop() throws Exception {
+    // A coalescing window long enough that only stopping the sender can trigger a send within the test
+    final ReceiptSender receiptSender =
+        new ReceiptSender(accountsManager, messageSender, executor, Duration.ofMinutes(1));
+
+    receiptSender.sendReceipt(SOURCE_IDENTIFIER, SOURCE_DEVICE_ID, DESTINATION_IDENTIFIER, 1);
+    receiptSender.stop();
+
+    @SuppressWarnings("unchecked") final ArgumentCaptor<List<MessageProtos.Envelope>> receiptsCaptor =
+        ArgumentCaptor.forClass(List.class);
+
+    verify(messageSender)
+        .sendServerMessages(eq(destinationAccount), eq(DESTINATION_IDENTIFIER), receiptsCaptor.capture());
+
+    assertEquals(List.of(1L), receiptsCaptor.getValue().stream()
+        .map(MessageProtos.Envelope::getClientTimestamp)
+        .toList());
+
+    // Receipts requested after stopping should be sent right away
+    receiptSender.sendReceipt(SOURCE_IDENTIFIER, SOURCE_DEVICE_ID, DESTINATION_IDENTIFIER, 2);
+    verify(messageSender, times(2)).sendServerMessages(eq(destinationAccount), eq(DESTINATION_IDENTIFIER), anyList());
+  }
+
+  @Test
+  void sendReceiptToSelf() {
+    final ReceiptSender receiptSender =
+        new ReceiptSender(accountsManager, messageSender, executor, Duration.ZERO);
+
+    receiptSender.sendReceipt(DESTINATION_IDENTIFIER, SOURCE_DEVICE_ID, DESTINATION_IDENTIFIER, 1);
+
+    verifyNoInteractions(accountsManager);
+    verifyNoInteractions(messageSender);
+  }
+
+  @Test
+  void sendReceiptNoDestinationAccount() throws Exception {
+    when(accountsManager.getByAccountIdentifier(any())).thenReturn(Optional.empty());
+
+    final ReceiptSender receiptSender =
+        new ReceiptSender(accountsManager, messageSender, executor, Duration.ZERO);
+
+    receiptSender.sendReceipt(SOURCE_IDENTIFIER, SOURCE_DEVICE_ID, DESTINATION_IDENTIFIER, 1);
+
+    verify(accountsManager, timeout(1_000)).getByAccountIdentifier(DESTINATION_IDENTIFIER.uuid());
+    verify(messageSender, after(100).never()).sendServerMessages(any(), any(), anyList());
+  }
+}
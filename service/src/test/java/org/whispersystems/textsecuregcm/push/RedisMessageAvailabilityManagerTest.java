@@ -8,6 +8,7 @@ package org.whispersystems.textsecuregcm.push;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -18,8 +19,11 @@ import io.lettuce.core.cluster.event.ClusterTopologyChangedEvent;
 import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
 import io.lettuce.core.cluster.pubsub.api.async.RedisClusterPubSubAsyncCommands;
 import io.lettuce.core.cluster.pubsub.api.sync.RedisClusterPubSubCommands;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -33,6 +37,7 @@ import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InOrder;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
 import org.whispersystems.textsecuregcm.storage.Device;
@@ -274,4 +279,76 @@ class RedisMessageAvailabilityManagerTest {
     verify(pubSubAsyncCommands)
         .sunsubscribe(RedisMessageAvailabilityManager.getClientEventChannel(noListenerAccountIdentifier, noListenerDeviceId));
   }
+
+  @Test
+  void batchSubscriptionOperations() {
+    @SuppressWarnings("unchecked") final RedisClusterPubSubAsyncCommands<byte[], byte[]> pubSubAsyncCommands =
+        mock(RedisClusterPubSubAsyncCommands.class);
+
+    when(pubSubAsyncCommands.ssubscribe(any(byte[][].class))).thenReturn(MockRedisFuture.completedFuture(null));
+    when(pubSubAsyncCommands.sunsubscribe(any(byte[][].class))).thenReturn(MockRedisFuture.completedFuture(null));
+
+    final FaultTolerantRedisClusterClient clusterClient = RedisClusterHelper.builder()
+        .binaryPubSubAsyncCommands(pubSubAsyncCommands)
+        .build();
+
+    // Don't run scheduled batches automatically; we'll process pending operations explicitly so the batch contents are
+    // deterministic
+    final RedisMessageAvailabilityManager eventManager = new RedisMessageAvailabilityManager(
+        clusterClient,
+        Runnable::run,
+        ignored -> {});
+
+    eventManager.start();
+
+    // Find two devices whose event channels share a slot
+    final Map<Integer, UUID> accountIdentifiersBySlot = new HashMap<>();
+    final UUID firstAccountIdentifier;
+    final UUID secondAccountIdentifier;
+
+    while (true) {
+      final UUID candidateIdentifier = UUID.randomUUID();
+      final int slot = SlotHash.getSlot(
+          RedisMessageAvailabilityManager.getClientEventChannel(candidateIdentifier, Device.PRIMARY_ID));
+
+      final UUID existingIdentifier = accountIdentifiersBySlot.putIfAbsent(slot, candidateIdentifier);
+
+      if (existingIdentifier != null) {
+        firstAccountIdentifier = existingIdentifier;
+        secondAccountIdentifier = candidateIdentifier;
+        break;
+      }
+    }
+
+    final byte[] firstEventChannel =
+        RedisMessageAvailabilityManager.getClientEventChannel(firstAccountIdentifier, Device.PRIMARY_ID);
+
+    final byte[] secondEventChannel =
+        RedisMessageAvailabilityManager.getClientEventChannel(secondAccountIdentifier, Device.PRIMARY_ID);
+
+    // Connect, disconnect, and reconnect the first device, and connect the second device, in a single batch
+    final CompletableFuture<Void> operationsFuture = CompletableFuture.allOf(
+        eventManager.handleClientConnected(firstAccountIdentifier, Device.PRIMARY_ID, new MessageAvailabilityAdapter())
+            .toCompletableFuture(),
+        eventManager.handleClientConnected(secondAccountIdentifier, Device.PRIMARY_ID, new MessageAvailabilityAdapter())
+            .toCompletableFuture(),
+        eventManager.handleClientDisconnected(firstAccountIdentifier, Device.PRIMARY_ID)
+            .toCompletableFuture(),
+        eventManager.handleClientConnected(firstAccountIdentifier, Device.PRIMARY_ID, new MessageAvailabilityAdapter())
+            .toCompletableFuture());
+
+    assertFalse(operationsFuture.isDone());
+
+    eventManager.processSubscriptionOperations();
+    operationsFuture.join();
+
+    // Both initial subscriptions share a slot and should be combined, but operations for the first channel must remain
+    // in order
+    final InOrder inOrder = inOrder(pubSubAsyncCommands);
+    inOrder.verify(pubSubAsyncCommands).ssubscribe(firstEventChannel, secondEventChannel);
+    inOrder.verify(pubSubAsyncCommands).sunsubscribe(firstEventChannel);
+    inOrder.verify(pubSubAsyncCommands).ssubscribe(firstEventChannel);
+
+    assertTrue(eventManager.isLocallyPresent(firstAccountIdentifier, Device.PRIMARY_ID));
+  }
 }
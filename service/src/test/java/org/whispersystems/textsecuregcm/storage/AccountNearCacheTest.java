@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.util.TestClock;
+
+class AccountNearCacheTest {
+
+  private TestClock clock;
+  private AccountNearCache accountNearCache;
+
+  private static final Duration TIME_TO_LIVE = Duration.ofSeconds(10);
+
+  // Small enough that two entries fit under the weight limit in `evictLeastRecentlyUsed`, but not three
+  private static final int SERIALIZED_SIZE = 10;
+
+  @BeforeEach
+  void setUp() {
+    clock = TestClock.pinned(Instant.now());
+    accountNearCache = new AccountNearCache(AccountNearCache.DEFAULT_MAX_WEIGHT, TIME_TO_LIVE, clock);
+  }
+
+  @Test
+  void putAndGet() {
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    assertEquals(Optional.empty(), accountNearCache.get(accountIdentifier));
+
+    final Account account = account(accountIdentifier, "+18005550001", 1);
+    accountNearCache.put(account, SERIALIZED_SIZE);
+
+    final Account firstCopy = accountNearCache.get(accountIdentifier).orElseThrow();
+    final Account secondCopy = accountNearCache.get(accountIdentifier).orElseThrow();
+
+    assertEquals(accountIdentifier, firstCopy.getUuid());
+    assertEquals("+18005550001", firstCopy.getNumber());
+    assertEquals(1, firstCopy.getVersion());
+
+    // Every hit gets its own copy, and changes to a copy (or the original) don't leak into the near-cache
+    assertNotSame(account, firstCopy);
+    assertNotSame(firstCopy, secondCopy);
+
+    firstCopy.setNumber("+18005550002", UUID.randomUUID());
+    account.setNumber("+18005550003", UUID.randomUUID());
+    assertEquals(Optional.of("+18005550001"), getNumber(accountIdentifier));
+  }
+
+  @Test
+  void getExpired() {
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    accountNearCache.put(account(accountIdentifier, "+18005550001", 1), SERIALIZED_SIZE);
+
+    clock.pin(clock.instant().plus(TIME_TO_LIVE));
+    assertEquals(Optional.empty(), accountNearCache.get(accountIdentifier));
+    assertEquals(0, accountNearCache.getTotalWeight());
+    assertTrue(accountNearCache.getAccountIdentifiers().isEmpty());
+  }
+
+  @Test
+  void putIfNewer() {
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    accountNearCache.put(account(accountIdentifier, "+18005550002", 2), SERIALIZED_SIZE);
+
+    accountNearCache.putIfNewer(account(accountIdentifier, "+18005550001", 1), SERIALIZED_SIZE);
+    assertEquals(Optional.of("+18005550002"), getNumber(accountIdentifier));
+
+    accountNearCache.putIfNewer(account(accountIdentifier, "+18005550003", 3), SERIALIZED_SIZE);
+    assertEquals(Optional.of("+18005550003"), getNumber(accountIdentifier));
+  }
+
+  @Test
+  void invalidate() {
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    accountNearCache.put(account(accountIdentifier, "+18005550001", 1), SERIALIZED_SIZE);
+
+    // An invalidation at or below the cached version is a no-op
+    accountNearCache.invalidate(accountIdentifier, 1);
+    assertEquals(Optional.of("+18005550001"), getNumber(accountIdentifier));
+
+    accountNearCache.invalidate(accountIdentifier, 2);
+    assertEquals(Optional.empty(), accountNearCache.get(accountIdentifier));
+
+    // A concurrent read of the old copy from the shared cache must not repopulate the near-cache
+    accountNearCache.putIfNewer(account(accountIdentifier, "+18005550001", 1), SERIALIZED_SIZE);
+    assertEquals(Optional.empty(), accountNearCache.get(accountIdentifier));
+
+    accountNearCache.putIfNewer(account(accountIdentifier, "+18005550002", 2), SERIALIZED_SIZE);
+    assertEquals(Optional.of("+18005550002"), getNumber(accountIdentifier));
+  }
+
+  @Test
+  void invalidateTombstoneExpires() {
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    accountNearCache.invalidate(accountIdentifier, 2);
+
+    clock.pin(clock.instant().plus(TIME_TO_LIVE));
+    accountNearCache.putIfNewer(account(accountIdentifier, "+18005550001", 1), SERIALIZED_SIZE);
+    assertEquals(Optional.of("+18005550001"), getNumber(accountIdentifier));
+  }
+
+  @Test
+  void evictLeastRecentlyUsed() {
+    // Enough room for two small entries, but not three
+    accountNearCache = new AccountNearCache(150, TIME_TO_LIVE, clock);
+
+    final UUID firstAccountIdentifier = UUID.randomUUID();
+    final UUID secondAccountIdentifier = UUID.randomUUID();
+    final UUID thirdAccountIdentifier = UUID.randomUUID();
+
+    accountNearCache.put(account(firstAccountIdentifier, "+18005550001", 1), SERIALIZED_SIZE);
+    accountNearCache.put(account(secondAccountIdentifier, "+18005550002", 1), SERIALIZED_SIZE);
+
+    // Touch the first entry so the second becomes the least recently used
+    assertTrue(accountNearCache.get(firstAccountIdentifier).isPresent());
+
+    accountNearCache.put(account(thirdAccountIdentifier, "+18005550003", 1), SERIALIZED_SIZE);
+
+    assertTrue(accountNearCache.get(firstAccountIdentifier).isPresent());
+    assertFalse(accountNearCache.get(secondAccountIdentifier).isPresent());
+    assertTrue(accountNearCache.get(thirdAccountIdentifier).isPresent());
+    assertTrue(accountNearCache.getTotalWeight() <= 150);
+
+    assertEquals(Set.of(firstAccountIdentifier, thirdAccountIdentifier), accountNearCache.getAccountIdentifiers());
+  }
+
+  @Test
+  void evictExpired() {
+    final UUID expiredAccountIdentifier = UUID.randomUUID();
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    accountNearCache.put(account(expiredAccountIdentifier, "+18005550001", 1), SERIALIZED_SIZE);
+
+    clock.pin(clock.instant().plus(TIME_TO_LIVE));
+
+    // Expired entries at the head of the queue are dropped even when there's room for them
+    accountNearCache.put(account(accountIdentifier, "+18005550002", 1), SERIALIZED_SIZE);
+
+    assertEquals(Set.of(accountIdentifier), accountNearCache.getAccountIdentifiers());
+  }
+
+  @Test
+  void disabled() {
+    accountNearCache = new AccountNearCache(0, TIME_TO_LIVE, clock);
+
+    final UUID accountIdentifier = UUID.randomUUID();
+
+    assertFalse(accountNearCache.isEnabled());
+
+    accountNearCache.put(account(accountIdentifier, "+18005550001", 1), SERIALIZED_SIZE);
+    assertEquals(Optional.empty(), accountNearCache.get(accountIdentifier));
+    assertEquals(0, accountNearCache.getTotalWeight());
+  }
+
+  private Optional<String> getNumber(final UUID accountIdentifier) {
+    return accountNearCache.get(accountIdentifier).map(Account::getNumber);
+  }
+
+  private static Account account(final UUID accountIdentifier, final String number, final int version) {
+    final Account account = new Account();
+    account.setUuid(accountIdentifier);
+    account.setNumber(number, UUID.randomUUID());
+    account.setVersion(version);
+
+    return account;
+  }
+}
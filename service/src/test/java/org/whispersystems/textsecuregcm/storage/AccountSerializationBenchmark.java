@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.signal.libsignal.protocol.IdentityKey;
+import org.signal.libsignal.protocol.ecc.ECKeyPair;
+import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
+import org.whispersystems.textsecuregcm.tests.util.AccountsHelper;
+import org.whispersystems.textsecuregcm.tests.util.DevicesHelper;
+import org.whispersystems.textsecuregcm.util.TestRandomUtil;
+
+/// Compares the cost of serializing and deserializing accounts in the JSON and Smile formats used by the Redis account
+/// cache. Run with `main`, which also prints the size of a serialized account in each format.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountSerializationBenchmark {
+
+  @Param({"1", "3", "6"})
+  public int devices;
+
+  private Account account;
+  private byte[] jsonData;
+  private byte[] smileData;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    account = generateAccount(devices);
+    jsonData = AccountsManager.writeRedisAccountJson(account).getBytes(StandardCharsets.UTF_8);
+    smileData = AccountsManager.writeRedisAccountSmile(account);
+  }
+
+  @Benchmark
+  public byte[] serializeJson() throws JsonProcessingException {
+    return AccountsManager.writeRedisAccountJson(account).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public byte[] serializeSmile() throws JsonProcessingException {
+    return AccountsManager.writeRedisAccountSmile(account);
+  }
+
+  @Benchmark
+  public Account deserializeJson() {
+    return AccountsManager.parseAccountData(jsonData, account.getUuid()).orElseThrow();
+  }
+
+  @Benchmark
+  public Account deserializeSmile() {
+    return AccountsManager.parseAccountData(smileData, account.getUuid()).orElseThrow();
+  }
+
+  private static Account generateAccount(final int deviceCount) {
+    final List<Device> devices = new ArrayList<>(deviceCount);
+
+    for (byte deviceId = Device.PRIMARY_ID; deviceId < Device.PRIMARY_ID + deviceCount; deviceId++) {
+      final Device device = DevicesHelper.createDevice(deviceId);
+      device.setCapabilities(EnumSet.allOf(DeviceCapability.class));
+      device.setName(TestRandomUtil.nextBytes(32));
+
+      devices.add(device);
+    }
+
+    final Account account = AccountsHelper.generateTestAccount("+14152222222", UUID.randomUUID(), UUID.randomUUID(),
+        devices, TestRandomUtil.nextBytes(16));
+
+    account.setIdentityKey(new IdentityKey(ECKeyPair.generate().getPublicKey()));
+    account.setPhoneNumberIdentityKey(new IdentityKey(ECKeyPair.generate().getPublicKey()));
+    account.setCurrentProfileVersion("profile-version");
+
+    final SaltedTokenHash registrationLock = SaltedTokenHash.generateFor("registration-lock");
+    account.setRegistrationLock(registrationLock.hash(), registrationLock.salt());
+
+    account.addBadge(Clock.systemUTC(), new AccountBadge("test-badge", Instant.now().plusSeconds(86_400), true));
+
+    return account;
+  }
+
+  public static void main(final String[] args) throws JsonProcessingException, RunnerException {
+    for (final int deviceCount : new int[]{1, 3, 6}) {
+      final Account account = generateAccount(deviceCount);
+
+      System.out.printf("%d device(s): JSON %d bytes, Smile %d bytes%n", deviceCount,
+          AccountsManager.writeRedisAccountJson(account).getBytes(StandardCharsets.UTF_8).length,
+          AccountsManager.writeRedisAccountSmile(account).length);
+    }
+
+    new Runner(new OptionsBuilder()
+        .include(AccountSerializationBenchmark.class.getSimpleName())
+        .build())
+        .run();
+  }
+}
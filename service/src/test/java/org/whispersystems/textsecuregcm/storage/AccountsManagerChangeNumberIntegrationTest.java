@@ -60,6 +60,7 @@ class AccountsManagerChangeNumberIntegrationTest {
       Tables.PNI_ASSIGNMENTS,
       Tables.USERNAMES,
       Tables.EC_KEYS,
+      Tables.PAGED_EC_KEYS,
       Tables.PAGED_PQ_KEYS,
       Tables.REPEATED_USE_EC_SIGNED_PRE_KEYS,
       Tables.REPEATED_USE_KEM_SIGNED_PRE_KEYS);
@@ -89,6 +90,7 @@ class AccountsManagerChangeNumberIntegrationTest {
       final DynamoDbAsyncClient dynamoDbAsyncClient = DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient();
       keysManager = new KeysManager(
           new SingleUseECPreKeyStore(dynamoDbAsyncClient, DynamoDbExtensionSchema.Tables.EC_KEYS.tableName()),
+          new PagedSingleUseECPreKeyStore(dynamoDbAsyncClient, DynamoDbExtensionSchema.Tables.PAGED_EC_KEYS.tableName()),
           new PagedSingleUseKEMPreKeyStore(dynamoDbAsyncClient,
               S3_EXTENSION.getS3Client(),
               DynamoDbExtensionSchema.Tables.PAGED_PQ_KEYS.tableName(),
@@ -96,7 +98,8 @@ class AccountsManagerChangeNumberIntegrationTest {
           new RepeatedUseECSignedPreKeyStore(dynamoDbAsyncClient,
               DynamoDbExtensionSchema.Tables.REPEATED_USE_EC_SIGNED_PRE_KEYS.tableName()),
           new RepeatedUseKEMSignedPreKeyStore(dynamoDbAsyncClient,
-              DynamoDbExtensionSchema.Tables.REPEATED_USE_KEM_SIGNED_PRE_KEYS.tableName()));
+              DynamoDbExtensionSchema.Tables.REPEATED_USE_KEM_SIGNED_PRE_KEYS.tableName()),
+          dynamicConfigurationManager);
 
       final ClientPublicKeys clientPublicKeys = new ClientPublicKeys(DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
           DynamoDbExtensionSchema.Tables.CLIENT_PUBLIC_KEYS.tableName());
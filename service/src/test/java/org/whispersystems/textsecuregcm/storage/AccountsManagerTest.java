@@ -33,7 +33,9 @@ import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import io.lettuce.core.KeyValue;
 import io.lettuce.core.RedisException;
 import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
@@ -45,6 +47,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -59,6 +62,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -78,6 +82,7 @@ import org.signal.libsignal.protocol.IdentityKey;
 import org.signal.libsignal.protocol.ecc.ECKeyPair;
 import org.whispersystems.textsecuregcm.auth.DisconnectionRequestManager;
 import org.whispersystems.textsecuregcm.auth.UnidentifiedAccessUtil;
+import org.whispersystems.textsecuregcm.configuration.AccountsCacheConfiguration;
 import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.controllers.MismatchedDevices;
 import org.whispersystems.textsecuregcm.controllers.MismatchedDevicesException;
@@ -89,6 +94,7 @@ import org.whispersystems.textsecuregcm.entities.TransferArchiveResult;
 import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.identity.PniServiceIdentifier;
+import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClient;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisClusterClient;
 import org.whispersystems.textsecuregcm.securestorage.SecureStorageClient;
@@ -133,6 +139,9 @@ class AccountsManagerTest {
   private RedisAsyncCommands<String, String> asyncCommands;
   private RedisAdvancedClusterCommands<String, String> clusterCommands;
   private RedisAdvancedClusterAsyncCommands<String, String> asyncClusterCommands;
+  private RedisAdvancedClusterCommands<byte[], byte[]> binaryClusterCommands;
+  private Function<AccountsCacheConfiguration, AccountsManager> accountsManagerFactory;
+  private RedisAdvancedClusterAsyncCommands<byte[], byte[]> binaryAsyncClusterCommands;
   private AccountsManager accountsManager;
   private SecureValueRecoveryClient svr2Client;
   private DynamicConfiguration dynamicConfiguration;
@@ -178,6 +187,13 @@ class AccountsManagerTest {
     when(asyncClusterCommands.set(any(), any(), any())).thenReturn(MockRedisFuture.completedFuture("OK"));
     when(asyncClusterCommands.setex(any(), anyLong(), any())).thenReturn(MockRedisFuture.completedFuture("OK"));
 
+    //noinspection unchecked
+    binaryClusterCommands = mock(RedisAdvancedClusterCommands.class);
+
+    //noinspection unchecked
+    binaryAsyncClusterCommands = mock(RedisAdvancedClusterAsyncCommands.class);
+    when(binaryAsyncClusterCommands.get(any())).thenReturn(MockRedisFuture.completedFuture(null));
+
     when(accounts.updateAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
     when(accounts.updateTransactionallyAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
     when(accounts.delete(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
@@ -241,11 +257,13 @@ class AccountsManagerTest {
     final FaultTolerantRedisClusterClient redisCluster = RedisClusterHelper.builder()
         .stringCommands(clusterCommands)
         .stringAsyncCommands(asyncClusterCommands)
+        .binaryCommands(binaryClusterCommands)
+        .binaryAsyncCommands(binaryAsyncClusterCommands)
         .build();
 
     when(disconnectionRequestManager.requestDisconnection(any())).thenReturn(CompletableFuture.completedFuture(null));
 
-    accountsManager = new AccountsManager(
+    accountsManagerFactory = accountsCacheConfiguration -> new AccountsManager(
         accounts,
         phoneNumberIdentifiers,
         redisCluster,
@@ -264,7 +282,11 @@ class AccountsManagerTest {
         mock(ScheduledExecutorService.class),
         CLOCK,
         LINK_DEVICE_SECRET,
-        dynamicConfigurationManager);
+        dynamicConfigurationManager,
+        accountsCacheConfiguration);
+
+    accountsManager = accountsManagerFactory.apply(
+        new AccountsCacheConfiguration(false, AccountsCacheConfiguration.SerializationFormat.JSON, false));
   }
 
   @Test
@@ -305,6 +327,85 @@ class AccountsManagerTest {
     assertFalse(accountsManager.getByServiceIdentifierAsync(new PniServiceIdentifier(aci)).join().isPresent());
   }
 
+  @Test
+  void testGetByServiceIdentifiers() {
+    final UUID cachedAci = UUID.randomUUID();
+    final UUID cachedPni = UUID.randomUUID();
+    final UUID uncachedAci = UUID.randomUUID();
+    final UUID uncachedPni = UUID.randomUUID();
+
+    final Account uncachedAccount = AccountsHelper.generateTestAccount("+14153333333", uncachedAci, uncachedPni,
+        new ArrayList<>(), new byte[UnidentifiedAccessUtil.UNIDENTIFIED_ACCESS_KEY_LENGTH]);
+
+    final Map<String, String> cachedStrings = Map.of("AccountMap::" + cachedPni, cachedAci.toString());
+    final Map<String, String> cachedAccountData = Map.of("Account3::" + cachedAci,
+        "{\"number\": \"+14152222222\", \"pni\": \"" + cachedPni + "\"}");
+
+    when(asyncClusterCommands.mget(any(String[].class))).thenAnswer(invocation -> {
+      final List<KeyValue<String, String>> keyValues = new ArrayList<>();
+
+      for (final Object key : invocation.getArguments()) {
+        keyValues.add(KeyValue.fromNullable((String) key, cachedStrings.get((String) key)));
+      }
+
+      return MockRedisFuture.completedFuture(keyValues);
+    });
+
+    final List<String> requestedAccountDataKeys = new ArrayList<>();
+
+    when(binaryAsyncClusterCommands.mget(any(byte[][].class))).thenAnswer(invocation -> {
+      final List<KeyValue<byte[], byte[]>> keyValues = new ArrayList<>();
+
+      for (final Object key : invocation.getArguments()) {
+        requestedAccountDataKeys.add(new String((byte[]) key, StandardCharsets.UTF_8));
+        final String accountData = cachedAccountData.get(new String((byte[]) key, StandardCharsets.UTF_8));
+
+        keyValues.add(KeyValue.fromNullable((byte[]) key,
+            accountData != null ? accountData.getBytes(StandardCharsets.UTF_8) : null));
+      }
+
+      return MockRedisFuture.completedFuture(keyValues);
+    });
+
+    when(accounts.getByAccountIdentifiers(any())).thenAnswer(invocation ->
+        CompletableFuture.completedFuture(invocation.<Collection<UUID>>getArgument(0).contains(uncachedAci)
+            ? Map.of(uncachedAci, uncachedAccount)
+            : Map.of()));
+
+    when(accounts.getByPhoneNumberIdentifiers(any())).thenAnswer(invocation ->
+        CompletableFuture.completedFuture(invocation.<Collection<UUID>>getArgument(0).contains(uncachedPni)
+            ? Map.of(uncachedPni, uncachedAccount)
+            : Map.of()));
+
+    final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = accountsManager.getByServiceIdentifiers(List.of(
+            new AciServiceIdentifier(cachedAci),
+            new PniServiceIdentifier(cachedPni),
+            new AciServiceIdentifier(uncachedAci),
+            new PniServiceIdentifier(uncachedPni),
+            new AciServiceIdentifier(UUID.randomUUID()),
+            new PniServiceIdentifier(UUID.randomUUID())))
+        .join();
+
+    assertEquals(Set.of(new AciServiceIdentifier(cachedAci), new PniServiceIdentifier(cachedPni),
+            new AciServiceIdentifier(uncachedAci), new PniServiceIdentifier(uncachedPni)),
+        accountsByServiceIdentifier.keySet());
+
+    assertEquals(cachedAci, accountsByServiceIdentifier.get(new AciServiceIdentifier(cachedAci)).getUuid());
+    assertEquals(cachedAci, accountsByServiceIdentifier.get(new PniServiceIdentifier(cachedPni)).getUuid());
+    assertEquals(uncachedAci, accountsByServiceIdentifier.get(new AciServiceIdentifier(uncachedAci)).getUuid());
+    assertEquals(uncachedAci, accountsByServiceIdentifier.get(new PniServiceIdentifier(uncachedPni)).getUuid());
+
+    // Outside a format migration, accounts missing from the cache shouldn't be looked up again in the other format
+    assertTrue(requestedAccountDataKeys.stream().allMatch(key -> key.startsWith("Account3::")));
+
+    // Accounts read from DynamoDB should be written back to the cache
+    verify(asyncClusterCommands, atLeastOnce()).setex(eq("Account3::" + uncachedAci), anyLong(), any());
+    verify(asyncClusterCommands, atLeastOnce()).setex(eq("AccountMap::" + uncachedPni), anyLong(), any());
+
+    verify(accounts, never()).getByAccountIdentifier(any());
+    verify(accounts, never()).getByAccountIdentifierAsync(any());
+  }
+
 
   @Test
   void testGetAccountByUuidInCache() {
@@ -326,6 +427,78 @@ class AccountsManagerTest {
     verifyNoInteractions(accounts);
   }
 
+  @Test
+  void testGetAccountByUuidNotInCacheAlternateFormatNotRead() throws JsonProcessingException {
+    final UUID uuid = UUID.randomUUID();
+    final UUID pni = UUID.randomUUID();
+
+    final Account account = AccountsHelper.generateTestAccount("+14152222222", uuid, pni, new ArrayList<>(),
+        new byte[UnidentifiedAccessUtil.UNIDENTIFIED_ACCESS_KEY_LENGTH]);
+
+    when(binaryClusterCommands.get(any())).thenReturn(AccountsManager.writeRedisAccountSmile(account));
+    when(accounts.getByAccountIdentifier(uuid)).thenReturn(Optional.of(account));
+
+    assertSame(account, accountsManager.getByAccountIdentifier(uuid).orElseThrow());
+
+    // Outside a format migration, a cache miss should cost exactly one Redis read
+    verify(clusterCommands).get(eq("Account3::" + uuid));
+    verifyNoInteractions(binaryClusterCommands);
+  }
+
+  @Test
+  void testGetAccountByUuidInBinaryCache() throws JsonProcessingException {
+    final UUID uuid = UUID.randomUUID();
+    final UUID pni = UUID.randomUUID();
+
+    final Account cachedAccount = AccountsHelper.generateTestAccount("+14152222222", uuid, pni, new ArrayList<>(),
+        new byte[UnidentifiedAccessUtil.UNIDENTIFIED_ACCESS_KEY_LENGTH]);
+
+    when(binaryClusterCommands.get(any())).thenReturn(AccountsManager.writeRedisAccountSmile(cachedAccount));
+
+    // Read the binary form of the account while migrating from JSON to the binary format
+    final AccountsManager accountsManager = accountsManagerFactory.apply(
+        new AccountsCacheConfiguration(false, AccountsCacheConfiguration.SerializationFormat.JSON, true));
+
+    final Optional<Account> account = accountsManager.getByAccountIdentifier(uuid);
+
+    assertTrue(account.isPresent());
+    assertEquals("+14152222222", account.get().getNumber());
+    assertEquals(uuid, account.get().getUuid());
+    assertEquals(pni, account.get().getPhoneNumberIdentifier());
+
+    verify(clusterCommands).get(eq("Account3::" + uuid));
+    verify(binaryClusterCommands).get(eq(("Account4::" + uuid).getBytes(StandardCharsets.UTF_8)));
+
+    verifyNoInteractions(accounts);
+  }
+
+  @Test
+  void testParseAccountData() throws JsonProcessingException {
+    final UUID uuid = UUID.randomUUID();
+    final UUID pni = UUID.randomUUID();
+
+    final Account account = AccountsHelper.generateTestAccount("+14152222222", uuid, pni, new ArrayList<>(),
+        new byte[UnidentifiedAccessUtil.UNIDENTIFIED_ACCESS_KEY_LENGTH]);
+
+    final byte[] jsonData = AccountsManager.writeRedisAccountJson(account).getBytes(StandardCharsets.UTF_8);
+    final byte[] smileData = AccountsManager.writeRedisAccountSmile(account);
+
+    assertTrue(smileData.length < jsonData.length);
+
+    for (final byte[] accountData : List.of(jsonData, smileData)) {
+      final Account parsedAccount = AccountsManager.parseAccountData(accountData, uuid).orElseThrow();
+
+      assertEquals(uuid, parsedAccount.getUuid());
+      assertEquals(pni, parsedAccount.getPhoneNumberIdentifier());
+      assertEquals(account.getNumber(), parsedAccount.getNumber());
+      assertArrayEquals(account.getUnidentifiedAccessKey().orElseThrow(),
+          parsedAccount.getUnidentifiedAccessKey().orElseThrow());
+    }
+
+    assertTrue(AccountsManager.parseAccountData(null, uuid).isEmpty());
+    assertTrue(AccountsManager.parseAccountData(new byte[0], uuid).isEmpty());
+  }
+
   @Test
   void testGetAccountByUuidInCacheAsync() {
     UUID uuid = UUID.randomUUID();
@@ -413,6 +586,7 @@ class AccountsManagerTest {
     verify(clusterCommands, times(1)).get(eq("Account3::" + uuid));
     verify(clusterCommands, times(1)).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(clusterCommands, times(1)).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(clusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(clusterCommands);
 
     verify(accounts, times(1)).getByAccountIdentifier(eq(uuid));
@@ -438,6 +612,7 @@ class AccountsManagerTest {
     verify(asyncClusterCommands).get(eq("Account3::" + uuid));
     verify(asyncClusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(asyncClusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(asyncClusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(asyncClusterCommands);
 
     verify(accounts).getByAccountIdentifierAsync(eq(uuid));
@@ -462,6 +637,7 @@ class AccountsManagerTest {
     verify(clusterCommands).get(eq("AccountMap::" + pni));
     verify(clusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(clusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(clusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(clusterCommands);
 
     verify(accounts).getByPhoneNumberIdentifier(pni);
@@ -488,6 +664,7 @@ class AccountsManagerTest {
     verify(asyncClusterCommands).get(eq("AccountMap::" + pni));
     verify(asyncClusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(asyncClusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(asyncClusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(asyncClusterCommands);
 
     verify(accounts).getByPhoneNumberIdentifierAsync(pni);
@@ -540,6 +717,8 @@ class AccountsManagerTest {
     // we only try setting the ACI if we successfully set the PNI
     verify(clusterCommands, times(step == FailureStep.SET_PNI ? 0 : 1))
         .setex(eq("Account3::" + uuid), anyLong(), anyString());
+    // …and only clear the binary form if we successfully set the JSON form
+    verify(clusterCommands, times(step == FailureStep.GET ? 1 : 0)).del("Account4::" + uuid);
     verifyNoMoreInteractions(clusterCommands);
 
     verify(accounts, times(1)).getByAccountIdentifier(eq(uuid));
@@ -574,6 +753,7 @@ class AccountsManagerTest {
     verify(asyncClusterCommands).get(eq("Account3::" + uuid));
     verify(asyncClusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(asyncClusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(asyncClusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(asyncClusterCommands);
 
     verify(accounts).getByAccountIdentifierAsync(eq(uuid));
@@ -598,6 +778,7 @@ class AccountsManagerTest {
     verify(clusterCommands).get(eq("AccountMap::" + pni));
     verify(clusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(clusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(clusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(clusterCommands);
 
     verify(accounts).getByPhoneNumberIdentifier(pni);
@@ -627,6 +808,7 @@ class AccountsManagerTest {
     verify(asyncClusterCommands).get(eq("AccountMap::" + pni));
     verify(asyncClusterCommands).setex(eq("AccountMap::" + pni), anyLong(), eq(uuid.toString()));
     verify(asyncClusterCommands).setex(eq("Account3::" + uuid), anyLong(), anyString());
+    verify(asyncClusterCommands).del("Account4::" + uuid);
     verifyNoMoreInteractions(asyncClusterCommands);
 
     verify(accounts).getByPhoneNumberIdentifierAsync(pni);
@@ -242,6 +242,40 @@ class AccountsTest {
     assertPhoneNumberIdentifierConstraintExists(account.getPhoneNumberIdentifier(), account.getUuid());
   }
 
+  @Test
+  void testGetByAccountAndPhoneNumberIdentifiers() {
+    // Use enough accounts to span more than one batch request
+    final List<Account> storedAccounts = IntStream.range(0, 105)
+        .mapToObj(_ -> nextRandomAccount())
+        .toList();
+
+    storedAccounts.forEach(this::createAccount);
+
+    final UUID missingIdentifier = UUID.randomUUID();
+
+    final List<UUID> accountIdentifiers = new ArrayList<>(storedAccounts.stream().map(Account::getUuid).toList());
+    accountIdentifiers.add(missingIdentifier);
+
+    final List<UUID> phoneNumberIdentifiers =
+        new ArrayList<>(storedAccounts.stream().map(Account::getPhoneNumberIdentifier).toList());
+    phoneNumberIdentifiers.add(missingIdentifier);
+
+    final Map<UUID, Account> accountsByAci = accounts.getByAccountIdentifiers(accountIdentifiers).join();
+    final Map<UUID, Account> accountsByPni = accounts.getByPhoneNumberIdentifiers(phoneNumberIdentifiers).join();
+
+    assertEquals(storedAccounts.size(), accountsByAci.size());
+    assertEquals(storedAccounts.size(), accountsByPni.size());
+
+    for (final Account account : storedAccounts) {
+      assertEquals(account.getUuid(), accountsByAci.get(account.getUuid()).getUuid());
+      assertEquals(account.getNumber(), accountsByAci.get(account.getUuid()).getNumber());
+      assertEquals(account.getUuid(), accountsByPni.get(account.getPhoneNumberIdentifier()).getUuid());
+    }
+
+    assertTrue(accounts.getByAccountIdentifiers(List.of()).join().isEmpty());
+    assertTrue(accounts.getByPhoneNumberIdentifiers(List.of(missingIdentifier)).join().isEmpty());
+  }
+
   @Test
   void testStoreAciCollisionFails() {
     Device device = generateDevice(DEVICE_ID_1);
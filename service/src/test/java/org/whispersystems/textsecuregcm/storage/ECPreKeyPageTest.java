@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.signal.libsignal.protocol.InvalidKeyException;
+import org.signal.libsignal.protocol.ecc.ECKeyPair;
+import org.whispersystems.textsecuregcm.entities.ECPreKey;
+
+class ECPreKeyPageTest {
+
+  @Test
+  void serializeSinglePreKey() {
+    final ByteBuffer page = ECPreKeyPage.serialize(ECPreKeyPage.FORMAT, List.of(generatePreKey(5)));
+    assertEquals(ECPreKeyPage.HEADER_MAGIC, page.getInt());
+    assertEquals(1, page.getInt());
+    assertEquals(ECPreKeyPage.SERIALIZED_PREKEY_LENGTH, page.remaining());
+  }
+
+  @Test
+  void emptyPreKeys() {
+    assertThrows(IllegalArgumentException.class,
+        () -> ECPreKeyPage.serialize(ECPreKeyPage.FORMAT, Collections.emptyList()));
+  }
+
+  @Test
+  void roundTripMultiple() throws InvalidKeyException {
+    final List<ECPreKey> keys = List.of(generatePreKey(1), generatePreKey(2), generatePreKey(5));
+    final ByteBuffer page = ECPreKeyPage.serialize(ECPreKeyPage.FORMAT, keys);
+
+    assertEquals(ECPreKeyPage.HEADER_SIZE + ECPreKeyPage.SERIALIZED_PREKEY_LENGTH * 3, page.remaining());
+
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(keys.get(i), ECPreKeyPage.deserializeKey(ECPreKeyPage.FORMAT, page, i));
+    }
+
+    // Deserializing keys must not disturb the page buffer
+    assertEquals(ECPreKeyPage.HEADER_SIZE + ECPreKeyPage.SERIALIZED_PREKEY_LENGTH * 3, page.remaining());
+  }
+
+  @Test
+  void indexOutOfBounds() {
+    final ByteBuffer page = ECPreKeyPage.serialize(ECPreKeyPage.FORMAT, List.of(generatePreKey(1)));
+
+    assertThrows(IllegalArgumentException.class, () -> ECPreKeyPage.deserializeKey(ECPreKeyPage.FORMAT, page, 1));
+    assertThrows(IllegalArgumentException.class, () -> ECPreKeyPage.deserializeKey(ECPreKeyPage.FORMAT, page, -1));
+  }
+
+  @Test
+  void wrongFormat() {
+    final ByteBuffer page = ECPreKeyPage.serialize(ECPreKeyPage.FORMAT, List.of(generatePreKey(1)));
+
+    assertThrows(IllegalArgumentException.class, () -> ECPreKeyPage.deserializeKey(2, page, 0));
+    assertThrows(IllegalArgumentException.class, () -> ECPreKeyPage.serialize((byte) 2, List.of(generatePreKey(1))));
+  }
+
+  @Test
+  void badHeader() {
+    final ByteBuffer page = ECPreKeyPage.serialize(ECPreKeyPage.FORMAT, List.of(generatePreKey(1)));
+    page.putInt(0, 0);
+
+    assertThrows(IllegalArgumentException.class, () -> ECPreKeyPage.deserializeKey(ECPreKeyPage.FORMAT, page, 0));
+  }
+
+  private static ECPreKey generatePreKey(final long keyId) {
+    return new ECPreKey(keyId, ECKeyPair.generate().getPublicKey());
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.base.Ticker;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.whispersystems.textsecuregcm.util.TestRandomUtil;
+
+class KEMPreKeyPageCacheTest {
+
+  private AtomicLong currentTimeNanos;
+  private AtomicInteger loadCount;
+
+  private static final Duration EXPIRATION = Duration.ofMinutes(1);
+
+  @BeforeEach
+  void setUp() {
+    currentTimeNanos = new AtomicLong();
+    loadCount = new AtomicInteger();
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void getPage(final boolean offHeap) {
+    final KEMPreKeyPageCache pageCache = buildPageCache(1024, offHeap);
+
+    final UUID pageId = UUID.randomUUID();
+    final byte[] page = TestRandomUtil.nextBytes(128);
+
+    final ByteBuffer firstRead = pageCache.getPage(pageId, () -> load(page)).join();
+    assertEquals(ByteBuffer.wrap(page), firstRead);
+    assertTrue(firstRead.isReadOnly());
+    assertEquals(offHeap, firstRead.isDirect());
+
+    // Callers may move their views around without affecting one another
+    firstRead.position(64);
+
+    final ByteBuffer secondRead = pageCache.getPage(pageId, () -> load(page)).join();
+    assertEquals(ByteBuffer.wrap(page), secondRead);
+    assertEquals(1, loadCount.get());
+  }
+
+  @Test
+  void getPageConcurrentLoads() {
+    final KEMPreKeyPageCache pageCache = buildPageCache(1024, false);
+
+    final UUID pageId = UUID.randomUUID();
+    final byte[] page = TestRandomUtil.nextBytes(128);
+    final CompletableFuture<ByteBuffer> pendingLoad = new CompletableFuture<>();
+
+    final CompletableFuture<ByteBuffer> firstRead = pageCache.getPage(pageId, () -> {
+      loadCount.incrementAndGet();
+      return pendingLoad;
+    });
+
+    final CompletableFuture<ByteBuffer> secondRead = pageCache.getPage(pageId, () -> load(page));
+
+    assertFalse(firstRead.isDone());
+    assertFalse(secondRead.isDone());
+
+    pendingLoad.complete(ByteBuffer.wrap(page));
+
+    assertEquals(ByteBuffer.wrap(page), firstRead.join());
+    assertEquals(ByteBuffer.wrap(page), secondRead.join());
+    assertEquals(1, loadCount.get());
+  }
+
+  @Test
+  void getPageLoadFailed() {
+    final KEMPreKeyPageCache pageCache = buildPageCache(1024, false);
+
+    final UUID pageId = UUID.randomUUID();
+    final byte[] page = TestRandomUtil.nextBytes(128);
+
+    final CompletionException completionException = assertThrows(CompletionException.class,
+        () -> pageCache.getPage(pageId, () -> CompletableFuture.failedFuture(new IOException())).join());
+
+    assertTrue(completionException.getCause() instanceof IOException);
+
+    // Failures shouldn't be cached
+    assertEquals(ByteBuffer.wrap(page), pageCache.getPage(pageId, () -> load(page)).join());
+    assertEquals(1, loadCount.get());
+  }
+
+  @Test
+  void getPageExpired() {
+    final KEMPreKeyPageCache pageCache = buildPageCache(1024, false);
+
+    final UUID pageId = UUID.randomUUID();
+    final byte[] page = TestRandomUtil.nextBytes(128);
+
+    pageCache.getPage(pageId, () -> load(page)).join();
+
+    currentTimeNanos.addAndGet(EXPIRATION.toNanos() / 2);
+    pageCache.getPage(pageId, () -> load(page)).join();
+    assertEquals(1, loadCount.get());
+
+    currentTimeNanos.addAndGet(EXPIRATION.toNanos() + 1);
+    pageCache.getPage(pageId, () -> load(page)).join();
+    assertEquals(2, loadCount.get());
+  }
+
+  @Test
+  void getPageTooLarge() {
+    final KEMPreKeyPageCache pageCache = buildPageCache(64, false);
+
+    final UUID pageId = UUID.randomUUID();
+    final byte[] page = TestRandomUtil.nextBytes(128);
+
+    // Pages larger than the whole cache are still returned, but never retained
+    assertEquals(ByteBuffer.wrap(page), pageCache.getPage(pageId, () -> load(page)).join());
+    assertEquals(ByteBuffer.wrap(page), pageCache.getPage(pageId, () -> load(page)).join());
+    assertEquals(2, loadCount.get());
+  }
+
+  @Test
+  void invalidate() {
+    final KEMPreKeyPageCache pageCache = buildPageCache(1024, false);
+
+    final UUID pageId = UUID.randomUUID();
+    final byte[] page = TestRandomUtil.nextBytes(128);
+
+    pageCache.getPage(pageId, () -> load(page)).join();
+    pageCache.invalidate(pageId);
+    pageCache.getPage(pageId, () -> load(page)).join();
+
+    assertEquals(2, loadCount.get());
+  }
+
+  private KEMPreKeyPageCache buildPageCache(final long maxSizeBytes, final boolean offHeap) {
+    return new KEMPreKeyPageCache(maxSizeBytes, EXPIRATION, offHeap, new Ticker() {
+      @Override
+      public long read() {
+        return currentTimeNanos.get();
+      }
+    });
+  }
+
+  private CompletableFuture<ByteBuffer> load(final byte[] page) {
+    loadCount.incrementAndGet();
+    return CompletableFuture.completedFuture(ByteBuffer.wrap(page));
+  }
+}
@@ -8,9 +8,13 @@ package org.whispersystems.textsecuregcm.storage;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +22,8 @@ import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.signal.libsignal.protocol.ecc.ECKeyPair;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicPreKeysConfiguration;
 import org.whispersystems.textsecuregcm.entities.ECPreKey;
 import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
 import org.whispersystems.textsecuregcm.entities.KEMSignedPreKey;
@@ -30,11 +36,14 @@ class KeysManagerTest {
 
   private KeysManager keysManager;
 
+  private SingleUseECPreKeyStore singleUseECPreKeyStore;
+  private PagedSingleUseECPreKeyStore pagedSingleUseECPreKeyStore;
   private PagedSingleUseKEMPreKeyStore pagedSingleUseKEMPreKeyStore;
+  private DynamicPreKeysConfiguration.ECPreKeyStoreMode ecPreKeyStoreMode;
 
   @RegisterExtension
   static final DynamoDbExtension DYNAMO_DB_EXTENSION = new DynamoDbExtension(
-      Tables.EC_KEYS, Tables.PAGED_PQ_KEYS,
+      Tables.EC_KEYS, Tables.PAGED_EC_KEYS, Tables.PAGED_PQ_KEYS,
       Tables.REPEATED_USE_EC_SIGNED_PRE_KEYS, Tables.REPEATED_USE_KEM_SIGNED_PRE_KEYS);
 
   @RegisterExtension
@@ -49,20 +58,37 @@ class KeysManagerTest {
   @BeforeEach
   void setup() {
     final DynamoDbAsyncClient dynamoDbAsyncClient = DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient();
+    singleUseECPreKeyStore = new SingleUseECPreKeyStore(dynamoDbAsyncClient, Tables.EC_KEYS.tableName());
+    pagedSingleUseECPreKeyStore = new PagedSingleUseECPreKeyStore(dynamoDbAsyncClient, Tables.PAGED_EC_KEYS.tableName());
     pagedSingleUseKEMPreKeyStore = new PagedSingleUseKEMPreKeyStore(dynamoDbAsyncClient,
         S3_EXTENSION.getS3Client(),
         DynamoDbExtensionSchema.Tables.PAGED_PQ_KEYS.tableName(),
         S3_EXTENSION.getBucketName());
 
+    ecPreKeyStoreMode = DynamicPreKeysConfiguration.ECPreKeyStoreMode.LEGACY;
+
+    final DynamicConfiguration dynamicConfiguration = mock(DynamicConfiguration.class);
+    when(dynamicConfiguration.getPreKeysConfiguration())
+        .thenAnswer(_ -> new DynamicPreKeysConfiguration(ecPreKeyStoreMode));
+
+    @SuppressWarnings("unchecked") final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager =
+        mock(DynamicConfigurationManager.class);
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
+
     keysManager = new KeysManager(
-        new SingleUseECPreKeyStore(dynamoDbAsyncClient, Tables.EC_KEYS.tableName()),
+        singleUseECPreKeyStore,
+        pagedSingleUseECPreKeyStore,
         pagedSingleUseKEMPreKeyStore,
         new RepeatedUseECSignedPreKeyStore(dynamoDbAsyncClient, Tables.REPEATED_USE_EC_SIGNED_PRE_KEYS.tableName()),
-        new RepeatedUseKEMSignedPreKeyStore(dynamoDbAsyncClient, Tables.REPEATED_USE_KEM_SIGNED_PRE_KEYS.tableName()));
+        new RepeatedUseKEMSignedPreKeyStore(dynamoDbAsyncClient, Tables.REPEATED_USE_KEM_SIGNED_PRE_KEYS.tableName()),
+        dynamicConfigurationManager);
   }
 
-  @Test
-  void storeEcOneTimePreKeys() {
+  @ParameterizedTest
+  @EnumSource(DynamicPreKeysConfiguration.ECPreKeyStoreMode.class)
+  void storeEcOneTimePreKeys(final DynamicPreKeysConfiguration.ECPreKeyStoreMode ecPreKeyStoreMode) {
+    this.ecPreKeyStoreMode = ecPreKeyStoreMode;
+
     assertEquals(0, keysManager.getEcCount(ACCOUNT_UUID, DEVICE_ID).join(),
         "Initial pre-key count for an account should be zero");
 
@@ -100,8 +126,11 @@ class KeysManagerTest {
     assertEquals(Optional.of(signedPreKey), keysManager.getEcSignedPreKey(ACCOUNT_UUID, DEVICE_ID).join());
   }
 
-  @Test
-  void testTakeAccountAndDeviceId() {
+  @ParameterizedTest
+  @EnumSource(DynamicPreKeysConfiguration.ECPreKeyStoreMode.class)
+  void testTakeAccountAndDeviceId(final DynamicPreKeysConfiguration.ECPreKeyStoreMode ecPreKeyStoreMode) {
+    this.ecPreKeyStoreMode = ecPreKeyStoreMode;
+
     assertEquals(Optional.empty(), keysManager.takeEC(ACCOUNT_UUID, DEVICE_ID).join());
 
     final ECPreKey preKey = generateTestPreKey(1);
@@ -113,6 +142,31 @@ class KeysManagerTest {
     assertEquals(1, keysManager.getEcCount(ACCOUNT_UUID, DEVICE_ID).join());
   }
 
+  @Test
+  void takeECMigration() {
+    final ECPreKey legacyPreKey = generateTestPreKey(1);
+    singleUseECPreKeyStore.store(ACCOUNT_UUID, DEVICE_ID, List.of(legacyPreKey, generateTestPreKey(2))).join();
+
+    ecPreKeyStoreMode = DynamicPreKeysConfiguration.ECPreKeyStoreMode.MIGRATION;
+
+    // Keys uploaded before the migration should still be available
+    assertEquals(2, keysManager.getEcCount(ACCOUNT_UUID, DEVICE_ID).join());
+    assertEquals(Optional.of(legacyPreKey), keysManager.takeEC(ACCOUNT_UUID, DEVICE_ID).join());
+    assertEquals(1, keysManager.getEcCount(ACCOUNT_UUID, DEVICE_ID).join());
+
+    // Uploading new keys should replace keys in both stores
+    final ECPreKey pagedPreKey = generateTestPreKey(3);
+    keysManager.storeEcOneTimePreKeys(ACCOUNT_UUID, DEVICE_ID, List.of(pagedPreKey)).join();
+
+    assertEquals(0, singleUseECPreKeyStore.getCount(ACCOUNT_UUID, DEVICE_ID).join());
+    assertEquals(1, pagedSingleUseECPreKeyStore.getCount(ACCOUNT_UUID, DEVICE_ID).join());
+    assertEquals(1, keysManager.getEcCount(ACCOUNT_UUID, DEVICE_ID).join());
+
+    assertEquals(Optional.of(pagedPreKey), keysManager.takeEC(ACCOUNT_UUID, DEVICE_ID).join());
+    assertEquals(Optional.empty(), keysManager.takeEC(ACCOUNT_UUID, DEVICE_ID).join());
+    assertEquals(0, keysManager.getEcCount(ACCOUNT_UUID, DEVICE_ID).join());
+  }
+
   @Test
   void testTakePQ() {
     assertEquals(Optional.empty(), keysManager.takeEC(ACCOUNT_UUID, DEVICE_ID).join());
@@ -148,8 +202,11 @@ class KeysManagerTest {
     assertEquals(0, keysManager.getPqCount(ACCOUNT_UUID, DEVICE_ID).join());
   }
 
-  @Test
-  void testDeleteSingleUsePreKeysByAccount() {
+  @ParameterizedTest
+  @EnumSource(DynamicPreKeysConfiguration.ECPreKeyStoreMode.class)
+  void testDeleteSingleUsePreKeysByAccount(final DynamicPreKeysConfiguration.ECPreKeyStoreMode ecPreKeyStoreMode) {
+    this.ecPreKeyStoreMode = ecPreKeyStoreMode;
+
     int keyId = 1;
 
     for (byte deviceId : new byte[] {DEVICE_ID, DEVICE_ID + 1}) {
@@ -176,8 +233,11 @@ class KeysManagerTest {
     }
   }
 
-  @Test
-  void testDeleteSingleUsePreKeysByAccountAndDevice() {
+  @ParameterizedTest
+  @EnumSource(DynamicPreKeysConfiguration.ECPreKeyStoreMode.class)
+  void testDeleteSingleUsePreKeysByAccountAndDevice(final DynamicPreKeysConfiguration.ECPreKeyStoreMode ecPreKeyStoreMode) {
+    this.ecPreKeyStoreMode = ecPreKeyStoreMode;
+
     int keyId = 1;
 
     for (byte deviceId : new byte[] {DEVICE_ID, DEVICE_ID + 1}) {
@@ -252,8 +312,8 @@ class KeysManagerTest {
       keysManager.storeEcOneTimePreKeys(ACCOUNT_UUID, DEVICE_ID, List.of(generateTestPreKey(3))).join();
     }
 
-    final Optional<KeysManager.DevicePreKeys> keys =
-        keysManager.takeDevicePreKeys(DEVICE_ID, ACI_SERVICE_IDENTIFIER, null).join();
+    final Optional<KeysManager.DevicePreKeys> keys = Optional.ofNullable(
+        keysManager.takeDevicePreKeys(List.of(DEVICE_ID), ACI_SERVICE_IDENTIFIER, null).join().get(DEVICE_ID));
 
     assertEquals(keys.isPresent(), switch (missingKeyType) {
       // We should successfully get keys if every key is present, or if only EC one-time keys are missing
@@ -266,6 +326,42 @@ class KeysManagerTest {
     assertEquals(hasEcPreKey, missingKeyType == MissingKeyType.NONE);
   }
 
+  @Test
+  void testTakeMultipleDevices() {
+    final byte deviceId2 = DEVICE_ID + 1;
+    final byte deviceId3 = DEVICE_ID + 2;
+
+    // Device 1 has a full set of keys
+    keysManager.storeEcSignedPreKeys(ACCOUNT_UUID, DEVICE_ID, generateTestECSignedPreKey(1)).join();
+    keysManager.storeEcOneTimePreKeys(ACCOUNT_UUID, DEVICE_ID, List.of(generateTestPreKey(2))).join();
+    keysManager.storeKemOneTimePreKeys(ACCOUNT_UUID, DEVICE_ID, List.of(generateTestKEMSignedPreKey(3))).join();
+    keysManager.storePqLastResort(ACCOUNT_UUID, DEVICE_ID, generateTestKEMSignedPreKey(4)).join();
+
+    // Device 2 has run out of one-time keys and should fall back to its last-resort key
+    keysManager.storeEcSignedPreKeys(ACCOUNT_UUID, deviceId2, generateTestECSignedPreKey(5)).join();
+    keysManager.storePqLastResort(ACCOUNT_UUID, deviceId2, generateTestKEMSignedPreKey(6)).join();
+
+    // Device 3 is missing a signed EC pre-key and should be left out
+    keysManager.storePqLastResort(ACCOUNT_UUID, deviceId3, generateTestKEMSignedPreKey(7)).join();
+
+    final Map<Byte, KeysManager.DevicePreKeys> devicePreKeys = keysManager.takeDevicePreKeys(
+        List.of(DEVICE_ID, deviceId2, deviceId3), ACI_SERVICE_IDENTIFIER, null).join();
+
+    assertEquals(Set.of(DEVICE_ID, deviceId2), devicePreKeys.keySet());
+
+    assertEquals(1, devicePreKeys.get(DEVICE_ID).ecSignedPreKey().keyId());
+    assertEquals(2, devicePreKeys.get(DEVICE_ID).ecPreKey().orElseThrow().keyId());
+    assertEquals(3, devicePreKeys.get(DEVICE_ID).kemSignedPreKey().keyId());
+
+    assertEquals(5, devicePreKeys.get(deviceId2).ecSignedPreKey().keyId());
+    assertTrue(devicePreKeys.get(deviceId2).ecPreKey().isEmpty());
+    assertEquals(6, devicePreKeys.get(deviceId2).kemSignedPreKey().keyId());
+
+    // One-time keys should have been consumed, and device 1 should now fall back to its last-resort key
+    assertEquals(4, keysManager.takeDevicePreKeys(List.of(DEVICE_ID), ACI_SERVICE_IDENTIFIER, null).join()
+        .get(DEVICE_ID).kemSignedPreKey().keyId());
+  }
+
   private static ECPreKey generateTestPreKey(final long keyId) {
     return new ECPreKey(keyId, ECKeyPair.generate().getPublicKey());
   }
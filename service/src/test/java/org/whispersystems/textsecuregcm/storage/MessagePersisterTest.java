@@ -6,8 +6,10 @@
 package org.whispersystems.textsecuregcm.storage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyByte;
 import static org.mockito.ArgumentMatchers.anyList;
@@ -24,23 +26,31 @@ import static org.mockito.Mockito.when;
 import static org.whispersystems.textsecuregcm.util.MockUtils.exactly;
 
 import com.google.protobuf.ByteString;
+import io.lettuce.core.ScoredValue;
 import io.lettuce.core.cluster.SlotHash;
 import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.AfterEach;
@@ -55,6 +65,7 @@ import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicMessagePers
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
 import org.whispersystems.textsecuregcm.tests.util.DevicesHelper;
 import reactor.core.publisher.Flux;
@@ -77,6 +88,7 @@ class MessagePersisterTest {
   private AccountsManager accountsManager;
   private MessagesManager messagesManager;
   private Account destinationAccount;
+  private Map<UUID, Account> accountsByUuid;
 
   private static final UUID DESTINATION_ACCOUNT_UUID = UUID.randomUUID();
   private static final String DESTINATION_ACCOUNT_NUMBER = "+18005551234";
@@ -98,7 +110,23 @@ class MessagePersisterTest {
     accountsManager = mock(AccountsManager.class);
     destinationAccount = mock(Account.class);
 
-    when(accountsManager.getByAccountIdentifier(DESTINATION_ACCOUNT_UUID)).thenReturn(Optional.of(destinationAccount));
+    accountsByUuid = new ConcurrentHashMap<>();
+    accountsByUuid.put(DESTINATION_ACCOUNT_UUID, destinationAccount);
+
+    when(accountsManager.getByServiceIdentifiers(any())).thenAnswer(invocation -> {
+      final Collection<ServiceIdentifier> serviceIdentifiers = invocation.getArgument(0);
+      final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = new HashMap<>();
+
+      for (final ServiceIdentifier serviceIdentifier : serviceIdentifiers) {
+        final Account account = accountsByUuid.get(serviceIdentifier.uuid());
+
+        if (account != null) {
+          accountsByServiceIdentifier.put(serviceIdentifier, account);
+        }
+      }
+
+      return CompletableFuture.completedFuture(accountsByServiceIdentifier);
+    });
     when(accountsManager.removeDevice(any(), anyByte()))
         .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
 
@@ -148,23 +176,21 @@ class MessagePersisterTest {
   }
 
   @Test
-  void testPersistNextQueuesNoQueues() {
-    messagePersister.persistNextQueues(Instant.now());
+  void testPersistSlotNoQueues() {
+    messagePersister.persistSlot(0, Instant.now());
 
-    verify(accountsManager, never()).getByAccountIdentifier(any(UUID.class));
+    verify(accountsManager, never()).getByServiceIdentifiers(any());
   }
 
   @Test
-  void testPersistNextQueuesSingleQueue() {
+  void testPersistSlotSingleQueue() {
     final String queueName = new String(
         MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
     final int messageCount = (MessagePersister.MESSAGE_BATCH_LIMIT * 3) + 7;
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
-
-    messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()));
+    messagePersister.persistSlot(SlotHash.getSlot(queueName), now.plus(messagePersister.getPersistDelay()));
 
     final ArgumentCaptor<List<MessageProtos.Envelope>> messagesCaptor = ArgumentCaptor.forClass(List.class);
 
@@ -174,22 +200,20 @@ class MessagePersisterTest {
   }
 
   @Test
-  void testPersistNextQueuesSingleQueueTooSoon() {
+  void testPersistSlotSingleQueueTooSoon() {
     final String queueName = new String(
         MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
     final int messageCount = (MessagePersister.MESSAGE_BATCH_LIMIT * 3) + 7;
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
-
-    messagePersister.persistNextQueues(now);
+    messagePersister.persistSlot(SlotHash.getSlot(queueName), now);
 
     verify(messagesDynamoDb, never()).store(any(), any(), any());
   }
 
   @Test
-  void testPersistNextQueuesMultiplePages() {
+  void testPersistSlotMultiplePages() {
     final int slot = 7;
     final int queueCount = (MessagePersister.QUEUE_BATCH_LIMIT * 3) + 7;
     final int messagesPerQueue = 10;
@@ -203,7 +227,7 @@ class MessagePersisterTest {
 
       final Account account = mock(Account.class);
 
-      when(accountsManager.getByAccountIdentifier(accountUuid)).thenReturn(Optional.of(account));
+      accountsByUuid.put(accountUuid, account);
       when(account.getUuid()).thenReturn(accountUuid);
       when(account.getNumber()).thenReturn(accountNumber);
       when(account.getDevice(anyByte())).thenAnswer(invocation -> Optional.of(DevicesHelper.createDevice(invocation.getArgument(0))));
@@ -211,14 +235,120 @@ class MessagePersisterTest {
       insertMessages(accountUuid, deviceId, messagesPerQueue, now);
     }
 
-    setNextSlotToPersist(slot);
-
-    messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()));
+    messagePersister.persistSlot(slot, now.plus(messagePersister.getPersistDelay()));
 
     final ArgumentCaptor<List<MessageProtos.Envelope>> messagesCaptor = ArgumentCaptor.forClass(List.class);
 
     verify(messagesDynamoDb, atLeastOnce()).store(messagesCaptor.capture(), any(UUID.class), any());
     assertEquals(queueCount * messagesPerQueue, messagesCaptor.getAllValues().stream().mapToInt(List::size).sum());
+
+    // Accounts are resolved with one bulk lookup per batch of queues
+    verify(accountsManager, times((queueCount / MessagePersister.QUEUE_BATCH_LIMIT) + 1)).getByServiceIdentifiers(any());
+    verify(accountsManager, never()).getByAccountIdentifier(any(UUID.class));
+  }
+
+  @Test
+  void testPersistSlotPartialFailure() {
+    final int slot = 7;
+    final int messagesPerQueue = 10;
+    final Instant now = Instant.now();
+
+    final List<String> queueNames = List.of(generateRandomQueueNameForSlot(slot), generateRandomQueueNameForSlot(slot));
+
+    for (final String queueName : queueNames) {
+      final UUID accountUuid = MessagesCache.getAccountUuidFromQueueName(queueName);
+      final Account account = mock(Account.class);
+
+      accountsByUuid.put(accountUuid, account);
+      when(account.getUuid()).thenReturn(accountUuid);
+      when(account.getDevice(anyByte())).thenAnswer(invocation -> Optional.of(DevicesHelper.createDevice(invocation.getArgument(0))));
+
+      insertMessages(accountUuid, MessagesCache.getDeviceIdFromQueueName(queueName), messagesPerQueue, now);
+    }
+
+    final String failedQueueName = queueNames.getFirst();
+    final UUID failedAccountUuid = MessagesCache.getAccountUuidFromQueueName(failedQueueName);
+    final UUID persistedAccountUuid = MessagesCache.getAccountUuidFromQueueName(queueNames.getLast());
+
+    // Returning `0` means nothing was removed from the cache, and the persister will eventually give up on the queue
+    when(messagesManager.persistMessages(eq(failedAccountUuid), any(), anyList())).thenReturn(0);
+
+    assertEquals(queueNames.size(), messagePersister.persistSlot(slot, now.plus(messagePersister.getPersistDelay())));
+
+    final ArgumentCaptor<List<MessageProtos.Envelope>> messagesCaptor = ArgumentCaptor.forClass(List.class);
+
+    verify(messagesDynamoDb, atLeastOnce()).store(messagesCaptor.capture(), eq(persistedAccountUuid), any());
+    assertEquals(messagesPerQueue, messagesCaptor.getAllValues().stream().mapToInt(List::size).sum());
+
+    // The failed queue should be rescheduled without holding up the queue that succeeded
+    assertEquals(List.of(failedQueueName),
+        getQueuesToPersist(slot, Instant.now().plus(messagePersister.getPersistDelay()), 100));
+  }
+
+  @Test
+  void testPersistSlotAccountLookupFailure() {
+    final String queueName = new String(
+        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
+    final Instant now = Instant.now();
+
+    insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, 10, now);
+
+    when(accountsManager.getByServiceIdentifiers(any()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO.")));
+
+    messagePersister.persistSlot(SlotHash.getSlot(queueName), now.plus(messagePersister.getPersistDelay()));
+
+    verify(messagesManager, never()).persistMessages(any(UUID.class), any(), anyList());
+
+    // Queues removed from the slot's index should be put back if their accounts couldn't be resolved
+    assertEquals(List.of(queueName),
+        getQueuesToPersist(SlotHash.getSlot(queueName),
+            Instant.now().plus(messagePersister.getPersistDelay()), 1));
+  }
+
+  @Test
+  void testGetOwnedSlots() {
+    final List<String> instanceIds = List.of("a", "b", "c", "d");
+
+    final Map<String, List<Integer>> ownedSlotsByInstance = instanceIds.stream()
+        .collect(Collectors.toMap(Function.identity(),
+            instanceId -> MessagePersister.getOwnedSlots(instanceId, instanceIds)));
+
+    // Every slot is owned by exactly one instance
+    final List<Integer> allOwnedSlots = ownedSlotsByInstance.values().stream()
+        .flatMap(List::stream)
+        .sorted()
+        .toList();
+
+    assertEquals(IntStream.range(0, SlotHash.SLOT_COUNT).boxed().toList(), allOwnedSlots);
+    ownedSlotsByInstance.values().forEach(ownedSlots -> assertFalse(ownedSlots.isEmpty()));
+
+    // When an instance leaves, only its slots move, and they're spread among the remaining instances
+    final List<String> remainingInstanceIds = List.of("a", "b", "c");
+
+    for (final String instanceId : remainingInstanceIds) {
+      final List<Integer> ownedSlots = MessagePersister.getOwnedSlots(instanceId, remainingInstanceIds);
+
+      assertTrue(ownedSlots.containsAll(ownedSlotsByInstance.get(instanceId)));
+      assertTrue(ownedSlots.stream().allMatch(slot ->
+          ownedSlotsByInstance.get(instanceId).contains(slot) || ownedSlotsByInstance.get("d").contains(slot)));
+    }
+
+    // A lone instance owns everything, even if it hasn't yet appeared in the set of live instances
+    assertEquals(SlotHash.SLOT_COUNT, MessagePersister.getOwnedSlots("a", List.of()).size());
+  }
+
+  @Test
+  void testGetWorkerThreadCount() {
+    assertEquals(4, MessagePersister.getWorkerThreadCount(4, 1));
+    assertEquals(4, MessagePersister.getWorkerThreadCount(4, MessagePersister.MAX_WORKER_THREADS / 4));
+
+    // Shards share the worker thread budget once they'd otherwise exceed it
+    assertEquals(2, MessagePersister.getWorkerThreadCount(4, MessagePersister.MAX_WORKER_THREADS / 2));
+
+    // ...but every shard always gets at least one worker thread
+    assertEquals(1, MessagePersister.getWorkerThreadCount(4, MessagePersister.MAX_WORKER_THREADS * 2));
+    assertEquals(4, MessagePersister.getWorkerThreadCount(4, 0));
   }
 
   @Test
@@ -229,28 +359,23 @@ class MessagePersisterTest {
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
-
     doAnswer((Answer<Void>) invocation -> {
       throw new RuntimeException("OH NO.");
         }).when(messagesDynamoDb).store(any(), eq(DESTINATION_ACCOUNT_UUID), eq(DESTINATION_DEVICE));
 
-    messagePersister.persistNextQueues(now.plus(messagePersister.getPersistDelay()));
+    messagePersister.persistSlot(SlotHash.getSlot(queueName), now.plus(messagePersister.getPersistDelay()));
 
     assertEquals(List.of(queueName),
-        messagesCache.getQueuesToPersist(SlotHash.getSlot(queueName),
+        getQueuesToPersist(SlotHash.getSlot(queueName),
             Instant.now().plus(messagePersister.getPersistDelay()), 1));
   }
 
   @Test
   void testPersistQueueRetryLoop() {
-    final String queueName = new String(
-        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
     final int messageCount = (MessagePersister.MESSAGE_BATCH_LIMIT * 3) + 7;
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
 
     // returning `0` indicates something not working correctly
     when(messagesManager.persistMessages(any(UUID.class), any(), anyList())).thenReturn(0);
@@ -262,13 +387,10 @@ class MessagePersisterTest {
 
   @Test
   void testUnlinkOnFullQueue() {
-    final String queueName = new String(
-        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
     final int messageCount = 1;
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
 
     final Device primary = mock(Device.class);
     when(primary.getId()).thenReturn((byte) 1);
@@ -332,8 +454,6 @@ class MessagePersisterTest {
       }
     }
 
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
-
     final Device primary = mock(Device.class);
     when(primary.getId()).thenReturn((byte) 1);
     when(primary.isPrimary()).thenReturn(true);
@@ -350,14 +470,14 @@ class MessagePersisterTest {
         .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
     assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
-        messagePersister.persistNextQueues(Clock.systemUTC().instant()));
+        messagePersister.persistSlot(SlotHash.getSlot(queueName), Clock.systemUTC().instant()));
 
     verify(messagesManager, times(expectedClearedGuids.size()))
         .delete(eq(DESTINATION_ACCOUNT_UUID), eq(primary), argThat(expectedClearedGuids::contains), anyLong());
     verify(messagesManager, never())
         .delete(any(), any(), argThat(guid -> !expectedClearedGuids.contains(guid)), anyLong());
 
-    final List<String> queuesToPersist = messagesCache.getQueuesToPersist(SlotHash.getSlot(queueName),
+    final List<String> queuesToPersist = getQueuesToPersist(SlotHash.getSlot(queueName),
         Clock.systemUTC().instant(), 1);
     assertEquals(queuesToPersist.size(), 1);
     assertEquals(queuesToPersist.getFirst(), new String(queueName, StandardCharsets.UTF_8));
@@ -365,13 +485,10 @@ class MessagePersisterTest {
 
   @Test
   void testFailedUnlinkOnFullQueueThrowsForRetry() {
-    final String queueName = new String(
-        MessagesCache.getMessageQueueKey(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID), StandardCharsets.UTF_8);
     final int messageCount = 1;
     final Instant now = Instant.now();
 
     insertMessages(DESTINATION_ACCOUNT_UUID, DESTINATION_DEVICE_ID, messageCount, now);
-    setNextSlotToPersist(SlotHash.getSlot(queueName));
 
     final Device primary = mock(Device.class);
     when(primary.getId()).thenReturn((byte) 1);
@@ -404,6 +521,12 @@ class MessagePersisterTest {
     assertThrows(CompletionException.class, () -> messagePersister.persistQueue(destinationAccount, DESTINATION_DEVICE, "test"));
   }
 
+  private List<String> getQueuesToPersist(final int slot, final Instant maxTime, final int limit) {
+    return messagesCache.getQueuesToPersist(slot, maxTime, limit).stream()
+        .map(ScoredValue::getValue)
+        .toList();
+  }
+
   @SuppressWarnings("SameParameterValue")
   private static String generateRandomQueueNameForSlot(final int slot) {
 
@@ -442,9 +565,4 @@ class MessagePersisterTest {
         .setServerGuid(messageGuid.toString())
         .build();
   }
-
-  private void setNextSlotToPersist(final int nextSlot) {
-    REDIS_CLUSTER_EXTENSION.getRedisCluster().useCluster(
-        connection -> connection.sync().set(MessagesCache.NEXT_SLOT_TO_PERSIST_KEY, String.valueOf(nextSlot - 1)));
-  }
 }
@@ -64,6 +64,50 @@ class MessagesCacheInsertScriptTest {
         "Messages with same GUID should be deduplicated");
   }
 
+  @Test
+  void testCacheInsertScriptBatch() throws Exception {
+    final MessagesCacheInsertScript insertScript =
+        new MessagesCacheInsertScript(REDIS_CLUSTER_EXTENSION.getRedisCluster(), mock(ScheduledExecutorService.class));
+
+    final UUID destinationUuid = UUID.randomUUID();
+    final byte deviceId = 1;
+    final byte otherDeviceId = 2;
+
+    final List<MessageProtos.Envelope> envelopes = new ArrayList<>();
+
+    for (int i = 0; i < 3; i++) {
+      envelopes.add(MessageProtos.Envelope.newBuilder()
+          .setServerTimestamp(Instant.now().getEpochSecond())
+          .setServerGuid(UUID.randomUUID().toString())
+          .build());
+    }
+
+    final MessageProtos.Envelope otherDeviceEnvelope = MessageProtos.Envelope.newBuilder()
+        .setServerTimestamp(Instant.now().getEpochSecond())
+        .setServerGuid(UUID.randomUUID().toString())
+        .build();
+
+    final List<MessagesCache.MessageInsertion> insertions = new ArrayList<>();
+    envelopes.forEach(envelope -> insertions.add(new MessagesCache.MessageInsertion(
+        UUID.fromString(envelope.getServerGuid()), destinationUuid, deviceId, envelope)));
+
+    insertions.add(new MessagesCache.MessageInsertion(UUID.fromString(otherDeviceEnvelope.getServerGuid()),
+        destinationUuid, otherDeviceId, otherDeviceEnvelope));
+
+    // Include a duplicate, which should be ignored; as with single insertions, duplicates don't publish an event and
+    // report a truthy result
+    insertions.add(insertions.getFirst());
+
+    assertEquals(List.of(false, false, false, false, true),
+        insertScript.executeAsync(insertions).toCompletableFuture().join());
+
+    assertEquals(envelopes.stream().map(EnvelopeUtil::compress).toList(),
+        getStoredMessages(destinationUuid, deviceId));
+
+    assertEquals(List.of(EnvelopeUtil.compress(otherDeviceEnvelope)),
+        getStoredMessages(destinationUuid, otherDeviceId));
+  }
+
   private List<MessageProtos.Envelope> getStoredMessages(final UUID destinationUuid, final byte deviceId) throws IOException {
     final MessagesCacheGetItemsScript getItemsScript =
         new MessagesCacheGetItemsScript(REDIS_CLUSTER_EXTENSION.getRedisCluster());
@@ -112,5 +156,17 @@ class MessagesCacheInsertScriptTest {
             .build())
         .toCompletableFuture()
         .join());
+
+    final List<MessagesCache.MessageInsertion> insertions = new ArrayList<>();
+
+    for (int i = 0; i < 2; i++) {
+      insertions.add(new MessagesCache.MessageInsertion(UUID.randomUUID(), destinationUuid, deviceId,
+          MessageProtos.Envelope.newBuilder()
+              .setServerTimestamp(Instant.now().getEpochSecond())
+              .setServerGuid(UUID.randomUUID().toString())
+              .build()));
+    }
+
+    assertEquals(List.of(true, true), insertScript.executeAsync(insertions).toCompletableFuture().join());
   }
 }
@@ -8,6 +8,7 @@ package org.whispersystems.textsecuregcm.storage;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
 
+import com.google.protobuf.ByteString;
 import io.lettuce.core.cluster.SlotHash;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -125,4 +126,41 @@ class MessagesCacheRemoveRecipientViewFromMrmDataScriptTest {
     assertEquals(sharedMrmKeys.size(), keysRemoved);
   }
 
+  @ParameterizedTest
+  @ValueSource(ints = {1, 10, 2500})
+  void testUpdateManyViews(final int destinationCount) throws Exception {
+    final Map<ServiceIdentifier, List<Byte>> destinations = IntStream.range(0, destinationCount)
+        .boxed()
+        .collect(Collectors.toMap(_ -> new AciServiceIdentifier(UUID.randomUUID()), _ -> List.of((byte) 1)));
+
+    final MessagesCacheInsertSharedMultiRecipientPayloadAndViewsScript insertMrmScript = new MessagesCacheInsertSharedMultiRecipientPayloadAndViewsScript(
+        REDIS_CLUSTER_EXTENSION.getRedisCluster(), mock(ScheduledExecutorService.class));
+
+    final byte[] sharedMrmKey = MessagesCache.getSharedMrmKey(UUID.randomUUID());
+    insertMrmScript.executeAsync(sharedMrmKey, MessagesCacheTest.generateRandomMrmMessage(destinations))
+        .toCompletableFuture()
+        .join();
+
+    final MessagesCacheRemoveRecipientViewFromMrmDataScript removeRecipientViewFromMrmDataScript = new MessagesCacheRemoveRecipientViewFromMrmDataScript(
+        REDIS_CLUSTER_EXTENSION.getRedisCluster());
+
+    final List<ByteString> recipientViews = destinations.keySet().stream()
+        .map(serviceIdentifier -> ByteString.copyFrom(MessagesCache.getSharedMrmViewKey(serviceIdentifier, (byte) 1)))
+        .toList();
+
+    // Removing all but one view should leave the shared data in place
+    assertEquals(0, removeRecipientViewFromMrmDataScript.execute(
+            Map.of(ByteString.copyFrom(sharedMrmKey), recipientViews.subList(1, recipientViews.size())))
+        .block(Duration.ofSeconds(5)));
+
+    assertEquals(2, REDIS_CLUSTER_EXTENSION.getRedisCluster()
+        .withBinaryCluster(conn -> conn.sync().hlen(sharedMrmKey)));
+
+    assertEquals(1, removeRecipientViewFromMrmDataScript.execute(
+            Map.of(ByteString.copyFrom(sharedMrmKey), recipientViews.subList(0, 1)))
+        .block(Duration.ofSeconds(5)));
+
+    assertEquals(0, REDIS_CLUSTER_EXTENSION.getRedisCluster()
+        .withBinaryCluster(conn -> conn.sync().exists(sharedMrmKey)));
+  }
 }
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.when;
 import com.google.protobuf.ByteString;
 import io.lettuce.core.RedisCommandTimeoutException;
 import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScoredValue;
 import io.lettuce.core.cluster.SlotHash;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
 import io.lettuce.core.cluster.api.reactive.RedisAdvancedClusterReactiveCommands;
@@ -142,6 +143,25 @@ class MessagesCacheTest {
           .orElse(0L));
     }
 
+    @Test
+    void testGetAllMessagesGrowingPages() {
+      // Enough messages that pages will grow from the initial page size several times
+      final int messageCount = 155;
+      final List<MessageProtos.Envelope> expectedMessages = new ArrayList<>(messageCount);
+
+      for (int i = 0; i < messageCount; i++) {
+        final UUID messageGuid = UUID.randomUUID();
+        final MessageProtos.Envelope message = generateRandomMessage(messageGuid, true);
+
+        messagesCache.insert(messageGuid, DESTINATION_UUID, DESTINATION_DEVICE_ID, message).join();
+        expectedMessages.add(message);
+      }
+
+      assertEquals(expectedMessages, messagesCache.getAllMessages(DESTINATION_UUID, DESTINATION_DEVICE_ID, 0, 5)
+          .collectList()
+          .block(Duration.ofSeconds(5)));
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = {true, false})
     void testRemoveByUUID(final boolean sealedSender) throws Exception {
@@ -401,11 +421,59 @@ class MessagesCacheTest {
 
       assertTrue(messagesCache.getQueuesToPersist(slot + 1, Instant.now().plusSeconds(60), 100).isEmpty());
 
-      final List<String> queues = messagesCache.getQueuesToPersist(slot, Instant.now().plusSeconds(60), 100);
+      final List<ScoredValue<String>> queues =
+          messagesCache.getQueuesToPersist(slot, Instant.now().plusSeconds(60), 100);
+
+      assertEquals(1, queues.size());
+      assertEquals(DESTINATION_UUID, MessagesCache.getAccountUuidFromQueueName(queues.getFirst().getValue()));
+      assertEquals(DESTINATION_DEVICE_ID, MessagesCache.getDeviceIdFromQueueName(queues.getFirst().getValue()));
+
+      // Fetching queues removes them from the slot's index
+      assertTrue(messagesCache.getQueuesToPersist(slot, Instant.now().plusSeconds(60), 100).isEmpty());
+    }
+
+    @Test
+    void testGetQueuesToPersistTimestamp() {
+      final int slot = SlotHash.getSlot(DESTINATION_UUID + "::" + DESTINATION_DEVICE_ID);
+      final long timestamp = serialTimestamp;
+
+      for (int i = 0; i < 3; i++) {
+        final UUID messageGuid = UUID.randomUUID();
+
+        messagesCache.insert(messageGuid, DESTINATION_UUID, DESTINATION_DEVICE_ID,
+            generateRandomMessage(messageGuid, true)).join();
+      }
+
+      final List<ScoredValue<String>> queues =
+          messagesCache.getQueuesToPersist(slot, Instant.now().plusSeconds(60), 100);
 
+      // Queues are scored by the timestamp of their oldest message
       assertEquals(1, queues.size());
-      assertEquals(DESTINATION_UUID, MessagesCache.getAccountUuidFromQueueName(queues.getFirst()));
-      assertEquals(DESTINATION_DEVICE_ID, MessagesCache.getDeviceIdFromQueueName(queues.getFirst()));
+      assertEquals(timestamp, (long) queues.getFirst().getScore());
+    }
+
+    @Test
+    void testRenewPersisterLease() throws Exception {
+      final Instant now = Instant.now();
+      final Duration leaseDuration = Duration.ofSeconds(30);
+
+      final MessagesCache laterMessagesCache = new MessagesCache(REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+          messageDeliveryScheduler, sharedExecutorService, mock(ScheduledExecutorService.class),
+          Clock.fixed(now.plus(leaseDuration).plusSeconds(1), ZoneId.of("Etc/UTC")),
+          mock(ExperimentEnrollmentManager.class));
+
+      final MessagesCache earlierMessagesCache = new MessagesCache(REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+          messageDeliveryScheduler, sharedExecutorService, mock(ScheduledExecutorService.class),
+          Clock.fixed(now, ZoneId.of("Etc/UTC")), mock(ExperimentEnrollmentManager.class));
+
+      assertEquals(List.of("a"), earlierMessagesCache.renewPersisterLease("a", leaseDuration));
+      assertEquals(List.of("a", "b"), earlierMessagesCache.renewPersisterLease("b", leaseDuration));
+
+      // Both earlier leases have lapsed by the time "c" renews its lease
+      assertEquals(List.of("c"), laterMessagesCache.renewPersisterLease("c", leaseDuration));
+
+      laterMessagesCache.releasePersisterLease("c");
+      assertEquals(List.of("d"), laterMessagesCache.renewPersisterLease("d", leaseDuration));
     }
 
     @ParameterizedTest
@@ -6,14 +6,22 @@
 package org.whispersystems.textsecuregcm.storage;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.google.protobuf.ByteString;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -24,6 +32,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 import org.reactivestreams.Publisher;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
@@ -32,6 +41,11 @@ import org.whispersystems.textsecuregcm.tests.util.DevicesHelper;
 import org.whispersystems.textsecuregcm.tests.util.MessageHelper;
 import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 class MessagesDynamoDbTest {
 
@@ -308,4 +322,58 @@ class MessagesDynamoDbTest {
 
     assertThat(messagesDynamoDb.mayHaveUrgentMessages(destinationUuid, destinationDevice).join()).isTrue();
   }
+
+  @Test
+  void storeAsyncRetryUnprocessedItems() {
+    final DynamoDbAsyncClient dynamoDbAsyncClient = mock(DynamoDbAsyncClient.class);
+    final MessagesDynamoDb messagesDynamoDb = new MessagesDynamoDb(mock(DynamoDbClient.class), dynamoDbAsyncClient,
+        Tables.MESSAGES.tableName(), Duration.ofDays(14), messageDeletionExecutorService,
+        mock(ExperimentEnrollmentManager.class));
+
+    // Report everything but the first item as unprocessed on the first attempt, then succeed
+    when(dynamoDbAsyncClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+        .thenAnswer(invocation -> {
+          final BatchWriteItemRequest request = invocation.getArgument(0);
+          final List<WriteRequest> writeRequests = request.requestItems().get(Tables.MESSAGES.tableName());
+
+          return CompletableFuture.completedFuture(BatchWriteItemResponse.builder()
+              .unprocessedItems(Map.of(Tables.MESSAGES.tableName(), writeRequests.subList(1, writeRequests.size())))
+              .build());
+        })
+        .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()));
+
+    assertThatNoException().isThrownBy(() -> messagesDynamoDb.storeAsync(List.of(MESSAGE1, MESSAGE2, MESSAGE3),
+        UUID.randomUUID(), DevicesHelper.createDevice(Device.PRIMARY_ID)).join());
+
+    final ArgumentCaptor<BatchWriteItemRequest> requestCaptor = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+    verify(dynamoDbAsyncClient, times(2)).batchWriteItem(requestCaptor.capture());
+
+    assertThat(requestCaptor.getAllValues().getLast().requestItems().get(Tables.MESSAGES.tableName())).hasSize(2);
+  }
+
+  @Test
+  void storeAsyncUnprocessedItemsAfterAllAttempts() {
+    final DynamoDbAsyncClient dynamoDbAsyncClient = mock(DynamoDbAsyncClient.class);
+    final MessagesDynamoDb messagesDynamoDb = new MessagesDynamoDb(mock(DynamoDbClient.class), dynamoDbAsyncClient,
+        Tables.MESSAGES.tableName(), Duration.ofDays(14), messageDeletionExecutorService,
+        mock(ExperimentEnrollmentManager.class));
+
+    // Never process anything
+    when(dynamoDbAsyncClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+        .thenAnswer(invocation -> {
+          final BatchWriteItemRequest request = invocation.getArgument(0);
+
+          return CompletableFuture.completedFuture(BatchWriteItemResponse.builder()
+              .unprocessedItems(request.requestItems())
+              .build());
+        });
+
+    // Callers must not treat the messages as stored (and, for example, remove them from the cache)
+    assertThatThrownBy(() -> messagesDynamoDb.store(List.of(MESSAGE1, MESSAGE2),
+        UUID.randomUUID(), DevicesHelper.createDevice(Device.PRIMARY_ID)))
+        .isInstanceOf(UnprocessedBatchWriteItemsException.class);
+
+    verify(dynamoDbAsyncClient, times(MessagesDynamoDb.MAX_BATCH_WRITE_ATTEMPTS))
+        .batchWriteItem(any(BatchWriteItemRequest.class));
+  }
 }
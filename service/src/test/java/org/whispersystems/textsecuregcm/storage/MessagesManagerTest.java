@@ -7,10 +7,9 @@ package org.whispersystems.textsecuregcm.storage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyByte;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -24,14 +23,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
 import org.signal.libsignal.protocol.InvalidMessageException;
 import org.signal.libsignal.protocol.InvalidVersionException;
 import org.signal.libsignal.protocol.SealedSenderMultiRecipientMessage;
@@ -59,7 +61,10 @@ class MessagesManagerTest {
 
   @BeforeEach
   void setUp() {
-    when(messagesCache.insert(any(), any(), anyByte(), any())).thenReturn(CompletableFuture.completedFuture(true));
+    when(messagesCache.insert(anyList())).thenAnswer(invocation -> {
+      final List<MessagesCache.MessageInsertion> insertions = invocation.getArgument(0);
+      return CompletableFuture.completedFuture(Collections.nCopies(insertions.size(), true));
+    });
   }
 
   @Test
@@ -137,14 +142,15 @@ class MessagesManagerTest {
     when(messagesCache.insertSharedMultiRecipientMessagePayload(multiRecipientMessage))
         .thenReturn(CompletableFuture.completedFuture(sharedMrmKey));
 
-    when(messagesCache.insert(any(), any(), anyByte(), any()))
+    when(messagesCache.insert(anyList()))
         .thenAnswer(invocation -> {
-          final UUID accountIdentifier = invocation.getArgument(1);
-          final byte deviceId = invocation.getArgument(2);
+          final List<MessagesCache.MessageInsertion> insertions = invocation.getArgument(0);
 
-          return CompletableFuture.completedFuture(
-              presenceByAccountIdentifierAndDeviceId.getOrDefault(accountIdentifier, Collections.emptyMap())
-                  .getOrDefault(deviceId, false));
+          return CompletableFuture.completedFuture(insertions.stream()
+              .map(insertion -> presenceByAccountIdentifierAndDeviceId
+                  .getOrDefault(insertion.destinationAccountIdentifier(), Collections.emptyMap())
+                  .getOrDefault(insertion.destinationDeviceId(), false))
+              .toList());
         });
 
     final long clientTimestamp = System.currentTimeMillis();
@@ -167,25 +173,32 @@ class MessagesManagerTest {
     assertEquals(expectedPresenceByAccountAndDeviceId,
         messagesManager.insertMultiRecipientMessage(multiRecipientMessage, resolvedRecipients, clientTimestamp, isStory, isEphemeral, isUrgent).join());
 
-    verify(messagesCache).insert(any(),
-        eq(singleDeviceAccountAciServiceIdentifier.uuid()),
-        eq(Device.PRIMARY_ID),
-        eq(prototypeExpectedMessage.toBuilder().setDestinationServiceId(singleDeviceAccountAciServiceIdentifier.toServiceIdentifierString()).build()));
-
-    verify(messagesCache).insert(any(),
-        eq(singleDeviceAccountAciServiceIdentifier.uuid()),
-        eq(Device.PRIMARY_ID),
-        eq(prototypeExpectedMessage.toBuilder().setDestinationServiceId(singleDeviceAccountPniServiceIdentifier.toServiceIdentifierString()).build()));
-
-    verify(messagesCache).insert(any(),
-        eq(multiDeviceAccountAciServiceIdentifier.uuid()),
-        eq((byte) (Device.PRIMARY_ID + 1)),
-        eq(prototypeExpectedMessage.toBuilder().setDestinationServiceId(multiDeviceAccountAciServiceIdentifier.toServiceIdentifierString()).build()));
-
-    verify(messagesCache, never()).insert(any(),
-        eq(unresolvedAccountAciServiceIdentifier.uuid()),
-        anyByte(),
-        any());
+    // All recipients' messages should be inserted with a single call to the message cache
+    @SuppressWarnings("unchecked") final ArgumentCaptor<List<MessagesCache.MessageInsertion>> insertionsCaptor =
+        ArgumentCaptor.forClass(List.class);
+
+    verify(messagesCache).insert(insertionsCaptor.capture());
+
+    final Set<MessagesCache.MessageInsertion> expectedInsertions = Set.of(
+        new MessagesCache.MessageInsertion(null, singleDeviceAccountAciServiceIdentifier.uuid(), Device.PRIMARY_ID,
+            prototypeExpectedMessage.toBuilder().setDestinationServiceId(singleDeviceAccountAciServiceIdentifier.toServiceIdentifierString()).build()),
+
+        new MessagesCache.MessageInsertion(null, singleDeviceAccountAciServiceIdentifier.uuid(), Device.PRIMARY_ID,
+            prototypeExpectedMessage.toBuilder().setDestinationServiceId(singleDeviceAccountPniServiceIdentifier.toServiceIdentifierString()).build()),
+
+        new MessagesCache.MessageInsertion(null, multiDeviceAccountAciServiceIdentifier.uuid(), Device.PRIMARY_ID,
+            prototypeExpectedMessage.toBuilder().setDestinationServiceId(multiDeviceAccountAciServiceIdentifier.toServiceIdentifierString()).build()),
+
+        new MessagesCache.MessageInsertion(null, multiDeviceAccountAciServiceIdentifier.uuid(), (byte) (Device.PRIMARY_ID + 1),
+            prototypeExpectedMessage.toBuilder().setDestinationServiceId(multiDeviceAccountAciServiceIdentifier.toServiceIdentifierString()).build()));
+
+    // Message GUIDs are random; ignore them for comparison
+    assertEquals(expectedInsertions, insertionsCaptor.getValue().stream()
+        .map(insertion -> new MessagesCache.MessageInsertion(null, insertion.destinationAccountIdentifier(),
+            insertion.destinationDeviceId(), insertion.message()))
+        .collect(Collectors.toSet()));
+
+    assertEquals(expectedInsertions.size(), insertionsCaptor.getValue().size());
   }
 
   @ParameterizedTest
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.signal.libsignal.protocol.ecc.ECKeyPair;
+import org.whispersystems.textsecuregcm.entities.ECPreKey;
+
+class PagedSingleUseECPreKeyStoreTest {
+
+  private static final int KEY_COUNT = 100;
+
+  private PagedSingleUseECPreKeyStore keyStore;
+
+  @RegisterExtension
+  static final DynamoDbExtension DYNAMO_DB_EXTENSION = new DynamoDbExtension(
+      DynamoDbExtensionSchema.Tables.PAGED_EC_KEYS);
+
+  @BeforeEach
+  void setUp() {
+    keyStore = new PagedSingleUseECPreKeyStore(DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
+        DynamoDbExtensionSchema.Tables.PAGED_EC_KEYS.tableName());
+  }
+
+  @Test
+  void storeTake() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    assertEquals(Optional.empty(), keyStore.take(accountIdentifier, deviceId).join());
+
+    final List<ECPreKey> preKeys = generateRandomPreKeys();
+    assertDoesNotThrow(() -> keyStore.store(accountIdentifier, deviceId, preKeys).join());
+
+    final List<ECPreKey> sortedPreKeys = preKeys.stream()
+        .sorted(Comparator.comparing(ECPreKey::keyId))
+        .toList();
+
+    assertEquals(Optional.of(sortedPreKeys.get(0)), keyStore.take(accountIdentifier, deviceId).join());
+    assertEquals(Optional.of(sortedPreKeys.get(1)), keyStore.take(accountIdentifier, deviceId).join());
+  }
+
+  @Test
+  void storeTwice() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    keyStore.store(accountIdentifier, deviceId, generateRandomPreKeys()).join();
+    keyStore.take(accountIdentifier, deviceId).join();
+
+    final List<ECPreKey> preKeys = generateRandomPreKeys();
+    keyStore.store(accountIdentifier, deviceId, preKeys).join();
+
+    assertEquals(KEY_COUNT, keyStore.getCount(accountIdentifier, deviceId).join());
+    assertEquals(
+        preKeys.stream().sorted(Comparator.comparing(ECPreKey::keyId)).toList(),
+
+        IntStream.range(0, preKeys.size())
+            .mapToObj(i -> keyStore.take(accountIdentifier, deviceId).join())
+            .map(Optional::orElseThrow)
+            .toList());
+
+    assertTrue(keyStore.take(accountIdentifier, deviceId).join().isEmpty());
+  }
+
+  @Test
+  void storeEmpty() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    keyStore.store(accountIdentifier, deviceId, generateRandomPreKeys()).join();
+    keyStore.store(accountIdentifier, deviceId, List.of()).join();
+
+    assertEquals(0, keyStore.getCount(accountIdentifier, deviceId).join());
+    assertTrue(keyStore.take(accountIdentifier, deviceId).join().isEmpty());
+  }
+
+  @Test
+  void takeConcurrent() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    final List<ECPreKey> preKeys = generateRandomPreKeys();
+    keyStore.store(accountIdentifier, deviceId, preKeys).join();
+
+    final List<CompletableFuture<Optional<ECPreKey>>> takeFutures = IntStream.range(0, KEY_COUNT + 10)
+        .mapToObj(i -> keyStore.take(accountIdentifier, deviceId))
+        .toList();
+
+    final List<ECPreKey> takenKeys = takeFutures.stream()
+        .map(CompletableFuture::join)
+        .flatMap(Optional::stream)
+        .toList();
+
+    // Every key should be handed out exactly once
+    assertEquals(KEY_COUNT, takenKeys.size());
+    assertEquals(new HashSet<>(preKeys), new HashSet<>(takenKeys));
+    assertEquals(0, keyStore.getCount(accountIdentifier, deviceId).join());
+  }
+
+  @Test
+  void getCount() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    assertEquals(0, keyStore.getCount(accountIdentifier, deviceId).join());
+
+    keyStore.store(accountIdentifier, deviceId, generateRandomPreKeys()).join();
+
+    assertEquals(KEY_COUNT, keyStore.getCount(accountIdentifier, deviceId).join());
+
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keyStore.take(accountIdentifier, deviceId).join();
+      assertEquals(KEY_COUNT - (i + 1), keyStore.getCount(accountIdentifier, deviceId).join());
+    }
+  }
+
+  @Test
+  void deleteSingleDevice() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    assertDoesNotThrow(() -> keyStore.delete(accountIdentifier, deviceId).join());
+
+    final List<ECPreKey> preKeys = generateRandomPreKeys();
+
+    keyStore.store(accountIdentifier, deviceId, preKeys).join();
+    keyStore.store(accountIdentifier, (byte) (deviceId + 1), preKeys).join();
+
+    assertDoesNotThrow(() -> keyStore.delete(accountIdentifier, deviceId).join());
+
+    assertEquals(0, keyStore.getCount(accountIdentifier, deviceId).join());
+    assertEquals(KEY_COUNT, keyStore.getCount(accountIdentifier, (byte) (deviceId + 1)).join());
+  }
+
+  @Test
+  void deleteAllDevices() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    assertDoesNotThrow(() -> keyStore.delete(accountIdentifier).join());
+
+    final List<ECPreKey> preKeys = generateRandomPreKeys();
+
+    keyStore.store(accountIdentifier, deviceId, preKeys).join();
+    keyStore.store(accountIdentifier, (byte) (deviceId + 1), preKeys).join();
+
+    assertDoesNotThrow(() -> keyStore.delete(accountIdentifier).join());
+
+    assertEquals(0, keyStore.getCount(accountIdentifier, deviceId).join());
+    assertEquals(0, keyStore.getCount(accountIdentifier, (byte) (deviceId + 1)).join());
+  }
+
+  private static List<ECPreKey> generateRandomPreKeys() {
+    final Set<Integer> keyIds = new HashSet<>(KEY_COUNT);
+
+    while (keyIds.size() < KEY_COUNT) {
+      keyIds.add(Math.abs(ThreadLocalRandom.current().nextInt()));
+    }
+
+    return keyIds.stream()
+        .map(keyId -> new ECPreKey(keyId, ECKeyPair.generate().getPublicKey()))
+        .toList();
+  }
+}
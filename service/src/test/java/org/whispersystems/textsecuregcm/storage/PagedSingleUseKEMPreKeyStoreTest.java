@@ -10,6 +10,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -121,6 +122,38 @@ class PagedSingleUseKEMPreKeyStoreTest {
     assertTrue(keyStore.take(accountIdentifier, deviceId).join().isEmpty());
   }
 
+  @Test
+  void takeAllCached() {
+    final PagedSingleUseKEMPreKeyStore cachedKeyStore = new PagedSingleUseKEMPreKeyStore(
+        DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient(),
+        S3_EXTENSION.getS3Client(),
+        DynamoDbExtensionSchema.Tables.PAGED_PQ_KEYS.tableName(),
+        BUCKET_NAME,
+        new KEMPreKeyPageCache(1024 * 1024, Duration.ofMinutes(1), false));
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    assertEquals(Optional.empty(), cachedKeyStore.take(accountIdentifier, deviceId).join());
+
+    // Take a key from an initial page so it gets cached, then make sure takes after a replacement come from the new page
+    cachedKeyStore.store(accountIdentifier, deviceId, generateRandomPreKeys()).join();
+    assertTrue(cachedKeyStore.take(accountIdentifier, deviceId).join().isPresent());
+
+    final List<KEMSignedPreKey> preKeys = generateRandomPreKeys();
+    cachedKeyStore.store(accountIdentifier, deviceId, preKeys).join();
+
+    assertEquals(
+        preKeys.stream().sorted(Comparator.comparing(KEMSignedPreKey::keyId)).toList(),
+
+        IntStream.range(0, preKeys.size())
+            .mapToObj(i -> cachedKeyStore.take(accountIdentifier, deviceId).join())
+            .map(Optional::orElseThrow)
+            .toList());
+
+    assertTrue(cachedKeyStore.take(accountIdentifier, deviceId).join().isEmpty());
+  }
+
   @Test
   void getCount() {
     final UUID accountIdentifier = UUID.randomUUID();
@@ -5,26 +5,35 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyByte;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.util.Optional;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
 import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 class RedisDynamoDbMessageStreamTest {
 
   private MessagesDynamoDb messagesDynamoDb;
   private MessagesCache messagesCache;
+  private RedisDynamoDbMessagePublisher messagePublisher;
 
   private RedisDynamoDbMessageStream redisDynamoDbMessageStream;
 
@@ -37,6 +46,7 @@ class RedisDynamoDbMessageStreamTest {
   void setUp() {
     messagesDynamoDb = mock(MessagesDynamoDb.class);
     messagesCache = mock(MessagesCache.class);
+    messagePublisher = mock(RedisDynamoDbMessagePublisher.class);
 
     device = mock(Device.class);
     when(device.getId()).thenReturn(DEVICE_ID);
@@ -45,28 +55,26 @@ class RedisDynamoDbMessageStreamTest {
         messagesCache,
         ACCOUNT_IDENTIFIER,
         device,
-        mock(RedisDynamoDbMessagePublisher.class));
+        messagePublisher,
+        Runnable::run);
 
-    when(messagesDynamoDb.deleteMessage(any(), any(), any(), anyLong()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+    when(messagesDynamoDb.deleteMessages(any(), any(), anyList()))
+        .thenReturn(CompletableFuture.completedFuture(null));
 
-    when(messagesCache.remove(any(), anyByte(), any(UUID.class)))
-        .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+    when(messagesCache.remove(any(), anyByte(), anyList()))
+        .thenReturn(CompletableFuture.completedFuture(List.of()));
   }
 
   @Test
   void acknowledgeMessageDynamoDb() {
     final MessageProtos.Envelope message = generateMessage();
     final UUID messageGuid = UUID.fromString(message.getServerGuid());
-    final long serverTimestamp = message.getServerTimestamp();
-
-    when(messagesDynamoDb.deleteMessage(ACCOUNT_IDENTIFIER, device, messageGuid, serverTimestamp))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(message)));
 
     redisDynamoDbMessageStream.acknowledgeMessage(message).join();
 
-    verify(messagesCache).remove(ACCOUNT_IDENTIFIER, DEVICE_ID, messageGuid);
-    verify(messagesDynamoDb).deleteMessage(ACCOUNT_IDENTIFIER, device, messageGuid, serverTimestamp);
+    verify(messagesCache).remove(ACCOUNT_IDENTIFIER, DEVICE_ID, List.of(messageGuid));
+    verify(messagesDynamoDb).deleteMessages(ACCOUNT_IDENTIFIER, device, List.of(message));
+    verify(messagePublisher).handleMessageAcknowledged();
   }
 
   @Test
@@ -74,13 +82,70 @@ class RedisDynamoDbMessageStreamTest {
     final MessageProtos.Envelope message = generateMessage();
     final UUID messageGuid = UUID.fromString(message.getServerGuid());
 
-    when(messagesCache.remove(ACCOUNT_IDENTIFIER, DEVICE_ID, messageGuid))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(RemovedMessage.fromEnvelope(message))));
+    when(messagesCache.remove(ACCOUNT_IDENTIFIER, DEVICE_ID, List.of(messageGuid)))
+        .thenReturn(CompletableFuture.completedFuture(List.of(RemovedMessage.fromEnvelope(message))));
 
     redisDynamoDbMessageStream.acknowledgeMessage(message).join();
 
-    verify(messagesCache).remove(ACCOUNT_IDENTIFIER, DEVICE_ID, messageGuid);
-    verify(messagesDynamoDb, never()).deleteMessage(any(), any(), any(), anyLong());
+    verify(messagesCache).remove(ACCOUNT_IDENTIFIER, DEVICE_ID, List.of(messageGuid));
+    verify(messagesDynamoDb, never()).deleteMessages(any(), any(), anyList());
+  }
+
+  @Test
+  void acknowledgeMessageBatch() {
+    final List<MessageProtos.Envelope> messages =
+        IntStream.range(0, RedisDynamoDbMessageStream.MAX_ACKNOWLEDGEMENT_BATCH_SIZE)
+            .mapToObj(_ -> generateMessage())
+            .toList();
+
+    final List<UUID> messageGuids = messages.stream()
+        .map(message -> UUID.fromString(message.getServerGuid()))
+        .toList();
+
+    // Half of the messages are still in Redis; the other half have been persisted to DynamoDB
+    final List<MessageProtos.Envelope> cachedMessages = messages.subList(0, messages.size() / 2);
+    final List<MessageProtos.Envelope> persistedMessages = messages.subList(messages.size() / 2, messages.size());
+
+    when(messagesCache.remove(ACCOUNT_IDENTIFIER, DEVICE_ID, messageGuids))
+        .thenReturn(CompletableFuture.completedFuture(cachedMessages.stream().map(RemovedMessage::fromEnvelope).toList()));
+
+    final List<CompletableFuture<Void>> acknowledgementFutures = messages.stream()
+        .map(redisDynamoDbMessageStream::acknowledgeMessage)
+        .toList();
+
+    // Filling a batch should trigger an immediate flush
+    acknowledgementFutures.forEach(future -> assertTrue(future.isDone()));
+
+    verify(messagesCache).remove(ACCOUNT_IDENTIFIER, DEVICE_ID, messageGuids);
+    verify(messagesDynamoDb).deleteMessages(ACCOUNT_IDENTIFIER, device, persistedMessages);
+    verify(messagePublisher, times(messages.size())).handleMessageAcknowledged();
+  }
+
+  @Test
+  void flushAcknowledgementsOnTermination() {
+    final RedisDynamoDbMessageStream messageStream = new RedisDynamoDbMessageStream(messagesDynamoDb,
+        messagesCache,
+        ACCOUNT_IDENTIFIER,
+        device,
+        messagePublisher,
+        // Never run scheduled flushes
+        _ -> {});
+
+    doAnswer(invocation -> {
+      JdkFlowAdapter.publisherToFlowPublisher(Flux.<MessageStreamEntry>never())
+          .subscribe(invocation.getArgument(0));
+
+      return null;
+    }).when(messagePublisher).subscribe(any());
+
+    final MessageProtos.Envelope message = generateMessage();
+
+    StepVerifier.create(JdkFlowAdapter.flowPublisherToFlux(messageStream.getMessages()))
+        .then(() -> assertFalse(messageStream.acknowledgeMessage(message).isDone()))
+        .thenCancel()
+        .verify();
+
+    verify(messagesCache).remove(ACCOUNT_IDENTIFIER, DEVICE_ID, List.of(UUID.fromString(message.getServerGuid())));
   }
 
   private static MessageProtos.Envelope generateMessage() {
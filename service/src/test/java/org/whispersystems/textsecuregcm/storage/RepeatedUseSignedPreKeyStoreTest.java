@@ -8,6 +8,7 @@ package org.whispersystems.textsecuregcm.storage;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -38,6 +39,28 @@ abstract class RepeatedUseSignedPreKeyStoreTest<K extends SignedPreKey<?>> {
     assertEquals(Optional.of(signedPreKey), keys.find(identifier, deviceId).join());
   }
 
+  @Test
+  void storeFindAll() {
+    final RepeatedUseSignedPreKeyStore<K> keys = getKeyStore();
+
+    final UUID identifier = UUID.randomUUID();
+    final byte deviceId2 = 2;
+    final byte deviceId3 = 3;
+
+    assertEquals(Map.of(), keys.findAll(identifier, List.of(Device.PRIMARY_ID, deviceId2)).join());
+    assertEquals(Map.of(), keys.findAll(identifier, List.of()).join());
+
+    final K primaryPreKey = generateSignedPreKey();
+    final K secondaryPreKey = generateSignedPreKey();
+
+    keys.store(identifier, Device.PRIMARY_ID, primaryPreKey).join();
+    keys.store(identifier, deviceId2, secondaryPreKey).join();
+    keys.store(UUID.randomUUID(), deviceId3, generateSignedPreKey()).join();
+
+    assertEquals(Map.of(Device.PRIMARY_ID, primaryPreKey, deviceId2, secondaryPreKey),
+        keys.findAll(identifier, List.of(Device.PRIMARY_ID, deviceId2, deviceId3)).join());
+  }
+
   @Test
   void buildTransactWriteItemForInsertion() {
     final RepeatedUseSignedPreKeyStore<K> keys = getKeyStore();
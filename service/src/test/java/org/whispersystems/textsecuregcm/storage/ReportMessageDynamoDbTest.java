@@ -6,11 +6,14 @@
 package org.whispersystems.textsecuregcm.storage;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
@@ -59,4 +62,14 @@ class ReportMessageDynamoDbTest {
     );
   }
 
+  @Test
+  void testStoreBatch() {
+    final List<byte[]> hashes = IntStream.range(0, AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE)
+        .mapToObj(_ -> UUIDUtil.toBytes(UUID.randomUUID()))
+        .toList();
+
+    assertDoesNotThrow(() -> reportMessageDynamoDb.storeBatch(hashes).join());
+
+    hashes.forEach(hash -> assertTrue(reportMessageDynamoDb.remove(hash)));
+  }
 }
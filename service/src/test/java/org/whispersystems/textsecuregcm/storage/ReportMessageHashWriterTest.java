@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.whispersystems.textsecuregcm.util.UUIDUtil;
+
+class ReportMessageHashWriterTest {
+
+  private ReportMessageDynamoDb reportMessageDynamoDb;
+  private ReportMessageHashWriter reportMessageHashWriter;
+
+  private List<byte[]> storedHashes;
+
+  @BeforeEach
+  void setUp() {
+    reportMessageDynamoDb = mock(ReportMessageDynamoDb.class);
+    storedHashes = Collections.synchronizedList(new ArrayList<>());
+
+    when(reportMessageDynamoDb.storeBatch(anyList())).thenAnswer(invocation -> {
+      final List<byte[]> batch = invocation.getArgument(0);
+      storedHashes.addAll(batch);
+
+      return CompletableFuture.completedFuture(null);
+    });
+
+    reportMessageHashWriter = new ReportMessageHashWriter(reportMessageDynamoDb);
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    reportMessageHashWriter.stop();
+  }
+
+  @Test
+  void storeNotRunning() {
+    final byte[] hash = generateHash();
+
+    reportMessageHashWriter.store(hash);
+
+    verify(reportMessageDynamoDb).store(hash);
+    verify(reportMessageDynamoDb, never()).storeBatch(any());
+  }
+
+  @Test
+  void storeBatched() throws InterruptedException {
+    final int hashCount = AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE * 4 + 1;
+
+    reportMessageHashWriter.start();
+
+    for (int i = 0; i < hashCount; i++) {
+      reportMessageHashWriter.store(generateHash());
+    }
+
+    reportMessageHashWriter.stop();
+
+    assertEquals(hashCount, storedHashes.size());
+    assertEquals(0, reportMessageHashWriter.getQueueDepth());
+
+    @SuppressWarnings("unchecked") final ArgumentCaptor<List<byte[]>> batchCaptor = ArgumentCaptor.forClass(List.class);
+    verify(reportMessageDynamoDb, atLeastOnce()).storeBatch(batchCaptor.capture());
+    verify(reportMessageDynamoDb, never()).store(any());
+
+    assertTrue(batchCaptor.getAllValues().stream()
+        .allMatch(batch -> !batch.isEmpty() && batch.size() <= AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE));
+  }
+
+  @Test
+  void storeQueueFull() throws InterruptedException {
+    reportMessageHashWriter = new ReportMessageHashWriter(reportMessageDynamoDb, 1, 1);
+
+    // Never finish the first batch, so the writer thread holds its only batch permit and can't make progress
+    final CompletableFuture<Void> blockedBatchFuture = new CompletableFuture<>();
+    when(reportMessageDynamoDb.storeBatch(anyList())).thenReturn(blockedBatchFuture);
+
+    reportMessageHashWriter.start();
+    reportMessageHashWriter.store(generateHash());
+
+    verify(reportMessageDynamoDb, timeout(1_000)).storeBatch(anyList());
+
+    for (int i = 0; i < 10; i++) {
+      reportMessageHashWriter.store(generateHash());
+    }
+
+    assertTrue(reportMessageHashWriter.getQueueDepth() <= 1);
+
+    blockedBatchFuture.complete(null);
+    reportMessageHashWriter.stop();
+
+    assertEquals(0, reportMessageHashWriter.getQueueDepth());
+  }
+
+  private static byte[] generateHash() {
+    return UUIDUtil.toBytes(UUID.randomUUID());
+  }
+}
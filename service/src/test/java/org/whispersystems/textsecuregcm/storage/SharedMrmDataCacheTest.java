@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.base.Ticker;
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.util.TestRandomUtil;
+
+class SharedMrmDataCacheTest {
+
+  private AtomicLong currentTimeNanos;
+  private AtomicInteger loadCount;
+  private SharedMrmDataCache sharedMrmDataCache;
+
+  private static final Duration EXPIRATION = Duration.ofSeconds(30);
+
+  @BeforeEach
+  void setUp() {
+    currentTimeNanos = new AtomicLong();
+    loadCount = new AtomicInteger();
+
+    sharedMrmDataCache = new SharedMrmDataCache(1024, EXPIRATION, new Ticker() {
+      @Override
+      public long read() {
+        return currentTimeNanos.get();
+      }
+    });
+  }
+
+  @Test
+  void getData() {
+    final ByteString sharedMrmKey = generateSharedMrmKey();
+    final byte[] data = TestRandomUtil.nextBytes(128);
+
+    assertArrayEquals(data, sharedMrmDataCache.getData(sharedMrmKey, () -> load(data)).join().orElseThrow());
+    assertArrayEquals(data, sharedMrmDataCache.getData(sharedMrmKey, () -> load(data)).join().orElseThrow());
+    assertEquals(1, loadCount.get());
+  }
+
+  @Test
+  void getDataConcurrentLoads() {
+    final ByteString sharedMrmKey = generateSharedMrmKey();
+    final byte[] data = TestRandomUtil.nextBytes(128);
+    final CompletableFuture<Optional<byte[]>> pendingLoad = new CompletableFuture<>();
+
+    final CompletableFuture<Optional<byte[]>> firstGet = sharedMrmDataCache.getData(sharedMrmKey, () -> {
+      loadCount.incrementAndGet();
+      return pendingLoad;
+    });
+
+    final CompletableFuture<Optional<byte[]>> secondGet = sharedMrmDataCache.getData(sharedMrmKey, () -> load(data));
+
+    assertFalse(firstGet.isDone());
+    assertFalse(secondGet.isDone());
+
+    pendingLoad.complete(Optional.of(data));
+
+    assertArrayEquals(data, firstGet.join().orElseThrow());
+    assertArrayEquals(data, secondGet.join().orElseThrow());
+    assertEquals(1, loadCount.get());
+  }
+
+  @Test
+  void getDataMissing() {
+    final ByteString sharedMrmKey = generateSharedMrmKey();
+    final byte[] data = TestRandomUtil.nextBytes(128);
+
+    assertTrue(sharedMrmDataCache.getData(sharedMrmKey, () -> {
+      loadCount.incrementAndGet();
+      return CompletableFuture.completedFuture(Optional.empty());
+    }).join().isEmpty());
+
+    // Missing payloads shouldn't be cached
+    assertArrayEquals(data, sharedMrmDataCache.getData(sharedMrmKey, () -> load(data)).join().orElseThrow());
+    assertEquals(2, loadCount.get());
+  }
+
+  @Test
+  void getDataLoadFailed() {
+    final ByteString sharedMrmKey = generateSharedMrmKey();
+    final byte[] data = TestRandomUtil.nextBytes(128);
+
+    final CompletionException completionException = assertThrows(CompletionException.class,
+        () -> sharedMrmDataCache.getData(sharedMrmKey, () -> CompletableFuture.failedFuture(new IOException())).join());
+
+    assertTrue(completionException.getCause() instanceof IOException);
+
+    // Failures shouldn't be cached
+    assertArrayEquals(data, sharedMrmDataCache.getData(sharedMrmKey, () -> load(data)).join().orElseThrow());
+    assertEquals(1, loadCount.get());
+  }
+
+  @Test
+  void getDataExpired() {
+    final ByteString sharedMrmKey = generateSharedMrmKey();
+    final byte[] data = TestRandomUtil.nextBytes(128);
+
+    sharedMrmDataCache.getData(sharedMrmKey, () -> load(data)).join();
+    assertEquals(1, loadCount.get());
+
+    currentTimeNanos.addAndGet(EXPIRATION.toNanos() + 1);
+
+    sharedMrmDataCache.getData(sharedMrmKey, () -> load(data)).join();
+    assertEquals(2, loadCount.get());
+  }
+
+  private static ByteString generateSharedMrmKey() {
+    return ByteString.copyFrom(MessagesCache.getSharedMrmKey(UUID.randomUUID()));
+  }
+
+  private CompletableFuture<Optional<byte[]>> load(final byte[] data) {
+    loadCount.incrementAndGet();
+    return CompletableFuture.completedFuture(Optional.of(data));
+  }
+}
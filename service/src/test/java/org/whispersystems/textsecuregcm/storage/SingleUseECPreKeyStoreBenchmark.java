@@ -0,0 +1,230 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.whispersystems.textsecuregcm.storage.AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.signal.libsignal.protocol.ecc.ECKeyPair;
+import org.whispersystems.textsecuregcm.entities.ECPreKey;
+import org.whispersystems.textsecuregcm.util.AttributeValues;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+/// Compares replacing a device's single-use EC pre-keys with one `PutItem`/`DeleteItem` request per key (the previous
+/// implementation, reproduced here) against [SingleUseECPreKeyStore#store], which uses chunked `BatchWriteItem`
+/// requests. Runs against a local DynamoDB container started via [DynamoDbExtension]; in addition to JMH's latency
+/// results, prints the number of requests and consumed capacity units per upload for each approach.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SingleUseECPreKeyStoreBenchmark {
+
+  @Param({"10", "100"})
+  public int keyCount;
+
+  private DynamoDbExtension dynamoDbExtension;
+  private DynamoDbAsyncClient dynamoDbAsyncClient;
+  private SingleUseECPreKeyStore preKeyStore;
+
+  private UUID accountIdentifier;
+  private List<ECPreKey> preKeys;
+
+  private final AtomicLong uploads = new AtomicLong();
+  private final AtomicLong requests = new AtomicLong();
+  private final DoubleAdder consumedCapacityUnits = new DoubleAdder();
+
+  private static final byte DEVICE_ID = Device.PRIMARY_ID;
+  private static final String TABLE_NAME = DynamoDbExtensionSchema.Tables.EC_KEYS.tableName();
+
+  @Setup
+  public void setUp() throws Exception {
+    dynamoDbExtension = new DynamoDbExtension(DynamoDbExtensionSchema.Tables.EC_KEYS);
+    dynamoDbExtension.beforeAll(null);
+    dynamoDbExtension.beforeEach(null);
+
+    // Use a separate client that asks for (and tallies) consumed capacity for every request
+    dynamoDbAsyncClient = DynamoDbAsyncClient.builder()
+        .region(dynamoDbExtension.getDynamoDbAsyncClient().serviceClientConfiguration().region())
+        .endpointOverride(dynamoDbExtension.getDynamoDbAsyncClient().serviceClientConfiguration().endpointOverride().orElseThrow())
+        .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+        .overrideConfiguration(builder -> builder.addExecutionInterceptor(new ConsumedCapacityInterceptor()))
+        .build();
+
+    preKeyStore = new SingleUseECPreKeyStore(dynamoDbAsyncClient, TABLE_NAME);
+
+    accountIdentifier = UUID.randomUUID();
+    preKeys = IntStream.range(0, keyCount)
+        .mapToObj(keyId -> new ECPreKey(keyId, ECKeyPair.generate().getPublicKey()))
+        .toList();
+
+    // Start from a full key set so each upload also has to clear a full set of old keys
+    preKeyStore.store(accountIdentifier, DEVICE_ID, preKeys).join();
+
+    uploads.set(0);
+    requests.set(0);
+    consumedCapacityUnits.reset();
+  }
+
+  @TearDown
+  public void tearDown() throws Throwable {
+    if (uploads.get() > 0) {
+      System.out.printf("%n%d keys: %.1f requests, %.1f consumed capacity units per upload%n", keyCount,
+          (double) requests.get() / uploads.get(), consumedCapacityUnits.sum() / uploads.get());
+    }
+
+    dynamoDbAsyncClient.close();
+
+    dynamoDbExtension.afterEach(null);
+    dynamoDbExtension.close();
+  }
+
+  @Benchmark
+  public void storeIndividually() {
+    storeIndividually(accountIdentifier, DEVICE_ID, preKeys).join();
+    uploads.incrementAndGet();
+  }
+
+  @Benchmark
+  public void storeBatched() {
+    preKeyStore.store(accountIdentifier, DEVICE_ID, preKeys).join();
+    uploads.incrementAndGet();
+  }
+
+  private CompletableFuture<Void> storeIndividually(final UUID identifier, final byte deviceId,
+      final List<ECPreKey> preKeys) {
+
+    final AttributeValue partitionKey = AttributeValues.fromUUID(identifier);
+    final ByteBuffer sortKeyPrefix = ByteBuffer.allocate(8).putLong(deviceId).flip();
+
+    final Flux<Map<String, AttributeValue>> existingItems =
+        Flux.from(dynamoDbAsyncClient.queryPaginator(QueryRequest.builder()
+                .tableName(TABLE_NAME)
+                .keyConditionExpression("#uuid = :uuid AND begins_with (#sort, :sortprefix)")
+                .expressionAttributeNames(Map.of(
+                    "#uuid", SingleUseECPreKeyStore.KEY_ACCOUNT_UUID,
+                    "#sort", SingleUseECPreKeyStore.KEY_DEVICE_ID_KEY_ID))
+                .expressionAttributeValues(Map.of(
+                    ":uuid", partitionKey,
+                    ":sortprefix", AttributeValues.fromByteBuffer(sortKeyPrefix)))
+                .projectionExpression(SingleUseECPreKeyStore.KEY_DEVICE_ID_KEY_ID)
+                .consistentRead(true)
+                .build())
+            .items());
+
+    return existingItems
+        .flatMap(item -> Mono.fromFuture(() -> dynamoDbAsyncClient.deleteItem(DeleteItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of(
+                    SingleUseECPreKeyStore.KEY_ACCOUNT_UUID, partitionKey,
+                    SingleUseECPreKeyStore.KEY_DEVICE_ID_KEY_ID, item.get(SingleUseECPreKeyStore.KEY_DEVICE_ID_KEY_ID)))
+                .build())),
+            DYNAMO_DB_MAX_BATCH_SIZE)
+        .thenMany(Flux.fromIterable(preKeys)
+            .sort(Comparator.comparing(ECPreKey::keyId))
+            .zipWith(Flux.range(0, preKeys.size()).map(i -> preKeys.size() - i))
+            .flatMap(preKeyAndRemainingCount -> Mono.fromFuture(() -> dynamoDbAsyncClient.putItem(PutItemRequest.builder()
+                    .tableName(TABLE_NAME)
+                    .item(Map.of(
+                        SingleUseECPreKeyStore.KEY_ACCOUNT_UUID, partitionKey,
+                        SingleUseECPreKeyStore.KEY_DEVICE_ID_KEY_ID,
+                        SingleUseECPreKeyStore.getSortKey(deviceId, preKeyAndRemainingCount.getT1().keyId()),
+                        SingleUseECPreKeyStore.ATTR_PUBLIC_KEY,
+                        AttributeValues.fromByteArray(preKeyAndRemainingCount.getT1().serializedPublicKey()),
+                        SingleUseECPreKeyStore.ATTR_REMAINING_KEYS,
+                        AttributeValues.fromInt(preKeyAndRemainingCount.getT2())))
+                    .build())),
+                DYNAMO_DB_MAX_BATCH_SIZE))
+        .then()
+        .toFuture();
+  }
+
+  private class ConsumedCapacityInterceptor implements ExecutionInterceptor {
+
+    @Override
+    public SdkRequest modifyRequest(final Context.ModifyRequest context, final ExecutionAttributes executionAttributes) {
+      return switch (context.request()) {
+        case PutItemRequest request -> request.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        case DeleteItemRequest request -> request.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        case BatchWriteItemRequest request -> request.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        case QueryRequest request -> request.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        default -> context.request();
+      };
+    }
+
+    @Override
+    public void afterExecution(final Context.AfterExecution context, final ExecutionAttributes executionAttributes) {
+      requests.incrementAndGet();
+
+      switch (context.response()) {
+        case PutItemResponse response -> addConsumedCapacity(response.consumedCapacity());
+        case DeleteItemResponse response -> addConsumedCapacity(response.consumedCapacity());
+        case BatchWriteItemResponse response -> response.consumedCapacity().forEach(this::addConsumedCapacity);
+        case QueryResponse response -> addConsumedCapacity(response.consumedCapacity());
+        default -> {
+        }
+      }
+    }
+
+    private void addConsumedCapacity(final ConsumedCapacity consumedCapacity) {
+      if (consumedCapacity != null && consumedCapacity.capacityUnits() != null) {
+        consumedCapacityUnits.add(consumedCapacity.capacityUnits());
+      }
+    }
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(SingleUseECPreKeyStoreBenchmark.class.getSimpleName())
+        .build())
+        .run();
+  }
+}
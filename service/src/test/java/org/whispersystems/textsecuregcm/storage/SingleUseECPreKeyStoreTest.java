@@ -87,6 +87,42 @@ class SingleUseECPreKeyStoreTest {
     assertEquals(Optional.of(sortedPreKeys.get(1)), preKeyStore.take(accountIdentifier, deviceId).join());
   }
 
+  @Test
+  void storeReplacesExistingKeys() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    preKeyStore.store(accountIdentifier, deviceId, generateRandomPreKeys()).join();
+
+    final List<ECPreKey> replacementPreKeys = generateRandomPreKeys();
+    preKeyStore.store(accountIdentifier, deviceId, replacementPreKeys).join();
+
+    assertEquals(KEY_COUNT, preKeyStore.getCount(accountIdentifier, deviceId).join());
+
+    final Set<ECPreKey> takenPreKeys = new HashSet<>();
+
+    for (int i = 0; i < KEY_COUNT; i++) {
+      takenPreKeys.add(preKeyStore.take(accountIdentifier, deviceId).join().orElseThrow());
+    }
+
+    assertEquals(new HashSet<>(replacementPreKeys), takenPreKeys);
+    assertEquals(Optional.empty(), preKeyStore.take(accountIdentifier, deviceId).join());
+  }
+
+  @Test
+  void storeDuplicateKeyIds() {
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    final ECPreKey preKey = generatePreKey(1);
+    final ECPreKey duplicatePreKey = generatePreKey(1);
+
+    preKeyStore.store(accountIdentifier, deviceId, List.of(preKey, duplicatePreKey, generatePreKey(2))).join();
+
+    assertEquals(2, preKeyStore.getCount(accountIdentifier, deviceId).join());
+    assertEquals(Optional.of(preKey), preKeyStore.take(accountIdentifier, deviceId).join());
+  }
+
   @Test
   void getCount() {
     final SingleUseECPreKeyStore preKeyStore = this.preKeyStore;
@@ -2,7 +2,9 @@ package org.whispersystems.textsecuregcm.storage.foundationdb;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -25,6 +27,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -358,6 +361,82 @@ class FoundationDbMessageStoreTest {
         Map.of(generateRandomAciForShard(0), Collections.emptyMap())));
   }
 
+  @Test
+  void getMessages() {
+    final AciServiceIdentifier aci = new AciServiceIdentifier(UUID.randomUUID());
+    final List<MessageProtos.Envelope> messages = IntStream.range(0, 5)
+        .mapToObj(_ -> generateRandomMessage(false))
+        .toList();
+
+    messages.forEach(message ->
+        foundationDbMessageStore.insert(aci, Map.of(Device.PRIMARY_ID, message)).join());
+
+    final List<FoundationDbMessageStore.QueuedMessage> firstPage =
+        foundationDbMessageStore.getMessages(aci, Device.PRIMARY_ID, null, 3).join();
+
+    assertEquals(messages.subList(0, 3), firstPage.stream().map(FoundationDbMessageStore.QueuedMessage::envelope).toList());
+
+    final List<FoundationDbMessageStore.QueuedMessage> secondPage =
+        foundationDbMessageStore.getMessages(aci, Device.PRIMARY_ID, firstPage.getLast().versionstamp(), 3).join();
+
+    assertEquals(messages.subList(3, 5), secondPage.stream().map(FoundationDbMessageStore.QueuedMessage::envelope).toList());
+    assertTrue(foundationDbMessageStore.getMessages(aci, (byte) (Device.PRIMARY_ID + 1), null, 3).join().isEmpty());
+  }
+
+  @Test
+  void deleteMessages() {
+    final AciServiceIdentifier aci = new AciServiceIdentifier(UUID.randomUUID());
+    final List<MessageProtos.Envelope> messages = IntStream.range(0, 6)
+        .mapToObj(_ -> generateRandomMessage(false))
+        .toList();
+
+    messages.forEach(message ->
+        foundationDbMessageStore.insert(aci, Map.of(Device.PRIMARY_ID, message)).join());
+
+    final List<Versionstamp> versionstamps = foundationDbMessageStore.getMessages(aci, Device.PRIMARY_ID, null, 10)
+        .join()
+        .stream()
+        .map(FoundationDbMessageStore.QueuedMessage::versionstamp)
+        .toList();
+
+    foundationDbMessageStore.deleteMessages(aci, Device.PRIMARY_ID, List.of(
+            new FoundationDbMessageStore.MessageRange(versionstamps.get(0), versionstamps.get(2)),
+            new FoundationDbMessageStore.MessageRange(versionstamps.get(4), versionstamps.get(4))))
+        .join();
+
+    assertEquals(List.of(messages.get(3), messages.get(5)),
+        foundationDbMessageStore.getMessages(aci, Device.PRIMARY_ID, null, 10).join().stream()
+            .map(FoundationDbMessageStore.QueuedMessage::envelope)
+            .toList());
+  }
+
+  @Test
+  void watchMessagesAvailable() {
+    final AciServiceIdentifier aci = new AciServiceIdentifier(UUID.randomUUID());
+    foundationDbMessageStore.updatePresence(aci, Device.PRIMARY_ID, (short) 1).join();
+
+    final CompletableFuture<Void> watch = foundationDbMessageStore.watchMessagesAvailable(aci).join();
+    assertFalse(watch.isDone());
+
+    foundationDbMessageStore.insert(aci, Map.of(Device.PRIMARY_ID, generateRandomMessage(false))).join();
+    watch.join();
+  }
+
+  @Test
+  void updateAndClearPresence() {
+    final AciServiceIdentifier aci = new AciServiceIdentifier(UUID.randomUUID());
+
+    foundationDbMessageStore.updatePresence(aci, Device.PRIMARY_ID, (short) 1).join();
+    assertTrue(foundationDbMessageStore.isClientPresent(readPresenceKey(aci, Device.PRIMARY_ID)));
+
+    // Presence written by another server should not be cleared
+    foundationDbMessageStore.clearPresence(aci, Device.PRIMARY_ID, (short) 2).join();
+    assertTrue(foundationDbMessageStore.isClientPresent(readPresenceKey(aci, Device.PRIMARY_ID)));
+
+    foundationDbMessageStore.clearPresence(aci, Device.PRIMARY_ID, (short) 1).join();
+    assertNull(readPresenceKey(aci, Device.PRIMARY_ID));
+  }
+
   private static MessageProtos.Envelope generateRandomMessage(final boolean ephemeral) {
     return generateRandomMessage(ephemeral, 16);
   }
@@ -386,6 +465,12 @@ class FoundationDbMessageStoreTest {
         .join();
   }
 
+  private byte[] readPresenceKey(final AciServiceIdentifier aci, final byte deviceId) {
+    return foundationDbMessageStore.getShardForAci(aci)
+        .read(transaction -> transaction.get(foundationDbMessageStore.getPresenceKey(aci, deviceId)))
+        .join();
+  }
+
   private void writePresenceKey(final AciServiceIdentifier aci, final byte deviceId, final int serverId,
       final long secondsBeforeCurrentTime) {
     foundationDbMessageStore.getShardForAci(aci).run(transaction -> {
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage.foundationdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyByte;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.protobuf.ByteString;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.textsecuregcm.entities.MessageProtos;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
+import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.storage.FoundationDbClusterExtension;
+import org.whispersystems.textsecuregcm.storage.MessageStreamEntry;
+import org.whispersystems.textsecuregcm.util.TestRandomUtil;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.test.StepVerifier;
+
+@Timeout(value = 5, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+class FoundationDbMessageStreamTest {
+
+  @RegisterExtension
+  static FoundationDbClusterExtension FOUNDATION_DB_EXTENSION = new FoundationDbClusterExtension(1);
+
+  private FoundationDbMessageStore messageStore;
+  private AciServiceIdentifier aci;
+
+  private static final short SERVER_ID = 7;
+
+  @BeforeEach
+  void setUp() {
+    messageStore = new FoundationDbMessageStore(FOUNDATION_DB_EXTENSION.getDatabases(),
+        Executors.newVirtualThreadPerTaskExecutor(),
+        Clock.systemUTC());
+
+    aci = new AciServiceIdentifier(UUID.randomUUID());
+  }
+
+  @Test
+  void getMessages() {
+    final List<MessageProtos.Envelope> storedMessages = IntStream.range(0, FoundationDbMessageStream.PAGE_SIZE + 1)
+        .mapToObj(_ -> generateRandomMessage())
+        .toList();
+
+    storedMessages.forEach(message -> messageStore.insert(aci, Map.of(Device.PRIMARY_ID, message)).join());
+
+    final FoundationDbMessageStream messageStream =
+        new FoundationDbMessageStream(messageStore, aci, Device.PRIMARY_ID, SERVER_ID);
+
+    final MessageProtos.Envelope newMessage = generateRandomMessage();
+
+    StepVerifier.create(JdkFlowAdapter.flowPublisherToFlux(messageStream.getMessages()))
+        .expectNextSequence(storedMessages.stream().<MessageStreamEntry>map(MessageStreamEntry.Envelope::new).toList())
+        .expectNext(new MessageStreamEntry.QueueEmpty())
+        .then(() -> messageStore.insert(aci, Map.of(Device.PRIMARY_ID, newMessage)).join())
+        .expectNext(new MessageStreamEntry.Envelope(newMessage))
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  void acknowledgeMessage() {
+    final List<MessageProtos.Envelope> storedMessages = IntStream.range(0, 4)
+        .mapToObj(_ -> generateRandomMessage())
+        .toList();
+
+    storedMessages.forEach(message -> messageStore.insert(aci, Map.of(Device.PRIMARY_ID, message)).join());
+
+    final FoundationDbMessageStream messageStream =
+        new FoundationDbMessageStream(messageStore, aci, Device.PRIMARY_ID, SERVER_ID);
+
+    StepVerifier.create(JdkFlowAdapter.flowPublisherToFlux(messageStream.getMessages()))
+        .expectNextCount(storedMessages.size())
+        .expectNext(new MessageStreamEntry.QueueEmpty())
+        .then(() -> {
+          messageStream.acknowledgeMessage(storedMessages.get(0)).join();
+          messageStream.acknowledgeMessage(storedMessages.get(2)).join();
+        })
+        .thenCancel()
+        .verify();
+
+    assertEquals(List.of(storedMessages.get(1), storedMessages.get(3)),
+        messageStore.getMessages(aci, Device.PRIMARY_ID, null, 10).join().stream()
+            .map(FoundationDbMessageStore.QueuedMessage::envelope)
+            .toList());
+  }
+
+  @Test
+  void acknowledgeMessageOutOfOrder() {
+    final List<MessageProtos.Envelope> storedMessages = IntStream.range(0, 5)
+        .mapToObj(_ -> generateRandomMessage())
+        .toList();
+
+    storedMessages.forEach(message -> messageStore.insert(aci, Map.of(Device.PRIMARY_ID, message)).join());
+
+    final List<FoundationDbMessageStore.QueuedMessage> queuedMessages =
+        messageStore.getMessages(aci, Device.PRIMARY_ID, null, 10).join();
+
+    final FoundationDbMessageStream messageStream =
+        new FoundationDbMessageStream(messageStore, aci, Device.PRIMARY_ID, SERVER_ID);
+
+    StepVerifier.create(JdkFlowAdapter.flowPublisherToFlux(messageStream.getMessages()))
+        .expectNextCount(storedMessages.size())
+        .expectNext(new MessageStreamEntry.QueueEmpty())
+        .thenCancel()
+        .verify();
+
+    assertTrue(messageStream.removeAcknowledgedRanges().isEmpty());
+
+    messageStream.acknowledgeMessage(storedMessages.get(4)).join();
+    messageStream.acknowledgeMessage(storedMessages.get(0)).join();
+    messageStream.acknowledgeMessage(storedMessages.get(1)).join();
+    messageStream.acknowledgeMessage(storedMessages.get(3)).join();
+
+    assertEquals(List.of(queuedMessages.get(2)),
+        messageStore.getMessages(aci, Device.PRIMARY_ID, null, 10).join());
+  }
+
+  @Test
+  void acknowledgeMessageDeletionRetried() {
+    final List<MessageProtos.Envelope> storedMessages = IntStream.range(0, 2)
+        .mapToObj(_ -> generateRandomMessage())
+        .toList();
+
+    storedMessages.forEach(message -> messageStore.insert(aci, Map.of(Device.PRIMARY_ID, message)).join());
+
+    final FoundationDbMessageStore spyMessageStore = spy(messageStore);
+
+    doReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO")))
+        .doCallRealMethod()
+        .when(spyMessageStore).deleteMessages(any(), anyByte(), any());
+
+    final FoundationDbMessageStream messageStream =
+        new FoundationDbMessageStream(spyMessageStore, aci, Device.PRIMARY_ID, SERVER_ID);
+
+    StepVerifier.create(JdkFlowAdapter.flowPublisherToFlux(messageStream.getMessages()))
+        .expectNextCount(storedMessages.size())
+        .expectNext(new MessageStreamEntry.QueueEmpty())
+        .thenCancel()
+        .verify();
+
+    // The first attempt fails, but the retry should succeed before the acknowledgement completes
+    messageStream.acknowledgeMessage(storedMessages.getFirst()).join();
+
+    assertEquals(List.of(storedMessages.getLast()),
+        messageStore.getMessages(aci, Device.PRIMARY_ID, null, 10).join().stream()
+            .map(FoundationDbMessageStore.QueuedMessage::envelope)
+            .toList());
+  }
+
+  @Test
+  void acknowledgeMessageDeletionFailed() {
+    final List<MessageProtos.Envelope> storedMessages = IntStream.range(0, 3)
+        .mapToObj(_ -> generateRandomMessage())
+        .toList();
+
+    storedMessages.forEach(message -> messageStore.insert(aci, Map.of(Device.PRIMARY_ID, message)).join());
+
+    final FoundationDbMessageStore spyMessageStore = spy(messageStore);
+
+    doReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO")))
+        .when(spyMessageStore).deleteMessages(any(), anyByte(), any());
+
+    final FoundationDbMessageStream messageStream =
+        new FoundationDbMessageStream(spyMessageStore, aci, Device.PRIMARY_ID, SERVER_ID);
+
+    StepVerifier.create(JdkFlowAdapter.flowPublisherToFlux(messageStream.getMessages()))
+        .expectNextCount(storedMessages.size())
+        .expectNext(new MessageStreamEntry.QueueEmpty())
+        .thenCancel()
+        .verify();
+
+    // Once every attempt has failed, the failure should reach the caller…
+    final CompletableFuture<Void> acknowledgementFuture = messageStream.acknowledgeMessage(storedMessages.getFirst());
+    assertThrows(CompletionException.class, acknowledgementFuture::join);
+
+    verify(spyMessageStore, times(FoundationDbMessageStream.MAX_DELETION_ATTEMPTS))
+        .deleteMessages(any(), anyByte(), any());
+
+    // …but the acknowledged message should still be deleted along with the next acknowledgement once the store recovers
+    doCallRealMethod().when(spyMessageStore).deleteMessages(any(), anyByte(), any());
+    messageStream.acknowledgeMessage(storedMessages.get(2)).join();
+
+    assertEquals(List.of(storedMessages.get(1)),
+        messageStore.getMessages(aci, Device.PRIMARY_ID, null, 10).join().stream()
+            .map(FoundationDbMessageStore.QueuedMessage::envelope)
+            .toList());
+  }
+
+  private static MessageProtos.Envelope generateRandomMessage() {
+    return MessageProtos.Envelope.newBuilder()
+        .setServerGuid(UUID.randomUUID().toString())
+        .setContent(ByteString.copyFrom(TestRandomUtil.nextBytes(16)))
+        .build();
+  }
+}
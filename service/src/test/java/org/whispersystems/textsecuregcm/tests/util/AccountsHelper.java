@@ -16,18 +16,23 @@ import static org.mockito.Mockito.when;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import org.mockito.MockingDetails;
 import org.mockito.stubbing.Stubbing;
 import org.signal.libsignal.protocol.IdentityKey;
 import org.signal.libsignal.protocol.ecc.ECKeyPair;
 import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
 import org.whispersystems.textsecuregcm.entities.AccountAttributes;
+import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.Device;
@@ -186,6 +191,29 @@ public class AccountsHelper {
     });
   }
 
+  /**
+   * Sets up stubbing for {@link AccountsManager#getByServiceIdentifiers(Collection)} that resolves each identifier
+   * individually with the given lookup function. Callers will typically pass a function that delegates to the mock's own
+   * single-identifier lookup methods so that existing per-identifier stubbing also applies to bulk lookups.
+   */
+  public static void setupMockGetByServiceIdentifiers(final AccountsManager mockAccountsManager,
+      final Function<ServiceIdentifier, Optional<Account>> lookup) {
+
+    when(mockAccountsManager.getByServiceIdentifiers(any())).thenAnswer(answer -> {
+      final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = new HashMap<>();
+
+      for (final ServiceIdentifier serviceIdentifier : answer.<Collection<? extends ServiceIdentifier>>getArgument(0)) {
+        final Optional<Account> maybeAccount = lookup.apply(serviceIdentifier);
+
+        if (maybeAccount != null) {
+          maybeAccount.ifPresent(account -> accountsByServiceIdentifier.put(serviceIdentifier, account));
+        }
+      }
+
+      return CompletableFuture.completedFuture(accountsByServiceIdentifier);
+    });
+  }
+
   private static Account copyAndMarkStale(Account account) throws IOException {
     MockingDetails mockingDetails = mockingDetails(account);
 
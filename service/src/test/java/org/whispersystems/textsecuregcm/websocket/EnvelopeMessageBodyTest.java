@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
+import org.whispersystems.textsecuregcm.util.TestRandomUtil;
+import org.whispersystems.textsecuregcm.util.UUIDUtil;
+
+class EnvelopeMessageBodyTest {
+
+  @ParameterizedTest
+  @MethodSource
+  void toByteArray(final Envelope envelope) {
+    final byte[] expectedBytes = envelope.toBuilder().clearEphemeral().build().toByteArray();
+    final EnvelopeMessageBody messageBody = new EnvelopeMessageBody(envelope);
+
+    assertEquals(expectedBytes.length, messageBody.getSerializedSize());
+    assertArrayEquals(expectedBytes, messageBody.toByteArray());
+  }
+
+  private static Stream<Arguments> toByteArray() {
+    final UUID sourceUuid = UUID.randomUUID();
+    final UUID destinationUuid = UUID.randomUUID();
+    final UUID serverGuid = UUID.randomUUID();
+    final UUID updatedPni = UUID.randomUUID();
+
+    // Populate every field so that adding a field to `Envelope` without also writing it in `EnvelopeMessageBody` causes
+    // this test to fail
+    final Envelope fullEnvelope = Envelope.newBuilder()
+        .setType(Envelope.Type.UNIDENTIFIED_SENDER)
+        .setSourceServiceId(sourceUuid.toString())
+        .setSourceDevice(2)
+        .setClientTimestamp(1234)
+        .setContent(ByteString.copyFrom(TestRandomUtil.nextBytes(1024)))
+        .setServerGuid(serverGuid.toString())
+        .setServerTimestamp(5678)
+        .setEphemeral(true)
+        .setDestinationServiceId(destinationUuid.toString())
+        .setUrgent(false)
+        .setUpdatedPni(updatedPni.toString())
+        .setStory(true)
+        .setReportSpamToken(ByteString.copyFrom(TestRandomUtil.nextBytes(16)))
+        .setSharedMrmKey(ByteString.copyFrom(TestRandomUtil.nextBytes(32)))
+        .setSourceServiceIdBinary(UUIDUtil.toByteString(sourceUuid))
+        .setDestinationServiceIdBinary(UUIDUtil.toByteString(destinationUuid))
+        .setServerGuidBinary(UUIDUtil.toByteString(serverGuid))
+        .setUpdatedPniBinary(UUIDUtil.toByteString(updatedPni))
+        .build();
+
+    assertEquals(Envelope.getDescriptor().getFields().size(), fullEnvelope.getAllFields().size());
+
+    return Stream.of(
+        Arguments.of(Envelope.getDefaultInstance()),
+        Arguments.of(fullEnvelope),
+        Arguments.of(fullEnvelope.toBuilder().setEphemeral(false).build()),
+        Arguments.of(fullEnvelope.toBuilder().clearEphemeral().build()),
+        Arguments.of(Envelope.newBuilder()
+            .setType(Envelope.Type.CIPHERTEXT)
+            .setContent(ByteString.copyFrom(TestRandomUtil.nextBytes(64)))
+            .setServerTimestamp(5678)
+            .setEphemeral(false)
+            .build()),
+        Arguments.of(fullEnvelope.toBuilder()
+            .setUnknownFields(UnknownFieldSet.newBuilder()
+                .addField(99, UnknownFieldSet.Field.newBuilder().addVarint(17).build())
+                .build())
+            .build())
+    );
+  }
+}
@@ -188,30 +188,27 @@ class WebSocketConnectionIntegrationTest {
       final WebSocketResponseMessage successResponse = mock(WebSocketResponseMessage.class);
 
       when(successResponse.getStatus()).thenReturn(200);
-      when(webSocketClient.sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), any()))
+      when(webSocketClient.sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(), any(), any()))
           .thenReturn(CompletableFuture.completedFuture(successResponse));
 
       webSocketConnection.start();
 
-      @SuppressWarnings("unchecked") final ArgumentCaptor<Optional<byte[]>> messageBodyCaptor =
-          ArgumentCaptor.forClass(Optional.class);
+      final ArgumentCaptor<EnvelopeMessageBody> messageBodyCaptor = ArgumentCaptor.forClass(EnvelopeMessageBody.class);
 
       verify(webSocketClient, timeout(10_000))
           .sendRequest(eq("PUT"), eq("/api/v1/queue/empty"), anyList(), eq(Optional.empty()));
 
       verify(webSocketClient, times(persistedMessageCount + cachedMessageCount))
-          .sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), messageBodyCaptor.capture());
+          .sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(), messageBodyCaptor.capture(), any());
 
       final List<MessageProtos.Envelope> sentMessages = new ArrayList<>();
 
-      for (final Optional<byte[]> maybeMessageBody : messageBodyCaptor.getAllValues()) {
-        maybeMessageBody.ifPresent(messageBytes -> {
-          try {
-            sentMessages.add(MessageProtos.Envelope.parseFrom(messageBytes));
-          } catch (final InvalidProtocolBufferException e) {
-            fail("Could not parse sent message");
-          }
-        });
+      for (final EnvelopeMessageBody messageBody : messageBodyCaptor.getAllValues()) {
+        try {
+          sentMessages.add(MessageProtos.Envelope.parseFrom(messageBody.toByteArray()));
+        } catch (final InvalidProtocolBufferException e) {
+          fail("Could not parse sent message");
+        }
       }
 
       assertEquals(expectedMessages, sentMessages);
@@ -269,7 +266,7 @@ class WebSocketConnectionIntegrationTest {
       final int additionalMessageCount = 67;
 
       when(successResponse.getStatus()).thenReturn(200);
-      when(webSocketClient.sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), any()))
+      when(webSocketClient.sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(), any(), any()))
           .thenAnswer(_ -> {
             if (remainingMessages.addAndGet(-1) == 60) {
               sharedExecutorService.submit(() -> {
@@ -288,25 +285,22 @@ class WebSocketConnectionIntegrationTest {
 
       webSocketConnection.start();
 
-      @SuppressWarnings("unchecked") final ArgumentCaptor<Optional<byte[]>> messageBodyCaptor =
-          ArgumentCaptor.forClass(Optional.class);
+      final ArgumentCaptor<EnvelopeMessageBody> messageBodyCaptor = ArgumentCaptor.forClass(EnvelopeMessageBody.class);
 
       verify(webSocketClient, timeout(10_000))
           .sendRequest(eq("PUT"), eq("/api/v1/queue/empty"), anyList(), eq(Optional.empty()));
 
       verify(webSocketClient, timeout(10_000).times(persistedMessageCount + cachedMessageCount + additionalMessageCount))
-          .sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), messageBodyCaptor.capture());
+          .sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(), messageBodyCaptor.capture(), any());
 
       final List<MessageProtos.Envelope> sentMessages = new ArrayList<>();
 
-      for (final Optional<byte[]> maybeMessageBody : messageBodyCaptor.getAllValues()) {
-        maybeMessageBody.ifPresent(messageBytes -> {
-          try {
-            sentMessages.add(MessageProtos.Envelope.parseFrom(messageBytes));
-          } catch (final InvalidProtocolBufferException e) {
-            fail("Could not parse sent message");
-          }
-        });
+      for (final EnvelopeMessageBody messageBody : messageBodyCaptor.getAllValues()) {
+        try {
+          sentMessages.add(MessageProtos.Envelope.parseFrom(messageBody.toByteArray()));
+        } catch (final InvalidProtocolBufferException e) {
+          fail("Could not parse sent message");
+        }
       }
 
       assertEquals(expectedMessages, sentMessages);
@@ -357,24 +351,22 @@ class WebSocketConnectionIntegrationTest {
         expectedMessages.add(envelope);
       }
 
-      when(webSocketClient.sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), any()))
+      when(webSocketClient.sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(), any(), any()))
           .thenReturn(CompletableFuture.failedFuture(new IOException("Connection closed")));
 
       webSocketConnection.start();
 
-      //noinspection unchecked
-      final ArgumentCaptor<Optional<byte[]>> messageBodyCaptor = ArgumentCaptor.forClass(Optional.class);
+      final ArgumentCaptor<EnvelopeMessageBody> messageBodyCaptor = ArgumentCaptor.forClass(EnvelopeMessageBody.class);
 
-      verify(webSocketClient, atMost(persistedMessageCount + cachedMessageCount)).sendRequest(eq("PUT"),
-          eq("/api/v1/message"), anyList(), messageBodyCaptor.capture());
+      verify(webSocketClient, atMost(persistedMessageCount + cachedMessageCount)).sendProtobufRequest(eq("PUT"),
+          eq("/api/v1/message"), anyList(), messageBodyCaptor.capture(), any());
       verify(webSocketClient, never()).sendRequest(eq("PUT"), eq("/api/v1/queue/empty"), anyList(),
           eq(Optional.empty()));
 
       final List<MessageProtos.Envelope> sentMessages = messageBodyCaptor.getAllValues().stream()
-          .map(Optional::orElseThrow)
-          .map(messageBytes -> {
+          .map(messageBody -> {
             try {
-              return Envelope.parseFrom(messageBytes);
+              return Envelope.parseFrom(messageBody.toByteArray());
             } catch (InvalidProtocolBufferException e) {
               throw new RuntimeException(e);
             }
@@ -26,7 +26,6 @@ import io.lettuce.core.RedisCommandTimeoutException;
 import io.lettuce.core.RedisException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -159,17 +158,17 @@ class WebSocketConnectionTest {
 
     when(client.isOpen()).thenReturn(true);
 
-    when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), any(), any()))
+    when(client.sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), any(), any(), any()))
         .thenReturn(CompletableFuture.completedFuture(successResponse));
 
     final WebSocketConnection webSocketConnection = buildWebSocketConnection(client);
     webSocketConnection.start();
 
-    verify(client).sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), argThat(body ->
-        body.isPresent() && Arrays.equals(body.get(), WebSocketConnection.serializeMessage(successfulMessage))));
+    verify(client).sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(),
+        eq(new EnvelopeMessageBody(successfulMessage)), any());
 
-    verify(client).sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), argThat(body ->
-        body.isPresent() && Arrays.equals(body.get(), WebSocketConnection.serializeMessage(secondSuccessfulMessage))));
+    verify(client).sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(),
+        eq(new EnvelopeMessageBody(secondSuccessfulMessage)), any());
 
     verify(messageStream).acknowledgeMessage(successfulMessage);
     verify(messageStream).acknowledgeMessage(secondSuccessfulMessage);
@@ -228,24 +227,24 @@ class WebSocketConnectionTest {
 
     when(client.isOpen()).thenReturn(true);
 
-    when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), any(), any()))
+    when(client.sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), any(), any(), any()))
         .thenReturn(CompletableFuture.completedFuture(successResponse));
 
-    when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), any(), argThat(body ->
-        body.isPresent() && Arrays.equals(body.get(), WebSocketConnection.serializeMessage(failedMessage)))))
+    when(client.sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), any(),
+        eq(new EnvelopeMessageBody(failedMessage)), any()))
         .thenReturn(CompletableFuture.failedFuture(new RedisCommandTimeoutException()));
 
     final WebSocketConnection webSocketConnection = buildWebSocketConnection(client);
     webSocketConnection.start();
 
-    verify(client).sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), argThat(body ->
-        body.isPresent() && Arrays.equals(body.get(), WebSocketConnection.serializeMessage(successfulMessage))));
+    verify(client).sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(),
+        eq(new EnvelopeMessageBody(successfulMessage)), any());
 
-    verify(client).sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), argThat(body ->
-        body.isPresent() && Arrays.equals(body.get(), WebSocketConnection.serializeMessage(failedMessage))));
+    verify(client).sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(),
+        eq(new EnvelopeMessageBody(failedMessage)), any());
 
-    verify(client, never()).sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), argThat(body ->
-        body.isPresent() && Arrays.equals(body.get(), WebSocketConnection.serializeMessage(secondSuccessfulMessage))));
+    verify(client, never()).sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(),
+        eq(new EnvelopeMessageBody(secondSuccessfulMessage)), any());
 
     verify(messageStream).acknowledgeMessage(successfulMessage);
     verify(messageStream, never()).acknowledgeMessage(secondSuccessfulMessage);
@@ -304,7 +303,7 @@ class WebSocketConnectionTest {
     final WebSocketResponseMessage successResponse = mock(WebSocketResponseMessage.class);
     when(successResponse.getStatus()).thenReturn(200);
 
-    when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), any(), any()))
+    when(client.sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), any(), any(), any()))
         .thenAnswer(_ -> CompletableFuture.supplyAsync(() -> successResponse,
             CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS)));
 
@@ -351,7 +350,7 @@ class WebSocketConnectionTest {
     final WebSocketResponseMessage successResponse = mock(WebSocketResponseMessage.class);
     when(successResponse.getStatus()).thenReturn(200);
 
-    when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), any(), any()))
+    when(client.sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), any(), any(), any()))
         .thenReturn(new CompletableFuture<>());
 
     final WebSocketConnection webSocketConnection = buildWebSocketConnection(client);
@@ -364,8 +363,8 @@ class WebSocketConnectionTest {
 
     // A "conflicting consumer" should close the socket as soon as possible (i.e. even if messages are still getting
     // processed)
-    inOrder.verify(client).sendRequest(eq("PUT"), eq("/api/v1/message"), anyList(), argThat(body ->
-        body.isPresent() && Arrays.equals(body.get(), WebSocketConnection.serializeMessage(message))));
+    inOrder.verify(client).sendProtobufRequest(eq("PUT"), eq("/api/v1/message"), anyList(),
+        eq(new EnvelopeMessageBody(message)), any());
 
     verify(client).close(eq(4409), anyString());
   }
@@ -482,6 +481,8 @@ class WebSocketConnectionTest {
     final WebSocketResponseMessage successResponse = mock(WebSocketResponseMessage.class);
     when(successResponse.getStatus()).thenReturn(200);
     when(client.sendRequest(any(), any(), any(), any())).thenReturn(CompletableFuture.completedFuture(successResponse));
+    when(client.sendProtobufRequest(any(), any(), any(), any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(successResponse));
 
     final WebSocketConnection webSocketConnection = buildWebSocketConnection(client);
 
@@ -544,12 +545,14 @@ class WebSocketConnectionTest {
     final WebSocketClient client = mock(WebSocketClient.class);
     when(client.isOpen()).thenReturn(true);
     when(client.sendRequest(any(), any(), any(), any())).thenReturn(CompletableFuture.completedFuture(successResponse));
+    when(client.sendProtobufRequest(any(), any(), any(), any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(successResponse));
 
     final WebSocketConnection webSocketConnection = buildWebSocketConnection(client);
 
     webSocketConnection.start();
 
-    verify(client).sendRequest(any(), any(), any(), any());
+    verify(client).sendProtobufRequest(any(), any(), any(), any(), any());
 
     // close the connection before the publisher completes
     webSocketConnection.stop();
@@ -4,14 +4,25 @@
  */
 package org.whispersystems.websocket;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.net.HttpHeaders;
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WriteCallback;
@@ -19,8 +30,10 @@ import org.eclipse.jetty.websocket.api.exceptions.WebSocketException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.websocket.messages.WebSocketMessage;
+import org.whispersystems.websocket.messages.WebSocketMessageBody;
 import org.whispersystems.websocket.messages.WebSocketMessageFactory;
 import org.whispersystems.websocket.messages.WebSocketResponseMessage;
+import org.whispersystems.websocket.messages.protobuf.ProtobufWebSocketRequestWriter;
 
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
 public class WebSocketClient {
@@ -28,21 +41,90 @@ public class WebSocketClient {
   private static final Logger logger = LoggerFactory.getLogger(WebSocketClient.class);
   private static final SecureRandom SECURE_RANDOM = new SecureRandom();
 
+  // Direct buffers let the container write framed requests to the network without first copying them out of the heap
+  private static final ByteBufferPool BUFFER_POOL =
+      new ArrayByteBufferPool(0, 4096, 256 * 1024, -1, 0, 64 * 1024 * 1024);
+
+  private static final int DEFAULT_SEND_WINDOW_BYTES = 1024 * 1024;
+
+  // Responses (which free room in the send window) usually arrive on the container's I/O threads; rather than
+  // serializing and writing queued requests there, hand that work off to a (cheap, unbounded) virtual thread
+  private static final Executor DEFAULT_WRITE_EXECUTOR =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("websocketClientWriter-", 0).factory());
+
   private final Session session;
   private final RemoteEndpoint remoteEndpoint;
   private final WebSocketMessageFactory messageFactory;
   private final Map<Long, CompletableFuture<WebSocketResponseMessage>> pendingRequestMapper;
   private final Instant created;
+  private final int sendWindowBytes;
+  private final Executor writeExecutor;
+
+  // Requests waiting for room in the send window, in the order in which they should be written; also guards
+  // `bytesInFlight` and `writingOutboundRequests`
+  private final Queue<OutboundRequest> outboundRequests = new ArrayDeque<>();
+  private long bytesInFlight = 0;
+  private boolean writingOutboundRequests = false;
+
+  private static class OutboundRequest {
+
+    private final long requestId;
+    private final String verb;
+    private final String path;
+    private final List<String> headers;
+    private final WebSocketMessageBody body;
+    private final int serializedSize;
+    private final Runnable writeListener;
+    private final CompletableFuture<WebSocketResponseMessage> future;
+
+    // Guarded by `outboundRequests`; true once the request has left the queue and counts against the send window
+    private boolean admitted = false;
+
+    private OutboundRequest(final long requestId,
+        final String verb,
+        final String path,
+        final List<String> headers,
+        final WebSocketMessageBody body,
+        final int serializedSize,
+        final Runnable writeListener,
+        final CompletableFuture<WebSocketResponseMessage> future) {
+
+      this.requestId = requestId;
+      this.verb = verb;
+      this.path = path;
+      this.headers = headers;
+      this.body = body;
+      this.serializedSize = serializedSize;
+      this.writeListener = writeListener;
+      this.future = future;
+    }
+  }
 
   public WebSocketClient(Session session, RemoteEndpoint remoteEndpoint, WebSocketMessageFactory messageFactory,
                          Map<Long, CompletableFuture<WebSocketResponseMessage>> pendingRequestMapper) {
+    this(session, remoteEndpoint, messageFactory, pendingRequestMapper, DEFAULT_SEND_WINDOW_BYTES,
+        DEFAULT_WRITE_EXECUTOR);
+  }
+
+  @VisibleForTesting
+  WebSocketClient(final Session session,
+      final RemoteEndpoint remoteEndpoint,
+      final WebSocketMessageFactory messageFactory,
+      final Map<Long, CompletableFuture<WebSocketResponseMessage>> pendingRequestMapper,
+      final int sendWindowBytes,
+      final Executor writeExecutor) {
+
     this.session = session;
     this.remoteEndpoint = remoteEndpoint;
     this.messageFactory = messageFactory;
     this.pendingRequestMapper = pendingRequestMapper;
     this.created = Instant.now();
+    this.sendWindowBytes = sendWindowBytes;
+    this.writeExecutor = writeExecutor;
   }
 
+  /// Sends a request with an optional, pre-serialized body. Requests sent this way are written immediately and don't
+  /// count against the send window used by [#sendProtobufRequest].
   public CompletableFuture<WebSocketResponseMessage> sendRequest(String verb, String path,
                                                                  List<String> headers,
                                                                  Optional<byte[]> body)
@@ -72,6 +154,195 @@ public class WebSocketClient {
     return future;
   }
 
+  /// Sends a request whose body writes itself directly into the request's framing. The whole framed request is written
+  /// into a single pooled buffer, which is returned to the pool once the write completes, so no intermediate protobuf
+  /// objects or copies of the body are created along the way.
+  ///
+  /// Requests sent this way are subject to this client's send window: once the requests that have been written but not
+  /// yet answered add up to the window's size in bytes, further requests wait in a queue until the client responds to
+  /// earlier requests. A slow client therefore throttles delivery by the number of bytes it has yet to acknowledge,
+  /// regardless of how many messages that represents. Queued requests are written in order and in batches, and aren't
+  /// serialized until they're written. Requests that fit in the window when they're sent are written on the calling
+  /// thread; requests that have to wait are written on a separate executor once responses make room for them.
+  ///
+  /// @param verb the HTTP verb for the request
+  /// @param path the path for the request
+  /// @param headers the headers to include with the request
+  /// @param body the body of the request
+  ///
+  /// @return a future that completes with the client's response to the request
+  public CompletableFuture<WebSocketResponseMessage> sendProtobufRequest(final String verb,
+      final String path,
+      final List<String> headers,
+      final WebSocketMessageBody body) {
+
+    return sendProtobufRequest(verb, path, headers, body, () -> {});
+  }
+
+  /// Sends a request as with [#sendProtobufRequest(String, String, List, WebSocketMessageBody)], and notifies the given
+  /// listener when the request leaves the send window's queue and is handed to the remote endpoint. Because requests
+  /// may wait in the queue for some time, callers measuring what's actually sent to the client (or how long the client
+  /// takes to respond) should do so from the listener rather than when they call this method.
+  ///
+  /// @param verb the HTTP verb for the request
+  /// @param path the path for the request
+  /// @param headers the headers to include with the request
+  /// @param body the body of the request
+  /// @param writeListener a listener to call when the request is written; the listener may be called on any thread,
+  /// and must not block
+  ///
+  /// @return a future that completes with the client's response to the request
+  public CompletableFuture<WebSocketResponseMessage> sendProtobufRequest(final String verb,
+      final String path,
+      final List<String> headers,
+      final WebSocketMessageBody body,
+      final Runnable writeListener) {
+
+    final long requestId = generateRequestId();
+    final CompletableFuture<WebSocketResponseMessage> future = new CompletableFuture<>();
+
+    final OutboundRequest request = new OutboundRequest(requestId, verb, path, headers, body,
+        ProtobufWebSocketRequestWriter.getSerializedSize(requestId, verb, path, headers, body), writeListener, future);
+
+    pendingRequestMapper.put(requestId, future);
+
+    synchronized (outboundRequests) {
+      outboundRequests.add(request);
+    }
+
+    // Requests may finish (for example, because the connection closed) before they're ever written, so release their
+    // place in the queue or window however they finish
+    future.whenComplete((_, _) -> releaseSendWindow(request));
+
+    writeOutboundRequests();
+
+    return future;
+  }
+
+  private void releaseSendWindow(final OutboundRequest request) {
+    final boolean shouldWriteOutboundRequests;
+
+    synchronized (outboundRequests) {
+      if (request.admitted) {
+        bytesInFlight -= request.serializedSize;
+      } else {
+        outboundRequests.remove(request);
+      }
+
+      shouldWriteOutboundRequests = !writingOutboundRequests && !outboundRequests.isEmpty();
+    }
+
+    // Requests usually finish on whatever thread delivered the client's response (typically one of the container's I/O
+    // threads), so don't serialize and write queued requests here
+    if (shouldWriteOutboundRequests) {
+      writeExecutor.execute(this::writeOutboundRequests);
+    }
+  }
+
+  /// Writes as many queued requests as the send window allows. Only one thread writes at a time so requests reach the
+  /// remote endpoint in the order in which they were queued; a thread that finds another already writing leaves the
+  /// work to that thread, which checks the queue again before it stops.
+  private void writeOutboundRequests() {
+    synchronized (outboundRequests) {
+      if (writingOutboundRequests) {
+        return;
+      }
+
+      writingOutboundRequests = true;
+    }
+
+    final List<OutboundRequest> batch = new ArrayList<>();
+
+    while (true) {
+      synchronized (outboundRequests) {
+        while (!outboundRequests.isEmpty()) {
+          final OutboundRequest request = outboundRequests.peek();
+
+          // Always admit at least one request so a single request larger than the window can still make progress
+          if (bytesInFlight > 0 && bytesInFlight + request.serializedSize > sendWindowBytes) {
+            break;
+          }
+
+          outboundRequests.poll();
+          request.admitted = true;
+          bytesInFlight += request.serializedSize;
+
+          batch.add(request);
+        }
+
+        if (batch.isEmpty()) {
+          writingOutboundRequests = false;
+          return;
+        }
+      }
+
+      // Hand the whole batch to the endpoint back-to-back so frames that queue up behind an in-progress write go out
+      // together in a single gathering write rather than one flush per frame
+      for (final OutboundRequest request : batch) {
+        write(request);
+      }
+
+      batch.clear();
+    }
+  }
+
+  private void write(final OutboundRequest request) {
+    final ByteBuffer buffer = BUFFER_POOL.acquire(request.serializedSize, true);
+    final AtomicBoolean released = new AtomicBoolean(false);
+
+    final Runnable releaseBuffer = () -> {
+      if (released.compareAndSet(false, true)) {
+        BUFFER_POOL.release(buffer);
+      }
+    };
+
+    try {
+      buffer.clear();
+
+      final CodedOutputStream outputStream = CodedOutputStream.newInstance(buffer);
+      ProtobufWebSocketRequestWriter.writeTo(outputStream,
+          request.requestId, request.verb, request.path, request.headers, request.body);
+      outputStream.flush();
+
+      buffer.limit(request.serializedSize).position(0);
+    } catch (final IOException | RuntimeException e) {
+      logger.warn("Failed to write request", e);
+      releaseBuffer.run();
+      pendingRequestMapper.remove(request.requestId);
+      request.future.completeExceptionally(e);
+
+      return;
+    }
+
+    try {
+      request.writeListener.run();
+    } catch (final RuntimeException e) {
+      logger.warn("Write listener failed", e);
+    }
+
+    try {
+      remoteEndpoint.sendBytes(buffer, new WriteCallback() {
+        @Override
+        public void writeSuccess() {
+          releaseBuffer.run();
+        }
+
+        @Override
+        public void writeFailed(Throwable x) {
+          logger.debug("Write failed", x);
+          releaseBuffer.run();
+          pendingRequestMapper.remove(request.requestId);
+          request.future.completeExceptionally(x);
+        }
+      });
+    } catch (WebSocketException e) {
+      logger.debug("Write", e);
+      releaseBuffer.run();
+      pendingRequestMapper.remove(request.requestId);
+      request.future.completeExceptionally(e);
+    }
+  }
+
   public String getUserAgent() {
     return session.getUpgradeRequest().getHeader(HttpHeaders.USER_AGENT);
   }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.websocket.messages;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import java.io.IOException;
+
+/// The body of an outbound websocket request that can write itself directly into the request's framing. Writing a body
+/// this way avoids serializing it to an intermediate byte array and then copying that array into the enclosing message.
+public interface WebSocketMessageBody {
+
+  /// Returns the exact number of bytes [#writeTo(CodedOutputStream)] will write. Implementations should make this cheap
+  /// to call repeatedly (protobuf messages, for example, memoize their serialized size).
+  ///
+  /// @return the serialized size of this body, in bytes
+  int getSerializedSize();
+
+  /// Writes this body to the given output stream.
+  ///
+  /// @param outputStream the stream to which to write this body
+  ///
+  /// @throws IOException if the body could not be written to the given stream
+  void writeTo(CodedOutputStream outputStream) throws IOException;
+
+  /// Serializes this body to a new byte array.
+  ///
+  /// @return a new byte array containing this body's serialized form
+  default byte[] toByteArray() {
+    final byte[] bytes = new byte[getSerializedSize()];
+    final CodedOutputStream outputStream = CodedOutputStream.newInstance(bytes);
+
+    try {
+      writeTo(outputStream);
+      outputStream.checkNoSpaceLeft();
+    } catch (final IOException e) {
+      throw new IllegalStateException("Writing to a byte array should never throw an IOException", e);
+    }
+
+    return bytes;
+  }
+
+  /// Returns a body that writes the given protobuf message as-is.
+  ///
+  /// @param message the message to use as a request body
+  ///
+  /// @return a body that writes the given message
+  static WebSocketMessageBody of(final MessageLite message) {
+    return new WebSocketMessageBody() {
+      @Override
+      public int getSerializedSize() {
+        return message.getSerializedSize();
+      }
+
+      @Override
+      public void writeTo(final CodedOutputStream outputStream) throws IOException {
+        message.writeTo(outputStream);
+      }
+    };
+  }
+}
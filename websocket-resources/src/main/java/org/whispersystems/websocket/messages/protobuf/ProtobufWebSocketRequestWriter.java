@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.websocket.messages.protobuf;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+import java.util.List;
+import org.whispersystems.websocket.messages.WebSocketMessageBody;
+
+/// Writes complete, framed `WebSocketMessage` requests directly to a [CodedOutputStream] without building intermediate
+/// `WebSocketRequestMessage` or `WebSocketMessage` objects or copying the request body.
+///
+/// The bytes written are identical to those produced by serializing the equivalent message built with
+/// [ProtobufWebSocketMessageFactory#createRequest]; fields are written in field-number order, just as generated
+/// protobuf code does.
+public final class ProtobufWebSocketRequestWriter {
+
+  private ProtobufWebSocketRequestWriter() {
+  }
+
+  /// Returns the exact number of bytes [#writeTo] will write for a request with the given parameters.
+  public static int getSerializedSize(final long requestId,
+      final String verb,
+      final String path,
+      final List<String> headers,
+      final WebSocketMessageBody body) {
+
+    final int requestSize = getRequestSize(requestId, verb, path, headers, body.getSerializedSize());
+
+    return CodedOutputStream.computeEnumSize(SubProtocol.WebSocketMessage.TYPE_FIELD_NUMBER,
+        SubProtocol.WebSocketMessage.Type.REQUEST_VALUE)
+        + CodedOutputStream.computeTagSize(SubProtocol.WebSocketMessage.REQUEST_FIELD_NUMBER)
+        + CodedOutputStream.computeUInt32SizeNoTag(requestSize)
+        + requestSize;
+  }
+
+  /// Writes a framed `WebSocketMessage` request with the given parameters to the given output stream. Callers are
+  /// responsible for flushing the stream.
+  ///
+  /// @throws IOException if the request could not be written to the given stream
+  public static void writeTo(final CodedOutputStream outputStream,
+      final long requestId,
+      final String verb,
+      final String path,
+      final List<String> headers,
+      final WebSocketMessageBody body) throws IOException {
+
+    final int bodySize = body.getSerializedSize();
+
+    outputStream.writeEnum(SubProtocol.WebSocketMessage.TYPE_FIELD_NUMBER,
+        SubProtocol.WebSocketMessage.Type.REQUEST_VALUE);
+
+    outputStream.writeTag(SubProtocol.WebSocketMessage.REQUEST_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    outputStream.writeUInt32NoTag(getRequestSize(requestId, verb, path, headers, bodySize));
+
+    outputStream.writeString(SubProtocol.WebSocketRequestMessage.VERB_FIELD_NUMBER, verb);
+    outputStream.writeString(SubProtocol.WebSocketRequestMessage.PATH_FIELD_NUMBER, path);
+
+    outputStream.writeTag(SubProtocol.WebSocketRequestMessage.BODY_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    outputStream.writeUInt32NoTag(bodySize);
+    body.writeTo(outputStream);
+
+    outputStream.writeUInt64(SubProtocol.WebSocketRequestMessage.ID_FIELD_NUMBER, requestId);
+
+    for (final String header : headers) {
+      outputStream.writeString(SubProtocol.WebSocketRequestMessage.HEADERS_FIELD_NUMBER, header);
+    }
+  }
+
+  private static int getRequestSize(final long requestId,
+      final String verb,
+      final String path,
+      final List<String> headers,
+      final int bodySize) {
+
+    int size = CodedOutputStream.computeStringSize(SubProtocol.WebSocketRequestMessage.VERB_FIELD_NUMBER, verb)
+        + CodedOutputStream.computeStringSize(SubProtocol.WebSocketRequestMessage.PATH_FIELD_NUMBER, path)
+        + CodedOutputStream.computeTagSize(SubProtocol.WebSocketRequestMessage.BODY_FIELD_NUMBER)
+        + CodedOutputStream.computeUInt32SizeNoTag(bodySize)
+        + bodySize
+        + CodedOutputStream.computeUInt64Size(SubProtocol.WebSocketRequestMessage.ID_FIELD_NUMBER, requestId);
+
+    for (final String header : headers) {
+      size += CodedOutputStream.computeStringSize(SubProtocol.WebSocketRequestMessage.HEADERS_FIELD_NUMBER, header);
+    }
+
+    return size;
+  }
+}
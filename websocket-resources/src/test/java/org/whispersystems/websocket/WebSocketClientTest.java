@@ -0,0 +1,230 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.google.protobuf.ByteString;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.websocket.messages.WebSocketMessageBody;
+import org.whispersystems.websocket.messages.WebSocketResponseMessage;
+import org.whispersystems.websocket.messages.protobuf.ProtobufWebSocketMessageFactory;
+import org.whispersystems.websocket.messages.protobuf.SubProtocol;
+
+class WebSocketClientTest {
+
+  private RemoteEndpoint remoteEndpoint;
+  private Map<Long, CompletableFuture<WebSocketResponseMessage>> pendingRequests;
+  private List<SubProtocol.WebSocketRequestMessage> writtenRequests;
+
+  private static final int BODY_SIZE = 1000;
+
+  // Large enough for two requests with a body of `BODY_SIZE`, but not three
+  private static final int SEND_WINDOW_BYTES = 2500;
+
+  @BeforeEach
+  void setUp() {
+    remoteEndpoint = mock(RemoteEndpoint.class);
+    pendingRequests = new ConcurrentHashMap<>();
+    writtenRequests = new ArrayList<>();
+
+    doAnswer(invocation -> {
+      final ByteBuffer buffer = invocation.getArgument(0);
+      final byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+
+      writtenRequests.add(SubProtocol.WebSocketMessage.parseFrom(bytes).getRequest());
+      invocation.<WriteCallback>getArgument(1).writeSuccess();
+
+      return null;
+    }).when(remoteEndpoint).sendBytes(any(), any());
+  }
+
+  @Test
+  void sendProtobufRequest() {
+    final WebSocketClient client = buildClient(SEND_WINDOW_BYTES);
+    final WebSocketMessageBody body = buildBody(BODY_SIZE);
+
+    final CompletableFuture<WebSocketResponseMessage> responseFuture =
+        client.sendProtobufRequest("PUT", "/api/v1/message", List.of("X-Signal-Key: false"), body);
+
+    assertEquals(1, writtenRequests.size());
+
+    final SubProtocol.WebSocketRequestMessage request = writtenRequests.getFirst();
+    assertEquals("PUT", request.getVerb());
+    assertEquals("/api/v1/message", request.getPath());
+    assertEquals(List.of("X-Signal-Key: false"), request.getHeadersList());
+    assertEquals(ByteString.copyFrom(body.toByteArray()), request.getBody());
+
+    assertFalse(responseFuture.isDone());
+    respond(request.getId());
+    assertTrue(responseFuture.isDone());
+  }
+
+  @Test
+  void sendProtobufRequestWindowFull() {
+    final WebSocketClient client = buildClient(SEND_WINDOW_BYTES);
+
+    final List<CompletableFuture<WebSocketResponseMessage>> responseFutures = new ArrayList<>();
+
+    for (int i = 0; i < 5; i++) {
+      responseFutures.add(client.sendProtobufRequest("PUT", "/api/v1/message", List.of(), buildBody(BODY_SIZE)));
+    }
+
+    // Only two requests fit in the window; the rest should wait until the client acknowledges earlier requests
+    assertEquals(2, writtenRequests.size());
+
+    // Requests must be written in the order in which they were sent
+    for (int i = 0; i < responseFutures.size(); i++) {
+      assertEquals(Math.min(i + 2, responseFutures.size()), writtenRequests.size());
+
+      assertFalse(responseFutures.get(i).isDone());
+      respond(writtenRequests.get(i).getId());
+      assertTrue(responseFutures.get(i).isDone());
+    }
+  }
+
+  @Test
+  void sendProtobufRequestLargerThanWindow() {
+    final WebSocketClient client = buildClient(SEND_WINDOW_BYTES);
+
+    client.sendProtobufRequest("PUT", "/api/v1/message", List.of(), buildBody(SEND_WINDOW_BYTES * 2));
+    client.sendProtobufRequest("PUT", "/api/v1/message", List.of(), buildBody(BODY_SIZE));
+
+    // A request larger than the whole window can still be written if nothing else is in flight…
+    assertEquals(1, writtenRequests.size());
+
+    // …but nothing else can be written until it's acknowledged
+    respond(writtenRequests.getFirst().getId());
+    assertEquals(2, writtenRequests.size());
+  }
+
+  @Test
+  void sendProtobufRequestClosedBeforeWrite() {
+    final WebSocketClient client = buildClient(SEND_WINDOW_BYTES);
+
+    final List<CompletableFuture<WebSocketResponseMessage>> responseFutures = new ArrayList<>();
+
+    for (int i = 0; i < 3; i++) {
+      responseFutures.add(client.sendProtobufRequest("PUT", "/api/v1/message", List.of(), buildBody(BODY_SIZE)));
+    }
+
+    assertEquals(2, writtenRequests.size());
+
+    // Simulate the connection closing, which fails all outstanding requests, including the one that was never written;
+    // fail the unwritten request first so it can't claim the room freed by the others
+    for (final CompletableFuture<WebSocketResponseMessage> responseFuture : responseFutures.reversed()) {
+      responseFuture.completeExceptionally(new IOException("Connection closed"));
+    }
+
+    assertTrue(responseFutures.stream().allMatch(CompletableFuture::isCompletedExceptionally));
+
+    // Requests that failed before they were written should never be written, and shouldn't hold up later requests
+    client.sendProtobufRequest("PUT", "/api/v1/message", List.of(), buildBody(BODY_SIZE));
+    assertEquals(3, writtenRequests.size());
+  }
+
+  @Test
+  void sendProtobufRequestWindowFullWritesOnExecutor() {
+    final Queue<Runnable> writeTasks = new ArrayDeque<>();
+    final WebSocketClient client = buildClient(SEND_WINDOW_BYTES, writeTasks::add);
+
+    for (int i = 0; i < 3; i++) {
+      client.sendProtobufRequest("PUT", "/api/v1/message", List.of(), buildBody(BODY_SIZE));
+    }
+
+    // Requests that fit in the window are written by the sending thread…
+    assertEquals(2, writtenRequests.size());
+    assertTrue(writeTasks.isEmpty());
+
+    // …but requests waiting for room in the window shouldn't be written by the thread that completes a response
+    respond(writtenRequests.getFirst().getId());
+    assertEquals(2, writtenRequests.size());
+    assertEquals(1, writeTasks.size());
+
+    writeTasks.poll().run();
+    assertEquals(3, writtenRequests.size());
+
+    // Nothing is waiting, so freeing room in the window shouldn't schedule any more work
+    respond(writtenRequests.get(1).getId());
+    assertTrue(writeTasks.isEmpty());
+  }
+
+  @Test
+  void sendProtobufRequestWriteListener() {
+    final WebSocketClient client = buildClient(SEND_WINDOW_BYTES);
+    final AtomicInteger writes = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      client.sendProtobufRequest("PUT", "/api/v1/message", List.of(), buildBody(BODY_SIZE), writes::incrementAndGet);
+    }
+
+    // Listeners should only hear about requests that have actually been written, not ones waiting in the queue
+    assertEquals(2, writes.get());
+
+    respond(writtenRequests.getFirst().getId());
+    assertEquals(3, writes.get());
+  }
+
+  @Test
+  void sendProtobufRequestWriteFailed() {
+    doAnswer(invocation -> {
+      invocation.<WriteCallback>getArgument(1).writeFailed(new IOException("Write failed"));
+      return null;
+    }).when(remoteEndpoint).sendBytes(any(), any());
+
+    final WebSocketClient client = buildClient(SEND_WINDOW_BYTES);
+
+    for (int i = 0; i < 5; i++) {
+      final CompletableFuture<WebSocketResponseMessage> responseFuture =
+          client.sendProtobufRequest("PUT", "/api/v1/message", List.of(), buildBody(BODY_SIZE));
+
+      // Failed writes should release their share of the window
+      assertTrue(responseFuture.isCompletedExceptionally());
+    }
+
+    assertTrue(pendingRequests.isEmpty());
+  }
+
+  private WebSocketClient buildClient(final int sendWindowBytes) {
+    return buildClient(sendWindowBytes, Runnable::run);
+  }
+
+  private WebSocketClient buildClient(final int sendWindowBytes, final Executor writeExecutor) {
+    return new WebSocketClient(mock(Session.class), remoteEndpoint, new ProtobufWebSocketMessageFactory(),
+        pendingRequests, sendWindowBytes, writeExecutor);
+  }
+
+  private void respond(final long requestId) {
+    pendingRequests.remove(requestId).complete(mock(WebSocketResponseMessage.class));
+  }
+
+  private static WebSocketMessageBody buildBody(final int size) {
+    return WebSocketMessageBody.of(SubProtocol.WebSocketResponseMessage.newBuilder()
+        .setBody(ByteString.copyFrom(new byte[size]))
+        .build());
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.websocket;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.whispersystems.websocket.messages.WebSocketMessageBody;
+import org.whispersystems.websocket.messages.protobuf.ProtobufWebSocketMessageFactory;
+import org.whispersystems.websocket.messages.protobuf.ProtobufWebSocketRequestWriter;
+import org.whispersystems.websocket.messages.protobuf.SubProtocol;
+
+/// Compares framing an outbound request by serializing its body to a byte array, building a `WebSocketMessage` around
+/// it, and serializing that message again (the previous implementation, reproduced here) against writing the framed
+/// request directly into a pooled buffer with [ProtobufWebSocketRequestWriter], as
+/// [WebSocketClient#sendProtobufRequest] does. Run with the GC profiler to compare allocation per message.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebSocketRequestFramingBenchmark {
+
+  @Param({"256", "4096", "65536"})
+  public int bodySize;
+
+  private WebSocketMessageBody body;
+
+  private final ProtobufWebSocketMessageFactory messageFactory = new ProtobufWebSocketMessageFactory();
+  private final ByteBufferPool bufferPool = new ArrayByteBufferPool(0, 4096, 256 * 1024, -1, 0, 64 * 1024 * 1024);
+
+  private static final long REQUEST_ID = 1234567890L;
+  private static final String VERB = "PUT";
+  private static final String PATH = "/api/v1/message";
+  private static final List<String> HEADERS = List.of("X-Signal-Key: false", "X-Signal-Timestamp: 1700000000000");
+
+  @Setup
+  public void setUp() {
+    final byte[] content = new byte[bodySize];
+    ThreadLocalRandom.current().nextBytes(content);
+
+    // Stand in for an envelope with a protobuf message carrying an opaque payload of the given size
+    body = WebSocketMessageBody.of(SubProtocol.WebSocketResponseMessage.newBuilder()
+        .setId(REQUEST_ID)
+        .setStatus(200)
+        .setMessage("OK")
+        .setBody(ByteString.copyFrom(content))
+        .build());
+  }
+
+  @Benchmark
+  public void buildAndSerialize(final Blackhole blackhole) {
+    final ByteBuffer buffer = ByteBuffer.wrap(messageFactory
+        .createRequest(Optional.of(REQUEST_ID), VERB, PATH, HEADERS, Optional.of(body.toByteArray()))
+        .toByteArray());
+
+    blackhole.consume(buffer);
+  }
+
+  @Benchmark
+  public void writeToPooledBuffer(final Blackhole blackhole) throws IOException {
+    final int serializedSize = ProtobufWebSocketRequestWriter.getSerializedSize(REQUEST_ID, VERB, PATH, HEADERS, body);
+    final ByteBuffer buffer = bufferPool.acquire(serializedSize, true);
+
+    try {
+      buffer.clear();
+
+      final CodedOutputStream outputStream = CodedOutputStream.newInstance(buffer);
+      ProtobufWebSocketRequestWriter.writeTo(outputStream, REQUEST_ID, VERB, PATH, HEADERS, body);
+      outputStream.flush();
+
+      buffer.limit(serializedSize).position(0);
+      blackhole.consume(buffer);
+    } finally {
+      bufferPool.release(buffer);
+    }
+  }
+
+  public static void main(final String... args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(WebSocketRequestFramingBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build())
+        .run();
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.websocket.messages.protobuf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.whispersystems.websocket.messages.WebSocketMessageBody;
+
+class ProtobufWebSocketRequestWriterTest {
+
+  @ParameterizedTest
+  @MethodSource
+  void writeTo(final long requestId, final List<String> headers, final byte[] bodyBytes) throws IOException {
+    final String verb = "PUT";
+    final String path = "/api/v1/message";
+
+    // Use a protobuf message as a stand-in body
+    final WebSocketMessageBody body = WebSocketMessageBody.of(SubProtocol.WebSocketResponseMessage.newBuilder()
+        .setBody(ByteString.copyFrom(bodyBytes))
+        .build());
+
+    final byte[] expectedBytes = new ProtobufWebSocketMessageFactory()
+        .createRequest(Optional.of(requestId), verb, path, headers, Optional.of(body.toByteArray()))
+        .toByteArray();
+
+    final int serializedSize = ProtobufWebSocketRequestWriter.getSerializedSize(requestId, verb, path, headers, body);
+    assertEquals(expectedBytes.length, serializedSize);
+
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(serializedSize);
+    final CodedOutputStream outputStream = CodedOutputStream.newInstance(buffer);
+    ProtobufWebSocketRequestWriter.writeTo(outputStream, requestId, verb, path, headers, body);
+    outputStream.flush();
+
+    assertEquals(serializedSize, buffer.position());
+
+    final byte[] writtenBytes = new byte[serializedSize];
+    buffer.flip().get(writtenBytes);
+
+    assertArrayEquals(expectedBytes, writtenBytes);
+  }
+
+  private static Stream<Arguments> writeTo() {
+    final byte[] largeBody = new byte[64 * 1024];
+    for (int i = 0; i < largeBody.length; i++) {
+      largeBody[i] = (byte) i;
+    }
+
+    return Stream.of(
+        Arguments.of(0L, List.of(), new byte[0]),
+        Arguments.of(1L, List.of("X-Signal-Key: false"), "hello".getBytes(StandardCharsets.UTF_8)),
+        Arguments.of(Long.MAX_VALUE, List.of("X-Signal-Key: false", "X-Signal-Timestamp: 1234"), largeBody)
+    );
+  }
+}